@@ -34,6 +34,7 @@ import org.jooq.Cursor;
 import org.jooq.Field;
 import org.jooq.OrderField;
 import org.jooq.Record;
+import org.jooq.Record1;
 import org.jooq.Result;
 import org.jooq.SelectJoinStep;
 import org.jooq.impl.DSL;
@@ -47,6 +48,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
@@ -198,6 +200,56 @@ class AnnotationDaoImpl implements AnnotationDao {
                 .map(RECORD_TO_ANNOTATION_MAPPER::apply);
     }
 
+    @Override
+    public Map<EventId, List<Annotation>> getAnnotationsForEvents(final Collection<EventId> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Group the event ids by stream so the link table index can be used for each stream.
+        final Map<Long, List<Long>> eventIdsByStream = eventIds
+                .stream()
+                .collect(Collectors.groupingBy(EventId::getStreamId,
+                        Collectors.mapping(EventId::getEventId, Collectors.toList())));
+        final List<Condition> conditions = eventIdsByStream
+                .entrySet()
+                .stream()
+                .map(entry -> ANNOTATION_DATA_LINK.STREAM_ID.eq(entry.getKey())
+                        .and(ANNOTATION_DATA_LINK.EVENT_ID.in(entry.getValue())))
+                .collect(Collectors.toList());
+
+        final Map<EventId, List<Annotation>> map = new HashMap<>();
+        JooqUtil.contextResult(connectionProvider, context -> context
+                        .select()
+                        .from(ANNOTATION)
+                        .join(ANNOTATION_DATA_LINK).on(ANNOTATION_DATA_LINK.FK_ANNOTATION_ID.eq(ANNOTATION.ID))
+                        .where(DSL.or(conditions))
+                        .fetch())
+                .forEach(record -> {
+                    final EventId eventId = new EventId(
+                            record.get(ANNOTATION_DATA_LINK.STREAM_ID),
+                            record.get(ANNOTATION_DATA_LINK.EVENT_ID));
+                    map.computeIfAbsent(eventId, k -> new ArrayList<>())
+                            .add(RECORD_TO_ANNOTATION_MAPPER.apply(record));
+                });
+        return map;
+    }
+
+    @Override
+    public Set<Long> getAnnotatedStreamIds(final Collection<Long> streamIds) {
+        if (streamIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return JooqUtil.contextResult(connectionProvider, context -> context
+                        .selectDistinct(ANNOTATION_DATA_LINK.STREAM_ID)
+                        .from(ANNOTATION_DATA_LINK)
+                        .where(ANNOTATION_DATA_LINK.STREAM_ID.in(streamIds))
+                        .fetch())
+                .stream()
+                .map(Record1::value1)
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public List<AnnotationDetail> getAnnotationDetailsForEvents(final long streamId, final long eventId) {
         final List<Annotation> list = getAnnotationsForEvents(streamId, eventId);
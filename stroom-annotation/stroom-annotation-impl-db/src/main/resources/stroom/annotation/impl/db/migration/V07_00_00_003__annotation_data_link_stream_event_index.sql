@@ -0,0 +1,9 @@
+-- Stop NOTE level warnings about objects (not)? existing
+SET @OLD_SQL_NOTES=@@SQL_NOTES, SQL_NOTES=0;
+
+--
+-- Search decorates results by looking up annotations for stream and event ids so index the link table by them
+--
+CREATE INDEX annotation_data_link_stream_id_event_id ON annotation_data_link (stream_id, event_id);
+
+SET SQL_NOTES=@OLD_SQL_NOTES;
@@ -0,0 +1,104 @@
+package stroom.annotation.impl.db;
+
+import stroom.annotation.impl.AnnotationConfig.AnnotationDBConfig;
+import stroom.annotation.impl.AnnotationDao;
+import stroom.annotation.shared.Annotation;
+import stroom.annotation.shared.CreateEntryRequest;
+import stroom.annotation.shared.EventId;
+import stroom.db.util.ExpressionMapperFactory;
+import stroom.db.util.TermHandlerFactory;
+import stroom.test.common.util.db.DbTestUtil;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestAnnotationDaoImpl {
+
+    private AnnotationDao annotationDao;
+
+    // Use stream ids that no other test will have linked to.
+    private long streamId1;
+    private long streamId2;
+    private long streamId3;
+
+    @BeforeEach
+    void beforeEach() {
+        final AnnotationDbConnProvider annotationDbConnProvider = DbTestUtil.getTestDbDatasource(
+                new AnnotationDbModule(), new AnnotationDBConfig());
+        annotationDao = new AnnotationDaoImpl(
+                annotationDbConnProvider,
+                new ExpressionMapperFactory(new TermHandlerFactory(null, null, null)));
+
+        streamId1 = System.nanoTime();
+        streamId2 = streamId1 + 1;
+        streamId3 = streamId1 + 2;
+    }
+
+    @Test
+    void testGetAnnotationsForEvents() {
+        final Annotation annotation1 = createAnnotation("one",
+                new EventId(streamId1, 1),
+                new EventId(streamId1, 2));
+        final Annotation annotation2 = createAnnotation("two",
+                new EventId(streamId1, 2),
+                new EventId(streamId2, 1));
+
+        final Map<EventId, List<Annotation>> map = annotationDao.getAnnotationsForEvents(List.of(
+                new EventId(streamId1, 1),
+                new EventId(streamId1, 2),
+                new EventId(streamId1, 3),
+                new EventId(streamId2, 1),
+                new EventId(streamId3, 1)));
+
+        // Only events with annotations are returned.
+        assertThat(map).containsOnlyKeys(
+                new EventId(streamId1, 1),
+                new EventId(streamId1, 2),
+                new EventId(streamId2, 1));
+        assertThat(ids(map.get(new EventId(streamId1, 1)))).containsExactly(annotation1.getId());
+        assertThat(ids(map.get(new EventId(streamId1, 2))))
+                .containsExactlyInAnyOrder(annotation1.getId(), annotation2.getId());
+        assertThat(ids(map.get(new EventId(streamId2, 1)))).containsExactly(annotation2.getId());
+        assertThat(map.get(new EventId(streamId2, 1)).get(0).getTitle()).isEqualTo("two");
+
+        // The batched lookup agrees with the single event lookup.
+        assertThat(ids(annotationDao.getAnnotationsForEvents(streamId1, 2)))
+                .containsExactlyInAnyOrderElementsOf(ids(map.get(new EventId(streamId1, 2))));
+
+        // Event ids must match within a stream, not across streams.
+        assertThat(annotationDao.getAnnotationsForEvents(List.of(new EventId(streamId2, 2)))).isEmpty();
+        assertThat(annotationDao.getAnnotationsForEvents(Collections.emptyList())).isEmpty();
+    }
+
+    @Test
+    void testGetAnnotatedStreamIds() {
+        createAnnotation("one", new EventId(streamId1, 1));
+        createAnnotation("two", new EventId(streamId1, 2), new EventId(streamId3, 5));
+
+        assertThat(annotationDao.getAnnotatedStreamIds(List.of(streamId1, streamId2, streamId3)))
+                .containsExactlyInAnyOrder(streamId1, streamId3);
+        assertThat(annotationDao.getAnnotatedStreamIds(List.of(streamId2))).isEmpty();
+        assertThat(annotationDao.getAnnotatedStreamIds(Collections.emptyList())).isEmpty();
+    }
+
+    private Annotation createAnnotation(final String title, final EventId... eventIds) {
+        final Annotation annotation = new Annotation();
+        annotation.setTitle(title);
+        annotation.setStatus("New");
+        return annotationDao.createEntry(
+                new CreateEntryRequest(annotation, Annotation.TITLE, title, List.of(eventIds)),
+                "test").getAnnotation();
+    }
+
+    private Set<Long> ids(final List<Annotation> annotations) {
+        return annotations.stream().map(Annotation::getId).collect(Collectors.toSet());
+    }
+}
@@ -15,6 +15,7 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 import java.util.ArrayList;
 import java.util.List;
+import javax.validation.constraints.Min;
 
 @JsonPropertyOrder(alphabetic = true)
 public class AnnotationConfig extends AbstractConfig implements IsStroomConfig, HasDbConfig {
@@ -23,12 +24,14 @@ public class AnnotationConfig extends AbstractConfig implements IsStroomConfig,
     private final List<String> statusValues;
     private final List<String> standardComments;
     private final String createText;
+    private final int decorationBatchSize;
 
     public AnnotationConfig() {
         dbConfig = new AnnotationDBConfig();
         statusValues = List.of("New", "Assigned", "Closed");
         standardComments = new ArrayList<>();
         createText = "Create Annotation";
+        decorationBatchSize = 1000;
     }
 
     @SuppressWarnings("unused")
@@ -36,11 +39,13 @@ public class AnnotationConfig extends AbstractConfig implements IsStroomConfig,
     public AnnotationConfig(@JsonProperty("db") final AnnotationDBConfig dbConfig,
                             @JsonProperty("statusValues") final List<String> statusValues,
                             @JsonProperty("standardComments") final List<String> standardComments,
-                            @JsonProperty("createText") final String createText) {
+                            @JsonProperty("createText") final String createText,
+                            @JsonProperty("decorationBatchSize") final int decorationBatchSize) {
         this.dbConfig = dbConfig;
         this.statusValues = statusValues;
         this.standardComments = standardComments;
         this.createText = createText;
+        this.decorationBatchSize = decorationBatchSize;
     }
 
     @Override
@@ -67,6 +72,14 @@ public class AnnotationConfig extends AbstractConfig implements IsStroomConfig,
         return createText;
     }
 
+    @Min(1)
+    @JsonProperty("decorationBatchSize")
+    @JsonPropertyDescription("The maximum number of search result rows to look up annotations for in a single " +
+            "database query when decorating search results with annotations")
+    public int getDecorationBatchSize() {
+        return decorationBatchSize;
+    }
+
     @BootStrapConfig
     public static class AnnotationDBConfig extends AbstractDbConfig {
 
@@ -27,7 +27,10 @@ import stroom.dashboard.expression.v1.ValuesConsumer;
 import stroom.datasource.api.v2.AbstractField;
 import stroom.entity.shared.ExpressionCriteria;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface AnnotationDao {
 
@@ -37,6 +40,18 @@ public interface AnnotationDao {
 
     List<Annotation> getAnnotationsForEvents(long streamId, long eventId);
 
+    /**
+     * Get the annotations for many events with a single query.
+     *
+     * @return A map of event id to annotations that only contains events that have annotations.
+     */
+    Map<EventId, List<Annotation>> getAnnotationsForEvents(Collection<EventId> eventIds);
+
+    /**
+     * @return The subset of the supplied stream ids that have at least one annotated event.
+     */
+    Set<Long> getAnnotatedStreamIds(Collection<Long> streamIds);
+
     List<AnnotationDetail> getAnnotationDetailsForEvents(long streamId, long eventId);
 
     AnnotationDetail createEntry(CreateEntryRequest request, String user);
@@ -2,6 +2,7 @@ package stroom.annotation.impl;
 
 import stroom.annotation.api.AnnotationFields;
 import stroom.annotation.shared.Annotation;
+import stroom.annotation.shared.EventId;
 import stroom.dashboard.expression.v1.FieldIndex;
 import stroom.dashboard.expression.v1.Val;
 import stroom.dashboard.expression.v1.ValLong;
@@ -22,12 +23,14 @@ import stroom.util.logging.LambdaLoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import javax.inject.Inject;
 
@@ -100,61 +103,14 @@ class AnnotationReceiverDecoratorFactory implements AnnotationsDecoratorFactory
 
         final Annotation defaultAnnotation = createDefaultAnnotation();
 
-        return new ExtractionReceiver() {
-            @Override
-            public FieldIndex getFieldIndex() {
-                return receiver.getFieldIndex();
-            }
-
-            @Override
-            public void add(final Val[] values) {
-                // TODO : At present we are just going to do this synchronously but in future we may do asynchronously
-                //  in which case we would increment the completion count after providing values.
-
-                // Filter based on annotation.
-                final List<Annotation> annotations = new ArrayList<>();
-                if (annotationIdIndex != null) {
-                    final Long annotationId = getLong(values, annotationIdIndex);
-                    if (annotationId != null) {
-                        annotations.add(annotationDao.get(annotationId));
-                    }
-                }
-
-                if (annotations.size() == 0) {
-                    final Long streamId = getLong(values, streamIdIndex);
-                    final Long eventId = getLong(values, eventIdIndex);
-                    if (streamId != null && eventId != null) {
-                        final List<Annotation> list = annotationDao.getAnnotationsForEvents(streamId, eventId);
-                        annotations.addAll(list);
-                    }
-                }
-
-                if (annotations.size() == 0) {
-                    annotations.add(defaultAnnotation);
-                }
-
-                Val[] copy = values;
-                for (final Annotation annotation : annotations) {
-                    try {
-                        if (filter == null || filter.apply(annotation)) {
-                            // If we have more than one annotation then copy the original values into a new
-                            // values object for each new row.
-                            if (annotations.size() > 1 || copy.length < fieldIndex.size()) {
-                                copy = Arrays.copyOf(values, fieldIndex.size());
-                            }
-
-                            for (final String field : usedFields) {
-                                setValue(copy, fieldIndex, field, annotation);
-                            }
-
-                            receiver.add(copy);
-                        }
-                    } catch (final RuntimeException e) {
-                        LOGGER.debug(e::getMessage, e);
-                    }
-                }
-            }
-        };
+        return new AnnotationReceiver(
+                receiver,
+                annotationIdIndex,
+                streamIdIndex,
+                eventIdIndex,
+                filter,
+                usedFields,
+                defaultAnnotation);
     }
 
     private Annotation createDefaultAnnotation() {
@@ -237,4 +193,144 @@ class AnnotationReceiverDecoratorFactory implements AnnotationsDecoratorFactory
             }
         });
     }
+
+    /**
+     * Decorates rows with annotations a batch at a time so that the annotations for a whole batch
+     * of events can be fetched with a single query rather than a query per row.
+     */
+    private class AnnotationReceiver implements ExtractionReceiver {
+
+        private final ExtractionReceiver receiver;
+        private final FieldIndex fieldIndex;
+        private final Integer annotationIdIndex;
+        private final Integer streamIdIndex;
+        private final Integer eventIdIndex;
+        private final Function<Annotation, Boolean> filter;
+        private final Set<String> usedFields;
+        private final Annotation defaultAnnotation;
+
+        // Remember which streams have any annotations for the life of the search so that we don't
+        // look up events in streams that have none.
+        private final Map<Long, Boolean> annotatedStreams = new ConcurrentHashMap<>();
+
+        AnnotationReceiver(final ExtractionReceiver receiver,
+                           final Integer annotationIdIndex,
+                           final Integer streamIdIndex,
+                           final Integer eventIdIndex,
+                           final Function<Annotation, Boolean> filter,
+                           final Set<String> usedFields,
+                           final Annotation defaultAnnotation) {
+            this.receiver = receiver;
+            this.fieldIndex = receiver.getFieldIndex();
+            this.annotationIdIndex = annotationIdIndex;
+            this.streamIdIndex = streamIdIndex;
+            this.eventIdIndex = eventIdIndex;
+            this.filter = filter;
+            this.usedFields = usedFields;
+            this.defaultAnnotation = defaultAnnotation;
+        }
+
+        @Override
+        public FieldIndex getFieldIndex() {
+            return receiver.getFieldIndex();
+        }
+
+        @Override
+        public void add(final Val[] values) {
+            addAll(Collections.singletonList(values));
+        }
+
+        @Override
+        public void addAll(final List<Val[]> valuesList) {
+            // TODO : At present we are just going to do this synchronously but in future we may do asynchronously
+            //  in which case we would increment the completion count after providing values.
+            final int batchSize = Math.max(1, annotationConfig.getDecorationBatchSize());
+            for (int from = 0; from < valuesList.size(); from += batchSize) {
+                decorate(valuesList.subList(from, Math.min(valuesList.size(), from + batchSize)));
+            }
+        }
+
+        private void decorate(final List<Val[]> batch) {
+            final List<List<Annotation>> annotationsList = new ArrayList<>(batch.size());
+            final EventId[] eventIds = new EventId[batch.size()];
+            final Set<Long> unknownStreamIds = new HashSet<>();
+            for (int i = 0; i < batch.size(); i++) {
+                final Val[] values = batch.get(i);
+                final List<Annotation> annotations = new ArrayList<>();
+                if (annotationIdIndex != null) {
+                    final Long annotationId = getLong(values, annotationIdIndex);
+                    if (annotationId != null) {
+                        annotations.add(annotationDao.get(annotationId));
+                    }
+                }
+
+                if (annotations.size() == 0 && streamIdIndex != null && eventIdIndex != null) {
+                    final Long streamId = getLong(values, streamIdIndex);
+                    final Long eventId = getLong(values, eventIdIndex);
+                    if (streamId != null && eventId != null) {
+                        eventIds[i] = new EventId(streamId, eventId);
+                        if (!annotatedStreams.containsKey(streamId)) {
+                            unknownStreamIds.add(streamId);
+                        }
+                    }
+                }
+                annotationsList.add(annotations);
+            }
+
+            // Find out which streams we haven't seen before have annotations.
+            if (unknownStreamIds.size() > 0) {
+                final Set<Long> annotatedStreamIds = annotationDao.getAnnotatedStreamIds(unknownStreamIds);
+                unknownStreamIds.forEach(streamId ->
+                        annotatedStreams.put(streamId, annotatedStreamIds.contains(streamId)));
+            }
+
+            // Fetch the annotations for all events in annotated streams at once.
+            final Set<EventId> fetchEventIds = new HashSet<>();
+            for (final EventId eventId : eventIds) {
+                if (eventId != null && annotatedStreams.getOrDefault(eventId.getStreamId(), true)) {
+                    fetchEventIds.add(eventId);
+                }
+            }
+            final Map<EventId, List<Annotation>> annotationMap = annotationDao.getAnnotationsForEvents(fetchEventIds);
+
+            final List<Val[]> output = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                final List<Annotation> annotations = annotationsList.get(i);
+                if (annotations.size() == 0 && eventIds[i] != null) {
+                    annotations.addAll(annotationMap.getOrDefault(eventIds[i], Collections.emptyList()));
+                }
+                if (annotations.size() == 0) {
+                    annotations.add(defaultAnnotation);
+                }
+                decorate(batch.get(i), annotations, output);
+            }
+
+            if (output.size() > 0) {
+                receiver.addAll(output);
+            }
+        }
+
+        private void decorate(final Val[] values, final List<Annotation> annotations, final List<Val[]> output) {
+            Val[] copy = values;
+            for (final Annotation annotation : annotations) {
+                try {
+                    if (filter == null || filter.apply(annotation)) {
+                        // If we have more than one annotation then copy the original values into a new
+                        // values object for each new row.
+                        if (annotations.size() > 1 || copy.length < fieldIndex.size()) {
+                            copy = Arrays.copyOf(values, fieldIndex.size());
+                        }
+
+                        for (final String field : usedFields) {
+                            setValue(copy, fieldIndex, field, annotation);
+                        }
+
+                        output.add(copy);
+                    }
+                } catch (final RuntimeException e) {
+                    LOGGER.debug(e::getMessage, e);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,177 @@
+package stroom.annotation.impl;
+
+import stroom.annotation.api.AnnotationFields;
+import stroom.annotation.shared.Annotation;
+import stroom.annotation.shared.EventId;
+import stroom.dashboard.expression.v1.FieldIndex;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValLong;
+import stroom.dashboard.expression.v1.ValNull;
+import stroom.index.shared.IndexConstants;
+import stroom.query.api.v2.ExpressionOperator;
+import stroom.query.api.v2.Query;
+import stroom.search.extraction.ExtractionReceiver;
+import stroom.security.api.SecurityContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestAnnotationReceiverDecoratorFactory {
+
+    private static final String DEFAULT_STATUS = "Create";
+
+    private final FieldIndex fieldIndex = FieldIndex.forFields(
+            IndexConstants.STREAM_ID,
+            IndexConstants.EVENT_ID,
+            AnnotationFields.TITLE,
+            AnnotationFields.STATUS);
+    private final List<Val[]> output = new ArrayList<>();
+
+    private AnnotationDao annotationDao;
+
+    @BeforeEach
+    void beforeEach() {
+        annotationDao = mock(AnnotationDao.class);
+        when(annotationDao.getAnnotatedStreamIds(anyCollection())).thenAnswer(invocation -> {
+            final Set<Long> streamIds = Set.copyOf(invocation.getArgument(0));
+            return streamIds.contains(1L)
+                    ? Set.of(1L)
+                    : Set.of();
+        });
+        when(annotationDao.getAnnotationsForEvents(anyCollection())).thenAnswer(invocation -> {
+            final Set<EventId> eventIds = Set.copyOf(invocation.getArgument(0));
+            final Map<EventId, List<Annotation>> map = Map.of(
+                    new EventId(1, 2), List.of(
+                            createAnnotation("first", "Open"),
+                            createAnnotation("second", "Closed")));
+            return map.entrySet()
+                    .stream()
+                    .filter(entry -> eventIds.contains(entry.getKey()))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        });
+    }
+
+    @Test
+    void testDecorateBatch() {
+        final ExtractionReceiver receiver = createReceiver(100);
+
+        receiver.addAll(List.of(
+                row(1, 1),
+                row(1, 2),
+                row(1, 3),
+                row(2, 1)));
+
+        // Each stream is checked once and only events in annotated streams are looked up, all at once.
+        verify(annotationDao).getAnnotatedStreamIds(Set.of(1L, 2L));
+        verify(annotationDao).getAnnotationsForEvents(Set.of(
+                new EventId(1, 1),
+                new EventId(1, 2),
+                new EventId(1, 3)));
+        verify(annotationDao, never()).getAnnotationsForEvents(anyLong(), anyLong());
+
+        // The event with two annotations gets a row for each.
+        assertThat(output).hasSize(5);
+        assertRow(output.get(0), 1, 1, null, DEFAULT_STATUS);
+        assertRow(output.get(1), 1, 2, "first", "Open");
+        assertRow(output.get(2), 1, 2, "second", "Closed");
+        assertRow(output.get(3), 1, 3, null, DEFAULT_STATUS);
+        assertRow(output.get(4), 2, 1, null, DEFAULT_STATUS);
+    }
+
+    @Test
+    void testStreamsWithoutAnnotationsAreRemembered() {
+        final ExtractionReceiver receiver = createReceiver(100);
+
+        receiver.addAll(List.of(row(2, 1), row(2, 2)));
+        receiver.addAll(List.of(row(2, 3), row(2, 4)));
+
+        // The stream is only checked once and its events are never looked up.
+        verify(annotationDao, times(1)).getAnnotatedStreamIds(anyCollection());
+        verify(annotationDao, times(2)).getAnnotationsForEvents(Set.of());
+
+        assertThat(output).hasSize(4);
+        output.forEach(values -> assertThat(values[3].toString()).isEqualTo(DEFAULT_STATUS));
+    }
+
+    @Test
+    void testDecorationBatchSize() {
+        final ExtractionReceiver receiver = createReceiver(2);
+
+        receiver.addAll(List.of(row(1, 1), row(1, 2), row(1, 3), row(1, 4), row(1, 5)));
+
+        verify(annotationDao).getAnnotationsForEvents(Set.of(new EventId(1, 1), new EventId(1, 2)));
+        verify(annotationDao).getAnnotationsForEvents(Set.of(new EventId(1, 3), new EventId(1, 4)));
+        verify(annotationDao).getAnnotationsForEvents(Set.of(new EventId(1, 5)));
+        assertThat(output).hasSize(6);
+    }
+
+    private ExtractionReceiver createReceiver(final int decorationBatchSize) {
+        final AnnotationConfig annotationConfig = new AnnotationConfig(
+                null, List.of(), List.of(), DEFAULT_STATUS, decorationBatchSize);
+        final AnnotationReceiverDecoratorFactory factory = new AnnotationReceiverDecoratorFactory(
+                annotationDao,
+                null,
+                annotationConfig,
+                mock(SecurityContext.class));
+
+        final ExtractionReceiver receiver = new ExtractionReceiver() {
+            @Override
+            public FieldIndex getFieldIndex() {
+                return fieldIndex;
+            }
+
+            @Override
+            public void add(final Val[] values) {
+                output.add(values);
+            }
+        };
+        final Query query = Query.builder()
+                .expression(ExpressionOperator.builder().build())
+                .build();
+        return factory.create(receiver, query);
+    }
+
+    private Val[] row(final long streamId, final long eventId) {
+        final Val[] values = new Val[fieldIndex.size()];
+        values[0] = ValLong.create(streamId);
+        values[1] = ValLong.create(eventId);
+        return values;
+    }
+
+    private void assertRow(final Val[] values,
+                           final long streamId,
+                           final long eventId,
+                           final String title,
+                           final String status) {
+        assertThat(values[0].toLong()).isEqualTo(streamId);
+        assertThat(values[1].toLong()).isEqualTo(eventId);
+        if (title == null) {
+            assertThat(values[2]).isSameAs(ValNull.INSTANCE);
+        } else {
+            assertThat(values[2].toString()).isEqualTo(title);
+        }
+        assertThat(values[3].toString()).isEqualTo(status);
+    }
+
+    private Annotation createAnnotation(final String title, final String status) {
+        final Annotation annotation = new Annotation();
+        annotation.setTitle(title);
+        annotation.setStatus(status);
+        return annotation;
+    }
+}
@@ -238,6 +238,7 @@ public class TestIndexShardSearcher extends AbstractCoreIntegrationTest {
                                 hitCount);
 
                         searcher.search(query.getQuery(), collector);
+                        collector.flush();
 
                     } catch (final TaskTerminatedException e) {
                         // Expected error on early completion.
@@ -254,24 +255,27 @@ public class TestIndexShardSearcher extends AbstractCoreIntegrationTest {
 
                 try {
                     // Start converting found docIds into stored data values
+                    final int[] docIds = new int[100];
                     int count = 0;
                     boolean done = false;
                     while (!done) {
                         // Uncomment this to slow searches down in dev
 //                            ThreadUtil.sleepAtLeastIgnoreInterrupts(1_000);
-                        // Take the next item
-                        final Integer docId = docIdQueue.take();
-                        if (docId != null) {
-                            // If we have a doc id then retrieve the stored data for it.
-                            SearchProgressLog.increment(queryKey,
-                                    SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE);
-                            getStoredData(queryKey, storedFieldNames, valuesConsumer, searcher, docId);
-
-                            if (count == 1000) {
-                                taskContext.terminate();
+                        // Take the next batch of doc ids
+                        final int docIdCount = docIdQueue.take(docIds);
+                        if (docIdCount >= 0) {
+                            for (int i = 0; i < docIdCount; i++) {
+                                // If we have a doc id then retrieve the stored data for it.
+                                SearchProgressLog.increment(queryKey,
+                                        SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE);
+                                getStoredData(queryKey, storedFieldNames, valuesConsumer, searcher, docIds[i]);
+
+                                if (count == 1000) {
+                                    taskContext.terminate();
+                                }
+
+                                count++;
                             }
-
-                            count++;
                         } else {
                             done = true;
                         }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.benchmark;
+
+import stroom.bytebuffer.ByteBufferPool;
+import stroom.bytebuffer.ByteBufferPoolConfig;
+import stroom.bytebuffer.ByteBufferPoolImpl;
+import stroom.bytebuffer.ByteBufferPoolImpl2;
+import stroom.bytebuffer.ByteBufferPoolImpl3;
+import stroom.bytebuffer.ByteBufferPoolImpl4;
+import stroom.bytebuffer.ByteBufferPoolImpl5;
+import stroom.bytebuffer.PooledByteBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of borrowing and releasing a buffer from each of the {@link ByteBufferPool}
+ * implementations, both uncontended and with several threads sharing the pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ByteBufferPoolBenchmark {
+
+    @Param({"ByteBufferPoolImpl",
+            "ByteBufferPoolImpl2",
+            "ByteBufferPoolImpl3",
+            "ByteBufferPoolImpl4",
+            "ByteBufferPoolImpl5"})
+    public String implementation;
+
+    @Param({"64", "1000"})
+    public int minCapacity;
+
+    private ByteBufferPool byteBufferPool;
+
+    @Setup
+    public void setup() {
+        byteBufferPool = switch (implementation) {
+            case "ByteBufferPoolImpl" -> new ByteBufferPoolImpl();
+            case "ByteBufferPoolImpl2" -> new ByteBufferPoolImpl2();
+            case "ByteBufferPoolImpl3" -> new ByteBufferPoolImpl3();
+            case "ByteBufferPoolImpl4" -> new ByteBufferPoolImpl4(ByteBufferPoolConfig::new);
+            case "ByteBufferPoolImpl5" -> new ByteBufferPoolImpl5();
+            default -> throw new IllegalArgumentException("Unknown implementation " + implementation);
+        };
+    }
+
+    @Benchmark
+    public int pooledBuffer() {
+        return borrowAndRelease();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int pooledBufferContended() {
+        return borrowAndRelease();
+    }
+
+    private int borrowAndRelease() {
+        try (final PooledByteBuffer pooledByteBuffer = byteBufferPool.getPooledByteBuffer(minCapacity)) {
+            final ByteBuffer byteBuffer = pooledByteBuffer.getByteBuffer();
+            byteBuffer.putLong(0, minCapacity);
+            return byteBuffer.capacity();
+        }
+    }
+}
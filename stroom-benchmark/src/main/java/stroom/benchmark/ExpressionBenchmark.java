@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.benchmark;
+
+import stroom.dashboard.expression.v1.Expression;
+import stroom.dashboard.expression.v1.ExpressionParser;
+import stroom.dashboard.expression.v1.FieldIndex;
+import stroom.dashboard.expression.v1.Generator;
+import stroom.dashboard.expression.v1.ParamFactory;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValDouble;
+import stroom.dashboard.expression.v1.ValLong;
+import stroom.dashboard.expression.v1.ValString;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of setting values on, and evaluating, the {@link Generator}s created from a
+ * range of typical dashboard table expressions. A new generator is created for each row as it is
+ * for an un-grouped table, while aggregate expressions reuse one generator as a group would.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    private static final int ROW_COUNT = 1024;
+
+    @Benchmark
+    public Val scalar(final ScalarState state) {
+        final Generator generator = state.expression.createGenerator();
+        generator.set(state.nextRow());
+        return generator.eval(null);
+    }
+
+    @Benchmark
+    public Val aggregate(final AggregateState state) {
+        state.generator.set(state.nextRow());
+        return state.generator.eval(null);
+    }
+
+    @State(Scope.Thread)
+    public static class ScalarState extends Rows {
+
+        @Param({
+                "${Text}",
+                "concat(${Text}, ' ', ${Number})",
+                "${Number} * 2 + ${Decimal} / 3",
+                "if(${Number} > 500, 'high', 'low')",
+                "replace(upperCase(${Text}), 'TEXT', 'x')",
+                "formatDate(${Time}, 'yyyy-MM-dd')"
+        })
+        public String scalarExpression;
+
+        private Expression expression;
+
+        @Setup
+        public void setup() throws ParseException {
+            expression = parse(scalarExpression);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AggregateState extends Rows {
+
+        @Param({"count()", "sum(${Number})", "average(${Decimal})", "countUnique(${Text})"})
+        public String aggregateExpression;
+
+        private Generator generator;
+
+        @Setup
+        public void setup() throws ParseException {
+            generator = parse(aggregateExpression).createGenerator();
+        }
+    }
+
+    public abstract static class Rows {
+
+        private final FieldIndex fieldIndex = FieldIndex.forFields("Text", "Number", "Decimal", "Time");
+        private final Val[][] rows = new Val[ROW_COUNT][];
+        private int rowIndex;
+
+        Rows() {
+            final long now = System.currentTimeMillis();
+            for (int i = 0; i < ROW_COUNT; i++) {
+                rows[i] = new Val[]{
+                        ValString.create("Text " + (i % 100)),
+                        ValLong.create(i),
+                        ValDouble.create(i / 7D),
+                        ValLong.create(now - (i * 1000L))};
+            }
+        }
+
+        Expression parse(final String expression) throws ParseException {
+            return new ExpressionParser(new ParamFactory()).parse(fieldIndex, expression);
+        }
+
+        Val[] nextRow() {
+            rowIndex = (rowIndex + 1) & (ROW_COUNT - 1);
+            return rows[rowIndex];
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.benchmark;
+
+import stroom.dashboard.expression.v1.FieldIndex;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValLong;
+import stroom.dashboard.expression.v1.ValString;
+import stroom.lmdb.LmdbEnvFactory;
+import stroom.lmdb.LmdbLibraryConfig;
+import stroom.query.api.v2.Field;
+import stroom.query.api.v2.Format;
+import stroom.query.api.v2.ParamUtil;
+import stroom.query.api.v2.QueryKey;
+import stroom.query.api.v2.TableSettings;
+import stroom.query.common.v2.DataStore;
+import stroom.query.common.v2.ErrorConsumerImpl;
+import stroom.query.common.v2.LmdbDataStoreFactory;
+import stroom.query.common.v2.ResultStoreConfig;
+import stroom.query.common.v2.Sizes;
+import stroom.util.io.FileUtil;
+import stroom.util.io.PathCreator;
+import stroom.util.io.SimplePathCreator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of adding rows to an LMDB backed search result store, including the time for
+ * the store to drain its queue into LMDB, for both grouped and un-grouped tables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LmdbDataStoreBenchmark {
+
+    @Param({"100000"})
+    public int rowCount;
+
+    // The number of distinct group keys, 0 for an un-grouped table.
+    @Param({"0", "100", "10000"})
+    public int groupCount;
+
+    private Path tempDir;
+    private ExecutorService executorService;
+    private LmdbDataStoreFactory dataStoreFactory;
+    private TableSettings tableSettings;
+    private Val[][] rows;
+    private DataStore dataStore;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        tempDir = Files.createTempDirectory("stroom-benchmark");
+        executorService = Executors.newCachedThreadPool();
+
+        final PathCreator pathCreator = new SimplePathCreator(() -> tempDir, () -> tempDir);
+        final LmdbLibraryConfig lmdbLibraryConfig = new LmdbLibraryConfig();
+        final LmdbEnvFactory lmdbEnvFactory = new LmdbEnvFactory(
+                pathCreator,
+                () -> tempDir,
+                () -> lmdbLibraryConfig);
+        final ResultStoreConfig resultStoreConfig = new ResultStoreConfig();
+        dataStoreFactory = new LmdbDataStoreFactory(
+                lmdbEnvFactory,
+                () -> resultStoreConfig,
+                pathCreator,
+                () -> executorService);
+
+        final Field.Builder keyField = Field.builder()
+                .id("Key")
+                .name("Key")
+                .expression(ParamUtil.makeParam("Key"))
+                .format(Format.TEXT);
+        final Field.Builder countField = Field.builder()
+                .id("Count")
+                .name("Count")
+                .format(Format.NUMBER);
+        if (groupCount > 0) {
+            keyField.group(0);
+            countField.expression("count()");
+        } else {
+            countField.expression(ParamUtil.makeParam("Count"));
+        }
+        tableSettings = TableSettings.builder()
+                .addFields(keyField.build())
+                .addFields(countField.build())
+                .build();
+
+        rows = new Val[rowCount][];
+        for (int i = 0; i < rowCount; i++) {
+            final int key = groupCount > 0
+                    ? i % groupCount
+                    : i;
+            rows[i] = new Val[]{ValString.create("Key " + key), ValLong.create(i)};
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        executorService.shutdown();
+        FileUtil.deleteDir(tempDir);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        dataStore = dataStoreFactory.create(
+                new QueryKey(UUID.randomUUID().toString()),
+                "0",
+                tableSettings,
+                FieldIndex.forFields("Key", "Count"),
+                Collections.emptyMap(),
+                Sizes.create(Integer.MAX_VALUE),
+                Sizes.create(Integer.MAX_VALUE),
+                false,
+                new ErrorConsumerImpl());
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        dataStore.clear();
+    }
+
+    @Benchmark
+    public DataStore add() throws InterruptedException {
+        for (final Val[] row : rows) {
+            dataStore.add(row);
+        }
+        dataStore.getCompletionState().signalComplete();
+        dataStore.getCompletionState().awaitCompletion();
+        return dataStore;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.benchmark;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.impl.CacheManagerImpl;
+import stroom.pipeline.refdata.ReferenceDataConfig;
+import stroom.pipeline.refdata.ReferenceDataLmdbConfig;
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefDataStore;
+import stroom.pipeline.refdata.store.RefDataStoreFactory;
+import stroom.pipeline.refdata.store.RefDataStoreModule;
+import stroom.pipeline.refdata.store.RefDataValue;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.pipeline.refdata.store.StringValue;
+import stroom.task.mock.MockTaskModule;
+import stroom.util.io.FileUtil;
+import stroom.util.io.HomeDirProvider;
+import stroom.util.io.PathCreator;
+import stroom.util.io.SimplePathCreator;
+import stroom.util.io.TempDirProvider;
+import stroom.util.pipeline.scope.PipelineScopeModule;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures key/value lookups against a reference data off heap store that has been loaded with
+ * a single map, for keys that are in the map and keys that are not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RefDataOffHeapStoreBenchmark {
+
+    @Param({"100000"})
+    public int entryCount;
+
+    private Path dbDir;
+    private RefDataStore refDataStore;
+    private MapDefinition mapDefinition;
+    private String[] presentKeys;
+    private String[] absentKeys;
+
+    @Setup
+    public void setup() throws IOException {
+        dbDir = Files.createTempDirectory("stroom-benchmark");
+        final ReferenceDataConfig referenceDataConfig = new ReferenceDataConfig()
+                .withLmdbConfig(new ReferenceDataLmdbConfig()
+                        .withLocalDir(dbDir.toAbsolutePath().toString())
+                        .withReaderBlockedByWriter(false));
+
+        final Injector injector = Guice.createInjector(
+                new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(ReferenceDataConfig.class).toInstance(referenceDataConfig);
+                        bind(CacheManager.class).to(CacheManagerImpl.class);
+                        bind(HomeDirProvider.class).toInstance(() -> dbDir);
+                        bind(TempDirProvider.class).toInstance(() -> dbDir);
+                        bind(PathCreator.class).to(SimplePathCreator.class);
+                        install(new RefDataStoreModule());
+                        install(new MockTaskModule());
+                        install(new PipelineScopeModule());
+                    }
+                });
+        refDataStore = injector.getInstance(RefDataStoreFactory.class).getOffHeapStore();
+
+        final RefStreamDefinition refStreamDefinition = new RefStreamDefinition(
+                UUID.randomUUID().toString(),
+                UUID.randomUUID().toString(),
+                123456L);
+        mapDefinition = new MapDefinition(refStreamDefinition, "map1");
+        presentKeys = new String[entryCount];
+        absentKeys = new String[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            presentKeys[i] = "key" + i;
+            absentKeys[i] = "missingKey" + i;
+        }
+
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, System.currentTimeMillis(), loader -> {
+            loader.initialise(false);
+            for (int i = 0; i < entryCount; i++) {
+                loader.put(mapDefinition, presentKeys[i], StringValue.of("value" + i));
+            }
+            loader.completeProcessing();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.deleteDir(dbDir);
+    }
+
+    @Benchmark
+    public Optional<RefDataValue> getValuePresent() {
+        return refDataStore.getValue(mapDefinition, randomKey(presentKeys));
+    }
+
+    @Benchmark
+    public Optional<RefDataValue> getValueAbsent() {
+        return refDataStore.getValue(mapDefinition, randomKey(absentKeys));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<RefDataValue> getValuePresentConcurrent() {
+        return refDataStore.getValue(mapDefinition, randomKey(presentKeys));
+    }
+
+    private String randomKey(final String[] keys) {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+}
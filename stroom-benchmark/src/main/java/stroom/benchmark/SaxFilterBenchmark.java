@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.benchmark;
+
+import stroom.pipeline.LocationFactoryProxy;
+import stroom.pipeline.errorhandler.ErrorReceiverProxy;
+import stroom.pipeline.errorhandler.FatalErrorReceiver;
+import stroom.pipeline.filter.NullXMLFilter;
+import stroom.pipeline.filter.SafeXMLFilter;
+import stroom.pipeline.filter.SplitFilter;
+import stroom.pipeline.filter.XMLFilter;
+import stroom.pipeline.util.ProcessorUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing an XML stream through a chain of pipeline SAX filters, as a translation
+ * pipeline would. The 'parse' chain has no filters so gives the cost of the parser alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaxFilterBenchmark {
+
+    @Param({"10000"})
+    public int recordCount;
+
+    @Param({"parse", "split", "split,safe"})
+    public String filterChain;
+
+    private byte[] xml;
+
+    @Setup
+    public void setup() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<records>\n");
+        for (int i = 0; i < recordCount; i++) {
+            sb.append("<record>")
+                    .append("<data name=\"Id\" value=\"").append(i).append("\"/>")
+                    .append("<data name=\"User\" value=\"user").append(i % 1000).append("\"/>")
+                    .append("<data name=\"Action\" value=\"Some &amp; action text\"/>")
+                    .append("</record>\n");
+        }
+        sb.append("</records>\n");
+        xml = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void process() {
+        final ErrorReceiverProxy errorReceiverProxy = new ErrorReceiverProxy(new FatalErrorReceiver());
+        ProcessorUtil.processXml(
+                new ByteArrayInputStream(xml),
+                errorReceiverProxy,
+                createFilterChain(),
+                new LocationFactoryProxy());
+    }
+
+    private XMLFilter createFilterChain() {
+        XMLFilter next = NullXMLFilter.INSTANCE;
+        final String[] names = filterChain.split(",");
+        for (int i = names.length - 1; i >= 0; i--) {
+            switch (names[i]) {
+                case "parse" -> {
+                    // No filters, parser output goes straight to the null filter.
+                }
+                case "split" -> {
+                    final SplitFilter splitFilter = new SplitFilter();
+                    splitFilter.setSplitDepth(1);
+                    splitFilter.setSplitCount(100);
+                    splitFilter.setTarget(next);
+                    next = splitFilter;
+                }
+                case "safe" -> {
+                    final SafeXMLFilter safeXMLFilter = new SafeXMLFilter();
+                    safeXMLFilter.setTarget(next);
+                    next = safeXMLFilter;
+                }
+                default -> throw new IllegalArgumentException("Unknown filter " + names[i]);
+            }
+        }
+        return next;
+    }
+}
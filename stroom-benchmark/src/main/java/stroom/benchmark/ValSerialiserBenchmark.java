@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.benchmark;
+
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValBoolean;
+import stroom.dashboard.expression.v1.ValDouble;
+import stroom.dashboard.expression.v1.ValLong;
+import stroom.dashboard.expression.v1.ValNull;
+import stroom.dashboard.expression.v1.ValSerialiser;
+import stroom.dashboard.expression.v1.ValString;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialisation and de-serialisation of a row of {@link Val}s, as done for every row
+ * written to or read from a result store.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValSerialiserBenchmark {
+
+    @Param({"4", "16"})
+    public int columnCount;
+
+    private Val[] values;
+    private byte[] bytes;
+    private Output output;
+    private Input input;
+
+    @Setup
+    public void setup() {
+        values = new Val[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            values[i] = switch (i % 5) {
+                case 0 -> ValString.create("Some text value " + i);
+                case 1 -> ValLong.create(1_000_000L * i);
+                case 2 -> ValDouble.create(i / 3D);
+                case 3 -> ValBoolean.create(i % 2 == 0);
+                default -> ValNull.INSTANCE;
+            };
+        }
+        bytes = ValSerialiser.toBytes(values);
+        output = new Output(1024, -1);
+        input = new Input();
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return ValSerialiser.toBytes(values);
+    }
+
+    @Benchmark
+    public Val[] toVals() {
+        return ValSerialiser.toVals(bytes);
+    }
+
+    @Benchmark
+    public int writeArray() {
+        output.setPosition(0);
+        ValSerialiser.writeArray(output, values);
+        return output.position();
+    }
+
+    @Benchmark
+    public Val[] readArray() {
+        input.setBuffer(bytes);
+        return ValSerialiser.readArray(input);
+    }
+}
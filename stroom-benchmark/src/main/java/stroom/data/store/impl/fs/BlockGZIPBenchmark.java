@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.data.store.impl.fs;
+
+import stroom.util.io.FileUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and sequentially reading a block compressed stream file for each of the
+ * {@link BlockCompression} types, with and without block read ahead. This lives in the same
+ * package as the block GZIP classes as they are not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BlockGZIPBenchmark {
+
+    private static final int DATA_SIZE = 64 * 1024 * 1024;
+
+    @Param({"GZIP", "ZSTD", "LZ4"})
+    public String compression;
+
+    // 0 disables read ahead
+    @Param({"0", "4"})
+    public int readAheadBlocks;
+
+    private Path tempDir;
+    private Path inputFile;
+    private Path outputFile;
+    private byte[] data;
+    private byte[] readBuffer;
+    private ExecutorService executorService;
+    private BlockReadAhead blockReadAhead;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("stroom-benchmark");
+        inputFile = tempDir.resolve("input.bgz");
+        outputFile = tempDir.resolve("output.bgz");
+
+        // Repetitive, XML like content, so it compresses roughly as event data would
+        final StringBuilder sb = new StringBuilder(DATA_SIZE + 1024);
+        int i = 0;
+        while (sb.length() < DATA_SIZE) {
+            sb.append("<Event><Id>")
+                    .append(i++)
+                    .append("</Id><User>user")
+                    .append(i % 1000)
+                    .append("</User><Action>Some action text</Action></Event>\n");
+        }
+        data = sb.substring(0, DATA_SIZE).getBytes(StandardCharsets.UTF_8);
+        readBuffer = new byte[8192];
+
+        write(inputFile);
+
+        executorService = Executors.newCachedThreadPool();
+        final FsVolumeConfig fsVolumeConfig = new FsVolumeConfig().withReadAheadBlocks(readAheadBlocks);
+        blockReadAhead = new BlockReadAhead(executorService, () -> fsVolumeConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdown();
+        FileUtil.deleteDir(tempDir);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        write(outputFile);
+        return Files.size(outputFile);
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long total = 0;
+        try (final BlockGZIPInputFile inputStream = new BlockGZIPInputFile(inputFile, blockReadAhead)) {
+            int len;
+            while ((len = inputStream.read(readBuffer)) != -1) {
+                total += len;
+            }
+        }
+        return total;
+    }
+
+    private void write(final Path file) throws IOException {
+        try (final BlockGZIPOutputFile outputStream = new BlockGZIPOutputFile(
+                file,
+                BlockGZIPConstants.DEFAULT_BLOCK_SIZE,
+                BlockCompression.valueOf(compression))) {
+            outputStream.write(data);
+        }
+    }
+}
@@ -50,6 +50,7 @@ public class IndexFieldEditPresenter extends MyPresenterWidget<IndexFieldEditVie
         getView().setStored(indexField.isStored());
         getView().setIndexed(indexField.isIndexed());
         getView().setTermPositions(indexField.isTermPositions());
+        getView().setDocValues(indexField.isDocValues());
         getView().setAnalyzerType(indexField.getAnalyzerType());
         getView().setCaseSensitive(indexField.isCaseSensitive());
     }
@@ -72,6 +73,7 @@ public class IndexFieldEditPresenter extends MyPresenterWidget<IndexFieldEditVie
                 .stored(getView().isStored())
                 .indexed(getView().isIndexed())
                 .termPositions(getView().isTermPositions())
+                .docValues(getView().isDocValues())
                 .analyzerType(getView().getAnalyzerType())
                 .caseSensitive(getView().isCaseSensitive())
                 .build();
@@ -108,6 +110,10 @@ public class IndexFieldEditPresenter extends MyPresenterWidget<IndexFieldEditVie
 
         void setTermPositions(boolean termPositions);
 
+        boolean isDocValues();
+
+        void setDocValues(boolean docValues);
+
         AnalyzerType getAnalyzerType();
 
         void setAnalyzerType(AnalyzerType analyzerType);
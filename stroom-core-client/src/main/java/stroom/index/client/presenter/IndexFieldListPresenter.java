@@ -171,6 +171,7 @@ public class IndexFieldListPresenter extends MyPresenterWidget<DataGridView<Inde
         addStoreColumn();
         addIndexColumn();
         addTermVectorColumn();
+        addDocValuesColumn();
         addAnalyzerColumn();
         addCaseSensitiveColumn();
         getView().addEndColumn(new EndColumn<>());
@@ -221,6 +222,15 @@ public class IndexFieldListPresenter extends MyPresenterWidget<DataGridView<Inde
         }, "Positions", 100);
     }
 
+    private void addDocValuesColumn() {
+        getView().addResizableColumn(new Column<IndexField, String>(new TextCell()) {
+            @Override
+            public String getValue(final IndexField row) {
+                return getYesNoString(row.isDocValues());
+            }
+        }, "Doc Values", 100);
+    }
+
     private void addAnalyzerColumn() {
         getView().addResizableColumn(new Column<IndexField, String>(new TextCell()) {
             @Override
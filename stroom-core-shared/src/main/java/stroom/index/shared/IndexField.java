@@ -42,6 +42,7 @@ import javax.xml.bind.annotation.XmlType;
 @XmlType(name = "indexField", propOrder = {
         "analyzerType",
         "caseSensitive",
+        "docValues",
         "fieldName",
         "fieldType",
         "indexed",
@@ -73,6 +74,9 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
     @XmlElement(name = "caseSensitive")
     @JsonProperty
     private final boolean caseSensitive;
+    @XmlElement(name = "docValues")
+    @JsonProperty
+    private final boolean docValues;
 
     @JsonCreator
     public IndexField(@JsonProperty("fieldType") final IndexFieldType fieldType,
@@ -81,7 +85,8 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
                       @JsonProperty("indexed") final boolean indexed,
                       @JsonProperty("stored") final boolean stored,
                       @JsonProperty("termPositions") final boolean termPositions,
-                      @JsonProperty("caseSensitive") final boolean caseSensitive) {
+                      @JsonProperty("caseSensitive") final boolean caseSensitive,
+                      @JsonProperty("docValues") final boolean docValues) {
         this.fieldType = fieldType;
         this.fieldName = fieldName;
         this.analyzerType = analyzerType;
@@ -89,6 +94,7 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
         this.indexed = indexed;
         this.termPositions = termPositions;
         this.caseSensitive = caseSensitive;
+        this.docValues = docValues;
     }
 
     public static IndexField createField(final String fieldName) {
@@ -190,6 +196,14 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
         return termPositions;
     }
 
+    /**
+     * @return True if the field value should also be written as a column of doc values so that it
+     * can be retrieved by search without loading the whole stored document.
+     */
+    public boolean isDocValues() {
+        return docValues;
+    }
+
     @JsonIgnore
     public List<Condition> getSupportedConditions() {
         return getDefaultConditions();
@@ -214,6 +228,7 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
                 indexed == that.indexed &&
                 termPositions == that.termPositions &&
                 caseSensitive == that.caseSensitive &&
+                docValues == that.docValues &&
                 fieldType == that.fieldType &&
                 Objects.equals(fieldName, that.fieldName) &&
                 analyzerType == that.analyzerType;
@@ -221,7 +236,14 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
 
     @Override
     public int hashCode() {
-        return Objects.hash(fieldType, fieldName, stored, indexed, termPositions, analyzerType, caseSensitive);
+        return Objects.hash(fieldType,
+                fieldName,
+                stored,
+                indexed,
+                termPositions,
+                analyzerType,
+                caseSensitive,
+                docValues);
     }
 
     @Override
@@ -298,6 +320,7 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
         private boolean stored;
         private boolean termPositions;
         private boolean caseSensitive;
+        private boolean docValues;
 
         private Builder() {
         }
@@ -310,6 +333,7 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
             this.stored = indexField.stored;
             this.termPositions = indexField.termPositions;
             this.caseSensitive = indexField.caseSensitive;
+            this.docValues = indexField.docValues;
         }
 
         public Builder fieldType(final IndexFieldType fieldType) {
@@ -347,8 +371,21 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
             return this;
         }
 
+        public Builder docValues(final boolean docValues) {
+            this.docValues = docValues;
+            return this;
+        }
+
         public IndexField build() {
-            return new IndexField(fieldType, fieldName, analyzerType, indexed, stored, termPositions, caseSensitive);
+            return new IndexField(
+                    fieldType,
+                    fieldName,
+                    analyzerType,
+                    indexed,
+                    stored,
+                    termPositions,
+                    caseSensitive,
+                    docValues);
         }
     }
 }
@@ -385,6 +385,8 @@ public class ExpressionPresenter extends MyPresenterWidget<ExpressionPresenter.E
         // Aggregate functions
         AVERAGE("average", "The mean of all values in the group.",
                 "field"),
+        APPROX_COUNT_UNIQUE("approxCountUnique", "An estimate of the number of unique values in the group.",
+                "field"),
         COUNT("count", "The count of all values in the group."),
         COUNT_GROUPS("countGroups", ""),
         COUNT_UNIQUE("countUnique", "", "field"),
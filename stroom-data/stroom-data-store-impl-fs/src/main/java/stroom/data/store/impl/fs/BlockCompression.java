@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.data.store.impl.fs;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream.BLOCKSIZE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The codecs that can be used to compress the individual blocks of a block compressed file.
+ * Each codec produces a self contained frame per block so blocks can still be decompressed
+ * independently when seeking.
+ *
+ * @see BlockGZIPConstants
+ */
+enum BlockCompression {
+    GZIP((byte) 'G') {
+        @Override
+        OutputStream compress(final OutputStream outputStream) throws IOException {
+            return new GZIPOutputStream(outputStream);
+        }
+
+        @Override
+        InputStream decompress(final InputStream inputStream) throws IOException {
+            return new GZIPInputStream(inputStream);
+        }
+
+        @Override
+        byte[] getIdentifier() {
+            // Keep writing V1 files for GZIP so that older versions can still read them.
+            return BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER;
+        }
+    },
+    ZSTD((byte) 'Z') {
+        @Override
+        OutputStream compress(final OutputStream outputStream) throws IOException {
+            return new ZstdOutputStream(outputStream, ZSTD_LEVEL);
+        }
+
+        @Override
+        InputStream decompress(final InputStream inputStream) throws IOException {
+            return new ZstdInputStream(inputStream);
+        }
+    },
+    LZ4((byte) 'L') {
+        @Override
+        OutputStream compress(final OutputStream outputStream) throws IOException {
+            // Our blocks are 1MB by default so don't let LZ4 allocate bigger buffers than it needs.
+            return new LZ4FrameOutputStream(outputStream, BLOCKSIZE.SIZE_1MB);
+        }
+
+        @Override
+        InputStream decompress(final InputStream inputStream) throws IOException {
+            return new LZ4FrameInputStream(inputStream);
+        }
+    };
+
+    private static final int ZSTD_LEVEL = 3;
+
+    private final byte id;
+
+    BlockCompression(final byte id) {
+        this.id = id;
+    }
+
+    /**
+     * Wrap the supplied stream so that data written is compressed. Closing the returned stream
+     * finishes the compressed frame and closes the supplied stream.
+     */
+    abstract OutputStream compress(OutputStream outputStream) throws IOException;
+
+    /**
+     * Wrap the supplied stream so that data read from it is decompressed.
+     */
+    abstract InputStream decompress(InputStream inputStream) throws IOException;
+
+    /**
+     * @return The identifier that is written at the start of files using this codec.
+     */
+    byte[] getIdentifier() {
+        final byte[] prefix = BlockGZIPConstants.BLOCK_V2_IDENTIFIER_PREFIX;
+        final byte[] identifier = Arrays.copyOf(prefix, prefix.length + 1);
+        identifier[prefix.length] = id;
+        return identifier;
+    }
+
+    /**
+     * Find the codec used for a file from the identifier at the start of it.
+     *
+     * @return The codec or null if the identifier is not recognised.
+     */
+    static BlockCompression fromIdentifier(final byte[] identifier) {
+        for (final BlockCompression blockCompression : values()) {
+            if (Arrays.equals(blockCompression.getIdentifier(), identifier)) {
+                return blockCompression;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get a codec by name, ignoring case. Unknown or empty names resolve to GZIP.
+     */
+    static BlockCompression fromName(final String name) {
+        if (name != null && !name.isBlank()) {
+            for (final BlockCompression blockCompression : values()) {
+                if (blockCompression.name().equalsIgnoreCase(name.trim())) {
+                    return blockCompression;
+                }
+            }
+        }
+        return GZIP;
+    }
+}
@@ -25,6 +25,11 @@ import stroom.util.io.StreamUtil;
  * Data Length] [Index Position] [EOF Position] [Magic Marker] [Block Size]
  * [Block Data] [Magic Marker] [Block Size] [Block Data] ... [Magic Marker] <-
  * (Index Position) [Un-Compressed Index Data] [EOF] <- (EOF)
+ * <p>
+ * Version 2 of the format is identical except that the version marker is 'BC2' followed by a single
+ * byte that identifies the {@link BlockCompression} codec used to compress each block. Files
+ * compressed with GZIP are always written with the V1 marker so they remain readable by older
+ * versions.
  */
 final class BlockGZIPConstants {
 
@@ -52,6 +57,11 @@ final class BlockGZIPConstants {
      * Written at the start to identify .
      */
     static final byte[] BLOCK_GZIP_V1_IDENTIFIER = "BGZ1".getBytes(StreamUtil.DEFAULT_CHARSET);
+    /**
+     * Written at the start of V2 files followed by a single byte codec id. The
+     * complete V2 identifier is the same length as the V1 identifier.
+     */
+    static final byte[] BLOCK_V2_IDENTIFIER_PREFIX = "BC2".getBytes(StreamUtil.DEFAULT_CHARSET);
     private static final byte MAGIC_HIGH = 127;
     private static final byte MAGIC_LOW = -128;
     /**
@@ -27,7 +27,6 @@ import java.nio.LongBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.zip.GZIPInputStream;
 import javax.validation.constraints.NotNull;
 
 /**
@@ -45,6 +44,7 @@ class BlockGZIPFileVerifier {
     private final LongBuffer longBuffer = ByteBuffer.wrap(longRawBuffer).asLongBuffer();
     private final byte[] magicMarkerRawBufffer = new byte[BlockGZIPConstants.MAGIC_MARKER.length];
     private final byte[] headerMarkerRawBuffer = new byte[BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER.length];
+    private BlockCompression blockCompression;
 
     /**
      * Constructor to open a Block GZIP File.
@@ -81,6 +81,7 @@ class BlockGZIPFileVerifier {
 
         System.out.println("Header Info");
         System.out.println("===========");
+        System.out.println("compression=" + blockCompression);
         System.out.println("blockSize=" + blockSize);
         System.out.println("dataLength=" + dataLength);
         System.out.println("idxStart=" + idxStart);
@@ -119,7 +120,7 @@ class BlockGZIPFileVerifier {
             System.out.println("Block " + i + " Index " + realPos + " is OK");
         }
 
-        System.out.println("GZIP Content");
+        System.out.println(blockCompression + " Content");
         System.out.println("=============");
 
         BlockByteArrayOutputStream buffer = new BlockByteArrayOutputStream();
@@ -132,12 +133,12 @@ class BlockGZIPFileVerifier {
 
             fillBuffer(stream, buffer, gzipSize);
 
-            System.out.println("Checking Block " + i + " GZIP Format");
+            System.out.println("Checking Block " + i + " " + blockCompression + " Format");
 
             ByteArrayInputStream is = new ByteArrayInputStream(buffer.getRawBuffer(), 0, buffer.size());
-            GZIPInputStream gzip = new GZIPInputStream(is);
+            InputStream decompressed = blockCompression.decompress(is);
             int byteRead;
-            while ((byteRead = gzip.read()) != -1) {
+            while ((byteRead = decompressed.read()) != -1) {
                 // Do something to get around check style
                 byteRead += byteRead;
             }
@@ -217,8 +218,9 @@ class BlockGZIPFileVerifier {
 
     private void readHeaderMarker() throws IOException {
         fillBuffer(stream, headerMarkerRawBuffer, 0, headerMarkerRawBuffer.length);
-        if (!checkEqualBuffer(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER, headerMarkerRawBuffer)) {
-            throw new IOException("Does not look like a Block GZIP V1 Stream \"" +
+        blockCompression = BlockCompression.fromIdentifier(headerMarkerRawBuffer);
+        if (blockCompression == null) {
+            throw new IOException("Does not look like a Block GZIP V1 or block compressed V2 Stream \"" +
                     FileUtil.getCanonicalPath(path) +
                     "\"");
         }
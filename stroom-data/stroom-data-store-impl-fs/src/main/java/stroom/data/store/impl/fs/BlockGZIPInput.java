@@ -23,7 +23,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.LongBuffer;
-import java.util.zip.GZIPInputStream;
 import javax.validation.constraints.NotNull;
 
 /**
@@ -32,9 +31,13 @@ import javax.validation.constraints.NotNull;
 abstract class BlockGZIPInput extends InputStream implements SeekableInputStream {
 
     /**
-     * Pointer to the current GZIPstream
+     * Pointer to the current decompressing stream
      */
-    GZIPInputStream currentStream;
+    InputStream currentStream;
+    /**
+     * The codec the blocks were compressed with, determined from the header marker.
+     */
+    private BlockCompression blockCompression;
     /**
      * We read data into a buffer (rather than hit the RA file)
      */
@@ -190,15 +193,20 @@ abstract class BlockGZIPInput extends InputStream implements SeekableInputStream
     }
 
     /**
-     * Read a header marker from the stream.
+     * Read a header marker from the stream and determine the codec used for each block.
      */
     private void readHeaderMarker() throws IOException {
         fillFromRawStreamBuffer(headerMarkerRawBuffer);
-        if (!checkEqualBuffer(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER, headerMarkerRawBuffer)) {
-            invalid("Does not look like a Block GZIP V1 Stream");
+        blockCompression = BlockCompression.fromIdentifier(headerMarkerRawBuffer);
+        if (blockCompression == null) {
+            invalid("Does not look like a Block GZIP V1 or block compressed V2 Stream");
         }
     }
 
+    BlockCompression getBlockCompression() {
+        return blockCompression;
+    }
+
     abstract void invalid(String message) throws IOException;
 
     /**
@@ -236,9 +244,35 @@ abstract class BlockGZIPInput extends InputStream implements SeekableInputStream
      */
     void startGzipBlock() throws IOException {
         blockCount++;
+        currentStream = openBlock();
+    }
+
+    /**
+     * Open a decompressing stream over the block that starts at the current position of the raw stream.
+     */
+    InputStream openBlock() throws IOException {
         readMagicMarker();
         currentBlockRawGzipSize = readLong();
-        currentStream = new GZIPInputStream(new GzipInputStreamAdaptor());
+        return blockCompression.decompress(new GzipInputStreamAdaptor());
+    }
+
+    /**
+     * Skip uncompressed bytes in the current block. Not all decompressing streams will skip the
+     * full amount in one go so keep going until we have.
+     */
+    void skipInCurrentBlock(final long n) throws IOException {
+        long remaining = n;
+        while (remaining > 0) {
+            final long skipped = currentStream.skip(remaining);
+            if (skipped <= 0) {
+                if (currentStream.read() == -1) {
+                    throw new IOException("Unexpected end of block");
+                }
+                remaining--;
+            } else {
+                remaining -= skipped;
+            }
+        }
     }
 
     /**
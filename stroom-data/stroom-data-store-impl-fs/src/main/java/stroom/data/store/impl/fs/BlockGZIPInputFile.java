@@ -37,6 +37,9 @@ class BlockGZIPInputFile extends BlockGZIPInput {
     // File pointer
     private final Path file;
 
+    // Decompresses blocks ahead of us if read ahead is enabled
+    private BlockReadAheadQueue readAheadQueue;
+
     /**
      * Constructor to open a Block GZIP File.
      */
@@ -53,6 +56,31 @@ class BlockGZIPInputFile extends BlockGZIPInput {
         }
     }
 
+    /**
+     * Constructor to open a Block GZIP File that decompresses blocks ahead of the reader on worker
+     * threads if read ahead is enabled.
+     */
+    BlockGZIPInputFile(final Path bgz, final BlockReadAhead blockReadAhead) throws IOException {
+        this(bgz);
+        try {
+            final int readAheadBlocks = blockReadAhead.getReadAheadBlocks();
+            // No point reading ahead if there is only one block.
+            if (readAheadBlocks > 0 && dataLength > blockSize) {
+                readAheadQueue = new BlockReadAheadQueue(
+                        raFile,
+                        getBlockCompression(),
+                        blockReadAhead,
+                        readAheadBlocks,
+                        blockSize,
+                        dataLength,
+                        idxStart);
+            }
+        } catch (final IOException e) {
+            close();
+            throw e;
+        }
+    }
+
     /**
      * Constructor to open a Block GZIP File with a internal buffer size.
      */
@@ -123,16 +151,8 @@ class BlockGZIPInputFile extends BlockGZIPInput {
 
         // Moving block?
         if ((currentBlockNumber != newBlockNumber)) {
-            // Read our index
-            raFile.position(idxStart
-                    + BlockGZIPConstants.LONG_BYTES
-                    + (newBlockNumber * BlockGZIPConstants.LONG_BYTES));
-            currentRawStreamBuffer = createBufferedInputStream(true);
-            final long seekPos = readLong();
-            raFile.position(seekPos);
-            currentRawStreamBuffer = createBufferedInputStream(true);
-            startGzipBlock();
-            currentStream.skip(newBlockOffset);
+            startGzipBlock(newBlockNumber);
+            skipInCurrentBlock(newBlockOffset);
         } else {
             // Start a BGZIP block
             if (currentStream == null) {
@@ -140,7 +160,7 @@ class BlockGZIPInputFile extends BlockGZIPInput {
             }
 
             // Still in the same block
-            currentStream.skip(n);
+            skipInCurrentBlock(n);
         }
 
         // We always can do the full skip
@@ -166,6 +186,9 @@ class BlockGZIPInputFile extends BlockGZIPInput {
     @Override
     public void close() throws IOException {
         try {
+            if (readAheadQueue != null) {
+                readAheadQueue.close();
+            }
             raFile.close();
         } finally {
             super.close();
@@ -174,7 +197,9 @@ class BlockGZIPInputFile extends BlockGZIPInput {
 
     @Override
     public String toString() {
-        return "BGZIP " + file + " blockSize=" + blockSize + " fileSize=" + eof;
+        return "BGZIP " + file + " compression=" + getBlockCompression() + " blockSize=" + blockSize +
+                " readAhead=" + (readAheadQueue != null) +
+                " fileSize=" + eof;
     }
 
     /**
@@ -204,17 +229,35 @@ class BlockGZIPInputFile extends BlockGZIPInput {
             final long blockNumber = newPosition / blockSize;
             final long blockOffset = newPosition % blockSize;
 
+            position = newPosition;
+            startGzipBlock(blockNumber);
+            skipInCurrentBlock(blockOffset);
+        }
+    }
+
+    /**
+     * Start reading from the beginning of the supplied block.
+     */
+    private void startGzipBlock(final long blockNumber) throws IOException {
+        if (readAheadQueue == null) {
             // Read our index
             raFile.position(idxStart + BlockGZIPConstants.LONG_BYTES + (blockNumber * BlockGZIPConstants.LONG_BYTES));
             currentRawStreamBuffer = createBufferedInputStream(true);
             final long seekPos = readLong();
             raFile.position(seekPos);
             currentRawStreamBuffer = createBufferedInputStream(true);
-            startGzipBlock();
-            currentStream.skip(blockOffset);
+        }
+        startGzipBlock();
+    }
 
-            position = newPosition;
+    @Override
+    InputStream openBlock() throws IOException {
+        if (readAheadQueue != null) {
+            // We are always at the start of the block being opened, or in the block if we have
+            // skipped within it.
+            return readAheadQueue.take(position / blockSize);
         }
+        return super.openBlock();
     }
 
     /**
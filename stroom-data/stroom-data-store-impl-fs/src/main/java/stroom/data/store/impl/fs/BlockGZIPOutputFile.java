@@ -29,7 +29,6 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.zip.GZIPOutputStream;
 import javax.validation.constraints.NotNull;
 
 /**
@@ -54,9 +53,11 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
     private final StreamCloser streamCloser = new BasicStreamCloser();
     // The stream - we hold a buffer onto it as well
     private BufferedOutputStream currentStreamBuffer;
-    private GZIPOutputStream currentStreamGzip;
+    private OutputStream currentStreamCompressor;
     // The block size we are using
     private final int blockSize;
+    // The codec used to compress each block
+    private final BlockCompression blockCompression;
     // The current 'logical' uncompressed data item we have written
     private long position = 0;
     // The current block number we are on
@@ -76,7 +77,17 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
      * @see BlockGZIPConstants
      */
     BlockGZIPOutputFile(final Path file, final int blockSize) throws IOException {
+        this(file, blockSize, BlockCompression.GZIP);
+    }
+
+    /**
+     * @see BlockGZIPConstants
+     */
+    BlockGZIPOutputFile(final Path file,
+                        final int blockSize,
+                        final BlockCompression blockCompression) throws IOException {
         this.blockSize = blockSize;
+        this.blockCompression = blockCompression;
         this.mainBuffer = new BlockByteArrayOutputStream();
         this.indexBuffer = new BlockByteArrayOutputStream();
 
@@ -96,7 +107,7 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
                 StandardOpenOption.WRITE);
         try {
             // Write a marker
-            mainBuffer.write(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER);
+            mainBuffer.write(blockCompression.getIdentifier());
             // At the start of the block file write the block size an empty place
             // for the index offset and the marker
             // we
@@ -146,9 +157,9 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
     private void endGzipBlock() throws IOException {
         blockCount++;
 
-        currentStreamBuffer.flush();
-        currentStreamGzip.flush();
-        currentStreamGzip.finish();
+        // Closing the buffer finishes the compressed frame. The underlying main buffer is a
+        // byte array stream so closing it has no effect.
+        currentStreamBuffer.close();
 
         // Block Compressed size is size of stream less magic marker less block
         // size header (2 longs)
@@ -158,7 +169,7 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
         flushMainBuffer();
 
         currentStreamBuffer = null;
-        currentStreamGzip = null;
+        currentStreamCompressor = null;
     }
 
     private void startGzipBlock() throws IOException {
@@ -177,9 +188,9 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
         // Write some bytes for the long we will do later
         mainBuffer.writeLong(0);
 
-        // Connect a new GZIP stream
-        currentStreamGzip = new GZIPOutputStream(mainBuffer);
-        currentStreamBuffer = new BufferedOutputStream(currentStreamGzip, FileSystemUtil.STREAM_BUFFER_SIZE);
+        // Connect a new compressing stream
+        currentStreamCompressor = blockCompression.compress(mainBuffer);
+        currentStreamBuffer = new BufferedOutputStream(currentStreamCompressor, FileSystemUtil.STREAM_BUFFER_SIZE);
     }
 
     @Override
@@ -307,6 +318,6 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
 
     @Override
     public String toString() {
-        return "BGZIP@" + finalFile + "@" + position;
+        return "BGZIP@" + finalFile + "@" + position + "@" + blockCompression;
     }
 }
@@ -26,7 +26,6 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
 
 class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream {
     private static final Logger LOGGER = LoggerFactory.getLogger(BlockGZipOutputStream.class);
@@ -42,9 +41,11 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
     private final SeekableOutputStream mainStream;
     // The stream - we hold a buffer onto it as well
     private BufferedOutputStream currentStreamBuffer;
-    private GZIPOutputStream currentStreamGzip;
+    private OutputStream currentStreamCompressor;
     // The block size we are using
     private int blockSize;
+    // The codec used to compress each block
+    private final BlockCompression blockCompression;
     // The current 'logical' uncompressed data item we have written
     private long position = 0;
     // The current block number we are on
@@ -58,7 +59,14 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
     }
 
     BlockGZipOutputStream(final SeekableOutputStream mainStream, final int blockSize) throws IOException {
+        this(mainStream, blockSize, BlockCompression.GZIP);
+    }
+
+    BlockGZipOutputStream(final SeekableOutputStream mainStream,
+                          final int blockSize,
+                          final BlockCompression blockCompression) throws IOException {
         this.mainStream = mainStream;
+        this.blockCompression = blockCompression;
         this.blockSize = blockSize;
         this.mainBuffer = new BlockByteArrayOutputStream();
         this.indexBuffer = new BlockByteArrayOutputStream();
@@ -67,7 +75,7 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
         indexBuffer.write(BlockGZIPConstants.MAGIC_MARKER);
 
         // Write a marker
-        mainBuffer.write(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER);
+        mainBuffer.write(blockCompression.getIdentifier());
         // At the start of the block file write the block size an empty place
         // for the index offset and the marker
         // we
@@ -107,9 +115,9 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
     private void endGzipBlock() throws IOException {
         blockCount++;
 
-        currentStreamBuffer.flush();
-        currentStreamGzip.flush();
-        currentStreamGzip.finish();
+        // Closing the buffer finishes the compressed frame. The underlying main buffer is a
+        // byte array stream so closing it has no effect.
+        currentStreamBuffer.close();
 
         // Block Compressed size is size of stream less magic marker less block
         // size header (2 longs)
@@ -119,7 +127,7 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
         flushMainBuffer();
 
         currentStreamBuffer = null;
-        currentStreamGzip = null;
+        currentStreamCompressor = null;
     }
 
     private void startGzipBlock() throws IOException {
@@ -138,9 +146,9 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
         // Write some bytes for the long we will do later
         mainBuffer.writeLong(0);
 
-        // Connect a new GZIP stream
-        currentStreamGzip = new GZIPOutputStream(mainBuffer);
-        currentStreamBuffer = new BufferedOutputStream(currentStreamGzip, FileSystemUtil.STREAM_BUFFER_SIZE);
+        // Connect a new compressing stream
+        currentStreamCompressor = blockCompression.compress(mainBuffer);
+        currentStreamBuffer = new BufferedOutputStream(currentStreamCompressor, FileSystemUtil.STREAM_BUFFER_SIZE);
     }
 
     @Override
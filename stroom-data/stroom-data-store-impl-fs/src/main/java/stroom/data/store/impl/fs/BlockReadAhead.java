@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.data.store.impl.fs;
+
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.ThreadPoolImpl;
+import stroom.task.shared.ThreadPool;
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Provides the worker threads used to decompress the blocks of block compressed files ahead of
+ * the thread that is consuming them, see {@link BlockReadAheadQueue}. Also holds the read ahead
+ * metrics across all files so we can see whether consumers are being starved.
+ * <p>
+ * Blocks are decompressed on the {@code Block Read Ahead} task thread pool so the threads are stopped
+ * with the other task pools, but no more than a few may run at once across all files. When they are
+ * all busy blocks are decompressed on the consuming thread instead, so read ahead can never use more
+ * threads than we allow.
+ */
+@Singleton
+class BlockReadAhead implements HasSystemInfo {
+
+    private static final ThreadPool THREAD_POOL = new ThreadPoolImpl("Block Read Ahead", Thread.NORM_PRIORITY - 1);
+    private static final int MAX_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final Provider<FsVolumeConfig> fsVolumeConfigProvider;
+
+    private final LongAdder blocksDecompressed = new LongAdder();
+    private final LongAdder blocksDiscarded = new LongAdder();
+    private final LongAdder blocksConsumed = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+    private final LongAdder stallNanos = new LongAdder();
+
+    @Inject
+    BlockReadAhead(final ExecutorProvider executorProvider,
+                   final Provider<FsVolumeConfig> fsVolumeConfigProvider) {
+        this(executorProvider.get(THREAD_POOL), fsVolumeConfigProvider);
+    }
+
+    BlockReadAhead(final Executor executor,
+                   final Provider<FsVolumeConfig> fsVolumeConfigProvider) {
+        this(executor, MAX_THREADS, fsVolumeConfigProvider);
+    }
+
+    BlockReadAhead(final Executor executor,
+                   final int maxThreads,
+                   final Provider<FsVolumeConfig> fsVolumeConfigProvider) {
+        this.executor = executor;
+        this.permits = new Semaphore(maxThreads);
+        this.fsVolumeConfigProvider = fsVolumeConfigProvider;
+    }
+
+    /**
+     * @return The number of blocks to decompress ahead of the consumer, zero if read ahead is
+     * disabled.
+     */
+    int getReadAheadBlocks() {
+        return Math.max(0, fsVolumeConfigProvider.get().getReadAheadBlocks());
+    }
+
+    Executor getExecutor() {
+        return this::execute;
+    }
+
+    private void execute(final Runnable command) {
+        if (permits.tryAcquire()) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (final RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        } else {
+            // All read ahead threads are busy so decompress on the consuming thread.
+            command.run();
+        }
+    }
+
+    void recordDecompressed() {
+        blocksDecompressed.increment();
+    }
+
+    void recordDiscarded(final int count) {
+        blocksDiscarded.add(count);
+    }
+
+    void recordConsumed(final long waitNanos) {
+        blocksConsumed.increment();
+        if (waitNanos > 0) {
+            stalls.increment();
+            stallNanos.add(waitNanos);
+        }
+    }
+
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        return SystemInfoResult.builder(this)
+                .addDetail("readAheadBlocks", getReadAheadBlocks())
+                .addDetail("blocksDecompressed", blocksDecompressed.sum())
+                .addDetail("blocksConsumed", blocksConsumed.sum())
+                .addDetail("blocksDiscarded", blocksDiscarded.sum())
+                .addDetail("stalls", stalls.sum())
+                .addDetail("stallTime", Duration.ofNanos(stallNanos.sum()).toString())
+                .build();
+    }
+}
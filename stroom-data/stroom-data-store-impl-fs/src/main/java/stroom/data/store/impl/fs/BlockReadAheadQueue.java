@@ -0,0 +1,225 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.data.store.impl.fs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Decompresses the blocks of a block compressed file on the {@link BlockReadAhead} worker threads
+ * ahead of the consuming thread.
+ * <p>
+ * The block index gives us the position of every block so each block can be read and decompressed
+ * independently using positional reads on the file channel. Up to N blocks following the block
+ * currently being consumed are held in a bounded ring of futures. If the consumer seeks to a block
+ * that is not the next one expected then any outstanding blocks are discarded and read ahead starts
+ * again from the new block.
+ * <p>
+ * Not thread safe, a queue should only be used by the thread consuming the stream.
+ */
+class BlockReadAheadQueue {
+
+    private final FileChannel channel;
+    private final BlockCompression blockCompression;
+    private final BlockReadAhead blockReadAhead;
+    private final int blockSize;
+    private final long dataLength;
+    private final long[] blockStarts;
+    private final CompletableFuture<byte[]>[] ring;
+
+    // The next block we expect the consumer to ask for.
+    private long nextToTake;
+    // The next block to hand to the workers.
+    private long nextToSubmit;
+
+    @SuppressWarnings("unchecked")
+    BlockReadAheadQueue(final FileChannel channel,
+                        final BlockCompression blockCompression,
+                        final BlockReadAhead blockReadAhead,
+                        final int readAheadBlocks,
+                        final int blockSize,
+                        final long dataLength,
+                        final long idxStart) throws IOException {
+        this.channel = channel;
+        this.blockCompression = blockCompression;
+        this.blockReadAhead = blockReadAhead;
+        this.blockSize = blockSize;
+        this.dataLength = dataLength;
+        this.blockStarts = readIndex(channel, idxStart, (int) ((dataLength + blockSize - 1) / blockSize));
+        this.ring = new CompletableFuture[readAheadBlocks];
+    }
+
+    /**
+     * Read the whole block index up front, it is only one long per block.
+     */
+    private static long[] readIndex(final FileChannel channel,
+                                    final long idxStart,
+                                    final int blockCount) throws IOException {
+        final ByteBuffer marker = ByteBuffer.allocate(BlockGZIPConstants.MAGIC_MARKER.length);
+        readFully(channel, marker, idxStart);
+        if (!Arrays.equals(BlockGZIPConstants.MAGIC_MARKER, marker.array())) {
+            throw new IOException("Failed to find index sync point");
+        }
+
+        final ByteBuffer index = ByteBuffer.allocate(blockCount * BlockGZIPConstants.LONG_BYTES);
+        readFully(channel, index, idxStart + BlockGZIPConstants.MAGIC_MARKER.length);
+        index.flip();
+        final LongBuffer longBuffer = index.asLongBuffer();
+        final long[] blockStarts = new long[blockCount];
+        longBuffer.get(blockStarts);
+        return blockStarts;
+    }
+
+    private static void readFully(final FileChannel channel,
+                                  final ByteBuffer buffer,
+                                  final long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, pos);
+            if (read == -1) {
+                throw new IOException("Unexpected end of file");
+            }
+            pos += read;
+        }
+    }
+
+    /**
+     * Get a stream over the uncompressed data of a block, waiting for it to be decompressed if the
+     * workers have not got to it yet.
+     */
+    InputStream take(final long blockNumber) throws IOException {
+        if (blockNumber < 0 || blockNumber >= blockStarts.length) {
+            throw new IOException("Block " + blockNumber + " is out of range");
+        }
+
+        // The consumer has moved somewhere else so anything we have read ahead is wasted.
+        if (blockNumber != nextToTake) {
+            discard();
+            nextToTake = blockNumber;
+            nextToSubmit = blockNumber;
+        }
+        fill();
+
+        final int slot = (int) (blockNumber % ring.length);
+        final CompletableFuture<byte[]> future = ring[slot];
+        ring[slot] = null;
+        nextToTake++;
+
+        final byte[] bytes;
+        long waitNanos = 0;
+        try {
+            if (future.isDone()) {
+                bytes = future.join();
+            } else {
+                final long start = System.nanoTime();
+                bytes = future.join();
+                waitNanos = Math.max(1, System.nanoTime() - start);
+            }
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+        blockReadAhead.recordConsumed(waitNanos);
+
+        // Keep the workers busy with the block after the ones already queued.
+        fill();
+
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private void fill() {
+        while (nextToSubmit < blockStarts.length && nextToSubmit - nextToTake < ring.length) {
+            final int blockNumber = (int) nextToSubmit;
+            ring[(int) (nextToSubmit % ring.length)] = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return decompress(blockNumber);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, blockReadAhead.getExecutor());
+            nextToSubmit++;
+        }
+    }
+
+    private byte[] decompress(final int blockNumber) throws IOException {
+        final long blockStart = blockStarts[blockNumber];
+        final ByteBuffer header = ByteBuffer.allocate(
+                BlockGZIPConstants.MAGIC_MARKER.length + BlockGZIPConstants.LONG_BYTES);
+        readFully(channel, header, blockStart);
+        if (!Arrays.equals(BlockGZIPConstants.MAGIC_MARKER,
+                0,
+                BlockGZIPConstants.MAGIC_MARKER.length,
+                header.array(),
+                0,
+                BlockGZIPConstants.MAGIC_MARKER.length)) {
+            throw new IOException("Failed to find block sync point " + blockNumber);
+        }
+        final long compressedLength = header.getLong(BlockGZIPConstants.MAGIC_MARKER.length);
+
+        final ByteBuffer compressed = ByteBuffer.allocate((int) compressedLength);
+        readFully(channel, compressed, blockStart + header.capacity());
+
+        final int uncompressedLength = (int) Math.min(blockSize, dataLength - ((long) blockNumber * blockSize));
+        final byte[] bytes = new byte[uncompressedLength];
+        try (final InputStream inputStream =
+                blockCompression.decompress(new ByteArrayInputStream(compressed.array()))) {
+            int off = 0;
+            while (off < uncompressedLength) {
+                final int read = inputStream.read(bytes, off, uncompressedLength - off);
+                if (read == -1) {
+                    throw new IOException("Block " + blockNumber + " is shorter than expected");
+                }
+                off += read;
+            }
+        }
+
+        blockReadAhead.recordDecompressed();
+        return bytes;
+    }
+
+    /**
+     * Drop any blocks we have read ahead. Blocks that are still being decompressed will complete
+     * but their results will be ignored.
+     */
+    private void discard() {
+        int count = 0;
+        for (int i = 0; i < ring.length; i++) {
+            if (ring[i] != null) {
+                ring[i].cancel(false);
+                ring[i] = null;
+                count++;
+            }
+        }
+        if (count > 0) {
+            blockReadAhead.recordDiscarded(count);
+        }
+    }
+
+    void close() {
+        discard();
+    }
+}
@@ -39,6 +39,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Pattern;
+import javax.inject.Provider;
 
 class FsPathHelper {
 
@@ -60,14 +61,20 @@ class FsPathHelper {
     private final FsFeedPathDao fileSystemFeedPaths;
     private final FsTypePathDao fileSystemTypePaths;
     private final StreamTypeExtensions streamTypeExtensions;
+    private final Provider<FsVolumeConfig> fsVolumeConfigProvider;
+    private final BlockReadAhead blockReadAhead;
 
     @Inject
     FsPathHelper(final FsFeedPathDao fileSystemFeedPaths,
                  final FsTypePathDao fileSystemTypePaths,
-                 final StreamTypeExtensions streamTypeExtensions) {
+                 final StreamTypeExtensions streamTypeExtensions,
+                 final Provider<FsVolumeConfig> fsVolumeConfigProvider,
+                 final BlockReadAhead blockReadAhead) {
         this.fileSystemFeedPaths = fileSystemFeedPaths;
         this.fileSystemTypePaths = fileSystemTypePaths;
         this.streamTypeExtensions = streamTypeExtensions;
+        this.fsVolumeConfigProvider = fsVolumeConfigProvider;
+        this.blockReadAhead = blockReadAhead;
     }
 
     long getId(final Path path) {
@@ -102,7 +109,7 @@ class FsPathHelper {
             throw new IllegalArgumentException("Must Have a non-null stream type");
         }
         if (FileStoreType.bgz.equals(getFileStoreType(streamTypeName))) {
-            return new BlockGZIPInputFile(file);
+            return new BlockGZIPInputFile(file, blockReadAhead);
         }
         return new UncompressedInputStream(file, isStreamTypeLazy(streamTypeName));
     }
@@ -135,7 +142,12 @@ class FsPathHelper {
         OutputStream outputStream = null;
         if (FileStoreType.bgz.equals(getFileStoreType(streamTypeName))) {
             try {
-                outputStream = new BlockGZIPOutputFile(file);
+                final BlockCompression blockCompression =
+                        BlockCompression.fromName(fsVolumeConfigProvider.get().getBlockCompression());
+                outputStream = new BlockGZIPOutputFile(
+                        file,
+                        BlockGZIPConstants.DEFAULT_BLOCK_SIZE,
+                        blockCompression);
             } catch (IOException e) {
                 ioEx = e;
             }
@@ -20,6 +20,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.Pattern;
 
 @JsonPropertyOrder(alphabetic = true)
@@ -48,7 +49,11 @@ public class FsVolumeConfig extends AbstractConfig implements IsStroomConfig {
             StreamTypeNames.DETECTIONS, "dtxn",
             StreamTypeNames.RECORDS, "rec"));
 
+    private static final String BLOCK_COMPRESSION_PATTERN = "^(GZIP|ZSTD|LZ4)$";
+
     private final String volumeSelector;
+    private final String blockCompression;
+    private final int readAheadBlocks;
 
     // TODO 02/12/2021 AT: Make final
     private List<String> defaultStreamVolumePaths;
@@ -64,6 +69,8 @@ public class FsVolumeConfig extends AbstractConfig implements IsStroomConfig {
 
     public FsVolumeConfig() {
         volumeSelector = "RoundRobin";
+        blockCompression = "GZIP";
+        readAheadBlocks = 0;
         defaultStreamVolumePaths = List.of("volumes/default_stream_volume");
         defaultStreamVolumeFilesystemUtilisation = 0.9;
         createDefaultStreamVolumesOnStart = true;
@@ -89,7 +96,9 @@ public class FsVolumeConfig extends AbstractConfig implements IsStroomConfig {
             @JsonProperty("createDefaultStreamVolumesOnStart") final boolean createDefaultStreamVolumesOnStart,
             @JsonProperty("feedPathCache") final CacheConfig feedPathCache,
             @JsonProperty("typePathCache") final CacheConfig typePathCache,
-            @JsonProperty("metaTypeExtensions") Map<String, String> metaTypeExtensions) {
+            @JsonProperty("metaTypeExtensions") Map<String, String> metaTypeExtensions,
+            @JsonProperty("blockCompression") final String blockCompression,
+            @JsonProperty("readAheadBlocks") final int readAheadBlocks) {
         this.volumeSelector = volumeSelector;
         this.defaultStreamVolumePaths = defaultStreamVolumePaths;
         this.defaultStreamVolumeFilesystemUtilisation = defaultStreamVolumeFilesystemUtilisation;
@@ -97,6 +106,8 @@ public class FsVolumeConfig extends AbstractConfig implements IsStroomConfig {
         this.feedPathCache = feedPathCache;
         this.typePathCache = typePathCache;
         this.metaTypeExtensions = metaTypeExtensions;
+        this.blockCompression = blockCompression;
+        this.readAheadBlocks = readAheadBlocks;
     }
 
     @JsonPropertyDescription("How should volumes be selected for use? Possible volume selectors " +
@@ -108,6 +119,24 @@ public class FsVolumeConfig extends AbstractConfig implements IsStroomConfig {
         return volumeSelector;
     }
 
+    @JsonPropertyDescription("The codec used to compress each block of new block compressed (.bgz) files. " +
+            "Possible values are 'GZIP', 'ZSTD' and 'LZ4', default is 'GZIP'. Existing files are read " +
+            "using the codec they were written with regardless of this setting. Files written with 'ZSTD' " +
+            "or 'LZ4' cannot be read by versions of Stroom that pre-date this setting.")
+    @Pattern(regexp = BLOCK_COMPRESSION_PATTERN)
+    public String getBlockCompression() {
+        return blockCompression;
+    }
+
+    @JsonPropertyDescription("The number of blocks of a block compressed (.bgz) file to decompress on worker " +
+            "threads ahead of the thread reading the file. Allows processing of large streams to make use " +
+            "of more than one core. Each block held in memory uses up to 1MB per open stream. " +
+            "Set to 0 to disable read ahead, default is 0.")
+    @Min(0)
+    public int getReadAheadBlocks() {
+        return readAheadBlocks;
+    }
+
     @RequiresRestart(RequiresRestart.RestartScope.UI)
     @JsonPropertyDescription("If no existing stream volumes are present default volumes will be created on " +
             "application start.  Use property defaultStreamVolumePaths to define the volumes created.")
@@ -148,7 +177,22 @@ public class FsVolumeConfig extends AbstractConfig implements IsStroomConfig {
                 createDefaultStreamVolumesOnStart,
                 feedPathCache,
                 typePathCache,
-                metaTypeExtensions);
+                metaTypeExtensions,
+                blockCompression,
+                readAheadBlocks);
+    }
+
+    public FsVolumeConfig withReadAheadBlocks(final int readAheadBlocks) {
+        return new FsVolumeConfig(
+                volumeSelector,
+                defaultStreamVolumePaths,
+                defaultStreamVolumeFilesystemUtilisation,
+                createDefaultStreamVolumesOnStart,
+                feedPathCache,
+                typePathCache,
+                metaTypeExtensions,
+                blockCompression,
+                readAheadBlocks);
     }
 
     @JsonPropertyDescription("Map of meta type names to their file extension. " +
@@ -176,6 +220,8 @@ public class FsVolumeConfig extends AbstractConfig implements IsStroomConfig {
     public String toString() {
         return "VolumeConfig{" +
                 "volumeSelector='" + volumeSelector + '\'' +
+                ", blockCompression='" + blockCompression + '\'' +
+                ", readAheadBlocks=" + readAheadBlocks +
                 ", createDefaultStreamVolumesOnStart=" + createDefaultStreamVolumesOnStart +
                 ", defaultStreamVolumePaths=" + "\"" + defaultStreamVolumePaths + "\"" +
                 ", defaultStreamVolumeFilesystemUtilisation=" + "\"" + defaultStreamVolumeFilesystemUtilisation + "\"" +
@@ -83,6 +83,40 @@ class TestBlockGZIPFiles {
         testWriteAndReadBuffered(1000, 1000000, 100, 100);
     }
 
+    @Test
+    void testAllCompressions() throws IOException {
+        for (final BlockCompression blockCompression : BlockCompression.values()) {
+            testWriteAndRead(10, 0, blockCompression);
+            testWriteAndRead(10, 21, blockCompression);
+            testWriteAndRead(100, 999, blockCompression);
+            testWriteAndRead(10000, 99999, blockCompression);
+        }
+    }
+
+    @Test
+    void testCompressionIdentifier() throws IOException {
+        for (final BlockCompression blockCompression : BlockCompression.values()) {
+            final Path file = tempDir.resolve("test_" + blockCompression + ".bgz");
+            try (final BlockGZIPOutputFile outStream = new BlockGZIPOutputFile(file, 100, blockCompression)) {
+                outStream.write(new byte[1000]);
+            }
+
+            final byte[] identifier = new byte[BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER.length];
+            try (final InputStream inputStream = Files.newInputStream(file)) {
+                StreamUtil.fillBuffer(inputStream, identifier);
+            }
+            assertThat(BlockCompression.fromIdentifier(identifier)).isEqualTo(blockCompression);
+
+            try (final BlockGZIPInputFile inStream = new BlockGZIPInputFile(file)) {
+                assertThat(inStream.read()).isZero();
+                assertThat(inStream.getBlockCompression()).isEqualTo(blockCompression);
+            }
+        }
+
+        // GZIP must still write V1 files so older versions can read them.
+        assertThat(BlockCompression.GZIP.getIdentifier()).isEqualTo(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER);
+    }
+
     @Test
     void testBig() throws IOException {
         final Path testFile = tempDir.resolve("testBig.bgz");
@@ -124,11 +158,17 @@ class TestBlockGZIPFiles {
     }
 
     private void testWriteAndRead(final int blockSize, final int fileSize) throws IOException {
+        testWriteAndRead(blockSize, fileSize, BlockCompression.GZIP);
+    }
+
+    private void testWriteAndRead(final int blockSize,
+                                  final int fileSize,
+                                  final BlockCompression blockCompression) throws IOException {
         final Path file = Files.createTempFile(tempDir, "test", ".bgz");
         FileUtil.deleteFile(file);
 
         // Stupid Block Size For Testing
-        final BlockGZIPOutputFile outStream = new BlockGZIPOutputFile(file, blockSize);
+        final BlockGZIPOutputFile outStream = new BlockGZIPOutputFile(file, blockSize, blockCompression);
 
         for (int i = 0; i < fileSize; i++) {
             outStream.write((byte) i);
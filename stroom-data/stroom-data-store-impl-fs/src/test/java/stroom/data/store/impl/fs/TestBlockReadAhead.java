@@ -0,0 +1,147 @@
+package stroom.data.store.impl.fs;
+
+import stroom.util.io.StreamUtil;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestBlockReadAhead {
+
+    private static final int BLOCK_SIZE = 100;
+    private static final int FILE_SIZE = 10_050;
+
+    @TempDir
+    Path tempDir;
+
+    private ExecutorService executorService;
+    private FsVolumeConfig fsVolumeConfig;
+    private BlockReadAhead blockReadAhead;
+
+    @BeforeEach
+    void setup() {
+        executorService = Executors.newCachedThreadPool();
+        fsVolumeConfig = mock(FsVolumeConfig.class);
+        when(fsVolumeConfig.getReadAheadBlocks()).thenReturn(3);
+        blockReadAhead = new BlockReadAhead(executorService, 2, () -> fsVolumeConfig);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testSequentialRead() throws IOException {
+        for (final BlockCompression blockCompression : BlockCompression.values()) {
+            final Path file = write(blockCompression);
+
+            try (final BlockGZIPInputFile inStream = new BlockGZIPInputFile(file, blockReadAhead)) {
+                assertThat(inStream.toString()).contains("readAhead=true");
+
+                final byte[] buffer = new byte[37];
+                int expected = 0;
+                int len;
+                while ((len = inStream.read(buffer)) != -1) {
+                    for (int i = 0; i < len; i++) {
+                        assertThat(buffer[i]).isEqualTo((byte) expected++);
+                    }
+                }
+                assertThat(expected).isEqualTo(FILE_SIZE);
+            }
+        }
+
+        assertThat(blockReadAhead.getSystemInfo().getDetails().get("blocksConsumed"))
+                .isEqualTo((long) BlockCompression.values().length * ((FILE_SIZE + BLOCK_SIZE - 1) / BLOCK_SIZE));
+    }
+
+    @Test
+    void testSeeking() throws IOException {
+        final Path file = write(BlockCompression.GZIP);
+
+        try (final BlockGZIPInputFile inStream = new BlockGZIPInputFile(file, blockReadAhead)) {
+            // Go back
+            for (int i = 9_000; i >= 0; i -= 450) {
+                inStream.seek(i);
+                assertThat(inStream.read()).isEqualTo(i & 0xFF);
+                inStream.skip(99);
+                assertThat(inStream.read()).isEqualTo((i + 100) & 0xFF);
+            }
+
+            // Go forward
+            for (int i = 3; i < FILE_SIZE; i += 250) {
+                inStream.seek(i);
+                assertThat(inStream.read()).isEqualTo(i & 0xFF);
+            }
+
+            inStream.seek(50);
+            final byte[] testRead = new byte[500];
+            StreamUtil.fillBuffer(inStream, testRead);
+            for (int i = 0; i < testRead.length; i++) {
+                assertThat(testRead[i]).isEqualTo((byte) (50 + i));
+            }
+        }
+    }
+
+    @Test
+    void testSingleBlock() throws IOException {
+        final Path file = tempDir.resolve("single.bgz");
+        try (final BlockGZIPOutputFile outStream = new BlockGZIPOutputFile(file, BLOCK_SIZE)) {
+            outStream.write(new byte[BLOCK_SIZE / 2]);
+        }
+
+        try (final BlockGZIPInputFile inStream = new BlockGZIPInputFile(file, blockReadAhead)) {
+            assertThat(inStream.toString()).contains("readAhead=false");
+            assertThat(inStream.read()).isZero();
+        }
+    }
+
+    @Test
+    void testSaturatedRunsOnCaller() throws InterruptedException {
+        final BlockReadAhead saturated = new BlockReadAhead(executorService, 1, () -> fsVolumeConfig);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Occupy the only read ahead thread.
+            saturated.getExecutor().execute(() -> {
+                running.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // The next block should be decompressed on this thread.
+            final AtomicReference<Thread> thread = new AtomicReference<>();
+            saturated.getExecutor().execute(() -> thread.set(Thread.currentThread()));
+            assertThat(thread.get()).isSameAs(Thread.currentThread());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private Path write(final BlockCompression blockCompression) throws IOException {
+        final Path file = tempDir.resolve("test_" + blockCompression + ".bgz");
+        try (final BlockGZIPOutputFile outStream = new BlockGZIPOutputFile(file, BLOCK_SIZE, blockCompression)) {
+            for (int i = 0; i < FILE_SIZE; i++) {
+                outStream.write((byte) i);
+            }
+        }
+        return file;
+    }
+}
@@ -98,7 +98,9 @@ class TestFileSystemUtil {
         final FsPathHelper fileSystemStreamPathHelper = new FsPathHelper(
                 fileSystemFeedPaths,
                 new MockFsTypePaths(),
-                new StreamTypeExtensions(FsVolumeConfig::new));
+                new StreamTypeExtensions(FsVolumeConfig::new),
+                FsVolumeConfig::new,
+                new BlockReadAhead(Runnable::run, FsVolumeConfig::new));
 
         final Path volumePath = Paths.get(buildTestVolume().getPath());
         final Path rootFile = fileSystemStreamPathHelper.getRootPath(volumePath, meta, StreamTypeNames.EVENTS);
@@ -121,7 +123,9 @@ class TestFileSystemUtil {
         final FsPathHelper fileSystemStreamPathHelper = new FsPathHelper(
                 fileSystemFeedPaths,
                 new MockFsTypePaths(),
-                new StreamTypeExtensions(FsVolumeConfig::new));
+                new StreamTypeExtensions(FsVolumeConfig::new),
+                FsVolumeConfig::new,
+                new BlockReadAhead(Runnable::run, FsVolumeConfig::new));
 
         final Path volumePath = Paths.get(buildTestVolume().getPath());
         final Path rootFile = fileSystemStreamPathHelper.getRootPath(volumePath, meta,
@@ -279,7 +283,9 @@ class TestFileSystemUtil {
         final FsPathHelper fileSystemStreamPathHelper = new FsPathHelper(
                 fileSystemFeedPaths,
                 new MockFsTypePaths(),
-                new StreamTypeExtensions(FsVolumeConfig::new));
+                new StreamTypeExtensions(FsVolumeConfig::new),
+                FsVolumeConfig::new,
+                new BlockReadAhead(Runnable::run, FsVolumeConfig::new));
 
         Path path = Paths.get("");
         assertThat(fileSystemStreamPathHelper.getRootPath(path, meta, StreamTypeNames.EVENTS))
@@ -301,7 +307,9 @@ class TestFileSystemUtil {
         final FsPathHelper fileSystemStreamPathHelper = new FsPathHelper(
                 fileSystemFeedPaths,
                 new MockFsTypePaths(),
-                new StreamTypeExtensions(FsVolumeConfig::new));
+                new StreamTypeExtensions(FsVolumeConfig::new),
+                FsVolumeConfig::new,
+                new BlockReadAhead(Runnable::run, FsVolumeConfig::new));
 
         Path path = Paths.get("");
         assertThat(fileSystemStreamPathHelper.getRootPath(path, meta, StreamTypeNames.EVENTS))
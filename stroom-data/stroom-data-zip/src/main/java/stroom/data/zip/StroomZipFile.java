@@ -74,6 +74,25 @@ public class StroomZipFile implements Closeable {
         return null;
     }
 
+    /**
+     * @return The zip entry for the base name and file type or null if there isn't one. Can be used
+     * with {@link #getRawInputStream(ZipArchiveEntry)} to copy an entry without decompressing it.
+     */
+    public ZipArchiveEntry getZipArchiveEntry(String baseName, StroomZipFileType fileType) throws IOException {
+        return getEntry(baseName, fileType);
+    }
+
+    public InputStream getInputStream(ZipArchiveEntry entry) throws IOException {
+        return getZipFile().getInputStream(entry);
+    }
+
+    /**
+     * @return A stream of the compressed data of the entry.
+     */
+    public InputStream getRawInputStream(ZipArchiveEntry entry) throws IOException {
+        return getZipFile().getRawInputStream(entry);
+    }
+
     public long getSize(String baseName, StroomZipFileType fileType) throws IOException {
         final ZipArchiveEntry entry = getEntry(baseName, fileType);
         if (entry != null) {
@@ -0,0 +1,237 @@
+package stroom.index.impl;
+
+import stroom.docref.DocRef;
+import stroom.index.mock.MockIndexShardService;
+import stroom.index.mock.MockIndexShardWriterCache;
+import stroom.index.shared.IndexDoc;
+import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFields;
+import stroom.index.shared.IndexFieldsMap;
+import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.index.shared.IndexShardKey;
+import stroom.index.shared.IndexVolume;
+import stroom.security.mock.MockSecurityContext;
+import stroom.task.api.SimpleTaskContext;
+import stroom.util.io.FileUtil;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestIndexShardCompactor {
+
+    private static final String NODE_NAME = "node1";
+    private static final List<IndexField> INDEX_FIELDS = IndexFields.createStreamIndexFields();
+    private static final IndexStructure INDEX_STRUCTURE;
+
+    static {
+        INDEX_FIELDS.add(IndexField.createIdField("Id"));
+        INDEX_FIELDS.add(IndexField.createField("Test"));
+
+        final IndexDoc index = new IndexDoc();
+        index.setName("Test");
+        INDEX_STRUCTURE = new IndexStructure(index, INDEX_FIELDS, new IndexFieldsMap(INDEX_FIELDS));
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private MockIndexShardService indexShardService;
+    private IndexShardManager indexShardManager;
+    private IndexShardCompactor indexShardCompactor;
+    private IndexVolume volume;
+    private IndexShardKey indexShardKey;
+
+    @BeforeEach
+    void setup() {
+        indexShardService = new MockIndexShardService(() -> tempDir);
+        indexShardManager = new IndexShardManager(
+                null,
+                indexShardService,
+                () -> new MockIndexShardWriterCache(indexShardService, Integer.MAX_VALUE),
+                () -> NODE_NAME,
+                Runnable::run,
+                null,
+                new SimpleTaskContext(),
+                new MockSecurityContext());
+
+        final IndexStructureCache indexStructureCache = new IndexStructureCache() {
+            @Override
+            public IndexStructure get(final DocRef key) {
+                return INDEX_STRUCTURE;
+            }
+
+            @Override
+            public void remove(final DocRef key) {
+            }
+        };
+        final IndexConfig indexConfig = new IndexConfig(
+                null, 1024, null, null, null, 100, 2);
+        indexShardCompactor = new IndexShardCompactor(
+                indexShardService,
+                indexShardManager,
+                indexStructureCache,
+                () -> indexConfig,
+                () -> NODE_NAME,
+                new SimpleTaskContext(),
+                new MockSecurityContext());
+
+        volume = IndexVolume.builder()
+                .nodeName(NODE_NAME)
+                .path(FileUtil.getCanonicalPath(tempDir))
+                .build();
+        volume.setId(1);
+
+        final IndexDoc index = new IndexDoc();
+        index.setUuid(UUID.randomUUID().toString());
+        index.setName("Test");
+        indexShardKey = IndexShardKeyUtil.createTestKey(index);
+    }
+
+    @Test
+    void testCompact() throws IOException {
+        final IndexShard shard1 = createClosedShard(3);
+        final IndexShard shard2 = createClosedShard(5);
+        final IndexShard shard3 = createClosedShard(7);
+
+        indexShardCompactor.compact();
+
+        assertThat(shard1.getStatus()).isEqualTo(IndexShardStatus.DELETED);
+        assertThat(shard2.getStatus()).isEqualTo(IndexShardStatus.DELETED);
+        assertThat(shard3.getStatus()).isEqualTo(IndexShardStatus.DELETED);
+
+        final List<IndexShard> newShards = findShards(IndexShardStatus.CLOSED);
+        assertThat(newShards).hasSize(1);
+        final IndexShard newShard = newShards.get(0);
+        assertThat(newShard.getId()).isNotIn(shard1.getId(), shard2.getId(), shard3.getId());
+        assertThat(newShard.getDocumentCount()).isEqualTo(3 + 5 + 7);
+        assertThat(countDocs(newShard)).isEqualTo(3 + 5 + 7);
+        assertThat(newShard.getFileSize()).isPositive();
+
+        // The new shard is an ordinary closed shard that a later compaction can pick up.
+        assertThat(indexShardManager.startCompaction(newShard.getId())).isTrue();
+        indexShardManager.endCompaction(newShard.getId());
+    }
+
+    @Test
+    void testCompactingShardCannotBeOpened() throws IOException {
+        final IndexShard shard = createClosedShard(3);
+
+        assertThat(indexShardManager.startCompaction(shard.getId())).isTrue();
+        // A shard can only be reserved once.
+        assertThat(indexShardManager.startCompaction(shard.getId())).isFalse();
+
+        // The writer cache asks to move a shard to OPENING before handing it to a writer.
+        assertThat(indexShardManager.setStatus(shard.getId(), IndexShardStatus.OPENING)).isFalse();
+        assertThat(shard.getStatus()).isEqualTo(IndexShardStatus.CLOSED);
+
+        indexShardManager.endCompaction(shard.getId());
+        assertThat(indexShardManager.setStatus(shard.getId(), IndexShardStatus.OPENING)).isTrue();
+        assertThat(shard.getStatus()).isEqualTo(IndexShardStatus.OPENING);
+
+        // Shards that aren't closed can't be reserved.
+        assertThat(indexShardManager.startCompaction(shard.getId())).isFalse();
+    }
+
+    @Test
+    void testFailedMergeLeavesSourcesIntact() throws IOException {
+        final IndexShard shard1 = createClosedShard(3);
+        final IndexShard shard2 = createClosedShard(5);
+
+        // Remove the commit point of one source so Lucene can't add it to the new shard.
+        final Path dir2 = IndexShardUtil.getIndexPath(shard2);
+        try (final Stream<Path> stream = Files.list(dir2)) {
+            for (final Path file : stream.collect(Collectors.toList())) {
+                if (file.getFileName().toString().startsWith("segments")) {
+                    Files.delete(file);
+                }
+            }
+        }
+        final Set<String> dir1Files = listFiles(IndexShardUtil.getIndexPath(shard1));
+        final Set<String> dir2Files = listFiles(dir2);
+
+        indexShardCompactor.compact();
+
+        assertThat(shard1.getStatus()).isEqualTo(IndexShardStatus.CLOSED);
+        assertThat(shard2.getStatus()).isEqualTo(IndexShardStatus.CLOSED);
+        assertThat(shard1.getDocumentCount()).isEqualTo(3);
+        assertThat(shard2.getDocumentCount()).isEqualTo(5);
+        assertThat(listFiles(IndexShardUtil.getIndexPath(shard1))).isEqualTo(dir1Files);
+        assertThat(listFiles(dir2)).isEqualTo(dir2Files);
+        assertThat(countDocs(shard1)).isEqualTo(3);
+
+        // The partially written shard is marked for deletion.
+        final List<IndexShard> deleted = findShards(IndexShardStatus.DELETED);
+        assertThat(deleted).hasSize(1);
+        assertThat(deleted.get(0).getId()).isNotIn(shard1.getId(), shard2.getId());
+
+        // Nothing is left reserved so the sources can be opened for writing again.
+        assertThat(indexShardManager.setStatus(shard1.getId(), IndexShardStatus.OPENING)).isTrue();
+    }
+
+    private IndexShard createClosedShard(final int documentCount) throws IOException {
+        final IndexShard indexShard = indexShardService.createIndexShard(indexShardKey, volume, NODE_NAME);
+        final IndexShardWriter writer = new IndexShardWriterImpl(
+                null, new IndexConfig(), INDEX_STRUCTURE, indexShardKey, indexShard);
+        for (int i = 1; i <= documentCount; i++) {
+            writer.addDocument(buildDocument(i));
+        }
+        writer.close();
+
+        indexShardService.update(indexShard.getId(), documentCount, 0L, System.currentTimeMillis(), 0L);
+        indexShardService.setStatus(indexShard.getId(), IndexShardStatus.CLOSED);
+        return indexShard;
+    }
+
+    private Document buildDocument(final int id) {
+        final Document document = new Document();
+        document.add(FieldFactory.create(IndexField.createIdField("Id"), id));
+        document.add(FieldFactory.create(IndexField.createField("Test"), "Test"));
+        return document;
+    }
+
+    private List<IndexShard> findShards(final IndexShardStatus status) {
+        final List<IndexShard> list = new ArrayList<>();
+        for (long id = 1; indexShardService.loadById(id) != null; id++) {
+            final IndexShard indexShard = indexShardService.loadById(id);
+            if (status.equals(indexShard.getStatus())) {
+                list.add(indexShard);
+            }
+        }
+        return list;
+    }
+
+    private int countDocs(final IndexShard indexShard) throws IOException {
+        try (final Directory directory = new NIOFSDirectory(IndexShardUtil.getIndexPath(indexShard));
+                final DirectoryReader reader = DirectoryReader.open(directory)) {
+            return reader.numDocs();
+        }
+    }
+
+    private Set<String> listFiles(final Path dir) throws IOException {
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            final Set<String> files = new HashSet<>();
+            stream.forEach(file -> files.add(file.getFileName().toString()));
+            return files;
+        }
+    }
+}
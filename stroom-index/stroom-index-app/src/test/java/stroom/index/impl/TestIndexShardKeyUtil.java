@@ -25,6 +25,8 @@ import stroom.util.date.DateUtil;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -42,6 +44,27 @@ class TestIndexShardKeyUtil extends StroomUnitTest {
         assertThat(indexShardKey.getShardNo() >= 0).isTrue();
     }
 
+    @Test
+    void testShardNoPerIndex() {
+        final IndexDoc index1 = new IndexDoc();
+        index1.setUuid(UUID.randomUUID().toString());
+        index1.setShardsPerPartition(2);
+        final IndexDoc index2 = new IndexDoc();
+        index2.setUuid(UUID.randomUUID().toString());
+        index2.setShardsPerPartition(2);
+
+        // Interleaving keys for two indexes mustn't stop either of them using all of their shards.
+        final Set<Integer> shardNos1 = new HashSet<>();
+        final Set<Integer> shardNos2 = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            shardNos1.add(IndexShardKeyUtil.createTestKey(index1).getShardNo());
+            shardNos2.add(IndexShardKeyUtil.createTestKey(index2).getShardNo());
+        }
+
+        assertThat(shardNos1).containsExactlyInAnyOrder(0, 1);
+        assertThat(shardNos2).containsExactlyInAnyOrder(0, 1);
+    }
+
     @Test
     void testTimeBased() {
         final String date = "2013-03-07T12:33:44.000Z";
@@ -186,6 +186,14 @@ class IndexShardDaoImpl implements IndexShardDao {
             throw new IndexException(msg);
         }
 
+        return create(indexShardKey, indexVolume, ownerNodeName, indexVersion);
+    }
+
+    @Override
+    public IndexShard create(final IndexShardKey indexShardKey,
+                             final IndexVolume indexVolume,
+                             final String ownerNodeName,
+                             final String indexVersion) {
         final IndexShard indexShard = new IndexShard();
         indexShard.setIndexUuid(indexShardKey.getIndexUuid());
         indexShard.setNodeName(ownerNodeName);
@@ -216,6 +224,23 @@ class IndexShardDaoImpl implements IndexShardDao {
                 .execute());
     }
 
+    @Override
+    public void replace(final Long id,
+                        final Collection<Long> replacedIds) {
+        JooqUtil.transaction(indexDbConnProvider, context -> {
+            context
+                    .update(INDEX_SHARD)
+                    .set(INDEX_SHARD.STATUS, IndexShardStatus.DELETED.getPrimitiveValue())
+                    .where(INDEX_SHARD.ID.in(replacedIds))
+                    .execute();
+            context
+                    .update(INDEX_SHARD)
+                    .set(INDEX_SHARD.STATUS, IndexShardStatus.CLOSED.getPrimitiveValue())
+                    .where(INDEX_SHARD.ID.eq(id))
+                    .execute();
+        });
+    }
+
     @Override
     public void update(final Long id,
                        final Integer documentCount,
@@ -18,11 +18,13 @@ package stroom.index.impl;
 
 import stroom.index.shared.IndexField;
 
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.DoubleField;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FloatField;
 import org.apache.lucene.document.IntField;
 import org.apache.lucene.document.LongField;
+import org.apache.lucene.util.BytesRef;
 
 public class FieldFactory {
 
@@ -45,4 +47,13 @@ public class FieldFactory {
     public static Field create(final IndexField indexField, final String initialValue) {
         return new Field(indexField.getFieldName(), initialValue, FieldTypeFactory.create(indexField));
     }
+
+    /**
+     * Create a doc values field holding the string form of a value so that search can read it back
+     * column wise rather than loading stored documents. Only one doc value per field name may be added
+     * to a document.
+     */
+    public static BinaryDocValuesField createDocValues(final IndexField indexField, final String value) {
+        return new BinaryDocValuesField(indexField.getFieldName(), new BytesRef(value));
+    }
 }
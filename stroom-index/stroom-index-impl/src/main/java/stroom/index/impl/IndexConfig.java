@@ -15,6 +15,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+import javax.validation.constraints.Min;
+
 
 @JsonPropertyOrder(alphabetic = true)
 public class IndexConfig extends AbstractConfig implements IsStroomConfig, HasDbConfig {
@@ -23,6 +25,9 @@ public class IndexConfig extends AbstractConfig implements IsStroomConfig, HasDb
     private final int ramBufferSizeMB;
     private final IndexWriterConfig indexWriterConfig;
     private final CacheConfig indexStructureCache;
+    private final CacheConfig indexShardSummaryCache;
+    private final int shardCompactionMaxDocuments;
+    private final int shardCompactionMinShards;
 
     public IndexConfig() {
         dbConfig = new IndexDbConfig();
@@ -32,6 +37,12 @@ public class IndexConfig extends AbstractConfig implements IsStroomConfig, HasDb
                 .maximumSize(100L)
                 .expireAfterWrite(StroomDuration.ofSeconds(10))
                 .build();
+        indexShardSummaryCache = CacheConfig.builder()
+                .maximumSize(1000L)
+                .expireAfterAccess(StroomDuration.ofMinutes(10))
+                .build();
+        shardCompactionMaxDocuments = 100_000;
+        shardCompactionMinShards = 4;
     }
 
     @SuppressWarnings("unused")
@@ -39,11 +50,17 @@ public class IndexConfig extends AbstractConfig implements IsStroomConfig, HasDb
     public IndexConfig(@JsonProperty("db") final IndexDbConfig dbConfig,
                        @JsonProperty("ramBufferSizeMB") final int ramBufferSizeMB,
                        @JsonProperty("writer") final IndexWriterConfig indexWriterConfig,
-                       @JsonProperty("indexStructureCache") final CacheConfig indexStructureCache) {
+                       @JsonProperty("indexStructureCache") final CacheConfig indexStructureCache,
+                       @JsonProperty("indexShardSummaryCache") final CacheConfig indexShardSummaryCache,
+                       @JsonProperty("shardCompactionMaxDocuments") final int shardCompactionMaxDocuments,
+                       @JsonProperty("shardCompactionMinShards") final int shardCompactionMinShards) {
         this.dbConfig = dbConfig;
         this.ramBufferSizeMB = ramBufferSizeMB;
         this.indexWriterConfig = indexWriterConfig;
         this.indexStructureCache = indexStructureCache;
+        this.indexShardSummaryCache = indexShardSummaryCache;
+        this.shardCompactionMaxDocuments = shardCompactionMaxDocuments;
+        this.shardCompactionMinShards = shardCompactionMinShards;
     }
 
     @Override
@@ -66,6 +83,26 @@ public class IndexConfig extends AbstractConfig implements IsStroomConfig, HasDb
         return indexStructureCache;
     }
 
+    @JsonPropertyDescription("The cache of index shard summaries used by search to skip shards that can't " +
+            "contain any matches")
+    public CacheConfig getIndexShardSummaryCache() {
+        return indexShardSummaryCache;
+    }
+
+    @Min(0)
+    @JsonPropertyDescription("Closed index shards holding fewer documents than this are merged together by the " +
+            "'Index Shard Compaction' job into fewer, larger shards. A value of '0' means no shards are compacted.")
+    public int getShardCompactionMaxDocuments() {
+        return shardCompactionMaxDocuments;
+    }
+
+    @Min(2)
+    @JsonPropertyDescription("The minimum number of small closed index shards in the same index partition on " +
+            "the same volume before the 'Index Shard Compaction' job will merge them.")
+    public int getShardCompactionMinShards() {
+        return shardCompactionMinShards;
+    }
+
     @Override
     public String toString() {
         return "IndexConfig{" +
@@ -73,6 +110,9 @@ public class IndexConfig extends AbstractConfig implements IsStroomConfig, HasDb
                 ", ramBufferSizeMB=" + ramBufferSizeMB +
                 ", indexWriterConfig=" + indexWriterConfig +
                 ", indexStructureCache=" + indexStructureCache +
+                ", indexShardSummaryCache=" + indexShardSummaryCache +
+                ", shardCompactionMaxDocuments=" + shardCompactionMaxDocuments +
+                ", shardCompactionMinShards=" + shardCompactionMinShards +
                 '}';
     }
 
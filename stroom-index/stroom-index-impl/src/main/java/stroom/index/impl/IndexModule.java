@@ -42,6 +42,7 @@ public class IndexModule extends AbstractModule {
         install(new IndexElementModule());
 
         bind(IndexShardWriterCache.class).to(IndexShardWriterCacheImpl.class);
+        bind(IndexShardSummaryCache.class).to(IndexShardSummaryCacheImpl.class);
         bind(IndexStructureCache.class).to(IndexStructureCacheImpl.class);
         bind(IndexStore.class).to(IndexStoreImpl.class);
         bind(IndexVolumeService.class).to(IndexVolumeServiceImpl.class);
@@ -51,6 +52,7 @@ public class IndexModule extends AbstractModule {
 
         GuiceUtil.buildMultiBinder(binder(), Clearable.class)
                 .addBinding(IndexStructureCacheImpl.class)
+                .addBinding(IndexShardSummaryCacheImpl.class)
                 .addBinding(IndexVolumeServiceImpl.class);
 
         GuiceUtil.buildMultiBinder(binder(), EntityEvent.Handler.class)
@@ -75,6 +77,10 @@ public class IndexModule extends AbstractModule {
                         .name("Index Shard Delete")
                         .description("Job to delete index shards from disk that have been marked as deleted")
                         .schedule(CRON, "0 0 *"))
+                .bindJobTo(IndexShardCompaction.class, builder -> builder
+                        .name("Index Shard Compaction")
+                        .description("Job to merge small closed index shards into fewer, larger shards")
+                        .schedule(PERIODIC, "1h"))
                 .bindJobTo(IndexShardRetention.class, builder -> builder
                         .name("Index Shard Retention")
                         .description("Job to set index shards to have a status of deleted that have past their " +
@@ -106,6 +112,14 @@ public class IndexModule extends AbstractModule {
         }
     }
 
+    private static class IndexShardCompaction extends RunnableWrapper {
+
+        @Inject
+        IndexShardCompaction(final IndexShardCompactor indexShardCompactor) {
+            super(indexShardCompactor::compact);
+        }
+    }
+
     private static class IndexShardRetention extends RunnableWrapper {
 
         @Inject
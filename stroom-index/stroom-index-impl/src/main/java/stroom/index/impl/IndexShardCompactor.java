@@ -0,0 +1,277 @@
+package stroom.index.impl;
+
+import stroom.docref.DocRef;
+import stroom.index.impl.analyzer.AnalyzerFactory;
+import stroom.index.shared.AnalyzerType;
+import stroom.index.shared.FindIndexShardCriteria;
+import stroom.index.shared.IndexDoc;
+import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.index.shared.IndexShardKey;
+import stroom.node.api.NodeInfo;
+import stroom.security.api.SecurityContext;
+import stroom.security.shared.PermissionNames;
+import stroom.task.api.TaskContext;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Merges small closed index shards into fewer, larger shards. Indexing can leave lots of small
+ * shards behind, e.g. when writers are closed before they fill up, and every shard costs search a
+ * reader and a thread.
+ * <p>
+ * Only closed shards in the same index partition on the same volume owned by this node are merged.
+ * The shards being merged can't be opened for writing until compaction has finished with them. The
+ * new shard is built while it has a status of NEW so search ignores it and is then swapped for the
+ * shards it replaces in a single update. Searches that already have the old shards open carry on
+ * reading them until the delete job removes them.
+ */
+@Singleton
+public class IndexShardCompactor {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardCompactor.class);
+
+    private final IndexShardService indexShardService;
+    private final IndexShardManager indexShardManager;
+    private final IndexStructureCache indexStructureCache;
+    private final Provider<IndexConfig> indexConfigProvider;
+    private final NodeInfo nodeInfo;
+    private final TaskContext taskContext;
+    private final SecurityContext securityContext;
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    @Inject
+    IndexShardCompactor(final IndexShardService indexShardService,
+                        final IndexShardManager indexShardManager,
+                        final IndexStructureCache indexStructureCache,
+                        final Provider<IndexConfig> indexConfigProvider,
+                        final NodeInfo nodeInfo,
+                        final TaskContext taskContext,
+                        final SecurityContext securityContext) {
+        this.indexShardService = indexShardService;
+        this.indexShardManager = indexShardManager;
+        this.indexStructureCache = indexStructureCache;
+        this.indexConfigProvider = indexConfigProvider;
+        this.nodeInfo = nodeInfo;
+        this.taskContext = taskContext;
+        this.securityContext = securityContext;
+    }
+
+    public void compact() {
+        securityContext.secure(PermissionNames.MANAGE_INDEX_SHARDS_PERMISSION, () -> {
+            if (compacting.compareAndSet(false, true)) {
+                try {
+                    LOGGER.logDurationIfDebugEnabled(this::compactAll, "compact()");
+                } finally {
+                    compacting.set(false);
+                }
+            }
+        });
+    }
+
+    private void compactAll() {
+        final IndexConfig indexConfig = indexConfigProvider.get();
+        final int maxDocuments = indexConfig.getShardCompactionMaxDocuments();
+        final int minShards = Math.max(2, indexConfig.getShardCompactionMinShards());
+        if (maxDocuments <= 0) {
+            return;
+        }
+
+        taskContext.info(() -> "Finding small index shards to compact");
+        final FindIndexShardCriteria criteria = FindIndexShardCriteria.matchAll();
+        criteria.getNodeNameSet().add(nodeInfo.getThisNodeName());
+        criteria.getIndexShardStatusSet().add(IndexShardStatus.CLOSED);
+        final List<IndexShard> shards = indexShardService.find(criteria).getValues();
+
+        // Lucene can only merge indexes written by the same version.
+        final String currentVersion = LuceneVersionUtil.getCurrentVersion();
+        final Map<ShardGroup, List<IndexShard>> groups = shards
+                .stream()
+                .filter(shard -> shard.getDocumentCount() < maxDocuments)
+                .filter(shard -> currentVersion.equals(shard.getIndexVersion()))
+                .collect(Collectors.groupingBy(shard -> new ShardGroup(
+                        shard.getIndexUuid(),
+                        shard.getPartition(),
+                        shard.getVolume().getId())));
+
+        for (final List<IndexShard> group : groups.values()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            if (group.size() >= minShards) {
+                try {
+                    compactGroup(group);
+                } catch (final RuntimeException e) {
+                    LOGGER.error(e::getMessage, e);
+                }
+            }
+        }
+    }
+
+    private void compactGroup(final List<IndexShard> group) {
+        final IndexShard first = group.get(0);
+        final IndexStructure indexStructure = indexStructureCache.get(
+                new DocRef(IndexDoc.DOCUMENT_TYPE, first.getIndexUuid()));
+        if (indexStructure == null) {
+            return;
+        }
+        final int maxDocsPerShard = indexStructure.getIndex().getMaxDocsPerShard();
+
+        // Fill each new shard with the smallest shards first without exceeding the max docs per shard.
+        group.sort(Comparator.comparingInt(IndexShard::getDocumentCount));
+        List<IndexShard> batch = new ArrayList<>();
+        long batchDocuments = 0;
+        for (final IndexShard shard : group) {
+            if (batchDocuments + shard.getDocumentCount() > maxDocsPerShard) {
+                compactBatch(batch);
+                batch = new ArrayList<>();
+                batchDocuments = 0;
+            }
+            batch.add(shard);
+            batchDocuments += shard.getDocumentCount();
+        }
+        compactBatch(batch);
+    }
+
+    private void compactBatch(final List<IndexShard> batch) {
+        if (batch.size() < 2 || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        // Stop the shards being opened for writing while we merge them.
+        final List<IndexShard> sources = new ArrayList<>(batch.size());
+        try {
+            for (final IndexShard shard : batch) {
+                if (indexShardManager.startCompaction(shard.getId())) {
+                    sources.add(shard);
+                }
+            }
+            if (sources.size() >= 2) {
+                merge(sources);
+            }
+        } finally {
+            sources.forEach(shard -> indexShardManager.endCompaction(shard.getId()));
+        }
+    }
+
+    private void merge(final List<IndexShard> sources) {
+        final long startTime = System.currentTimeMillis();
+        final IndexShard first = sources.get(0);
+        final IndexShardKey indexShardKey = IndexShardKey.builder()
+                .indexUuid(first.getIndexUuid())
+                .partition(first.getPartition())
+                .partitionFromTime(first.getPartitionFromTime())
+                .partitionToTime(first.getPartitionToTime())
+                .build();
+
+        // Create the new shard on the same volume as the shards it replaces.
+        final IndexShard indexShard = indexShardService.createIndexShard(
+                indexShardKey,
+                first.getVolume(),
+                nodeInfo.getThisNodeName());
+        final long indexShardId = indexShard.getId();
+        final List<Long> sourceIds = sources
+                .stream()
+                .map(IndexShard::getId)
+                .collect(Collectors.toList());
+        taskContext.info(() -> "Compacting index shards " + sourceIds + " into " + indexShardId);
+        LOGGER.debug(() -> "Compacting index shards " + sourceIds + " into " + indexShardId);
+
+        try {
+            final Path dir = IndexShardUtil.getIndexPath(indexShard);
+            Files.createDirectories(dir);
+
+            final int documentCount = addIndexes(dir, sources);
+
+            // The new shard contains exactly the docs of the old ones so their summaries can be combined.
+            // If any source summary doesn't cover all of its shard then the doc counts won't add up and the
+            // merged summary will be incomplete so won't be written.
+            final List<IndexShardSummary> summaries = new ArrayList<>(sources.size());
+            for (final IndexShard source : sources) {
+                summaries.add(IndexShardSummary.read(IndexShardUtil.getIndexPath(source))
+                        .orElseGet(IndexShardSummary::incomplete));
+            }
+            IndexShardSummary.merge(summaries).forDocCount(documentCount).write(dir);
+
+            final long now = System.currentTimeMillis();
+            indexShardManager.update(indexShardId, documentCount, now - startTime, now, calcFileSize(dir));
+            indexShardService.replace(indexShardId, sourceIds);
+
+            LOGGER.info(() -> "Compacted " + sources.size() + " index shards " + sourceIds + " into " +
+                    indexShardId + " with " + documentCount + " documents");
+
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.error(() -> "Error compacting index shards " + sourceIds + " into " + indexShardId +
+                    " (" + e.getMessage() + ")", e);
+            // Get rid of the partially written shard.
+            indexShardManager.setStatus(indexShardId, IndexShardStatus.DELETED);
+        }
+    }
+
+    private int addIndexes(final Path dir, final List<IndexShard> sources) throws IOException {
+        final List<Directory> sourceDirectories = new ArrayList<>(sources.size());
+        try (final Directory directory = new NIOFSDirectory(dir, LockFactoryFactory.get())) {
+            for (final IndexShard source : sources) {
+                sourceDirectories.add(new NIOFSDirectory(IndexShardUtil.getIndexPath(source),
+                        LockFactoryFactory.get()));
+            }
+
+            final IndexWriterConfig indexWriterConfig = new IndexWriterConfig(
+                    AnalyzerFactory.create(AnalyzerType.ALPHA_NUMERIC, false));
+            indexWriterConfig.setOpenMode(OpenMode.CREATE);
+            indexWriterConfig.setUseCompoundFile(false);
+
+            // Adding the indexes takes the write lock of each source so will fail if a writer has
+            // somehow got hold of one of them.
+            try (final IndexWriter indexWriter = new IndexWriter(directory, indexWriterConfig)) {
+                indexWriter.addIndexes(sourceDirectories.toArray(new Directory[0]));
+                indexWriter.forceMerge(1);
+                indexWriter.commit();
+                return indexWriter.numDocs();
+            }
+        } finally {
+            for (final Directory sourceDirectory : sourceDirectories) {
+                try {
+                    sourceDirectory.close();
+                } catch (final IOException e) {
+                    LOGGER.debug(e::getMessage, e);
+                }
+            }
+        }
+    }
+
+    private long calcFileSize(final Path dir) throws IOException {
+        long totalSize = 0;
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (final Path file : stream) {
+                totalSize += Files.size(file);
+            }
+        }
+        return totalSize;
+    }
+
+    private record ShardGroup(String indexUuid, String partition, Integer volumeId) {
+
+    }
+}
@@ -3,8 +3,10 @@ package stroom.index.impl;
 import stroom.index.shared.FindIndexShardCriteria;
 import stroom.index.shared.IndexShard;
 import stroom.index.shared.IndexShardKey;
+import stroom.index.shared.IndexVolume;
 import stroom.util.shared.ResultPage;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface IndexShardDao {
@@ -36,6 +38,17 @@ public interface IndexShardDao {
      */
     IndexShard create(IndexShardKey key, String volumeGroupName, String ownerNodeName, String indexVersion);
 
+    /**
+     * Create a new Index Shard on a specific volume
+     *
+     * @param key           The Index Shard details
+     * @param indexVolume   The volume to use
+     * @param ownerNodeName The node that will own the shard
+     * @param indexVersion  The version of the index in use
+     * @return The newly created Index Shard
+     */
+    IndexShard create(IndexShardKey key, IndexVolume indexVolume, String ownerNodeName, String indexVersion);
+
     /**
      * Delete a specific shard, by it's ID
      *
@@ -51,6 +64,15 @@ public interface IndexShardDao {
      */
     void setStatus(Long id, IndexShard.IndexShardStatus status);
 
+    /**
+     * Close a shard and mark the shards it replaces as deleted in a single transaction so that search
+     * sees either the replaced shards or the new one but never both
+     *
+     * @param id          The database ID of the new shard
+     * @param replacedIds The database IDs of the shards it replaces
+     */
+    void replace(Long id, Collection<Long> replacedIds);
+
     /**
      * Update the details of the contents of a shard
      *
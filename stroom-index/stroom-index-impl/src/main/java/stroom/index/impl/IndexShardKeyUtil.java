@@ -32,11 +32,15 @@ import java.time.temporal.TemporalField;
 import java.time.temporal.TemporalUnit;
 import java.time.temporal.WeekFields;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class IndexShardKeyUtil {
 
     private static final String ALL = "all";
-    private static final AtomicSequence SEQUENCE = new AtomicSequence();
+    // Each index has its own sequence so that the streams written to an index are spread evenly across all
+    // of its shards per partition, whatever other indexes are being written to at the same time.
+    private static final Map<String, AtomicSequence> SEQUENCES = new ConcurrentHashMap<>();
 
     private static final ZoneId UTC = ZoneOffset.UTC;
     private static final DateTimeFormatter YEAR_FORMAT = DateTimeFormatter.ofPattern("yyyy", Locale.ENGLISH);
@@ -56,7 +60,7 @@ public final class IndexShardKeyUtil {
 
     public static IndexShardKey createTestKey(final IndexDoc index) {
         final String partition = ALL;
-        final int shardNo = SEQUENCE.next(index.getShardsPerPartition());
+        final int shardNo = nextShardNo(index);
 
         return IndexShardKey
                 .builder()
@@ -67,10 +71,20 @@ public final class IndexShardKeyUtil {
     }
 
     public static IndexShardKey createTimeBasedPartition(final IndexDoc index, final long timeMs) {
-        final int shardNo = SEQUENCE.next(index.getShardsPerPartition());
+        final int shardNo = nextShardNo(index);
         return createTimeBasedKey(index, timeMs, shardNo);
     }
 
+    /**
+     * Choose the shard to write to by round-robin across the shards per partition of the index, so that
+     * concurrent streams for a single busy partition are written to different shards in parallel.
+     */
+    private static int nextShardNo(final IndexDoc index) {
+        return SEQUENCES
+                .computeIfAbsent(index.getUuid(), k -> new AtomicSequence())
+                .next(index.getShardsPerPartition());
+    }
+
     public static IndexShardKey createTimeBasedKey(final IndexDoc index, final long timeMs, final int shardNo) {
         String partition = ALL;
 
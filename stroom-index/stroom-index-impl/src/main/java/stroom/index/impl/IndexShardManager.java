@@ -45,6 +45,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -77,6 +78,7 @@ public class IndexShardManager {
 
     private final StripedLock shardUpdateLocks = new StripedLock();
     private final AtomicBoolean deletingShards = new AtomicBoolean();
+    private final Set<Long> compactingShards = ConcurrentHashMap.newKeySet();
 
     private final Map<IndexShardStatus, Set<IndexShardStatus>> allowedStateTransitions = new HashMap<>();
 
@@ -347,7 +349,10 @@ public class IndexShardManager {
         });
     }
 
-    public void setStatus(final long indexShardId, final IndexShardStatus status) {
+    /**
+     * @return True if the status was changed.
+     */
+    public boolean setStatus(final long indexShardId, final IndexShardStatus status) {
         // Allow the thing to run without a service (e.g. benchmark mode)
         if (indexShardService != null) {
             final Lock lock = shardUpdateLocks.getLockForKey(indexShardId);
@@ -360,9 +365,13 @@ public class IndexShardManager {
                     if (allowed == null) {
                         throw new RuntimeException("No state transitions are defined for " +
                                 indexShard.getStatus());
+                    } else if (IndexShardStatus.OPENING.equals(status) && compactingShards.contains(indexShardId)) {
+                        LOGGER.debug(() -> "Unable to open index shard " + indexShardId +
+                                " as it is being compacted");
                     } else {
                         if (allowed.contains(status)) {
                             indexShardService.setStatus(indexShard.getId(), status);
+                            return true;
                         } else {
                             LOGGER.debug("State transition from " +
                                     indexShard.getStatus() +
@@ -377,7 +386,41 @@ public class IndexShardManager {
             } finally {
                 lock.unlock();
             }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop a closed index shard from being opened for writing while it is merged into another shard.
+     *
+     * @return True if the shard is closed and is now reserved for compaction.
+     */
+    boolean startCompaction(final long indexShardId) {
+        if (indexShardService == null) {
+            return false;
         }
+
+        final Lock lock = shardUpdateLocks.getLockForKey(indexShardId);
+        lock.lock();
+        try {
+            final IndexShard indexShard = indexShardService.loadById(indexShardId);
+            if (indexShard != null &&
+                    IndexShardStatus.CLOSED.equals(indexShard.getStatus()) &&
+                    indexShardWriterCacheProvider.get().getWriterByShardId(indexShardId) == null) {
+                return compactingShards.add(indexShardId);
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Allow an index shard to be opened for writing again once compaction has finished with it.
+     */
+    void endCompaction(final long indexShardId) {
+        compactingShards.remove(indexShardId);
     }
 
     public void update(final long indexShardId,
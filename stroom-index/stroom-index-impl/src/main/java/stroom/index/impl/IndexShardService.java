@@ -20,8 +20,11 @@ package stroom.index.impl;
 import stroom.index.shared.FindIndexShardCriteria;
 import stroom.index.shared.IndexShard;
 import stroom.index.shared.IndexShardKey;
+import stroom.index.shared.IndexVolume;
 import stroom.util.shared.ResultPage;
 
+import java.util.Collection;
+
 public interface IndexShardService {
     IndexShard loadById(Long id);
 
@@ -29,10 +32,14 @@ public interface IndexShardService {
 
     IndexShard createIndexShard(IndexShardKey indexShardKey, String ownerNodeName);
 
+    IndexShard createIndexShard(IndexShardKey indexShardKey, IndexVolume indexVolume, String ownerNodeName);
+
     Boolean delete(IndexShard indexShard);
 
     Boolean setStatus(Long id, IndexShard.IndexShardStatus status);
 
+    Boolean replace(Long id, Collection<Long> replacedIds);
+
     void update(long indexShardId,
                 Integer documentCount,
                 Long commitDurationMs,
@@ -22,6 +22,7 @@ import stroom.index.shared.FindIndexShardCriteria;
 import stroom.index.shared.IndexDoc;
 import stroom.index.shared.IndexShard;
 import stroom.index.shared.IndexShardKey;
+import stroom.index.shared.IndexVolume;
 import stroom.security.api.SecurityContext;
 import stroom.security.shared.DocumentPermissionNames;
 import stroom.security.shared.PermissionNames;
@@ -31,6 +32,7 @@ import stroom.util.shared.ModelStringUtil;
 import stroom.util.shared.PermissionException;
 import stroom.util.shared.ResultPage;
 
+import java.util.Collection;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -78,6 +80,18 @@ public class IndexShardServiceImpl implements IndexShardService {
         });
     }
 
+    @Override
+    public IndexShard createIndexShard(final IndexShardKey indexShardKey,
+                                       final IndexVolume indexVolume,
+                                       final String ownerNodeName) {
+        return securityContext.secureResult(PermissionNames.MANAGE_INDEX_SHARDS_PERMISSION, () ->
+                indexShardDao.create(
+                        indexShardKey,
+                        indexVolume,
+                        ownerNodeName,
+                        LuceneVersionUtil.getCurrentVersion()));
+    }
+
     @Override
     public Boolean delete(final IndexShard indexShard) {
         return securityContext.secureResult(PermissionNames.MANAGE_INDEX_SHARDS_PERMISSION, () -> {
@@ -102,6 +116,15 @@ public class IndexShardServiceImpl implements IndexShardService {
         });
     }
 
+    @Override
+    public Boolean replace(final Long id,
+                           final Collection<Long> replacedIds) {
+        return securityContext.secureResult(PermissionNames.MANAGE_INDEX_SHARDS_PERMISSION, () -> {
+            indexShardDao.replace(id, replacedIds);
+            return Boolean.TRUE;
+        });
+    }
+
     @Override
     public void update(final long indexShardId,
                        final Integer documentCount,
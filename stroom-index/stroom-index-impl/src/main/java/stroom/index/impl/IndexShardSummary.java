@@ -0,0 +1,401 @@
+package stroom.index.impl;
+
+import stroom.index.shared.AnalyzerType;
+import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFieldType;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexableField;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * A lightweight summary of the documents added to an index shard so that search can skip shards
+ * that can't contain any matches without opening them. For each indexed date field it holds the
+ * min and max values added and for each indexed keyword field a bloom filter of the terms added.
+ * <p>
+ * Documents are added to the summary before they are added to the shard so the summary may describe
+ * documents that were never committed but never misses a committed document. A summary that doesn't
+ * cover every document in the shard, e.g. for a shard written before summaries existed, is
+ * incomplete and must not be used to skip the shard.
+ * <p>
+ * The summary is written to a file in the shard dir each time the shard writer commits. As this happens
+ * after the commit the file can be behind the shard, e.g. if we stop between the two, so the summary
+ * also holds the number of documents it covers. Anything that reads a summary must check this against
+ * the number of documents in the shard with {@link #forDocCount(long)}.
+ * <p>
+ * < version >< doc count >< range count >< name >< min >< max >...
+ * < filter count >< name >< case sensitive >< bloom filter >...
+ */
+public class IndexShardSummary {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardSummary.class);
+
+    static final String FILE_NAME = "shard.summary";
+    private static final String TEMP_FILE_NAME = FILE_NAME + ".tmp";
+    private static final int VERSION = 2;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+
+    private static final IndexShardSummary INCOMPLETE = new IndexShardSummary(
+            false,
+            0,
+            Collections.emptyMap(),
+            Collections.emptyMap());
+
+    private final boolean complete;
+    private final AtomicLong docCount;
+    private final Map<String, Range> ranges;
+    private final Map<String, TermFilter> termFilters;
+
+    private IndexShardSummary(final boolean complete,
+                              final long docCount,
+                              final Map<String, Range> ranges,
+                              final Map<String, TermFilter> termFilters) {
+        this.complete = complete;
+        this.docCount = new AtomicLong(docCount);
+        this.ranges = ranges;
+        this.termFilters = termFilters;
+    }
+
+    /**
+     * Create an empty summary for a new shard.
+     *
+     * @param indexStructure The structure of the index the shard belongs to.
+     * @param expectedTerms  The number of distinct terms each keyword field bloom filter is sized for.
+     *                       Zero means no bloom filters are kept.
+     */
+    public static IndexShardSummary create(final IndexStructure indexStructure,
+                                           final int expectedTerms) {
+        final Map<String, Range> ranges = new HashMap<>();
+        final Map<String, TermFilter> termFilters = new HashMap<>();
+        if (indexStructure != null && indexStructure.getIndexFields() != null) {
+            for (final IndexField indexField : indexStructure.getIndexFields()) {
+                if (indexField.isIndexed()) {
+                    if (IndexFieldType.DATE_FIELD.equals(indexField.getFieldType())) {
+                        ranges.put(indexField.getFieldName(), new Range());
+                    } else if (expectedTerms > 0 &&
+                            IndexFieldType.FIELD.equals(indexField.getFieldType()) &&
+                            AnalyzerType.KEYWORD.equals(indexField.getAnalyzerType())) {
+                        termFilters.put(indexField.getFieldName(), new TermFilter(
+                                BloomFilter.create(FUNNEL, expectedTerms, FALSE_POSITIVE_PROBABILITY),
+                                indexField.isCaseSensitive()));
+                    }
+                }
+            }
+        }
+        return new IndexShardSummary(true, 0, ranges, termFilters);
+    }
+
+    /**
+     * @return A summary that can't be used to skip a shard.
+     */
+    public static IndexShardSummary incomplete() {
+        return INCOMPLETE;
+    }
+
+    /**
+     * Combine the summaries of several shards into a summary of a single shard holding all of their
+     * documents. Only ranges and bloom filters that every summary has in common are kept and the
+     * result is incomplete if any of the summaries are.
+     */
+    public static IndexShardSummary merge(final Collection<IndexShardSummary> summaries) {
+        if (summaries.isEmpty() || summaries.stream().anyMatch(summary -> !summary.complete)) {
+            return INCOMPLETE;
+        }
+
+        final Iterator<IndexShardSummary> iterator = summaries.iterator();
+        final IndexShardSummary first = iterator.next();
+        long docCount = first.getDocCount();
+        final Map<String, Range> ranges = new HashMap<>();
+        first.ranges.forEach((name, range) -> ranges.put(name, new Range(range.getMin(), range.getMax())));
+        final Map<String, TermFilter> termFilters = new HashMap<>();
+        first.termFilters.forEach((name, termFilter) -> termFilters.put(name, new TermFilter(
+                termFilter.bloomFilter.copy(),
+                termFilter.caseSensitive)));
+
+        while (iterator.hasNext()) {
+            final IndexShardSummary summary = iterator.next();
+            docCount += summary.getDocCount();
+            ranges.entrySet().removeIf(entry -> {
+                final Range range = summary.ranges.get(entry.getKey());
+                if (range == null) {
+                    return true;
+                }
+                entry.getValue().add(range);
+                return false;
+            });
+            termFilters.entrySet().removeIf(entry -> {
+                final TermFilter termFilter = summary.termFilters.get(entry.getKey());
+                if (termFilter == null ||
+                        termFilter.caseSensitive != entry.getValue().caseSensitive ||
+                        !entry.getValue().bloomFilter.isCompatible(termFilter.bloomFilter)) {
+                    return true;
+                }
+                entry.getValue().bloomFilter.putAll(termFilter.bloomFilter);
+                return false;
+            });
+        }
+        return new IndexShardSummary(true, docCount, ranges, termFilters);
+    }
+
+    /**
+     * Read the summary from the supplied shard dir.
+     *
+     * @return The summary or empty if there is no summary or it can't be read.
+     */
+    public static Optional<IndexShardSummary> read(final Path dir) {
+        final Path file = dir.resolve(FILE_NAME);
+        try (final DataInputStream inputStream = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            return Optional.of(read(inputStream));
+        } catch (final NoSuchFileException e) {
+            LOGGER.debug(() -> "No shard summary in " + dir);
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.error(() -> "Unable to read shard summary " + file + " " + e.getMessage(), e);
+        }
+        return Optional.empty();
+    }
+
+    private static IndexShardSummary read(final DataInputStream inputStream) throws IOException {
+        final int version = inputStream.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unexpected shard summary version " + version);
+        }
+
+        final long docCount = inputStream.readLong();
+
+        final int rangeCount = inputStream.readInt();
+        final Map<String, Range> ranges = new HashMap<>();
+        for (int i = 0; i < rangeCount; i++) {
+            final String fieldName = inputStream.readUTF();
+            final long min = inputStream.readLong();
+            final long max = inputStream.readLong();
+            ranges.put(fieldName, new Range(min, max));
+        }
+
+        final int filterCount = inputStream.readInt();
+        final Map<String, TermFilter> termFilters = new HashMap<>();
+        for (int i = 0; i < filterCount; i++) {
+            final String fieldName = inputStream.readUTF();
+            final boolean caseSensitive = inputStream.readBoolean();
+            termFilters.put(fieldName, new TermFilter(
+                    BloomFilter.readFrom(inputStream, FUNNEL),
+                    caseSensitive));
+        }
+
+        return new IndexShardSummary(true, docCount, ranges, termFilters);
+    }
+
+    /**
+     * Write the summary to the supplied shard dir. Incomplete summaries are not written.
+     */
+    public void write(final Path dir) throws IOException {
+        if (complete) {
+            final Path tempFile = dir.resolve(TEMP_FILE_NAME);
+            try (final DataOutputStream outputStream = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                write(outputStream);
+            }
+            Files.move(tempFile, dir.resolve(FILE_NAME),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private void write(final DataOutputStream outputStream) throws IOException {
+        outputStream.writeInt(VERSION);
+        outputStream.writeLong(docCount.get());
+
+        outputStream.writeInt(ranges.size());
+        for (final Map.Entry<String, Range> entry : ranges.entrySet()) {
+            outputStream.writeUTF(entry.getKey());
+            outputStream.writeLong(entry.getValue().getMin());
+            outputStream.writeLong(entry.getValue().getMax());
+        }
+
+        outputStream.writeInt(termFilters.size());
+        for (final Map.Entry<String, TermFilter> entry : termFilters.entrySet()) {
+            outputStream.writeUTF(entry.getKey());
+            outputStream.writeBoolean(entry.getValue().caseSensitive);
+            entry.getValue().bloomFilter.writeTo(outputStream);
+        }
+    }
+
+    /**
+     * Add the values of the summarised fields in a document to the summary.
+     */
+    public void add(final Document document) {
+        if (complete) {
+            docCount.incrementAndGet();
+            for (final IndexableField field : document) {
+                final Range range = ranges.get(field.name());
+                if (range != null) {
+                    final Number number = field.numericValue();
+                    if (number != null) {
+                        range.add(number.longValue());
+                    }
+                } else {
+                    final TermFilter termFilter = termFilters.get(field.name());
+                    if (termFilter != null &&
+                            field.stringValue() != null &&
+                            !IndexOptions.NONE.equals(field.fieldType().indexOptions())) {
+                        termFilter.put(field.stringValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Call if a document passed to {@link #add(Document)} was then not added to the shard. Its values stay
+     * in the summary, which is harmless, but it no longer counts towards the documents covered.
+     */
+    public void removeFailedAdd() {
+        if (complete) {
+            docCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return The number of documents added to the summary.
+     */
+    public long getDocCount() {
+        return docCount.get();
+    }
+
+    /**
+     * Check the summary against the number of documents in the shard it was read for.
+     *
+     * @return This summary if it covers exactly shardDocCount documents, otherwise an incomplete summary.
+     */
+    public IndexShardSummary forDocCount(final long shardDocCount) {
+        if (complete && docCount.get() != shardDocCount) {
+            LOGGER.debug(() -> "Shard summary covers " + docCount.get() + " documents but shard has " +
+                    shardDocCount + ", ignoring summary");
+            return INCOMPLETE;
+        }
+        return this;
+    }
+
+    /**
+     * @return True if the summary covers every document in the shard and can be used to skip it.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean hasRange(final String fieldName) {
+        return ranges.containsKey(fieldName);
+    }
+
+    /**
+     * @return False if no document in the shard has a value for the field between from and to
+     * inclusive.
+     */
+    public boolean mightContainRange(final String fieldName, final long from, final long to) {
+        final Range range = ranges.get(fieldName);
+        return range == null || (range.getMin() <= to && range.getMax() >= from);
+    }
+
+    /**
+     * @return True if there is a bloom filter for the field that was built with the same case
+     * sensitivity.
+     */
+    public boolean hasTermFilter(final String fieldName, final boolean caseSensitive) {
+        final TermFilter termFilter = termFilters.get(fieldName);
+        return termFilter != null && termFilter.caseSensitive == caseSensitive;
+    }
+
+    /**
+     * @return False if no document in the shard has the term for the field.
+     */
+    public boolean mightContainTerm(final String fieldName, final String term) {
+        final TermFilter termFilter = termFilters.get(fieldName);
+        return termFilter == null || termFilter.bloomFilter.mightContain(term);
+    }
+
+    @Override
+    public String toString() {
+        return "IndexShardSummary{" +
+                "complete=" + complete +
+                ", docCount=" + docCount +
+                ", ranges=" + ranges.keySet() +
+                ", termFilters=" + termFilters.keySet() +
+                '}';
+    }
+
+    private static class Range {
+
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        Range() {
+        }
+
+        Range(final long min, final long max) {
+            this.min.accumulate(min);
+            this.max.accumulate(max);
+        }
+
+        void add(final long value) {
+            min.accumulate(value);
+            max.accumulate(value);
+        }
+
+        void add(final Range range) {
+            min.accumulate(range.getMin());
+            max.accumulate(range.getMax());
+        }
+
+        long getMin() {
+            return min.get();
+        }
+
+        long getMax() {
+            return max.get();
+        }
+    }
+
+    private static class TermFilter {
+
+        private final BloomFilter<CharSequence> bloomFilter;
+        private final boolean caseSensitive;
+
+        TermFilter(final BloomFilter<CharSequence> bloomFilter,
+                   final boolean caseSensitive) {
+            this.bloomFilter = bloomFilter;
+            this.caseSensitive = caseSensitive;
+        }
+
+        void put(final String value) {
+            // Keyword terms are lower cased when the field isn't case sensitive.
+            bloomFilter.put(caseSensitive
+                    ? value
+                    : value.toLowerCase());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package stroom.index.impl;
+
+public interface IndexShardSummaryCache {
+
+    /**
+     * Get the summary of the documents in an index shard owned by this node. If the shard can't be
+     * summarised then an incomplete summary is returned.
+     */
+    IndexShardSummary get(long indexShardId);
+}
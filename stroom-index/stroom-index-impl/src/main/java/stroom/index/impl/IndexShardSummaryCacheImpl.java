@@ -0,0 +1,139 @@
+package stroom.index.impl;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.ICache;
+import stroom.index.shared.IndexShard;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.Clearable;
+
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Caches the summaries read from shard dirs so that search doesn't have to load the shard and read
+ * its summary file every time. A cached summary is reloaded if the summary file has been rewritten
+ * since it was read. A summary is only used if it covers the same number of docs as the latest commit
+ * of the shard.
+ */
+@Singleton
+public class IndexShardSummaryCacheImpl implements IndexShardSummaryCache, Clearable {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardSummaryCacheImpl.class);
+
+    private static final String CACHE_NAME = "Index Shard Summary Cache";
+
+    private final IndexShardService indexShardService;
+    private final IndexShardWriterCache indexShardWriterCache;
+    private final ICache<Long, CachedSummary> cache;
+
+    @Inject
+    IndexShardSummaryCacheImpl(final CacheManager cacheManager,
+                               final IndexShardService indexShardService,
+                               final IndexShardWriterCache indexShardWriterCache,
+                               final IndexConfig indexConfig) {
+        this.indexShardService = indexShardService;
+        this.indexShardWriterCache = indexShardWriterCache;
+        cache = cacheManager.create(CACHE_NAME, indexConfig::getIndexShardSummaryCache, this::create);
+    }
+
+    @Override
+    public IndexShardSummary get(final long indexShardId) {
+        // Searches of a shard with an open writer can see docs that haven't been committed yet so
+        // use the writer's summary.
+        final IndexShardWriter indexShardWriter = indexShardWriterCache.getWriterByShardId(indexShardId);
+        if (indexShardWriter != null) {
+            return indexShardWriter.getSummary();
+        }
+
+        CachedSummary cachedSummary = cache.get(indexShardId);
+        if (cachedSummary.isStale()) {
+            LOGGER.debug(() -> "Reloading stale summary for index shard " + indexShardId);
+            cache.invalidate(indexShardId);
+            cachedSummary = cache.get(indexShardId);
+        }
+        return cachedSummary.summary;
+    }
+
+    private CachedSummary create(final Long indexShardId) {
+        final IndexShard indexShard = indexShardService.loadById(indexShardId);
+        if (indexShard == null) {
+            return new CachedSummary(null, null, IndexShardSummary.incomplete());
+        }
+
+        // Get the modified time before reading so that if the summary is rewritten while we read it
+        // we will read it again next time.
+        final Path file = IndexShardUtil.getIndexPath(indexShard).resolve(IndexShardSummary.FILE_NAME);
+        final FileTime lastModified = getLastModified(file);
+        final IndexShardSummary summary;
+        if (lastModified == null) {
+            summary = IndexShardSummary.incomplete();
+        } else {
+            // The summary file is written after each commit so may not cover everything that was committed.
+            summary = IndexShardSummary.read(file.getParent())
+                    .map(shardSummary -> shardSummary.forDocCount(getCommittedDocCount(file.getParent())))
+                    .orElseGet(IndexShardSummary::incomplete);
+        }
+        return new CachedSummary(file, lastModified, summary);
+    }
+
+    /**
+     * @return The number of docs in the latest commit of the shard or -1 if it can't be read. This
+     * only reads the segments file rather than opening the shard.
+     */
+    private static long getCommittedDocCount(final Path dir) {
+        try (final Directory directory = new NIOFSDirectory(dir, LockFactoryFactory.get())) {
+            long docCount = 0;
+            for (final SegmentCommitInfo segmentCommitInfo : SegmentInfos.readLatestCommit(directory)) {
+                docCount += segmentCommitInfo.info.maxDoc() - segmentCommitInfo.getDelCount();
+            }
+            return docCount;
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.debug(() -> "Unable to read committed doc count of " + dir + " " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static FileTime getLastModified(final Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (final IOException e) {
+            LOGGER.debug(() -> "Unable to get modified time of " + file + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    private static class CachedSummary {
+
+        private final Path file;
+        private final FileTime lastModified;
+        private final IndexShardSummary summary;
+
+        CachedSummary(final Path file,
+                      final FileTime lastModified,
+                      final IndexShardSummary summary) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.summary = summary;
+        }
+
+        boolean isStale() {
+            return file != null && !Objects.equals(lastModified, getLastModified(file));
+        }
+    }
+}
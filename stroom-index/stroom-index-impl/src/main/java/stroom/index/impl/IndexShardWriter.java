@@ -41,6 +41,11 @@ public interface IndexShardWriter {
 
     int getDocumentCount();
 
+    /**
+     * @return A summary of the documents added to the shard, including any not yet committed.
+     */
+    IndexShardSummary getSummary();
+
     void updateIndexStructure(IndexStructure indexStructure);
 
     long getCreationTime();
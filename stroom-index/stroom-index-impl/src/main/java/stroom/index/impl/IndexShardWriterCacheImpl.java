@@ -109,6 +109,13 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
 
     @Override
     public IndexShardWriter getWriterByShardKey(final IndexShardKey indexShardKey) {
+        // Every document added gets the writer for its key so avoid the locking done by compute unless
+        // we need to open a writer.
+        final IndexShardWriter openWriter = openWritersByShardKey.get(indexShardKey);
+        if (openWriter != null) {
+            return openWriter;
+        }
+
         return openWritersByShardKey.compute(indexShardKey, (k, v) -> {
             // If there is already a value in this map for the provided key just return the value.
             if (v != null) {
@@ -202,7 +209,12 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
         // Mark the index shard as opening.
         LOGGER.debug(() -> "Opening " + indexShardId);
         LOGGER.trace(() -> "Opening " + indexShardId + " - " + indexShardKey);
-        indexShardManager.setStatus(indexShardId, IndexShardStatus.OPENING);
+        if (!indexShardManager.setStatus(indexShardId, IndexShardStatus.OPENING)) {
+            // Another writer has opened the shard or it is being compacted so the calling code will use or
+            // create another shard.
+            LOGGER.debug(() -> "Unable to open " + indexShardId);
+            return null;
+        }
 
         try {
             final IndexShardWriter indexShardWriter = new IndexShardWriterImpl(indexShardManager,
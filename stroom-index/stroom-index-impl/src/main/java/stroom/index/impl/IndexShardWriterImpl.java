@@ -96,6 +96,11 @@ public class IndexShardWriterImpl implements IndexShardWriter {
      */
     private final AtomicInteger documentCount;
 
+    /**
+     * A summary of the documents added to the shard that search can use to skip the shard.
+     */
+    private final IndexShardSummary summary;
+
     private final IndexShardKey indexShardKey;
     private final long creationTime;
     private volatile int maxDocumentCount;
@@ -224,6 +229,22 @@ public class IndexShardWriterImpl implements IndexShardWriter {
                             + this);
         }
 
+        // Carry on with the summary of the docs already in the shard or start a new one. If there are
+        // docs in the shard but no summary then we can't summarise the shard.
+        if (numDocs == 0) {
+            final int summaryBloomFilterTerms = NullSafe.getOrElse(
+                    indexConfig,
+                    IndexConfig::getIndexWriterConfig,
+                    stroom.index.impl.IndexWriterConfig::getSummaryBloomFilterTerms,
+                    0);
+            this.summary = IndexShardSummary.create(indexStructure, summaryBloomFilterTerms);
+        } else {
+            // The summary is written after each commit so may be behind the shard.
+            this.summary = IndexShardSummary.read(dir)
+                    .map(summary -> summary.forDocCount(numDocs))
+                    .orElseGet(IndexShardSummary::incomplete);
+        }
+
         this.directory = directory;
         this.indexWriter = indexWriter;
         this.documentCount = documentCount;
@@ -244,7 +265,14 @@ public class IndexShardWriterImpl implements IndexShardWriter {
 
                 final Instant startTime = Instant.now();
                 this.lastUsedTime = startTime;
-                indexWriter.addDocument(document);
+                // Summarise the doc before adding it so the summary never misses a committed doc.
+                summary.add(document);
+                try {
+                    indexWriter.addDocument(document);
+                } catch (final IOException | RuntimeException e) {
+                    summary.removeFailedAdd();
+                    throw e;
+                }
 
                 if (!slowIndexWriteWarningThreshold.isZero()) {
                     final Duration duration = Duration.between(startTime, Instant.now());
@@ -382,6 +410,15 @@ public class IndexShardWriterImpl implements IndexShardWriter {
         } catch (final RuntimeException e) {
             LOGGER.error(buildErrorMessage("Error updating shard info.", e), e);
         }
+
+        try {
+            // Write the summary so search can use it once this writer has gone.
+            if (dir != null && Files.isDirectory(dir)) {
+                summary.write(dir);
+            }
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.error(buildErrorMessage("Error writing shard summary.", e), e);
+        }
     }
 
     private Long calcFileSize() {
@@ -418,6 +455,11 @@ public class IndexShardWriterImpl implements IndexShardWriter {
         return documentCount.get();
     }
 
+    @Override
+    public IndexShardSummary getSummary() {
+        return summary;
+    }
+
     private void update(final long indexShardId,
                         final Integer documentCount,
                         final Long commitDurationMs,
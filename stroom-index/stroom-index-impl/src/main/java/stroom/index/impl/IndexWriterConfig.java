@@ -9,6 +9,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 
@@ -17,6 +18,7 @@ public class IndexWriterConfig extends AbstractConfig implements IsStroomConfig
 
     private final IndexCacheConfig indexCacheConfig;
     private final StroomDuration slowIndexWriteWarningThreshold;
+    private final int summaryBloomFilterTerms;
 
     public IndexWriterConfig() {
         indexCacheConfig = IndexCacheConfig.builder()
@@ -24,15 +26,18 @@ public class IndexWriterConfig extends AbstractConfig implements IsStroomConfig
                 .withMaxItems(100)
                 .build();
         slowIndexWriteWarningThreshold = StroomDuration.ofSeconds(1);
+        summaryBloomFilterTerms = 10_000;
     }
 
     @SuppressWarnings("unused")
     @JsonCreator
     public IndexWriterConfig(
             @JsonProperty("cache") final IndexCacheConfig indexCacheConfig,
-            @JsonProperty("slowIndexWriteWarningThreshold") final StroomDuration slowIndexWriteWarningThreshold) {
+            @JsonProperty("slowIndexWriteWarningThreshold") final StroomDuration slowIndexWriteWarningThreshold,
+            @JsonProperty("summaryBloomFilterTerms") final int summaryBloomFilterTerms) {
         this.indexCacheConfig = indexCacheConfig;
         this.slowIndexWriteWarningThreshold = slowIndexWriteWarningThreshold;
+        this.summaryBloomFilterTerms = summaryBloomFilterTerms;
     }
 
     @JsonProperty("cache")
@@ -48,11 +53,21 @@ public class IndexWriterConfig extends AbstractConfig implements IsStroomConfig
         return slowIndexWriteWarningThreshold;
     }
 
+    @Min(0)
+    @JsonProperty
+    @JsonPropertyDescription("The number of distinct terms the bloom filter for each keyword field in a new " +
+            "index shard's summary is sized for. Search uses the summary to skip shards that can't contain " +
+            "a searched for term. A value of '0' means no bloom filters are kept.")
+    public int getSummaryBloomFilterTerms() {
+        return summaryBloomFilterTerms;
+    }
+
     @Override
     public String toString() {
         return "IndexWriterConfig{" +
                 "indexCacheConfig=" + indexCacheConfig +
                 ", slowIndexWriteWarningThreshold=" + slowIndexWriteWarningThreshold +
+                ", summaryBloomFilterTerms=" + summaryBloomFilterTerms +
                 '}';
     }
 }
@@ -48,7 +48,9 @@ import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 import javax.inject.Inject;
 
 /**
@@ -85,6 +87,8 @@ class IndexingFilter extends AbstractXMLFilter {
     private DocRef indexRef;
     private IndexShardKey indexShardKey;
     private Document document;
+    // Lucene only allows a single doc value per field so remember which we have already added.
+    private final Set<String> docValuesFields = new HashSet<>();
 
     private int fieldsIndexed = 0;
 
@@ -170,7 +174,7 @@ class IndexingFilter extends AbstractXMLFilter {
                     if (indexField != null) {
                         // Index the current content if we are to store or index
                         // this field.
-                        if (indexField.isIndexed() || indexField.isStored()) {
+                        if (indexField.isIndexed() || indexField.isStored() || indexField.isDocValues()) {
                             processIndexContent(indexField, value);
                         }
                     } else {
@@ -181,6 +185,7 @@ class IndexingFilter extends AbstractXMLFilter {
         } else if (RECORD.equals(localName)) {
             // Create a document to store fields in.
             document = new Document();
+            docValuesFields.clear();
         }
 
         super.startElement(uri, localName, qName, atts);
@@ -223,6 +228,7 @@ class IndexingFilter extends AbstractXMLFilter {
     private void processIndexContent(final IndexField indexField, final String value) {
         try {
             Field field = null;
+            String docValue = null;
 
             if (IndexFieldType.INTEGER_FIELD.equals(indexField.getFieldType())) {
                 try {
@@ -266,12 +272,22 @@ class IndexingFilter extends AbstractXMLFilter {
                 } catch (final Exception e) {
                     LOGGER.trace(e.getMessage(), e);
                 }
-            } else {
+            } else if (indexField.isIndexed() || indexField.isStored()) {
                 field = FieldFactory.create(indexField, value);
+                docValue = value;
+            } else {
+                // Lucene will not allow a field that is neither indexed nor stored so just keep the
+                // value for doc values.
+                docValue = value;
+            }
+
+            // Use the normalised string form of numeric fields so doc values match stored values.
+            if (docValue == null && field != null) {
+                docValue = field.stringValue();
             }
 
             // Add the current field to the document if it is not null.
-            if (field != null) {
+            if (field != null || docValue != null) {
                 // Output some debug.
                 if (LOGGER.isDebugEnabled()) {
                     debugBuffer.append("processIndexContent() - Adding to index indexName=");
@@ -288,7 +304,14 @@ class IndexingFilter extends AbstractXMLFilter {
                 }
 
                 fieldsIndexed++;
-                document.add(field);
+                if (field != null && (indexField.isIndexed() || indexField.isStored())) {
+                    document.add(field);
+                }
+                if (docValue != null
+                        && indexField.isDocValues()
+                        && docValuesFields.add(indexField.getFieldName())) {
+                    document.add(FieldFactory.createDocValues(indexField, docValue));
+                }
             }
         } catch (final RuntimeException e) {
             log(Severity.ERROR, e.getMessage(), e);
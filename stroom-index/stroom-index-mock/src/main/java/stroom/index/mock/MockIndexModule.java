@@ -20,6 +20,8 @@ import stroom.docstore.api.DocumentActionHandlerBinder;
 import stroom.importexport.api.ImportExportActionHandler;
 import stroom.index.impl.IndexElementModule;
 import stroom.index.impl.IndexShardService;
+import stroom.index.impl.IndexShardSummaryCache;
+import stroom.index.impl.IndexShardSummaryCacheImpl;
 import stroom.index.impl.IndexShardWriterCache;
 import stroom.index.impl.IndexStore;
 import stroom.index.impl.IndexStoreImpl;
@@ -40,6 +42,7 @@ public class MockIndexModule extends AbstractModule {
         install(new IndexElementModule());
 
         bind(IndexShardWriterCache.class).to(MockIndexShardWriterCache.class);
+        bind(IndexShardSummaryCache.class).to(IndexShardSummaryCacheImpl.class);
         bind(IndexStructureCache.class).to(IndexStructureCacheImpl.class);
         bind(IndexStore.class).to(IndexStoreImpl.class);
         bind(IndexVolumeService.class).to(MockIndexVolumeService.class);
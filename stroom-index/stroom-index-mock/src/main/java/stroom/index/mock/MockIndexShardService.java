@@ -31,6 +31,7 @@ import stroom.util.shared.ResultPage;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -64,16 +65,25 @@ public class MockIndexShardService implements IndexShardService {
 
     @Override
     public IndexShard createIndexShard(final IndexShardKey indexShardKey, final String ownerNodeName) {
-        indexShardsCreated.incrementAndGet();
-
-        // checkedLimit.increment();
-        final IndexShard indexShard = new IndexShard();
-        indexShard.setVolume(
+        return createIndexShard(
+                indexShardKey,
                 IndexVolume
                         .builder()
                         .nodeName(ownerNodeName)
                         .path(FileUtil.getCanonicalPath(tempDirProvider.get()))
-                        .build());
+                        .build(),
+                ownerNodeName);
+    }
+
+    @Override
+    public IndexShard createIndexShard(final IndexShardKey indexShardKey,
+                                       final IndexVolume indexVolume,
+                                       final String ownerNodeName) {
+        indexShardsCreated.incrementAndGet();
+
+        // checkedLimit.increment();
+        final IndexShard indexShard = new IndexShard();
+        indexShard.setVolume(indexVolume);
         indexShard.setIndexUuid(indexShardKey.getIndexUuid());
         indexShard.setPartition(indexShardKey.getPartition());
         indexShard.setPartitionFromTime(indexShardKey.getPartitionFromTime());
@@ -141,12 +151,27 @@ public class MockIndexShardService implements IndexShardService {
         return Boolean.FALSE;
     }
 
+    @Override
+    public Boolean replace(final Long id,
+                           final Collection<Long> replacedIds) {
+        replacedIds.forEach(replacedId -> setStatus(replacedId, IndexShard.IndexShardStatus.DELETED));
+        return setStatus(id, IndexShard.IndexShardStatus.CLOSED);
+    }
+
     @Override
     public void update(final long indexShardId,
                        final Integer documentCount,
                        final Long commitDurationMs,
                        final Long commitMs,
                        final Long fileSize) {
-
+        final IndexShard indexShard = map.get(indexShardId);
+        if (indexShard != null) {
+            if (documentCount != null) {
+                indexShard.setDocumentCount(documentCount);
+            }
+            indexShard.setCommitDurationMs(commitDurationMs);
+            indexShard.setCommitMs(commitMs);
+            indexShard.setFileSize(fileSize);
+        }
     }
 }
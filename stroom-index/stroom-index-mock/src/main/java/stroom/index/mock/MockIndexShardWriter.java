@@ -16,6 +16,7 @@
 
 package stroom.index.mock;
 
+import stroom.index.impl.IndexShardSummary;
 import stroom.index.impl.IndexShardWriter;
 import stroom.index.impl.IndexStructure;
 import stroom.index.shared.IndexException;
@@ -88,6 +89,11 @@ public class MockIndexShardWriter implements IndexShardWriter {
         return documents.size();
     }
 
+    @Override
+    public IndexShardSummary getSummary() {
+        return IndexShardSummary.incomplete();
+    }
+
     @Override
     public void updateIndexStructure(final IndexStructure indexStructure) {
     }
@@ -19,6 +19,7 @@ package stroom.meta.impl;
 
 import stroom.data.retention.shared.DataRetentionRule;
 import stroom.data.retention.shared.DataRetentionRules;
+import stroom.expression.matcher.CompiledExpression;
 import stroom.expression.matcher.ExpressionMatcher;
 import stroom.expression.matcher.ExpressionMatcherFactory;
 import stroom.meta.shared.DataRetentionFields;
@@ -32,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -44,17 +46,28 @@ class StreamAttributeMapRetentionRuleDecorator {
     private static final Logger LOGGER = LoggerFactory.getLogger(StreamAttributeMapRetentionRuleDecorator.class);
 
     private final List<DataRetentionRule> rules;
-    private final ExpressionMatcher expressionMatcher;
+    // Compiled expression for each rule, or null if the rule is not active
+    private final List<CompiledExpression> compiledExpressions;
 
     @Inject
     public StreamAttributeMapRetentionRuleDecorator(final ExpressionMatcherFactory expressionMatcherFactory,
                                                     final Provider<DataRetentionRules> dataRetentionRulesProvider) {
-        expressionMatcher = expressionMatcherFactory.create(MetaFields.getFieldMap());
+        final ExpressionMatcher expressionMatcher = expressionMatcherFactory.create(MetaFields.getFieldMap());
 
         rules = Optional.ofNullable(dataRetentionRulesProvider)
                 .map(Provider::get)
                 .map(DataRetentionRules::getRules)
                 .orElse(Collections.emptyList());
+
+        // We will ignore rules that are not enabled or have no enabled expression.
+        compiledExpressions = new ArrayList<>(rules.size());
+        for (final DataRetentionRule rule : rules) {
+            if (rule.isEnabled() && rule.getExpression() != null && rule.getExpression().enabled()) {
+                compiledExpressions.add(expressionMatcher.compile(rule.getExpression()));
+            } else {
+                compiledExpressions.add(null);
+            }
+        }
     }
 
     void addMatchingRetentionRuleInfo(final Meta meta, final Map<String, String> attributeMap) {
@@ -103,12 +116,9 @@ class StreamAttributeMapRetentionRuleDecorator {
 
         for (int i = 0; i < rules.size(); i++) {
             try {
-                final DataRetentionRule rule = rules.get(i);
-                // We will ignore rules that are not enabled or have no enabled expression.
-                if (rule.isEnabled() && rule.getExpression() != null && rule.getExpression().enabled()) {
-                    if (expressionMatcher.match(attributeMap, rule.getExpression())) {
-                        return i;
-                    }
+                final CompiledExpression compiledExpression = compiledExpressions.get(i);
+                if (compiledExpression != null && compiledExpression.match(attributeMap)) {
+                    return i;
                 }
             } catch (final RuntimeException e) {
                 lastException = e;
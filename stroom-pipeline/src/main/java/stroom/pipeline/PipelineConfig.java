@@ -12,6 +12,7 @@ import stroom.util.xml.ParserConfig;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 
@@ -24,6 +25,7 @@ public class PipelineConfig extends AbstractConfig implements IsStroomConfig {
     private final XmlSchemaConfig xmlSchemaConfig;
     private final XsltConfig xsltConfig;
     private final CacheConfig httpClientCache;
+    private final CacheConfig httpCallResponseCache;
     private final CacheConfig pipelineDataCache;
     private final CacheConfig documentPermissionCache;
 
@@ -37,6 +39,10 @@ public class PipelineConfig extends AbstractConfig implements IsStroomConfig {
                 .maximumSize(1000L)
                 .expireAfterAccess(StroomDuration.ofMinutes(10))
                 .build();
+        httpCallResponseCache = CacheConfig.builder()
+                .maximumSize(10000L)
+                .expireAfterWrite(StroomDuration.ofMinutes(10))
+                .build();
         pipelineDataCache = CacheConfig.builder()
                 .maximumSize(1000L)
                 .expireAfterAccess(StroomDuration.ofMinutes(10))
@@ -55,6 +61,7 @@ public class PipelineConfig extends AbstractConfig implements IsStroomConfig {
                           @JsonProperty("xmlSchema") final XmlSchemaConfig xmlSchemaConfig,
                           @JsonProperty("xslt") final XsltConfig xsltConfig,
                           @JsonProperty("httpClientCache") final CacheConfig httpClientCache,
+                          @JsonProperty("httpCallResponseCache") final CacheConfig httpCallResponseCache,
                           @JsonProperty("pipelineDataCache") final CacheConfig pipelineDataCache,
                           @JsonProperty("documentPermissionCache") final CacheConfig documentPermissionCache) {
         this.appenderConfig = appenderConfig;
@@ -63,6 +70,7 @@ public class PipelineConfig extends AbstractConfig implements IsStroomConfig {
         this.xmlSchemaConfig = xmlSchemaConfig;
         this.xsltConfig = xsltConfig;
         this.httpClientCache = httpClientCache;
+        this.httpCallResponseCache = httpCallResponseCache;
         this.pipelineDataCache = pipelineDataCache;
         this.documentPermissionCache = documentPermissionCache;
     }
@@ -96,6 +104,13 @@ public class PipelineConfig extends AbstractConfig implements IsStroomConfig {
         return httpClientCache;
     }
 
+    @JsonPropertyDescription("The cache of responses to http-call XSLT function requests. Responses are only " +
+            "cached for http client configurations that set a responseCacheTtl. The expireAfterWrite setting " +
+            "here limits how long any response can be cached for.")
+    public CacheConfig getHttpCallResponseCache() {
+        return httpCallResponseCache;
+    }
+
     public CacheConfig getPipelineDataCache() {
         return pipelineDataCache;
     }
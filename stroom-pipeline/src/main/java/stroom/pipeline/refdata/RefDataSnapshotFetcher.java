@@ -0,0 +1,215 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.refdata;
+
+import stroom.node.api.FindNodeCriteria;
+import stroom.node.api.NodeCallUtil;
+import stroom.node.api.NodeInfo;
+import stroom.node.api.NodeService;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.pipeline.refdata.store.offheapstore.RefDataOffHeapStore;
+import stroom.security.api.SecurityContext;
+import stroom.task.api.TaskContext;
+import stroom.util.io.FileUtil;
+import stroom.util.io.TempDirProvider;
+import stroom.util.jersey.UriBuilderUtil;
+import stroom.util.jersey.WebTargetFactory;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.ResourcePaths;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Loads a ref stream into the {@link RefDataOffHeapStore} on this node by importing a snapshot
+ * of it from another node that has already loaded it, rather than running the reference loader
+ * pipeline again. Snapshots are keyed on the {@link RefStreamDefinition} so will only be found if
+ * the other node loaded the stream with the same pipeline version.
+ */
+class RefDataSnapshotFetcher {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(RefDataSnapshotFetcher.class);
+
+    static final String SNAPSHOT_DIR_NAME = "refDataSnapshots";
+
+    private final Provider<ReferenceDataConfig> referenceDataConfigProvider;
+    private final RefDataOffHeapStore refDataOffHeapStore;
+    private final NodeService nodeService;
+    private final NodeInfo nodeInfo;
+    private final WebTargetFactory webTargetFactory;
+    private final TempDirProvider tempDirProvider;
+    private final SecurityContext securityContext;
+
+    @Inject
+    RefDataSnapshotFetcher(final Provider<ReferenceDataConfig> referenceDataConfigProvider,
+                           final RefDataOffHeapStore refDataOffHeapStore,
+                           final NodeService nodeService,
+                           final NodeInfo nodeInfo,
+                           final WebTargetFactory webTargetFactory,
+                           final TempDirProvider tempDirProvider,
+                           final SecurityContext securityContext) {
+        this.referenceDataConfigProvider = referenceDataConfigProvider;
+        this.refDataOffHeapStore = refDataOffHeapStore;
+        this.nodeService = nodeService;
+        this.nodeInfo = nodeInfo;
+        this.webTargetFactory = webTargetFactory;
+        this.tempDirProvider = tempDirProvider;
+        this.securityContext = securityContext;
+    }
+
+    /**
+     * Try to load refStreamDefinition from a snapshot held by one of the other enabled nodes.
+     * Any failure is logged and treated as the snapshot not being available.
+     *
+     * @return True if the ref stream is now loaded on this node, false if it still needs to be
+     * loaded by running the pipeline.
+     */
+    boolean loadFromOtherNode(final RefStreamDefinition refStreamDefinition,
+                              final long effectiveTimeMs,
+                              final TaskContext taskContext) {
+        if (!referenceDataConfigProvider.get().isFetchSnapshotsFromOtherNodes()) {
+            return false;
+        }
+
+        Path snapshotFile = null;
+        try {
+            final Optional<Path> optSnapshotFile = fetchSnapshot(refStreamDefinition, taskContext);
+            if (optSnapshotFile.isEmpty()) {
+                return false;
+            }
+            snapshotFile = optSnapshotFile.get();
+            final Path finalSnapshotFile = snapshotFile;
+
+            taskContext.info(() -> "Importing snapshot of " + refStreamDefinition);
+            final AtomicBoolean wasImported = new AtomicBoolean(false);
+            final boolean didWork = refDataOffHeapStore.doWithLoaderUnlessComplete(
+                    refStreamDefinition,
+                    effectiveTimeMs,
+                    refDataLoader -> {
+                        try (final InputStream inputStream = Files.newInputStream(finalSnapshotFile)) {
+                            refDataOffHeapStore.importSnapshot(inputStream, refDataLoader);
+                            wasImported.set(true);
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+
+            // If no work was done then another thread loaded it while we were fetching
+            LOGGER.debug("didWork: {}, wasImported: {}, {}", didWork, wasImported, refStreamDefinition);
+            return !didWork || wasImported.get();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to import snapshot of {} from another node, it will be loaded instead: {}",
+                    refStreamDefinition.asUiFriendlyString(), e.getMessage());
+            LOGGER.debug(e::getMessage, e);
+            return false;
+        } finally {
+            if (snapshotFile != null) {
+                FileUtil.delete(snapshotFile);
+            }
+        }
+    }
+
+    private Optional<Path> fetchSnapshot(final RefStreamDefinition refStreamDefinition,
+                                         final TaskContext taskContext) {
+        final String thisNodeName = nodeInfo.getThisNodeName();
+        final List<String> nodeNames = nodeService.findNodeNames(FindNodeCriteria.allEnabled());
+
+        for (final String nodeName : nodeNames) {
+            if (!nodeName.equals(thisNodeName)) {
+                taskContext.info(() -> "Fetching snapshot of " + refStreamDefinition + " from node " + nodeName);
+                try {
+                    final Optional<Path> optSnapshotFile = securityContext.asProcessingUserResult(() ->
+                            fetchSnapshot(nodeName, refStreamDefinition));
+                    if (optSnapshotFile.isPresent()) {
+                        LOGGER.info("Fetched snapshot of {} from node {}",
+                                refStreamDefinition.asUiFriendlyString(), nodeName);
+                        return optSnapshotFile;
+                    }
+                } catch (final RuntimeException e) {
+                    // Try the next node
+                    LOGGER.debug("Error fetching snapshot of {} from node {}: {}",
+                            refStreamDefinition, nodeName, e.getMessage(), e);
+                }
+            }
+        }
+        LOGGER.debug("No other node has a snapshot of {}", refStreamDefinition);
+        return Optional.empty();
+    }
+
+    private Optional<Path> fetchSnapshot(final String nodeName,
+                                         final RefStreamDefinition refStreamDefinition) {
+        final String url = NodeCallUtil.getBaseEndpointUrl(nodeInfo, nodeService, nodeName)
+                + ResourcePaths.buildAuthenticatedApiPath(
+                ReferenceDataResource.BASE_PATH,
+                ReferenceDataResource.SNAPSHOT_SUB_PATH);
+
+        Path snapshotFile = null;
+        try {
+            WebTarget webTarget = webTargetFactory.create(url);
+            webTarget = UriBuilderUtil.addParam(
+                    webTarget, "pipelineUuid", refStreamDefinition.getPipelineDocRef().getUuid());
+            webTarget = UriBuilderUtil.addParam(
+                    webTarget, "pipelineVersion", refStreamDefinition.getPipelineVersion());
+            webTarget = UriBuilderUtil.addParam(
+                    webTarget, "streamId", refStreamDefinition.getStreamId());
+            webTarget = UriBuilderUtil.addParam(
+                    webTarget, "partIndex", refStreamDefinition.getPartIndex());
+
+            final Response response = webTarget
+                    .request(MediaType.APPLICATION_OCTET_STREAM)
+                    .get();
+            if (response.getStatus() == Status.NOT_FOUND.getStatusCode()) {
+                response.close();
+                LOGGER.debug("Node {} does not have {}", nodeName, refStreamDefinition);
+                return Optional.empty();
+            } else if (response.getStatus() != Status.OK.getStatusCode()) {
+                throw new WebApplicationException(response);
+            }
+
+            // Fetch the whole snapshot before we start loading it so a failed fetch doesn't
+            // leave us with a partial load.
+            final Path snapshotDir = tempDirProvider.get().resolve(SNAPSHOT_DIR_NAME);
+            Files.createDirectories(snapshotDir);
+            snapshotFile = Files.createTempFile(snapshotDir, "refDataSnapshot_", ".gz");
+            try (final InputStream inputStream = response.readEntity(InputStream.class)) {
+                Files.copy(inputStream, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return Optional.of(snapshotFile);
+        } catch (Throwable e) {
+            if (snapshotFile != null) {
+                FileUtil.delete(snapshotFile);
+            }
+            throw NodeCallUtil.handleExceptionsOnNodeCall(nodeName, url, e);
+        }
+    }
+}
@@ -24,6 +24,11 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
     private final int loadingLockStripes;
     private final ReferenceDataLmdbConfig lmdbConfig;
     private final CacheConfig effectiveStreamCache;
+    private final CacheConfig valueCache;
+    private final int maxCachedValueSize;
+    private final CacheConfig bloomFilterCache;
+    private final double bloomFilterFalsePositiveProbability;
+    private final boolean fetchSnapshotsFromOtherNodes;
 
     public ReferenceDataConfig() {
         maxPutsBeforeCommit = 200_000;
@@ -36,6 +41,19 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 .maximumSize(1000L)
                 .expireAfterAccess(StroomDuration.ofMinutes(10))
                 .build();
+
+        valueCache = CacheConfig.builder()
+                .maximumSize(10_000L)
+                .expireAfterAccess(StroomDuration.ofMinutes(10))
+                .build();
+        maxCachedValueSize = 2_048;
+
+        bloomFilterCache = CacheConfig.builder()
+                .maximumSize(1000L)
+                .expireAfterAccess(StroomDuration.ofMinutes(10))
+                .build();
+        bloomFilterFalsePositiveProbability = 0.01;
+        fetchSnapshotsFromOtherNodes = false;
     }
 
     @JsonCreator
@@ -44,13 +62,25 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                                @JsonProperty("purgeAge") final StroomDuration purgeAge,
                                @JsonProperty("loadingLockStripes") final int loadingLockStripes,
                                @JsonProperty("lmdb") final ReferenceDataLmdbConfig lmdbConfig,
-                               @JsonProperty("effectiveStreamCache") final CacheConfig effectiveStreamCache) {
+                               @JsonProperty("effectiveStreamCache") final CacheConfig effectiveStreamCache,
+                               @JsonProperty("valueCache") final CacheConfig valueCache,
+                               @JsonProperty("maxCachedValueSize") final int maxCachedValueSize,
+                               @JsonProperty("bloomFilterCache") final CacheConfig bloomFilterCache,
+                               @JsonProperty("bloomFilterFalsePositiveProbability")
+                               final double bloomFilterFalsePositiveProbability,
+                               @JsonProperty("fetchSnapshotsFromOtherNodes")
+                               final boolean fetchSnapshotsFromOtherNodes) {
         this.maxPutsBeforeCommit = maxPutsBeforeCommit;
         this.maxPurgeDeletesBeforeCommit = maxPurgeDeletesBeforeCommit;
         this.purgeAge = purgeAge;
         this.loadingLockStripes = loadingLockStripes;
         this.lmdbConfig = lmdbConfig;
         this.effectiveStreamCache = effectiveStreamCache;
+        this.valueCache = valueCache;
+        this.maxCachedValueSize = maxCachedValueSize;
+        this.bloomFilterCache = bloomFilterCache;
+        this.bloomFilterFalsePositiveProbability = bloomFilterFalsePositiveProbability;
+        this.fetchSnapshotsFromOtherNodes = fetchSnapshotsFromOtherNodes;
     }
 
     @Min(0)
@@ -97,6 +127,43 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
         return effectiveStreamCache;
     }
 
+    @JsonPropertyDescription("Cache of values looked up from the off heap store, keyed on the map, the " +
+            "reference stream and the lookup key. Avoids repeated reads from the off heap store when the same " +
+            "keys are looked up many times. Set maximumSize to 0 to disable the cache.")
+    public CacheConfig getValueCache() {
+        return valueCache;
+    }
+
+    @Min(0)
+    @JsonPropertyDescription("The maximum size in bytes of a value that will be held in the value cache. " +
+            "Larger values will always be read from the off heap store.")
+    public int getMaxCachedValueSize() {
+        return maxCachedValueSize;
+    }
+
+    @JsonPropertyDescription("Cache of the bloom filters of the keys in each reference data map. The " +
+            "bloom filters are used to answer lookups of keys that are not in a map without reading from the " +
+            "off heap store.")
+    public CacheConfig getBloomFilterCache() {
+        return bloomFilterCache;
+    }
+
+    @JsonPropertyDescription("The target false positive probability of the bloom filter that is built for " +
+            "the keys of each reference data map when it is loaded. Lower values mean fewer misses have to " +
+            "be read from the off heap store but larger bloom filters. Must be less than 1. Set to 0 to " +
+            "disable the bloom filters.")
+    public double getBloomFilterFalsePositiveProbability() {
+        return bloomFilterFalsePositiveProbability;
+    }
+
+    @JsonPropertyDescription("If true, before running the reference loader pipeline for a reference stream, " +
+            "the other enabled nodes will be asked for a snapshot of that reference stream from their off heap " +
+            "store. If a node has already loaded the stream with the same pipeline version, its snapshot is " +
+            "imported directly and the pipeline is not run. If no node has it, the stream is loaded as normal.")
+    public boolean isFetchSnapshotsFromOtherNodes() {
+        return fetchSnapshotsFromOtherNodes;
+    }
+
     public ReferenceDataConfig withLmdbConfig(final ReferenceDataLmdbConfig lmdbConfig) {
         return new ReferenceDataConfig(
                 maxPutsBeforeCommit,
@@ -104,7 +171,12 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 purgeAge,
                 loadingLockStripes,
                 lmdbConfig,
-                effectiveStreamCache);
+                effectiveStreamCache,
+                valueCache,
+                maxCachedValueSize,
+                bloomFilterCache,
+                bloomFilterFalsePositiveProbability,
+                fetchSnapshotsFromOtherNodes);
     }
 
     public ReferenceDataConfig withPurgeAge(final StroomDuration purgeAge) {
@@ -114,7 +186,12 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 purgeAge,
                 loadingLockStripes,
                 lmdbConfig,
-                effectiveStreamCache);
+                effectiveStreamCache,
+                valueCache,
+                maxCachedValueSize,
+                bloomFilterCache,
+                bloomFilterFalsePositiveProbability,
+                fetchSnapshotsFromOtherNodes);
     }
 
     public ReferenceDataConfig withMaxPutsBeforeCommit(final int maxPutsBeforeCommit) {
@@ -124,7 +201,12 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 purgeAge,
                 loadingLockStripes,
                 lmdbConfig,
-                effectiveStreamCache);
+                effectiveStreamCache,
+                valueCache,
+                maxCachedValueSize,
+                bloomFilterCache,
+                bloomFilterFalsePositiveProbability,
+                fetchSnapshotsFromOtherNodes);
     }
 
     public ReferenceDataConfig withMaxPurgeDeletesBeforeCommit(final int maxPurgeDeletesBeforeCommit) {
@@ -134,7 +216,12 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 purgeAge,
                 loadingLockStripes,
                 lmdbConfig,
-                effectiveStreamCache);
+                effectiveStreamCache,
+                valueCache,
+                maxCachedValueSize,
+                bloomFilterCache,
+                bloomFilterFalsePositiveProbability,
+                fetchSnapshotsFromOtherNodes);
     }
 
     public ReferenceDataConfig withEffectiveStreamCache(final CacheConfig effectiveStreamCache) {
@@ -144,7 +231,12 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 purgeAge,
                 loadingLockStripes,
                 lmdbConfig,
-                effectiveStreamCache);
+                effectiveStreamCache,
+                valueCache,
+                maxCachedValueSize,
+                bloomFilterCache,
+                bloomFilterFalsePositiveProbability,
+                fetchSnapshotsFromOtherNodes);
     }
 
     @Override
@@ -156,6 +248,11 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 ", loadingLockStripes=" + loadingLockStripes +
                 ", lmdbConfig=" + lmdbConfig +
                 ", effectiveStreamCache=" + effectiveStreamCache +
+                ", valueCache=" + valueCache +
+                ", maxCachedValueSize=" + maxCachedValueSize +
+                ", bloomFilterCache=" + bloomFilterCache +
+                ", bloomFilterFalsePositiveProbability=" + bloomFilterFalsePositiveProbability +
+                ", fetchSnapshotsFromOtherNodes=" + fetchSnapshotsFromOtherNodes +
                 '}';
     }
 }
@@ -81,6 +81,7 @@ class ReferenceDataLoadTaskHandler {
     private final ErrorReceiverProxy errorReceiverProxy;
     private final PipelineDataCache pipelineDataCache;
     private final SecurityContext securityContext;
+    private final RefDataSnapshotFetcher refDataSnapshotFetcher;
 
     private TaskContext taskContext;
     private ErrorReceiverIdDecorator errorReceiver;
@@ -99,7 +100,8 @@ class ReferenceDataLoadTaskHandler {
                                  final LocationFactoryProxy locationFactory,
                                  final ErrorReceiverProxy errorReceiverProxy,
                                  final PipelineDataCache pipelineDataCache,
-                                 final SecurityContext securityContext) {
+                                 final SecurityContext securityContext,
+                                 final RefDataSnapshotFetcher refDataSnapshotFetcher) {
         this.streamStore = streamStore;
         this.pipelineFactory = pipelineFactory;
         this.pipelineStore = pipelineStore;
@@ -114,6 +116,7 @@ class ReferenceDataLoadTaskHandler {
         this.errorReceiverProxy = errorReceiverProxy;
         this.pipelineDataCache = pipelineDataCache;
         this.securityContext = securityContext;
+        this.refDataSnapshotFetcher = refDataSnapshotFetcher;
     }
 
     /**
@@ -138,6 +141,14 @@ class ReferenceDataLoadTaskHandler {
                     if (source != null) {
                         final Meta meta = source.getMeta();
 
+                        // Another node may have already done the work
+                        if (refDataSnapshotFetcher.loadFromOtherNode(
+                                refStreamDefinition, meta.getEffectiveMs(), taskContext)) {
+                            LOGGER.debug("Loaded reference data from another node: {}", refStreamDefinition);
+                            taskContext.info(() -> "Finished " + refStreamDefinition);
+                            return;
+                        }
+
                         // Load the feed.
                         final String feedName = meta.getFeedName();
                         feedHolder.setFeedName(feedName);
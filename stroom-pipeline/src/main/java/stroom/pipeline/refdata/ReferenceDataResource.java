@@ -22,6 +22,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 @Tag(name = "Reference Data")
 @Path(ReferenceDataResource.BASE_PATH)
@@ -37,6 +38,7 @@ public interface ReferenceDataResource extends RestResource {
     String PURGE_BY_AGE_SUB_PATH = "/purgeByAge";
     String PURGE_BY_STREAM_SUB_PATH = "/purgeByStream";
     String CLEAR_BUFFER_POOL_PATH = "/clearBufferPool";
+    String SNAPSHOT_SUB_PATH = "/snapshot";
     String QUERY_PARAM_NODE_NAME = "nodeName";
 
     @GET
@@ -96,4 +98,17 @@ public interface ReferenceDataResource extends RestResource {
                     "Performed on the named node or all nodes if null.",
             operationId = "clearBufferPool")
     void clearBufferPool(@Nullable @QueryParam(QUERY_PARAM_NODE_NAME) final String nodeName);
+
+    @GET
+    @Path(SNAPSHOT_SUB_PATH)
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @Operation(
+            summary = "Export a snapshot of a fully loaded reference stream from the reference data store on " +
+                    "this node so that another node can import it rather than loading it. Returns 404 if the " +
+                    "reference stream is not fully loaded on this node. Performed on this node only.",
+            operationId = "getReferenceDataSnapshot")
+    StreamingOutput snapshot(@NotNull @QueryParam("pipelineUuid") final String pipelineUuid,
+                             @NotNull @QueryParam("pipelineVersion") final String pipelineVersion,
+                             @QueryParam("streamId") final long streamId,
+                             @QueryParam("partIndex") final long partIndex);
 }
@@ -4,6 +4,7 @@ import stroom.event.logging.rs.api.AutoLogged;
 import stroom.event.logging.rs.api.AutoLogged.OperationType;
 import stroom.pipeline.refdata.store.ProcessingInfoResponse;
 import stroom.pipeline.refdata.store.RefStoreEntry;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
 import stroom.util.logging.LogUtil;
 import stroom.util.time.StroomDuration;
 
@@ -13,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Provider;
+import javax.ws.rs.core.StreamingOutput;
 
 @AutoLogged
 public class ReferenceDataResourceImpl implements ReferenceDataResource {
@@ -103,4 +105,14 @@ public class ReferenceDataResourceImpl implements ReferenceDataResource {
             throw e;
         }
     }
+
+    @AutoLogged(OperationType.UNLOGGED)
+    @Override
+    public StreamingOutput snapshot(final String pipelineUuid,
+                                    final String pipelineVersion,
+                                    final long streamId,
+                                    final long partIndex) {
+        return referenceDataServiceProvider.get()
+                .snapshot(new RefStreamDefinition(pipelineUuid, pipelineVersion, streamId, partIndex));
+    }
 }
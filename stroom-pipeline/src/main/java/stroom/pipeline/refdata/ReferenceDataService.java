@@ -2,10 +2,12 @@ package stroom.pipeline.refdata;
 
 import stroom.pipeline.refdata.store.ProcessingInfoResponse;
 import stroom.pipeline.refdata.store.RefStoreEntry;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
 import stroom.searchable.api.Searchable;
 import stroom.util.time.StroomDuration;
 
 import java.util.List;
+import javax.ws.rs.core.StreamingOutput;
 
 public interface ReferenceDataService extends Searchable {
 
@@ -31,4 +33,10 @@ public interface ReferenceDataService extends Searchable {
     void purge(final long refStreamId, final String nodeName);
 
     void clearBufferPool(final String nodeName);
+
+    /**
+     * Export a snapshot of a fully loaded ref stream from the store on this node.
+     * Throws a {@link javax.ws.rs.NotFoundException} if it is not fully loaded on this node.
+     */
+    StreamingOutput snapshot(final RefStreamDefinition refStreamDefinition);
 }
@@ -23,12 +23,15 @@ import stroom.node.api.FindNodeCriteria;
 import stroom.node.api.NodeService;
 import stroom.pipeline.refdata.RefDataLookupRequest.ReferenceLoader;
 import stroom.pipeline.refdata.store.ProcessingInfoResponse;
+import stroom.pipeline.refdata.store.ProcessingState;
 import stroom.pipeline.refdata.store.RefDataStore;
 import stroom.pipeline.refdata.store.RefDataStoreFactory;
 import stroom.pipeline.refdata.store.RefDataValueConverter;
 import stroom.pipeline.refdata.store.RefDataValueProxyConsumerFactory;
 import stroom.pipeline.refdata.store.RefDataValueProxyConsumerFactory.Factory;
 import stroom.pipeline.refdata.store.RefStoreEntry;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.pipeline.refdata.store.offheapstore.RefDataOffHeapStore;
 import stroom.pipeline.shared.PipelineDoc;
 import stroom.pipeline.shared.data.PipelineReference;
 import stroom.query.api.v2.ExpressionItem;
@@ -41,6 +44,8 @@ import stroom.security.api.SecurityContext;
 import stroom.security.shared.PermissionNames;
 import stroom.task.api.TaskContext;
 import stroom.task.api.TaskContextFactory;
+import stroom.util.io.FileUtil;
+import stroom.util.io.TempDirProvider;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogUtil;
@@ -55,7 +60,13 @@ import net.sf.saxon.Configuration;
 import net.sf.saxon.event.PipelineConfiguration;
 import net.sf.saxon.event.Receiver;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
@@ -74,6 +85,7 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.client.SyncInvoker;
+import javax.ws.rs.core.StreamingOutput;
 
 public class ReferenceDataServiceImpl implements ReferenceDataService {
 
@@ -158,6 +170,7 @@ public class ReferenceDataServiceImpl implements ReferenceDataService {
                     refStoreEntry.getMapDefinition().getRefStreamDefinition().getPipelineVersion()));
 
     private final RefDataStore refDataStore;
+    private final RefDataOffHeapStore refDataOffHeapStore;
     private final SecurityContext securityContext;
     private final FeedStore feedStore;
     private final Provider<ReferenceData> referenceDataProvider;
@@ -167,6 +180,7 @@ public class ReferenceDataServiceImpl implements ReferenceDataService {
     private final RefDataValueProxyConsumerFactory.Factory refDataValueProxyConsumerFactoryFactory;
     private final ByteBufferPool byteBufferPool;
     private final NodeService nodeService;
+    private final TempDirProvider tempDirProvider;
 
     @Inject
     public ReferenceDataServiceImpl(final RefDataStoreFactory refDataStoreFactory,
@@ -178,8 +192,11 @@ public class ReferenceDataServiceImpl implements ReferenceDataService {
                                     final TaskContextFactory taskContextFactory,
                                     final Factory refDataValueProxyConsumerFactoryFactory,
                                     final ByteBufferPool byteBufferPool,
-                                    final NodeService nodeService) {
+                                    final NodeService nodeService,
+                                    final RefDataOffHeapStore refDataOffHeapStore,
+                                    final TempDirProvider tempDirProvider) {
         this.refDataStore = refDataStoreFactory.getOffHeapStore();
+        this.refDataOffHeapStore = refDataOffHeapStore;
         this.securityContext = securityContext;
         this.feedStore = feedStore;
         this.referenceDataProvider = referenceDataProvider;
@@ -189,6 +206,7 @@ public class ReferenceDataServiceImpl implements ReferenceDataService {
         this.refDataValueProxyConsumerFactoryFactory = refDataValueProxyConsumerFactoryFactory;
         this.byteBufferPool = byteBufferPool;
         this.nodeService = nodeService;
+        this.tempDirProvider = tempDirProvider;
     }
 
     @Override
@@ -475,6 +493,64 @@ public class ReferenceDataServiceImpl implements ReferenceDataService {
         });
     }
 
+    @Override
+    public StreamingOutput snapshot(final RefStreamDefinition refStreamDefinition) {
+        return withPermissionCheck(() -> {
+            // Check up front so the caller gets a 404 rather than a failed stream
+            final boolean isComplete = refDataStore.getLoadState(refStreamDefinition)
+                    .filter(ProcessingState.COMPLETE::equals)
+                    .isPresent();
+            if (!isComplete) {
+                throw new NotFoundException(LogUtil.message("Reference stream {} is not loaded on this node",
+                        refStreamDefinition.asUiFriendlyString()));
+            }
+
+            // Spool the snapshot to a temp file so the LMDB read txn is only held for as long as it
+            // takes to write to local disk rather than for the whole transfer to a possibly slow client.
+            final Path snapshotFile = spoolSnapshot(refStreamDefinition);
+            return outputStream -> {
+                try {
+                    Files.copy(snapshotFile, outputStream);
+                } finally {
+                    FileUtil.delete(snapshotFile);
+                }
+            };
+        });
+    }
+
+    private Path spoolSnapshot(final RefStreamDefinition refStreamDefinition) {
+        Path snapshotFile = null;
+        try {
+            final Path snapshotDir = tempDirProvider.get().resolve(RefDataSnapshotFetcher.SNAPSHOT_DIR_NAME);
+            Files.createDirectories(snapshotDir);
+            snapshotFile = Files.createTempFile(snapshotDir, "refDataExport_", ".gz");
+            final Path finalSnapshotFile = snapshotFile;
+            final boolean wasExported = LOGGER.logDurationIfDebugEnabled(
+                    () -> {
+                        try (final OutputStream outputStream = new BufferedOutputStream(
+                                Files.newOutputStream(finalSnapshotFile))) {
+                            return refDataOffHeapStore.exportSnapshot(refStreamDefinition, outputStream);
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    },
+                    () -> LogUtil.message("Exporting snapshot of {}", refStreamDefinition));
+            if (!wasExported) {
+                // Purged since we checked above
+                throw new NotFoundException(LogUtil.message("Reference stream {} is no longer loaded on this node",
+                        refStreamDefinition.asUiFriendlyString()));
+            }
+            return snapshotFile;
+        } catch (final IOException | RuntimeException e) {
+            if (snapshotFile != null) {
+                FileUtil.delete(snapshotFile);
+            }
+            throw e instanceof IOException
+                    ? new UncheckedIOException((IOException) e)
+                    : (RuntimeException) e;
+        }
+    }
+
     private List<String> getNodeList(final String nodeName) {
         return nodeName == null
                 ? nodeService.findNodeNames(new FindNodeCriteria())
@@ -22,10 +22,13 @@ import stroom.bytebuffer.PooledByteBufferOutputStream;
 import stroom.job.api.Schedule;
 import stroom.job.api.ScheduledJobsBinder;
 import stroom.pipeline.refdata.store.offheapstore.FastInfosetByteBufferConsumer;
+import stroom.pipeline.refdata.store.offheapstore.MapBloomFilterCache;
 import stroom.pipeline.refdata.store.offheapstore.OffHeapRefDataValueProxyConsumer;
 import stroom.pipeline.refdata.store.offheapstore.RefDataOffHeapStore;
+import stroom.pipeline.refdata.store.offheapstore.RefDataValueCache;
 import stroom.pipeline.refdata.store.offheapstore.StringByteBufferConsumer;
 import stroom.pipeline.refdata.store.offheapstore.databases.KeyValueStoreDb;
+import stroom.pipeline.refdata.store.offheapstore.databases.MapBloomFilterDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.MapUidForwardDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.MapUidReverseDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.ProcessingInfoDb;
@@ -37,7 +40,9 @@ import stroom.pipeline.refdata.store.onheapstore.OnHeapRefDataValueProxyConsumer
 import stroom.pipeline.refdata.store.onheapstore.StringValueConsumer;
 import stroom.task.api.TaskTerminatedException;
 import stroom.util.RunnableWrapper;
+import stroom.util.guice.GuiceUtil;
 import stroom.util.guice.HasSystemInfoBinder;
+import stroom.util.shared.Clearable;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
@@ -70,6 +75,7 @@ public class RefDataStoreModule extends AbstractModule {
         install(new FactoryModuleBuilder().build(MapUidReverseDb.Factory.class));
         install(new FactoryModuleBuilder().build(ProcessingInfoDb.Factory.class));
         install(new FactoryModuleBuilder().build(ValueStoreMetaDb.Factory.class));
+        install(new FactoryModuleBuilder().build(MapBloomFilterDb.Factory.class));
 
         install(new FactoryModuleBuilder().build(OffHeapRefDataValueProxyConsumer.Factory.class));
         install(new FactoryModuleBuilder().build(OnHeapRefDataValueProxyConsumer.Factory.class));
@@ -79,7 +85,13 @@ public class RefDataStoreModule extends AbstractModule {
         bind(ValueStoreHashAlgorithm.class).to(XxHashValueStoreHashAlgorithm.class);
 
         HasSystemInfoBinder.create(binder())
-                .bind(RefDataOffHeapStore.class);
+                .bind(RefDataOffHeapStore.class)
+                .bind(RefDataValueCache.class)
+                .bind(MapBloomFilterCache.class);
+
+        GuiceUtil.buildMultiBinder(binder(), Clearable.class)
+                .addBinding(RefDataValueCache.class)
+                .addBinding(MapBloomFilterCache.class);
 
         ScheduledJobsBinder.create(binder())
                 .bindJobTo(RefDataPurge.class, builder -> builder
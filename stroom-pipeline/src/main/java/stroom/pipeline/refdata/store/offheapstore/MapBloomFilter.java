@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.refdata.store.offheapstore;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A bloom filter of all the keys in the key/value store for a single map, built when the map
+ * is loaded. If the filter says a key is not present then it is definitely not in the key/value
+ * store. Range lookups can't be answered by the filter so if the map also has ranges then
+ * the range store still needs to be checked.
+ * <p>
+ * < hasRanges >< bloom filter >
+ * < 1 byte    >< ? bytes      >
+ */
+public class MapBloomFilter {
+
+    private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+
+    private final BloomFilter<CharSequence> bloomFilter;
+    private final boolean hasRanges;
+
+    private MapBloomFilter(final BloomFilter<CharSequence> bloomFilter, final boolean hasRanges) {
+        this.bloomFilter = Objects.requireNonNull(bloomFilter);
+        this.hasRanges = hasRanges;
+    }
+
+    public static MapBloomFilter create(final long expectedKeys,
+                                        final double falsePositiveProbability,
+                                        final boolean hasRanges) {
+        return new MapBloomFilter(
+                BloomFilter.create(FUNNEL, Math.max(1, expectedKeys), falsePositiveProbability),
+                hasRanges);
+    }
+
+    public static MapBloomFilter readFrom(final InputStream inputStream) throws IOException {
+        final boolean hasRanges = inputStream.read() == 1;
+        return new MapBloomFilter(BloomFilter.readFrom(inputStream, FUNNEL), hasRanges);
+    }
+
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        outputStream.write(hasRanges
+                ? 1
+                : 0);
+        bloomFilter.writeTo(outputStream);
+    }
+
+    public void put(final String key) {
+        bloomFilter.put(key);
+    }
+
+    /**
+     * @return True if the key is definitely not in the map, either as a key or within a range.
+     * False if it may be in the map.
+     */
+    public boolean isDefinitelyAbsent(final String key) {
+        return !hasRanges && !bloomFilter.mightContain(key);
+    }
+
+    public boolean hasRanges() {
+        return hasRanges;
+    }
+
+    @Override
+    public String toString() {
+        return "MapBloomFilter{" +
+                "approximateKeyCount=" + bloomFilter.approximateElementCount() +
+                ", expectedFpp=" + bloomFilter.expectedFpp() +
+                ", hasRanges=" + hasRanges +
+                '}';
+    }
+}
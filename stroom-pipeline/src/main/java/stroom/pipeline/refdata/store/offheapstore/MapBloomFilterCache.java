@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.pipeline.refdata.store.offheapstore;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.ICache;
+import stroom.pipeline.refdata.ReferenceDataConfig;
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.Clearable;
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * An on-heap cache of the {@link MapBloomFilter} for each {@link MapDefinition} so that lookups of
+ * keys that are not in a map can be answered without going to the {@link RefDataOffHeapStore}
+ * at all. Maps that have no bloom filter are cached as empty so we don't keep looking for one.
+ * <p>
+ * Entries for a ref stream are invalidated when the ref stream is loaded or purged.
+ */
+@Singleton
+public class MapBloomFilterCache implements Clearable, HasSystemInfo {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(MapBloomFilterCache.class);
+
+    private static final String CACHE_NAME = "Reference Data - Bloom Filter Cache";
+
+    private final ICache<MapDefinition, Optional<MapBloomFilter>> cache;
+    private final Provider<ReferenceDataConfig> referenceDataConfigProvider;
+
+    private final LongAdder definitelyAbsent = new LongAdder();
+    private final LongAdder mightBePresent = new LongAdder();
+
+    @Inject
+    MapBloomFilterCache(final CacheManager cacheManager,
+                        final Provider<ReferenceDataConfig> referenceDataConfigProvider) {
+        this.referenceDataConfigProvider = referenceDataConfigProvider;
+        this.cache = cacheManager.create(
+                CACHE_NAME,
+                () -> referenceDataConfigProvider.get().getBloomFilterCache());
+    }
+
+    /**
+     * @param filterLoader Function to read the bloom filter for the map from the store if it is not
+     *                     already cached.
+     * @return True if the key is definitely not in the map so there is no need to look in the store.
+     */
+    boolean isDefinitelyAbsent(final MapDefinition mapDefinition,
+                               final String key,
+                               final Function<MapDefinition, Optional<MapBloomFilter>> filterLoader) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        Optional<MapBloomFilter> optMapBloomFilter = cache.getOptional(mapDefinition)
+                .orElse(null);
+        if (optMapBloomFilter == null) {
+            optMapBloomFilter = filterLoader.apply(mapDefinition);
+            LOGGER.debug("Loaded bloom filter {} for {}", optMapBloomFilter, mapDefinition);
+            cache.put(mapDefinition, optMapBloomFilter);
+        }
+
+        final boolean isDefinitelyAbsent = optMapBloomFilter
+                .map(mapBloomFilter -> mapBloomFilter.isDefinitelyAbsent(key))
+                .orElse(false);
+        if (isDefinitelyAbsent) {
+            definitelyAbsent.increment();
+        } else {
+            mightBePresent.increment();
+        }
+        return isDefinitelyAbsent;
+    }
+
+    /**
+     * @return True if bloom filters should be built on load and used for lookups.
+     */
+    boolean isEnabled() {
+        final double falsePositiveProbability = getFalsePositiveProbability();
+        return falsePositiveProbability > 0 && falsePositiveProbability < 1;
+    }
+
+    double getFalsePositiveProbability() {
+        return referenceDataConfigProvider.get().getBloomFilterFalsePositiveProbability();
+    }
+
+    /**
+     * Remove all cached bloom filters belonging to a ref stream, e.g. because it has been purged
+     * or reloaded.
+     */
+    void invalidate(final RefStreamDefinition refStreamDefinition) {
+        LOGGER.debug("Invalidating cached bloom filters for {}", refStreamDefinition);
+        cache.asMap().keySet().removeIf(mapDefinition ->
+                refStreamDefinition.equals(mapDefinition.getRefStreamDefinition()));
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        return SystemInfoResult.builder(this)
+                .addDetail("Enabled", isEnabled())
+                .addDetail("False positive probability", getFalsePositiveProbability())
+                .addDetail("Size", cache.size())
+                .addDetail("Lookups definitely absent", definitelyAbsent.sum())
+                .addDetail("Lookups possibly present", mightBePresent.sum())
+                .build();
+    }
+}
@@ -29,6 +29,7 @@ import stroom.pipeline.refdata.store.RefDataStore;
 import stroom.pipeline.refdata.store.RefDataValue;
 import stroom.pipeline.refdata.store.RefStreamDefinition;
 import stroom.pipeline.refdata.store.offheapstore.databases.KeyValueStoreDb;
+import stroom.pipeline.refdata.store.offheapstore.databases.MapBloomFilterDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.ProcessingInfoDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.RangeStoreDb;
 import stroom.util.logging.LambdaLogger;
@@ -38,6 +39,7 @@ import stroom.util.shared.Range;
 
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.Striped;
+import org.lmdbjava.Txn;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,6 +82,8 @@ public class OffHeapRefDataLoader implements RefDataLoader {
     private final ValueStore valueStore;
     private final MapDefinitionUIDStore mapDefinitionUIDStore;
     private final ProcessingInfoDb processingInfoDb;
+    private final MapBloomFilterDb mapBloomFilterDb;
+    private final MapBloomFilterCache mapBloomFilterCache;
 
     private final LmdbEnv lmdbEnvironment;
     private final RefStreamDefinition refStreamDefinition;
@@ -120,6 +124,8 @@ public class OffHeapRefDataLoader implements RefDataLoader {
                          final ValueStore valueStore,
                          final MapDefinitionUIDStore mapDefinitionUIDStore,
                          final ProcessingInfoDb processingInfoDb,
+                         final MapBloomFilterDb mapBloomFilterDb,
+                         final MapBloomFilterCache mapBloomFilterCache,
                          final LmdbEnv lmdbEnvironment,
                          final RefStreamDefinition refStreamDefinition,
                          final long effectiveTimeMs) {
@@ -128,6 +134,8 @@ public class OffHeapRefDataLoader implements RefDataLoader {
         this.keyValueStoreDb = keyValueStoreDb;
         this.rangeStoreDb = rangeStoreDb;
         this.processingInfoDb = processingInfoDb;
+        this.mapBloomFilterDb = mapBloomFilterDb;
+        this.mapBloomFilterCache = mapBloomFilterCache;
 
         this.valueStore = valueStore;
         this.mapDefinitionUIDStore = mapDefinitionUIDStore;
@@ -214,6 +222,10 @@ public class OffHeapRefDataLoader implements RefDataLoader {
             checkCurrentState(LoaderState.INITIALISED);
             beginTxnIfRequired();
 
+            if (ProcessingState.COMPLETE.equals(processingState) && mapBloomFilterCache.isEnabled()) {
+                putBloomFilters();
+            }
+
             // Set the processing info record to processingState and update the last update time
             processingInfoDb.updateProcessingState(
                     writeTxn.getTxn(),
@@ -224,6 +236,9 @@ public class OffHeapRefDataLoader implements RefDataLoader {
             // Need to commit the state change
             commit();
 
+            // Readers may have cached the absence of a bloom filter while we were loading
+            mapBloomFilterCache.invalidate(refStreamDefinition);
+
             final Duration loadDuration = Duration.between(startTime, Instant.now());
 
             final String mapNames = mapDefinitionToUIDMap.keySet()
@@ -253,6 +268,33 @@ public class OffHeapRefDataLoader implements RefDataLoader {
         }
     }
 
+    /**
+     * Build a bloom filter of all the keys in each map we have loaded into, so that lookups
+     * for keys that are not in the map don't need to touch the store. We scan the store rather
+     * than tracking the keys as they are put so we know exactly how many keys there are and
+     * include any keys that were already there.
+     */
+    private void putBloomFilters() {
+        final Txn<ByteBuffer> txn = writeTxn.getTxn();
+        mapDefinitionToUIDMap.forEach((mapDefinition, mapUid) -> {
+            final long keyCount = keyValueStoreDb.getEntryCount(mapUid, txn);
+            final boolean hasRanges = rangeStoreDb.containsMapDefinition(txn, mapUid);
+            if (keyCount == 0) {
+                // Nothing to filter, lookups have to go to the range store anyway
+                LOGGER.debug("No keys for {}, not creating bloom filter", mapDefinition);
+            } else {
+                final MapBloomFilter mapBloomFilter = MapBloomFilter.create(
+                        keyCount,
+                        mapBloomFilterCache.getFalsePositiveProbability(),
+                        hasRanges);
+                keyValueStoreDb.forEachKey(txn, mapUid, mapBloomFilter::put);
+                mapBloomFilterDb.put(txn, mapUid, mapBloomFilter);
+                LOGGER.debug("Created bloom filter {} with {} keys for {}",
+                        mapBloomFilter, keyCount, mapDefinition);
+            }
+        });
+    }
+
     @Override
     public void setCommitInterval(final int maxPutsBeforeCommit) {
         Preconditions.checkArgument(maxPutsBeforeCommit >= 0);
@@ -530,6 +572,10 @@ public class OffHeapRefDataLoader implements RefDataLoader {
                 // Now clone it into a different buffer and wrap in a new UID instance
                 final UID newUidClone = newUid.cloneToBuffer(cachedUidPooledBuffer.getByteBuffer());
 
+                // Any bloom filter from a previous load of this map will not know about the keys
+                // we are about to put so get rid of it. A new one is built on completion.
+                mapBloomFilterDb.delete(writeTxn.getTxn(), newUidClone);
+
                 return newUidClone;
             }
         });
@@ -42,6 +42,7 @@ import stroom.pipeline.refdata.store.RefStoreEntry;
 import stroom.pipeline.refdata.store.RefStreamDefinition;
 import stroom.pipeline.refdata.store.offheapstore.databases.KeyValueStoreDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.KeyValueStoreDb.Factory;
+import stroom.pipeline.refdata.store.offheapstore.databases.MapBloomFilterDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.MapUidForwardDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.MapUidReverseDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.ProcessingInfoDb;
@@ -49,6 +50,7 @@ import stroom.pipeline.refdata.store.offheapstore.databases.RangeStoreDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.ValueStoreDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.ValueStoreMetaDb;
 import stroom.pipeline.refdata.store.offheapstore.serdes.RefDataProcessingInfoSerde;
+import stroom.pipeline.refdata.store.offheapstore.serdes.RefDataValueSerdeFactory;
 import stroom.task.api.TaskContext;
 import stroom.task.api.TaskTerminatedException;
 import stroom.util.HasHealthCheck;
@@ -56,6 +58,7 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogUtil;
 import stroom.util.shared.ModelStringUtil;
+import stroom.util.shared.Range;
 import stroom.util.sysinfo.HasSystemInfo;
 import stroom.util.sysinfo.SystemInfoResult;
 import stroom.util.time.StroomDuration;
@@ -69,6 +72,10 @@ import org.lmdbjava.EnvFlags;
 import org.lmdbjava.KeyRange;
 import org.lmdbjava.Txn;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
@@ -128,6 +135,7 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
     private final KeyValueStoreDb keyValueStoreDb;
     private final RangeStoreDb rangeStoreDb;
     private final ProcessingInfoDb processingInfoDb;
+    private final MapBloomFilterDb mapBloomFilterDb;
 
     // classes that front multiple DBs
     private final ValueStore valueStore;
@@ -144,6 +152,11 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
 
     private final ByteBufferPool byteBufferPool;
 
+    // On-heap cache of the values for the most frequently looked up keys
+    private final RefDataValueCache refDataValueCache;
+    private final RefDataValueSerdeFactory refDataValueSerdeFactory;
+    private final MapBloomFilterCache mapBloomFilterCache;
+
     @Inject
     RefDataOffHeapStore(
             final LmdbEnvFactory lmdbEnvFactory,
@@ -157,9 +170,16 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
             final MapUidReverseDb.Factory mapUidReverseDbFactory,
             final RefDataValueConverter refDataValueConverter,
             final ProcessingInfoDb.Factory processingInfoDbFactory,
-            final TaskContext taskContext) {
+            final TaskContext taskContext,
+            final RefDataValueCache refDataValueCache,
+            final RefDataValueSerdeFactory refDataValueSerdeFactory,
+            final MapBloomFilterDb.Factory mapBloomFilterDbFactory,
+            final MapBloomFilterCache mapBloomFilterCache) {
 
         this.lmdbEnvFactory = lmdbEnvFactory;
+        this.refDataValueCache = refDataValueCache;
+        this.refDataValueSerdeFactory = refDataValueSerdeFactory;
+        this.mapBloomFilterCache = mapBloomFilterCache;
         this.referenceDataConfigProvider = referenceDataConfigProvider;
         this.refDataValueConverter = refDataValueConverter;
         this.taskContext = taskContext;
@@ -174,6 +194,7 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         final MapUidReverseDb mapUidReverseDb = mapUidReverseDbFactory.create(lmdbEnvironment);
         this.processingInfoDb = processingInfoDbFactory.create(lmdbEnvironment);
         final ValueStoreMetaDb valueStoreMetaDb = valueStoreMetaDbFactory.create(lmdbEnvironment);
+        this.mapBloomFilterDb = mapBloomFilterDbFactory.create(lmdbEnvironment);
 
         // hold all the DBs in a map so we can get at them by name
         addDbsToMap(
@@ -183,7 +204,8 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                 mapUidForwardDb,
                 mapUidReverseDb,
                 processingInfoDb,
-                valueStoreMetaDb);
+                valueStoreMetaDb,
+                mapBloomFilterDb);
 
         this.valueStore = new ValueStore(lmdbEnvironment, valueStoreDb, valueStoreMetaDb);
         this.mapDefinitionUIDStore = new MapDefinitionUIDStore(
@@ -294,7 +316,7 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         // set it larger than the amount of free space on the filesystem.
 
         final LmdbEnv env = lmdbEnvFactory.builder(lmdbConfig)
-                .withMaxDbCount(7)
+                .withMaxDbCount(8)
                 .addEnvFlag(EnvFlags.MDB_NOTLS)
                 .build();
 
@@ -357,6 +379,17 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
     public Optional<RefDataValue> getValue(final MapDefinition mapDefinition,
                                            final String key) {
 
+        final Optional<RefDataValue> optCachedValue = refDataValueCache.getValue(mapDefinition, key);
+        if (optCachedValue.isPresent()) {
+            LOGGER.trace("getValue({}, {}) - {} (cached)", mapDefinition, key, optCachedValue);
+            return optCachedValue;
+        }
+
+        if (isDefinitelyAbsent(mapDefinition, key)) {
+            LOGGER.trace("getValue({}, {}) - empty (bloom filter)", mapDefinition, key);
+            return Optional.empty();
+        }
+
         // Use the mapDef to get a mapUid, then use the mapUid and key
         // to do a lookup in the keyValue or rangeValue stores. The resulting
         // value store key buffer can then be used to get the actual value.
@@ -377,7 +410,13 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                                         return Optional.of(valueStoreKeyBufferClone);
                                     })
                                     .flatMap(valueStoreKeyBuffer ->
-                                            valueStore.get(readTxn, valueStoreKeyBuffer)));
+                                            valueStore.getTypedValueBuffer(readTxn, valueStoreKeyBuffer))
+                                    .map(typedValueBuffer -> {
+                                        refDataValueCache.put(mapDefinition, key, typedValueBuffer);
+                                        return refDataValueSerdeFactory.deserialize(
+                                                typedValueBuffer.getByteBuffer(),
+                                                typedValueBuffer.getTypeId());
+                                    }));
 
             LOGGER.trace("getValue({}, {}) - {}", mapDefinition, key, optionalRefDataValue);
             return optionalRefDataValue;
@@ -391,6 +430,138 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                 mapDefinitionUIDStore.getMapNames(readTxn, refStreamDefinition));
     }
 
+    /**
+     * Write a {@link RefDataSnapshot} of all the entries for refStreamDefinition to outputStream so
+     * that another node can import it rather than loading the ref stream itself. A read txn is held
+     * open for the duration of the export so outputStream should be local, e.g. a temp file.
+     *
+     * @return False if the ref stream is not fully loaded in this store, in which case nothing is
+     * written to outputStream.
+     */
+    public boolean exportSnapshot(final RefStreamDefinition refStreamDefinition,
+                                  final OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(refStreamDefinition);
+        try {
+            return lmdbEnvironment.getWithReadTxn(readTxn -> {
+                final boolean isComplete = processingInfoDb.get(readTxn, refStreamDefinition)
+                        .map(RefDataProcessingInfo::getProcessingState)
+                        .filter(ProcessingState.COMPLETE::equals)
+                        .isPresent();
+                if (!isComplete) {
+                    LOGGER.debug("Not exporting {} as it is not fully loaded", refStreamDefinition);
+                    return false;
+                }
+
+                try (final RefDataSnapshot.Writer writer = new RefDataSnapshot.Writer(
+                        outputStream, refStreamDefinition)) {
+                    for (final MapDefinition mapDefinition : mapDefinitionUIDStore.getMapDefinitions(
+                            readTxn, refStreamDefinition)) {
+                        final Optional<UID> optMapUid = mapDefinitionUIDStore.get(readTxn, mapDefinition);
+                        if (optMapUid.isPresent()) {
+                            writer.writeMap(mapDefinition.getMapName());
+                            keyValueStoreDb.forEachEntry(readTxn, optMapUid.get(), (key, valueStoreKeyBuffer) ->
+                                    valueStore.getTypedValueBuffer(readTxn, valueStoreKeyBuffer)
+                                            .ifPresent(typedValueBuffer ->
+                                                    writeSnapshotEntry(() ->
+                                                            writer.writeKeyValue(key, typedValueBuffer))));
+                            rangeStoreDb.forEachEntry(readTxn, optMapUid.get(), (range, valueStoreKeyBuffer) ->
+                                    valueStore.getTypedValueBuffer(readTxn, valueStoreKeyBuffer)
+                                            .ifPresent(typedValueBuffer ->
+                                                    writeSnapshotEntry(() ->
+                                                            writer.writeRangeValue(range, typedValueBuffer))));
+                        }
+                    }
+                    writer.finish();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                LOGGER.debug("Exported snapshot of {}", refStreamDefinition);
+                return true;
+            });
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeSnapshotEntry(final SnapshotEntryWriter snapshotEntryWriter) {
+        try {
+            snapshotEntryWriter.write();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Load the entries from a {@link RefDataSnapshot} produced by
+     * {@link RefDataOffHeapStore#exportSnapshot(RefStreamDefinition, OutputStream)} using refDataLoader.
+     * The snapshot must be for the same ref stream and pipeline version as refDataLoader. If the snapshot
+     * can't be read in full the load is completed as {@link ProcessingState#TERMINATED} so the ref stream
+     * can be loaded again by other means.
+     */
+    public void importSnapshot(final InputStream inputStream,
+                               final RefDataLoader refDataLoader) throws IOException {
+        final RefStreamDefinition refStreamDefinition = refDataLoader.getRefStreamDefinition();
+        try (final RefDataSnapshot.Reader reader = new RefDataSnapshot.Reader(inputStream)) {
+            final RefStreamDefinition snapshotRefStreamDefinition = reader.getRefStreamDefinition();
+            if (!isSameRefStream(snapshotRefStreamDefinition, refStreamDefinition)) {
+                throw new IOException(LogUtil.message("Snapshot is for {}, expecting {}",
+                        snapshotRefStreamDefinition, refStreamDefinition));
+            }
+
+            refDataLoader.initialise(false);
+            try {
+                readSnapshotEntries(reader, refDataLoader);
+            } catch (final IOException | RuntimeException e) {
+                refDataLoader.completeProcessing(ProcessingState.TERMINATED);
+                throw e;
+            }
+            refDataLoader.completeProcessing(ProcessingState.COMPLETE);
+        }
+    }
+
+    private void readSnapshotEntries(final RefDataSnapshot.Reader reader,
+                                     final RefDataLoader refDataLoader) throws IOException {
+        final RefStreamDefinition refStreamDefinition = refDataLoader.getRefStreamDefinition();
+        final Map<String, MapDefinition> mapDefinitions = new HashMap<>();
+
+        reader.readEntries(new RefDataSnapshot.EntryHandler() {
+            @Override
+            public void onKeyValue(final String mapName,
+                                   final String key,
+                                   final int typeId,
+                                   final ByteBuffer valueBuffer) {
+                refDataLoader.put(
+                        mapDefinitions.computeIfAbsent(mapName, name ->
+                                new MapDefinition(refStreamDefinition, name)),
+                        key,
+                        refDataValueSerdeFactory.deserialize(valueBuffer, typeId));
+            }
+
+            @Override
+            public void onRangeValue(final String mapName,
+                                     final Range<Long> range,
+                                     final int typeId,
+                                     final ByteBuffer valueBuffer) {
+                refDataLoader.put(
+                        mapDefinitions.computeIfAbsent(mapName, name ->
+                                new MapDefinition(refStreamDefinition, name)),
+                        range,
+                        refDataValueSerdeFactory.deserialize(valueBuffer, typeId));
+            }
+        });
+    }
+
+    private boolean isSameRefStream(final RefStreamDefinition refStreamDefinition1,
+                                    final RefStreamDefinition refStreamDefinition2) {
+        // The pipeline DocRef in the snapshot only has a uuid so compare on that
+        return Objects.equals(refStreamDefinition1.getPipelineDocRef().getUuid(),
+                refStreamDefinition2.getPipelineDocRef().getUuid())
+                && Objects.equals(refStreamDefinition1.getPipelineVersion(),
+                refStreamDefinition2.getPipelineVersion())
+                && refStreamDefinition1.getStreamId() == refStreamDefinition2.getStreamId()
+                && refStreamDefinition1.getPartIndex() == refStreamDefinition2.getPartIndex();
+    }
+
     /**
      * Intended only for testing use.
      */
@@ -411,6 +582,16 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         });
     }
 
+    private boolean isDefinitelyAbsent(final MapDefinition mapDefinition, final String key) {
+        return mapBloomFilterCache.isDefinitelyAbsent(mapDefinition, key, this::getMapBloomFilter);
+    }
+
+    private Optional<MapBloomFilter> getMapBloomFilter(final MapDefinition mapDefinition) {
+        return lmdbEnvironment.getWithReadTxn(readTxn ->
+                mapDefinitionUIDStore.get(readTxn, mapDefinition)
+                        .flatMap(mapUid -> mapBloomFilterDb.get(readTxn, mapUid)));
+    }
+
     private Optional<ByteBuffer> getValueStoreKey(final Txn<ByteBuffer> readTxn,
                                                   final MapDefinition mapDefinition,
                                                   final String key) {
@@ -477,6 +658,18 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         // The consumer gets only the value, not the type or ref count and has to understand how
         // to interpret the bytes in the buffer
 
+        final Optional<TypedByteBuffer> optCachedValueBuf = refDataValueCache.getTypedValueBuffer(mapDefinition, key);
+        if (optCachedValueBuf.isPresent()) {
+            LOGGER.trace("consumeValueBytes({}, {}) - true (cached)", mapDefinition, key);
+            valueBytesConsumer.accept(optCachedValueBuf.get());
+            return true;
+        }
+
+        if (isDefinitelyAbsent(mapDefinition, key)) {
+            LOGGER.trace("consumeValueBytes({}, {}) - false (bloom filter)", mapDefinition, key);
+            return false;
+        }
+
         try (PooledByteBuffer valueStoreKeyPooledBufferClone = valueStore.getPooledKeyBuffer()) {
             boolean wasValueFound = lmdbEnvironment.getWithReadTxn(txn ->
                     getValueStoreKey(txn, mapDefinition, key)
@@ -491,6 +684,8 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                             .flatMap(valueStoreKeyBuf ->
                                     valueStore.getTypedValueBuffer(txn, valueStoreKeyBuf))
                             .map(valueBuf -> {
+                                // Cache a copy before the consumer moves the buffer position
+                                refDataValueCache.put(mapDefinition, key, valueBuf);
                                 valueBytesConsumer.accept(valueBuf);
                                 return true;
                             })
@@ -616,6 +811,11 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
     protected RefDataLoader loader(final RefStreamDefinition refStreamDefinition,
                                    final long effectiveTimeMs) {
         //TODO should we pass in an ErrorReceivingProxy so we can log errors with it?
+
+        // The load may replace values for this stream so make sure we don't serve stale ones
+        refDataValueCache.invalidate(refStreamDefinition);
+        mapBloomFilterCache.invalidate(refStreamDefinition);
+
         RefDataLoader refDataLoader = new OffHeapRefDataLoader(
                 this,
                 refStreamDefStripedReentrantLock,
@@ -624,6 +824,8 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                 valueStore,
                 mapDefinitionUIDStore,
                 processingInfoDb,
+                mapBloomFilterDb,
+                mapBloomFilterCache,
                 lmdbEnvironment,
                 refStreamDefinition,
                 effectiveTimeMs);
@@ -932,6 +1134,9 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
             // Ensure we commit at the end of each ref stream
             batchingWriteTxn.commit();
 
+            refDataValueCache.invalidate(refStreamDefinition);
+            mapBloomFilterCache.invalidate(refStreamDefinition);
+
             LOGGER.info("Completed purge of refStreamDefinition with stream {} (" +
                             "{} maps deleted, {} values deleted, {} values de-referenced)",
                     refStreamDefinition.getStreamId(),
@@ -1083,6 +1288,7 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                 });
         LOGGER.debug("Deleting range/value entries and de-referencing/deleting their values");
 
+        mapBloomFilterDb.delete(batchingWriteTxn.getTxn(), mapUid);
         mapDefinitionUIDStore.deletePair(batchingWriteTxn.getTxn(), mapUid);
 
         return Tuple.of(valueEntryDeleteCount.intValue(), valueEntryDeReferenceCount.intValue());
@@ -1564,4 +1770,10 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                     && valuesDeReferencedCount == 0;
         }
     }
+
+    @FunctionalInterface
+    private interface SnapshotEntryWriter {
+
+        void write() throws IOException;
+    }
 }
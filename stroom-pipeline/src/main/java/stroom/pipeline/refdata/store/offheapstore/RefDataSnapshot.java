@@ -0,0 +1,238 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.refdata.store.offheapstore;
+
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.util.logging.LogUtil;
+import stroom.util.shared.Range;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The serialised form of all the entries of a single loaded ref stream so they can be copied from the
+ * {@link RefDataOffHeapStore} on one node into the store on another without re-running the reference
+ * loader pipeline. The whole snapshot is gzipped.
+ * <pre>
+ * < magic >< version >< pipelineUuid >< pipelineVersion >< streamId >< partIndex >
+ * then for each map
+ *     < MAP >< mapName >
+ *     then for each entry
+ *         < KEY_VALUE >< key >< typeId >< valueLength >< value >
+ *         or
+ *         < RANGE_VALUE >< rangeFrom >< rangeTo >< typeId >< valueLength >< value >
+ * < END >
+ * </pre>
+ * Strings are written as an int length followed by the UTF8 bytes. The value bytes are the serialised
+ * form held in the value store so they are exported as is. On import each value is de-serialised so it
+ * can be loaded through a {@link stroom.pipeline.refdata.store.RefDataLoader}, which de-duplicates and
+ * stores it like any other loaded value.
+ */
+public final class RefDataSnapshot {
+
+    private static final int MAGIC = 0x52445353; // 'RDSS'
+    private static final byte VERSION = 1;
+
+    private static final byte END = 0;
+    private static final byte MAP = 1;
+    private static final byte KEY_VALUE = 2;
+    private static final byte RANGE_VALUE = 3;
+
+    private RefDataSnapshot() {
+    }
+
+    public static class Writer implements AutoCloseable {
+
+        private final DataOutputStream dataOutputStream;
+        private byte[] valueBytes = new byte[1024];
+
+        public Writer(final OutputStream outputStream,
+                      final RefStreamDefinition refStreamDefinition) throws IOException {
+            this.dataOutputStream = new DataOutputStream(
+                    new BufferedOutputStream(new GZIPOutputStream(outputStream)));
+            dataOutputStream.writeInt(MAGIC);
+            dataOutputStream.writeByte(VERSION);
+            writeString(refStreamDefinition.getPipelineDocRef().getUuid());
+            writeString(refStreamDefinition.getPipelineVersion());
+            dataOutputStream.writeLong(refStreamDefinition.getStreamId());
+            dataOutputStream.writeLong(refStreamDefinition.getPartIndex());
+        }
+
+        public void writeMap(final String mapName) throws IOException {
+            dataOutputStream.writeByte(MAP);
+            writeString(mapName);
+        }
+
+        public void writeKeyValue(final String key,
+                                  final TypedByteBuffer typedValueBuffer) throws IOException {
+            dataOutputStream.writeByte(KEY_VALUE);
+            writeString(key);
+            writeValue(typedValueBuffer);
+        }
+
+        public void writeRangeValue(final Range<Long> range,
+                                    final TypedByteBuffer typedValueBuffer) throws IOException {
+            dataOutputStream.writeByte(RANGE_VALUE);
+            dataOutputStream.writeLong(range.getFrom());
+            dataOutputStream.writeLong(range.getTo());
+            writeValue(typedValueBuffer);
+        }
+
+        private void writeValue(final TypedByteBuffer typedValueBuffer) throws IOException {
+            // Duplicate so we don't move the position of a buffer that belongs to LMDB
+            final ByteBuffer valueBuffer = typedValueBuffer.getByteBuffer().duplicate();
+            final int length = valueBuffer.remaining();
+            if (valueBytes.length < length) {
+                valueBytes = new byte[length];
+            }
+            valueBuffer.get(valueBytes, 0, length);
+
+            dataOutputStream.writeInt(typedValueBuffer.getTypeId());
+            dataOutputStream.writeInt(length);
+            dataOutputStream.write(valueBytes, 0, length);
+        }
+
+        private void writeString(final String str) throws IOException {
+            final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            dataOutputStream.writeInt(bytes.length);
+            dataOutputStream.write(bytes);
+        }
+
+        /**
+         * Write the end marker. Must be called once all maps have been written, otherwise the
+         * snapshot will be rejected as incomplete when read.
+         */
+        public void finish() throws IOException {
+            dataOutputStream.writeByte(END);
+        }
+
+        @Override
+        public void close() throws IOException {
+            dataOutputStream.close();
+        }
+    }
+
+    public static class Reader implements AutoCloseable {
+
+        private final DataInputStream dataInputStream;
+        private final RefStreamDefinition refStreamDefinition;
+        // Reused for each value, as LMDB needs a direct buffer. Entries are consumed one at a time
+        // so only the current value needs to be held.
+        private ByteBuffer valueBuffer = ByteBuffer.allocateDirect(1024);
+        private final byte[] chunk = new byte[8192];
+
+        public Reader(final InputStream inputStream) throws IOException {
+            this.dataInputStream = new DataInputStream(
+                    new BufferedInputStream(new GZIPInputStream(inputStream)));
+
+            final int magic = dataInputStream.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a reference data snapshot");
+            }
+            final byte version = dataInputStream.readByte();
+            if (version != VERSION) {
+                throw new IOException(LogUtil.message(
+                        "Unsupported reference data snapshot version {}, expecting {}", version, VERSION));
+            }
+            final String pipelineUuid = readString();
+            final String pipelineVersion = readString();
+            final long streamId = dataInputStream.readLong();
+            final long partIndex = dataInputStream.readLong();
+            this.refStreamDefinition = new RefStreamDefinition(
+                    pipelineUuid, pipelineVersion, streamId, partIndex);
+        }
+
+        public RefStreamDefinition getRefStreamDefinition() {
+            return refStreamDefinition;
+        }
+
+        /**
+         * Read all remaining entries from the snapshot, passing each one to entryHandler. The value
+         * buffer passed to entryHandler is only valid until the next call on entryHandler.
+         * Throws an {@link java.io.EOFException} if the snapshot is truncated.
+         */
+        public void readEntries(final EntryHandler entryHandler) throws IOException {
+            String mapName = null;
+            while (true) {
+                final byte entryType = dataInputStream.readByte();
+                if (entryType == END) {
+                    return;
+                } else if (entryType == MAP) {
+                    mapName = readString();
+                } else if (mapName == null) {
+                    throw new IOException("Entry found before any map in reference data snapshot");
+                } else if (entryType == KEY_VALUE) {
+                    final String key = readString();
+                    final int typeId = dataInputStream.readInt();
+                    entryHandler.onKeyValue(mapName, key, typeId, readValue());
+                } else if (entryType == RANGE_VALUE) {
+                    final Range<Long> range = new Range<>(dataInputStream.readLong(), dataInputStream.readLong());
+                    final int typeId = dataInputStream.readInt();
+                    entryHandler.onRangeValue(mapName, range, typeId, readValue());
+                } else {
+                    throw new IOException(LogUtil.message(
+                            "Unexpected entry type {} in reference data snapshot", entryType));
+                }
+            }
+        }
+
+        private ByteBuffer readValue() throws IOException {
+            final int length = dataInputStream.readInt();
+            if (valueBuffer.capacity() < length) {
+                valueBuffer = ByteBuffer.allocateDirect(Math.max(length, valueBuffer.capacity() * 2));
+            }
+            valueBuffer.clear();
+            int remaining = length;
+            while (remaining > 0) {
+                final int len = Math.min(remaining, chunk.length);
+                dataInputStream.readFully(chunk, 0, len);
+                valueBuffer.put(chunk, 0, len);
+                remaining -= len;
+            }
+            valueBuffer.flip();
+            return valueBuffer;
+        }
+
+        private String readString() throws IOException {
+            final byte[] bytes = new byte[dataInputStream.readInt()];
+            dataInputStream.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            dataInputStream.close();
+        }
+    }
+
+    public interface EntryHandler {
+
+        void onKeyValue(String mapName, String key, int typeId, ByteBuffer valueBuffer);
+
+        void onRangeValue(String mapName, Range<Long> range, int typeId, ByteBuffer valueBuffer);
+    }
+}
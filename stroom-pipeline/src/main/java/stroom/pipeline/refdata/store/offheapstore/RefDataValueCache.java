@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.pipeline.refdata.store.offheapstore;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.ICache;
+import stroom.pipeline.refdata.ReferenceDataConfig;
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefDataValue;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.pipeline.refdata.store.offheapstore.serdes.RefDataValueSerdeFactory;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.Clearable;
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * An on-heap cache of values from the {@link RefDataOffHeapStore} keyed on the {@link MapDefinition}
+ * (which includes the effective ref stream) and the lookup key.
+ * <p>
+ * Lookups tend to hit the same few thousand keys (hostnames, user IDs, etc.) many millions of times
+ * so holding a copy of the value bytes on heap saves us opening a read txn and doing three LMDB
+ * gets for each one. Only values that are found are cached and only if they are no bigger than
+ * {@link ReferenceDataConfig#getMaxCachedValueSize()} so that large XML fragments don't crowd out
+ * the small values that benefit most.
+ * <p>
+ * Entries for a ref stream are invalidated when the ref stream is loaded or purged.
+ */
+@Singleton
+public class RefDataValueCache implements Clearable, HasSystemInfo {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(RefDataValueCache.class);
+
+    private static final String CACHE_NAME = "Reference Data - Value Cache";
+
+    private final ICache<Key, CachedValue> cache;
+    private final Provider<ReferenceDataConfig> referenceDataConfigProvider;
+    private final RefDataValueSerdeFactory refDataValueSerdeFactory;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder tooLarge = new LongAdder();
+
+    @Inject
+    RefDataValueCache(final CacheManager cacheManager,
+                      final Provider<ReferenceDataConfig> referenceDataConfigProvider,
+                      final RefDataValueSerdeFactory refDataValueSerdeFactory) {
+        this.referenceDataConfigProvider = referenceDataConfigProvider;
+        this.refDataValueSerdeFactory = refDataValueSerdeFactory;
+        this.cache = cacheManager.create(CACHE_NAME, () -> referenceDataConfigProvider.get().getValueCache());
+    }
+
+    /**
+     * @return A buffer over a copy of the cached value bytes, which the caller is free to consume.
+     */
+    Optional<TypedByteBuffer> getTypedValueBuffer(final MapDefinition mapDefinition, final String key) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        final Optional<CachedValue> optCachedValue = cache.getOptional(new Key(mapDefinition, key));
+        if (optCachedValue.isPresent()) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return optCachedValue.map(cachedValue ->
+                new TypedByteBuffer(cachedValue.typeId, ByteBuffer.wrap(cachedValue.bytes)));
+    }
+
+    Optional<RefDataValue> getValue(final MapDefinition mapDefinition, final String key) {
+        return getTypedValueBuffer(mapDefinition, key)
+                .map(typedByteBuffer -> refDataValueSerdeFactory.deserialize(
+                        typedByteBuffer.getByteBuffer(),
+                        typedByteBuffer.getTypeId()));
+    }
+
+    /**
+     * Copy the value onto the heap and cache it. The position of the passed buffer is not changed.
+     * Must be called inside the txn that the value buffer belongs to.
+     */
+    void put(final MapDefinition mapDefinition, final String key, final TypedByteBuffer typedByteBuffer) {
+        if (isEnabled()) {
+            final ByteBuffer valueBuffer = typedByteBuffer.getByteBuffer().duplicate();
+            if (valueBuffer.remaining() > referenceDataConfigProvider.get().getMaxCachedValueSize()) {
+                tooLarge.increment();
+            } else {
+                final byte[] bytes = new byte[valueBuffer.remaining()];
+                valueBuffer.get(bytes);
+                cache.put(new Key(mapDefinition, key), new CachedValue(typedByteBuffer.getTypeId(), bytes));
+            }
+        }
+    }
+
+    /**
+     * Remove all cached values belonging to a ref stream, e.g. because it has been purged or reloaded.
+     */
+    void invalidate(final RefStreamDefinition refStreamDefinition) {
+        LOGGER.debug("Invalidating cached values for {}", refStreamDefinition);
+        cache.asMap().keySet().removeIf(key ->
+                refStreamDefinition.equals(key.mapDefinition.getRefStreamDefinition()));
+    }
+
+    private boolean isEnabled() {
+        final Long maximumSize = referenceDataConfigProvider.get().getValueCache().getMaximumSize();
+        return maximumSize == null || maximumSize > 0;
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        final long hitCount = hits.sum();
+        final long missCount = misses.sum();
+        final long total = hitCount + missCount;
+        return SystemInfoResult.builder(this)
+                .addDetail("Enabled", isEnabled())
+                .addDetail("Size", cache.size())
+                .addDetail("Hits", hitCount)
+                .addDetail("Misses", missCount)
+                .addDetail("Hit ratio", total == 0
+                        ? null
+                        : (double) hitCount / total)
+                .addDetail("Values too large to cache", tooLarge.sum())
+                .build();
+    }
+
+    private static final class Key {
+
+        private final MapDefinition mapDefinition;
+        private final String key;
+        private final int hashCode;
+
+        private Key(final MapDefinition mapDefinition, final String key) {
+            this.mapDefinition = mapDefinition;
+            this.key = key;
+            this.hashCode = Objects.hash(mapDefinition, key);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key that = (Key) o;
+            return Objects.equals(mapDefinition, that.mapDefinition) &&
+                    Objects.equals(key, that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return mapDefinition + " - " + key;
+        }
+    }
+
+    private static final class CachedValue {
+
+        private final int typeId;
+        private final byte[] bytes;
+
+        private CachedValue(final int typeId, final byte[] bytes) {
+            this.typeId = typeId;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -43,6 +43,8 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import javax.inject.Inject;
 
 public class KeyValueStoreDb extends AbstractLmdbDb<KeyValueStoreKey, ValueStoreKey> {
@@ -187,6 +189,55 @@ public class KeyValueStoreDb extends AbstractLmdbDb<KeyValueStoreKey, ValueStore
         return cnt;
     }
 
+    /**
+     * Pass the key part of every entry for mapUid to keyConsumer.
+     */
+    public void forEachKey(final Txn<ByteBuffer> readTxn,
+                           final UID mapUid,
+                           final Consumer<String> keyConsumer) {
+        try (final PooledByteBuffer startKeyBuffer = getPooledKeyBuffer();
+                final PooledByteBuffer endKeyBuffer = getPooledKeyBuffer()) {
+
+            final KeyRange<ByteBuffer> keyRange = buildSingleMapUidKeyRange(
+                    mapUid,
+                    startKeyBuffer.getByteBuffer(),
+                    endKeyBuffer.getByteBuffer());
+
+            try (CursorIterable<ByteBuffer> cursorIterable = getLmdbDbi().iterate(
+                    readTxn, keyRange)) {
+
+                for (final KeyVal<ByteBuffer> keyVal : cursorIterable) {
+                    keyConsumer.accept(keySerde.deserialize(keyVal.key()).getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Pass the key part and the value store key buffer of every entry for mapUid to entryConsumer.
+     * The value store key buffer is only valid for the life of readTxn and until the next entry.
+     */
+    public void forEachEntry(final Txn<ByteBuffer> readTxn,
+                             final UID mapUid,
+                             final BiConsumer<String, ByteBuffer> entryConsumer) {
+        try (final PooledByteBuffer startKeyBuffer = getPooledKeyBuffer();
+                final PooledByteBuffer endKeyBuffer = getPooledKeyBuffer()) {
+
+            final KeyRange<ByteBuffer> keyRange = buildSingleMapUidKeyRange(
+                    mapUid,
+                    startKeyBuffer.getByteBuffer(),
+                    endKeyBuffer.getByteBuffer());
+
+            try (CursorIterable<ByteBuffer> cursorIterable = getLmdbDbi().iterate(
+                    readTxn, keyRange)) {
+
+                for (final KeyVal<ByteBuffer> keyVal : cursorIterable) {
+                    entryConsumer.accept(keySerde.deserialize(keyVal.key()).getKey(), keyVal.val());
+                }
+            }
+        }
+    }
+
     private KeyRange<ByteBuffer> buildSingleMapUidKeyRange(final UID mapUid,
                                                            final ByteBuffer startKeyIncBuffer,
                                                            final ByteBuffer endKeyExcBuffer) {
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.refdata.store.offheapstore.databases;
+
+import stroom.bytebuffer.ByteBufferPool;
+import stroom.bytebuffer.PooledByteBuffer;
+import stroom.lmdb.AbstractLmdbDb;
+import stroom.lmdb.LmdbEnv;
+import stroom.lmdb.PutOutcome;
+import stroom.pipeline.refdata.store.offheapstore.MapBloomFilter;
+import stroom.pipeline.refdata.store.offheapstore.UID;
+import stroom.pipeline.refdata.store.offheapstore.serdes.MapBloomFilterSerde;
+import stroom.pipeline.refdata.store.offheapstore.serdes.UIDSerde;
+
+import com.google.inject.assistedinject.Assisted;
+import org.lmdbjava.Txn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import javax.inject.Inject;
+
+/**
+ * Holds a {@link MapBloomFilter} of the keys of each map, keyed on the map UID.
+ * <pre>
+ * < mapUid > => < MapBloomFilter >
+ * </pre>
+ */
+public class MapBloomFilterDb extends AbstractLmdbDb<UID, MapBloomFilter> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MapBloomFilterDb.class);
+
+    public static final String DB_NAME = "MapBloomFilter";
+
+    private final MapBloomFilterSerde valueSerde;
+
+    @Inject
+    public MapBloomFilterDb(@Assisted final LmdbEnv lmdbEnvironment,
+                            final ByteBufferPool byteBufferPool,
+                            final UIDSerde keySerde,
+                            final MapBloomFilterSerde valueSerde) {
+        super(lmdbEnvironment, byteBufferPool, keySerde, valueSerde, DB_NAME);
+        this.valueSerde = valueSerde;
+    }
+
+    /**
+     * Put the bloom filter for a map, replacing any existing one. The filter is serialised into
+     * a buffer of the exact size rather than a pooled buffer as it can be large.
+     */
+    public PutOutcome put(final Txn<ByteBuffer> writeTxn,
+                          final UID mapUid,
+                          final MapBloomFilter mapBloomFilter) {
+        try (final PooledByteBuffer pooledKeyBuffer = getPooledKeyBuffer()) {
+            final ByteBuffer keyBuffer = pooledKeyBuffer.getByteBuffer();
+            serializeKey(keyBuffer, mapUid);
+            final ByteBuffer valueBuffer = valueSerde.serialize(mapBloomFilter);
+            LOGGER.debug("Putting bloom filter for mapUid {}, {} bytes, {}",
+                    mapUid, valueBuffer.remaining(), mapBloomFilter);
+            return put(writeTxn, keyBuffer, valueBuffer, true);
+        }
+    }
+
+    public interface Factory {
+
+        MapBloomFilterDb create(final LmdbEnv lmdbEnvironment);
+    }
+}
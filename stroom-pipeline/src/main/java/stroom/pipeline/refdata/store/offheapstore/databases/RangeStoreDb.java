@@ -46,6 +46,7 @@ import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import javax.inject.Inject;
 
 public class RangeStoreDb extends AbstractLmdbDb<RangeStoreKey, ValueStoreKey> {
@@ -334,6 +335,31 @@ public class RangeStoreDb extends AbstractLmdbDb<RangeStoreKey, ValueStoreKey> {
         return cnt;
     }
 
+    /**
+     * Pass the range part and the value store key buffer of every entry for mapUid to entryConsumer.
+     * The value store key buffer is only valid for the life of readTxn and until the next entry.
+     */
+    public void forEachEntry(final Txn<ByteBuffer> readTxn,
+                             final UID mapUid,
+                             final BiConsumer<Range<Long>, ByteBuffer> entryConsumer) {
+        try (final PooledByteBuffer startKeyBuffer = getPooledKeyBuffer();
+                final PooledByteBuffer endKeyBuffer = getPooledKeyBuffer()) {
+
+            final KeyRange<ByteBuffer> keyRange = buildSingleMapUidKeyRange(
+                    mapUid,
+                    startKeyBuffer.getByteBuffer(),
+                    endKeyBuffer.getByteBuffer());
+
+            try (CursorIterable<ByteBuffer> cursorIterable = getLmdbDbi().iterate(
+                    readTxn, keyRange)) {
+
+                for (final KeyVal<ByteBuffer> keyVal : cursorIterable) {
+                    entryConsumer.accept(keySerde.deserialize(keyVal.key()).getKeyRange(), keyVal.val());
+                }
+            }
+        }
+    }
+
     private KeyRange<ByteBuffer> buildSingleMapUidKeyRange(final UID mapUid,
                                                            final ByteBuffer startKeyIncBuffer,
                                                            final ByteBuffer endKeyExcBuffer) {
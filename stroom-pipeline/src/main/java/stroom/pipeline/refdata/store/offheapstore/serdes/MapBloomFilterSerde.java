@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.refdata.store.offheapstore.serdes;
+
+import stroom.lmdb.serde.Serde;
+import stroom.pipeline.refdata.store.offheapstore.MapBloomFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The size of a {@link MapBloomFilter} depends on the number of keys in the map so can be far
+ * bigger than a pooled buffer. Use {@link MapBloomFilterSerde#serialize(MapBloomFilter)} to get
+ * a buffer of the right size.
+ */
+public class MapBloomFilterSerde implements Serde<MapBloomFilter> {
+
+    @Override
+    public MapBloomFilter deserialize(final ByteBuffer byteBuffer) {
+        final byte[] bytes = new byte[byteBuffer.remaining()];
+        byteBuffer.get(bytes);
+        byteBuffer.flip();
+        try {
+            return MapBloomFilter.readFrom(new ByteArrayInputStream(bytes));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Error de-serialising bloom filter", e);
+        }
+    }
+
+    @Override
+    public void serialize(final ByteBuffer byteBuffer, final MapBloomFilter mapBloomFilter) {
+        byteBuffer.put(toBytes(mapBloomFilter));
+        byteBuffer.flip();
+    }
+
+    /**
+     * @return A new direct buffer containing the serialised form, flipped and ready for reading.
+     */
+    public ByteBuffer serialize(final MapBloomFilter mapBloomFilter) {
+        final byte[] bytes = toBytes(mapBloomFilter);
+        final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(bytes.length);
+        byteBuffer.put(bytes);
+        byteBuffer.flip();
+        return byteBuffer;
+    }
+
+    private byte[] toBytes(final MapBloomFilter mapBloomFilter) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            mapBloomFilter.writeTo(outputStream);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Error serialising bloom filter", e);
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -1,6 +1,9 @@
 package stroom.pipeline.xsltfunctions;
 
+import stroom.util.guice.GuiceUtil;
+import stroom.util.guice.HasSystemInfoBinder;
 import stroom.util.pipeline.scope.PipelineScoped;
+import stroom.util.shared.Clearable;
 
 import net.sf.saxon.type.BuiltInAtomicType;
 import net.sf.saxon.value.SequenceType;
@@ -14,6 +17,12 @@ public class CommonXsltFunctionModule extends AbstractXsltFunctionModule {
     protected void configure() {
         bind(TaskScopeMap.class).in(PipelineScoped.class);
         super.configure();
+
+        GuiceUtil.buildMultiBinder(binder(), Clearable.class)
+                .addBinding(HttpCallResponseCache.class);
+
+        HasSystemInfoBinder.create(binder())
+                .bind(HttpCallResponseCache.class);
     }
 
     @Override
@@ -1,6 +1,8 @@
 package stroom.pipeline.xsltfunctions;
 
 import stroom.pipeline.errorhandler.ProcessException;
+import stroom.pipeline.xsltfunctions.HttpCallResponseCache.Key;
+import stroom.util.concurrent.UncheckedInterruptedException;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogUtil;
@@ -16,6 +18,8 @@ import net.sf.saxon.om.Item;
 import net.sf.saxon.om.Sequence;
 import net.sf.saxon.trans.XPathException;
 import net.sf.saxon.tree.tiny.TinyBuilder;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -28,6 +32,8 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import javax.inject.Inject;
 
 class HttpCall extends StroomExtensionFunctionCall {
@@ -41,10 +47,13 @@ class HttpCall extends StroomExtensionFunctionCall {
     private static final String HEADER_KV_DELIMITER = ":";
 
     private final HttpClientCache httpClientCache;
+    private final HttpCallResponseCache httpCallResponseCache;
 
     @Inject
-    HttpCall(final HttpClientCache httpClientCache) {
+    HttpCall(final HttpClientCache httpClientCache,
+             final HttpCallResponseCache httpCallResponseCache) {
         this.httpClientCache = httpClientCache;
+        this.httpCallResponseCache = httpCallResponseCache;
     }
 
     @Override
@@ -63,9 +72,16 @@ class HttpCall extends StroomExtensionFunctionCall {
 
         } else {
             try {
-                try (final Response response = execute(url, headers, mediaType, data, clientConfig)) {
-                    sequence = createSequence(context, response);
-                }
+                final HttpCallResponse response = httpCallResponseCache.get(
+                        new Key(clientConfig, url, headers, mediaType, data),
+                        httpClientCache.getResponseCacheTtl(clientConfig).orElse(null),
+                        () -> {
+                            try (final Response httpResponse =
+                                    execute(url, headers, mediaType, data, clientConfig)) {
+                                return HttpCallResponse.from(httpResponse);
+                            }
+                        });
+                sequence = createSequence(context, response);
             } catch (final Exception e) {
                 final String msg = buildErrorMessage(e);
                 LOGGER.trace(msg, e);
@@ -84,14 +100,17 @@ class HttpCall extends StroomExtensionFunctionCall {
 
     private String buildErrorMessage(final Throwable t) {
         // Config contains passwords so mask their values
-        final String cleanedErrorMsg = t.getMessage()
-                .replaceAll("(\"[^\"]+Password\"\\s*:\\s*)\"[^\"]+\"",
-                        "$1\"XXXXXX\"");
+        final String cleanedErrorMsg = maskPasswords(t.getMessage());
 
         return LogUtil.message(
                 "Error calling XSLT function {}(): {}", FUNCTION_NAME, cleanedErrorMsg);
     }
 
+    static String maskPasswords(final String text) {
+        return text.replaceAll("(\"[^\"]+Password\"\\s*:\\s*)\"[^\"]+\"",
+                "$1\"XXXXXX\"");
+    }
+
     Response execute(final String url,
                      final String headers,
                      final String mediaType,
@@ -121,16 +140,58 @@ class HttpCall extends StroomExtensionFunctionCall {
         }
 
         final Request request = builder.build();
+        final Call call = client.newCall(request);
 
         try {
-            return client.newCall(request).execute();
+            if (httpClientCache.isBounded(clientConfig)) {
+                return executeBounded(call);
+            }
+            return call.execute();
         } catch (IOException e) {
             throw new ProcessException(LogUtil.message(
                     "Error sending request to \"{}\": {}", url, e.getMessage()), e);
         }
     }
 
-    private Sequence createSequence(final XPathContext context, final Response response) throws SAXException {
+    /**
+     * Queue the call on the client's dispatcher, which limits how many calls run at once, and wait for
+     * the response.
+     */
+    private Response executeBounded(final Call call) throws IOException {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(final Call call, final IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(final Call call, final Response response) {
+                // Nobody will read the response if we have stopped waiting for it.
+                if (!future.complete(response)) {
+                    response.close();
+                }
+            }
+        });
+
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            future.cancel(false);
+            call.cancel();
+            throw UncheckedInterruptedException.create(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Sequence createSequence(final XPathContext context, final HttpCallResponse response)
+            throws SAXException {
         final Configuration configuration = context.getConfiguration();
         final PipelineConfiguration pipe = configuration.makePipelineConfiguration();
         final Builder builder = new TinyBuilder(pipe);
@@ -141,14 +202,14 @@ class HttpCall extends StroomExtensionFunctionCall {
 
         contentHandler.startDocument();
         startElement(contentHandler, "response");
-        data(contentHandler, "successful", String.valueOf(response.isSuccessful()));
+        data(contentHandler, "successful", String.valueOf(response.successful()));
         data(contentHandler, "code", String.valueOf(response.code()));
         data(contentHandler, "message", response.message());
 
         // Write headers.
-        if (response.headers() != null && response.headers().size() > 0) {
+        if (response.headers().size() > 0) {
             startElement(contentHandler, "headers");
-            for (final Entry<String, List<String>> entry : response.headers().toMultimap().entrySet()) {
+            for (final Entry<String, List<String>> entry : response.headers().entrySet()) {
                 final String key = entry.getKey();
                 for (final String value : entry.getValue()) {
                     startElement(contentHandler, "header");
@@ -160,13 +221,7 @@ class HttpCall extends StroomExtensionFunctionCall {
             endElement(contentHandler, "headers");
         }
 
-        try {
-            if (response.body() != null) {
-                data(contentHandler, "body", response.body().string());
-            }
-        } catch (final NullPointerException | IOException e) {
-            LOGGER.debug(e::getMessage, e);
-        }
+        data(contentHandler, "body", response.body());
 
         endElement(contentHandler, "response");
         contentHandler.endDocument();
@@ -0,0 +1,42 @@
+package stroom.pipeline.xsltfunctions;
+
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable copy of the parts of an HTTP response that the http-call function outputs so that
+ * responses can be cached and shared between callers.
+ */
+record HttpCallResponse(boolean successful,
+                        int code,
+                        String message,
+                        Map<String, List<String>> headers,
+                        String body) {
+
+    /**
+     * Copy a response, consuming its body. The caller is still responsible for closing the response.
+     *
+     * @throws IOException If the body can't be read, so that a partial response is never cached or
+     *                     shared with other callers.
+     */
+    static HttpCallResponse from(final Response response) throws IOException {
+        final Map<String, List<String>> headers = response.headers() == null
+                ? Collections.emptyMap()
+                : response.headers().toMultimap();
+
+        final String body = response.body() == null
+                ? null
+                : response.body().string();
+
+        return new HttpCallResponse(
+                response.isSuccessful(),
+                response.code(),
+                response.message(),
+                headers,
+                body);
+    }
+}
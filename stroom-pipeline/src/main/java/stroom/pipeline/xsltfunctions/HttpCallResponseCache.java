@@ -0,0 +1,197 @@
+package stroom.pipeline.xsltfunctions;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.ICache;
+import stroom.pipeline.PipelineConfig;
+import stroom.util.concurrent.UncheckedInterruptedException;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.Clearable;
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Caches the responses to http-call function requests for client configurations that have a
+ * response cache TTL so that enrichment pipelines that call a service for every record don't pay
+ * the round trip for requests they have already made. Identical requests that are made while a
+ * request is in flight wait for it and share its response rather than making their own.
+ * <p>
+ * Request counts and times are recorded for every client configuration, whether its responses are
+ * cached or not.
+ */
+@Singleton
+public class HttpCallResponseCache implements Clearable, HasSystemInfo {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(HttpCallResponseCache.class);
+
+    private static final String CACHE_NAME = "Http Call Response Cache";
+
+    private final ICache<Key, CachedResponse> cache;
+    private final Map<Key, CompletableFuture<HttpCallResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, ClientMetrics> clientMetricsMap = new ConcurrentHashMap<>();
+
+    @Inject
+    HttpCallResponseCache(final CacheManager cacheManager,
+                          final PipelineConfig pipelineConfig) {
+        cache = cacheManager.create(CACHE_NAME, pipelineConfig::getHttpCallResponseCache);
+    }
+
+    /**
+     * @param key              The request.
+     * @param responseCacheTtl How long the response can be cached for or null if it can't be cached.
+     * @param responseSupplier Makes the request if we don't already have a response for it.
+     */
+    HttpCallResponse get(final Key key,
+                         final Duration responseCacheTtl,
+                         final ResponseSupplier responseSupplier) throws IOException {
+        final ClientMetrics clientMetrics = clientMetricsMap.computeIfAbsent(key.clientConfig(),
+                k -> new ClientMetrics());
+        if (responseCacheTtl == null) {
+            return call(clientMetrics, responseSupplier);
+        }
+
+        final CachedResponse cachedResponse = cache.getOptional(key).orElse(null);
+        if (cachedResponse != null) {
+            if (cachedResponse.expiryTimeMs() > System.currentTimeMillis()) {
+                clientMetrics.hits.increment();
+                return cachedResponse.response();
+            }
+            cache.invalidate(key);
+        }
+
+        // Only make one request for identical calls that are made at the same time.
+        final CompletableFuture<HttpCallResponse> future = new CompletableFuture<>();
+        final CompletableFuture<HttpCallResponse> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            clientMetrics.coalesced.increment();
+            return await(existing);
+        }
+
+        clientMetrics.misses.increment();
+        try {
+            final HttpCallResponse response = call(clientMetrics, responseSupplier);
+            // Server errors are likely to be transient so don't hold on to them.
+            if (response.code() < 500) {
+                cache.put(key, new CachedResponse(response,
+                        System.currentTimeMillis() + responseCacheTtl.toMillis()));
+            }
+            future.complete(response);
+            return response;
+        } catch (final Throwable e) {
+            // Make sure callers waiting for this request are never left waiting whatever goes wrong.
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private HttpCallResponse call(final ClientMetrics clientMetrics,
+                                  final ResponseSupplier responseSupplier) throws IOException {
+        final long startTime = System.currentTimeMillis();
+        try {
+            return responseSupplier.get();
+        } finally {
+            final long durationMs = System.currentTimeMillis() - startTime;
+            clientMetrics.requests.increment();
+            clientMetrics.totalRequestTimeMs.add(durationMs);
+            clientMetrics.maxRequestTimeMs.accumulate(durationMs);
+        }
+    }
+
+    private HttpCallResponse await(final CompletableFuture<HttpCallResponse> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        } catch (final ExecutionException e) {
+            LOGGER.debug(e::getMessage, e);
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        final Map<String, Object> clients = new TreeMap<>();
+        clientMetricsMap.forEach((clientConfig, clientMetrics) -> {
+            final String name = clientConfig == null || clientConfig.isBlank()
+                    ? "default"
+                    : HttpCall.maskPasswords(clientConfig);
+            clients.put(name, clientMetrics.getDetails());
+        });
+
+        return SystemInfoResult.builder(this)
+                .addDetail("Size", cache.size())
+                .addDetail("In flight", inFlight.size())
+                .addDetail("Clients", clients)
+                .build();
+    }
+
+    record Key(String clientConfig,
+               String url,
+               String headers,
+               String mediaType,
+               String data) {
+
+    }
+
+    interface ResponseSupplier {
+
+        HttpCallResponse get() throws IOException;
+    }
+
+    private record CachedResponse(HttpCallResponse response, long expiryTimeMs) {
+
+    }
+
+    private static class ClientMetrics {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder totalRequestTimeMs = new LongAdder();
+        private final LongAccumulator maxRequestTimeMs = new LongAccumulator(Math::max, 0);
+
+        Map<String, Object> getDetails() {
+            final long requestCount = requests.sum();
+            final long totalTimeMs = totalRequestTimeMs.sum();
+            final Map<String, Object> details = new LinkedHashMap<>();
+            details.put("Hits", hits.sum());
+            details.put("Misses", misses.sum());
+            details.put("Coalesced", coalesced.sum());
+            details.put("Requests", requestCount);
+            details.put("Total request time ms", totalTimeMs);
+            details.put("Mean request time ms", requestCount == 0
+                    ? null
+                    : totalTimeMs / requestCount);
+            details.put("Max request time ms", maxRequestTimeMs.get());
+            return details;
+        }
+    }
+}
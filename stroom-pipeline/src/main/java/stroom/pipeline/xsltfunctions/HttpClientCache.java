@@ -31,6 +31,7 @@ import stroom.util.logging.LogUtil;
 import stroom.util.time.StroomDuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.OkHttpClient.Builder;
 import okhttp3.Protocol;
@@ -41,6 +42,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
@@ -57,7 +59,7 @@ public class HttpClientCache {
 
     private static final String CACHE_NAME = "Http Client Cache";
 
-    private final ICache<String, OkHttpClient> cache;
+    private final ICache<String, HttpClient> cache;
     private final PathCreator pathCreator;
 
     @Inject
@@ -69,12 +71,30 @@ public class HttpClientCache {
     }
 
     public OkHttpClient get(final String clientConfig) {
-        return cache.get(clientConfig);
+        return cache.get(clientConfig).client();
     }
 
-    private OkHttpClient create(final String clientConfigStr) {
+    /**
+     * @return How long responses to calls made with the supplied client configuration can be cached for,
+     * if at all.
+     */
+    public Optional<Duration> getResponseCacheTtl(final String clientConfig) {
+        return Optional.ofNullable(cache.get(clientConfig).responseCacheTtl());
+    }
+
+    /**
+     * @return True if calls made with the supplied client configuration must be queued on the client's
+     * dispatcher so that the number running at once is limited.
+     */
+    public boolean isBounded(final String clientConfig) {
+        return cache.get(clientConfig).bounded();
+    }
+
+    private HttpClient create(final String clientConfigStr) {
         LOGGER.debug(() -> "Creating client builder");
         final OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        Duration responseCacheTtl = null;
+        boolean bounded = false;
 
         if (clientConfigStr != null && !clientConfigStr.isBlank()) {
             final OkHttpClientConfig clientConfig;
@@ -100,10 +120,25 @@ public class HttpClientCache {
             configureHttpProtocolVersions(builder, clientConfig);
 
             applySslConfig(builder, clientConfig);
+
+            if (clientConfig.getResponseCacheTtl() != null
+                    && clientConfig.getResponseCacheTtl().getDuration().toMillis() > 0) {
+                responseCacheTtl = clientConfig.getResponseCacheTtl().getDuration();
+            }
+
+            // The dispatcher only limits calls that are enqueued rather than executed on the calling thread.
+            final Integer maxConcurrentRequests = clientConfig.getMaxConcurrentRequests();
+            if (maxConcurrentRequests != null && maxConcurrentRequests > 0) {
+                final Dispatcher dispatcher = new Dispatcher();
+                dispatcher.setMaxRequests(maxConcurrentRequests);
+                dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+                builder.dispatcher(dispatcher);
+                bounded = true;
+            }
         }
 
         LOGGER.debug(() -> "Creating client");
-        return builder.build();
+        return new HttpClient(builder.build(), responseCacheTtl, bounded);
     }
 
     private void applySslConfig(final Builder builder,
@@ -185,4 +220,8 @@ public class HttpClientCache {
             builder.protocols(protocols);
         }
     }
+
+    private record HttpClient(OkHttpClient client, Duration responseCacheTtl, boolean bounded) {
+
+    }
 }
@@ -17,6 +17,8 @@
 
 package stroom.pipeline.refdata.store;
 
+import stroom.cache.api.CacheManager;
+import stroom.cache.impl.CacheManagerImpl;
 import stroom.pipeline.refdata.ReferenceDataConfig;
 import stroom.pipeline.refdata.store.offheapstore.databases.AbstractStoreDbTest;
 import stroom.util.io.ByteSize;
@@ -63,6 +65,7 @@ public abstract class AbstractRefDataOffHeapStoreTest extends AbstractStoreDbTes
                     @Override
                     protected void configure() {
                         bind(ReferenceDataConfig.class).toInstance(referenceDataConfig);
+                        bind(CacheManager.class).to(CacheManagerImpl.class);
                         install(new RefDataStoreModule());
                         install(new PipelineScopeModule());
                     }
@@ -18,6 +18,8 @@
 package stroom.pipeline.refdata.store.offheapstore;
 
 import stroom.bytebuffer.ByteBufferPool;
+import stroom.cache.api.CacheManager;
+import stroom.cache.impl.CacheManagerImpl;
 import stroom.lmdb.PutOutcome;
 import stroom.pipeline.refdata.ReferenceDataConfig;
 import stroom.pipeline.refdata.ReferenceDataLmdbConfig;
@@ -34,6 +36,7 @@ import stroom.pipeline.refdata.store.RefStoreEntry;
 import stroom.pipeline.refdata.store.RefStreamDefinition;
 import stroom.pipeline.refdata.store.StringValue;
 import stroom.pipeline.refdata.store.offheapstore.databases.KeyValueStoreDb;
+import stroom.pipeline.refdata.store.offheapstore.databases.MapBloomFilterDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.MapUidForwardDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.MapUidReverseDb;
 import stroom.pipeline.refdata.store.offheapstore.databases.ProcessingInfoDb;
@@ -64,7 +67,10 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -94,6 +100,7 @@ import java.util.stream.Stream;
 import javax.inject.Inject;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class TestRefDataOffHeapStore extends StroomUnitTest {
 
@@ -149,6 +156,7 @@ class TestRefDataOffHeapStore extends StroomUnitTest {
                     @Override
                     protected void configure() {
                         bind(ReferenceDataConfig.class).toProvider(() -> getReferenceDataConfig());
+                        bind(CacheManager.class).to(CacheManagerImpl.class);
                         bind(HomeDirProvider.class).toInstance(() -> getCurrentTestDir());
                         bind(TempDirProvider.class).toInstance(() -> getCurrentTestDir());
                         bind(PathCreator.class).to(SimplePathCreator.class);
@@ -956,6 +964,154 @@ class TestRefDataOffHeapStore extends StroomUnitTest {
                 .isEqualTo((long) postPurgeRefStreamCount * entriesPerRefStream);
     }
 
+    @Test
+    void testBloomFilter() {
+        final RefStreamDefinition refStreamDefinition = buildUniqueRefStreamDefinition(1);
+        final MapDefinition keyValueMapDefinition = new MapDefinition(refStreamDefinition, "keyValueMap");
+        final MapDefinition mixedMapDefinition = new MapDefinition(refStreamDefinition, "mixedMap");
+
+        // Look up before the load so the absence of a bloom filter gets cached
+        assertThat(refDataStore.getValue(keyValueMapDefinition, "key1"))
+                .isEmpty();
+
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, System.currentTimeMillis(), loader -> {
+            loader.initialise(false);
+            for (int i = 0; i < 100; i++) {
+                loader.put(keyValueMapDefinition, buildKey(i), StringValue.of("value" + i));
+                loader.put(mixedMapDefinition, buildKey(i), StringValue.of("value" + i));
+            }
+            loader.put(mixedMapDefinition, Range.of(1_000L, 2_000L), StringValue.of("rangeValue"));
+            loader.completeProcessing();
+        });
+
+        assertThat(((RefDataOffHeapStore) refDataStore).getEntryCount(MapBloomFilterDb.DB_NAME))
+                .isEqualTo(2);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(refDataStore.getValue(keyValueMapDefinition, buildKey(i)))
+                    .hasValue(StringValue.of("value" + i));
+            assertThat(refDataStore.getValue(mixedMapDefinition, buildKey(i)))
+                    .hasValue(StringValue.of("value" + i));
+        }
+        assertThat(refDataStore.getValue(keyValueMapDefinition, "notAKey"))
+                .isEmpty();
+        assertThat(refDataStore.consumeValueBytes(keyValueMapDefinition, "notAKey", typedByteBuffer -> {
+        })).isFalse();
+
+        // The bloom filter can't say anything about ranges
+        assertThat(refDataStore.getValue(mixedMapDefinition, "1500"))
+                .hasValue(StringValue.of("rangeValue"));
+
+        refDataStore.purge(refStreamDefinition.getStreamId(), refStreamDefinition.getPartIndex());
+
+        assertThat(((RefDataOffHeapStore) refDataStore).getEntryCount(MapBloomFilterDb.DB_NAME))
+                .isZero();
+        assertThat(refDataStore.getValue(keyValueMapDefinition, buildKey(1)))
+                .isEmpty();
+    }
+
+    @Test
+    void testSnapshotExportAndImport() throws IOException {
+        final RefDataOffHeapStore refDataOffHeapStore = (RefDataOffHeapStore) refDataStore;
+        final RefStreamDefinition refStreamDefinition = buildUniqueRefStreamDefinition(1);
+        final MapDefinition keyValueMapDefinition = new MapDefinition(refStreamDefinition, "keyValueMap");
+        final MapDefinition rangeMapDefinition = new MapDefinition(refStreamDefinition, "rangeMap");
+
+        // Not loaded yet so nothing to export
+        assertThat(refDataOffHeapStore.exportSnapshot(refStreamDefinition, new ByteArrayOutputStream()))
+                .isFalse();
+
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, 123L, loader -> {
+            loader.initialise(false);
+            for (int i = 0; i < 100; i++) {
+                loader.put(keyValueMapDefinition, buildKey(i), StringValue.of("value" + i));
+            }
+            loader.put(rangeMapDefinition, Range.of(1_000L, 2_000L), StringValue.of("rangeValue1"));
+            loader.put(rangeMapDefinition, Range.of(2_000L, 3_000L), StringValue.of("rangeValue2"));
+            loader.completeProcessing();
+        });
+
+        final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        assertThat(refDataOffHeapStore.exportSnapshot(refStreamDefinition, snapshot))
+                .isTrue();
+
+        refDataStore.purge(refStreamDefinition.getStreamId(), refStreamDefinition.getPartIndex());
+        assertThat(refDataStore.getLoadState(refStreamDefinition))
+                .isEmpty();
+
+        // A snapshot for one ref stream can't be imported into another
+        final RefStreamDefinition otherRefStreamDefinition = buildUniqueRefStreamDefinition(2);
+        assertThatThrownBy(() ->
+                refDataStore.doWithLoaderUnlessComplete(otherRefStreamDefinition, 123L, loader -> {
+                    try {
+                        refDataOffHeapStore.importSnapshot(
+                                new ByteArrayInputStream(snapshot.toByteArray()), loader);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }))
+                .hasMessageContaining("Snapshot is for");
+
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, 123L, loader -> {
+            try {
+                refDataOffHeapStore.importSnapshot(new ByteArrayInputStream(snapshot.toByteArray()), loader);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        assertThat(refDataStore.getLoadState(refStreamDefinition))
+                .hasValue(ProcessingState.COMPLETE);
+        assertThat(refDataStore.getMapNames(refStreamDefinition))
+                .containsExactlyInAnyOrder(keyValueMapDefinition.getMapName(), rangeMapDefinition.getMapName());
+        for (int i = 0; i < 100; i++) {
+            assertThat(refDataStore.getValue(keyValueMapDefinition, buildKey(i)))
+                    .hasValue(StringValue.of("value" + i));
+        }
+        assertThat(refDataStore.getValue(rangeMapDefinition, "1500"))
+                .hasValue(StringValue.of("rangeValue1"));
+        assertThat(refDataStore.getValue(rangeMapDefinition, "2500"))
+                .hasValue(StringValue.of("rangeValue2"));
+        assertThat(refDataStore.getKeyValueEntryCount())
+                .isEqualTo(100);
+        assertThat(refDataStore.getKeyRangeValueEntryCount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void testSnapshotImport_truncated() throws IOException {
+        final RefDataOffHeapStore refDataOffHeapStore = (RefDataOffHeapStore) refDataStore;
+        final RefStreamDefinition refStreamDefinition = buildUniqueRefStreamDefinition(1);
+        final MapDefinition mapDefinition = new MapDefinition(refStreamDefinition, "map");
+
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, 123L, loader -> {
+            loader.initialise(false);
+            for (int i = 0; i < 1_000; i++) {
+                loader.put(mapDefinition, buildKey(i), StringValue.of("value" + i));
+            }
+            loader.completeProcessing();
+        });
+
+        final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        refDataOffHeapStore.exportSnapshot(refStreamDefinition, snapshot);
+        refDataStore.purge(refStreamDefinition.getStreamId(), refStreamDefinition.getPartIndex());
+
+        final byte[] truncatedSnapshot = Arrays.copyOf(snapshot.toByteArray(), snapshot.size() / 2);
+        assertThatThrownBy(() ->
+                refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, 123L, loader -> {
+                    try {
+                        refDataOffHeapStore.importSnapshot(new ByteArrayInputStream(truncatedSnapshot), loader);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }))
+                .isInstanceOf(RuntimeException.class);
+
+        // Left in a state where it can be loaded again
+        assertThat(refDataStore.getLoadState(refStreamDefinition))
+                .hasValue(ProcessingState.TERMINATED);
+    }
+
     /**
      * Make entryCount very big for manual performance testing or profiling
      * 50_000 takes about 4mins and makes a 250Mb db file.
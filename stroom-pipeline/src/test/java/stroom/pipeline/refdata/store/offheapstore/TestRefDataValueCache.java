@@ -0,0 +1,114 @@
+package stroom.pipeline.refdata.store.offheapstore;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.impl.CacheManagerImpl;
+import stroom.pipeline.refdata.ReferenceDataConfig;
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefDataValue;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.pipeline.refdata.store.StringValue;
+import stroom.pipeline.refdata.store.offheapstore.serdes.RefDataValueSerdeFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestRefDataValueCache {
+
+    private final RefStreamDefinition refStreamDefinition1 = new RefStreamDefinition(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            1L);
+    private final RefStreamDefinition refStreamDefinition2 = new RefStreamDefinition(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            2L);
+    private final MapDefinition mapDefinition1 = new MapDefinition(refStreamDefinition1, "map");
+    private final MapDefinition mapDefinition2 = new MapDefinition(refStreamDefinition2, "map");
+
+    private CacheManager cacheManager;
+    private RefDataValueCache refDataValueCache;
+
+    @BeforeEach
+    void setup() {
+        cacheManager = new CacheManagerImpl();
+        final ReferenceDataConfig referenceDataConfig = new ReferenceDataConfig();
+        refDataValueCache = new RefDataValueCache(
+                cacheManager,
+                () -> referenceDataConfig,
+                new RefDataValueSerdeFactory());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    void testPutAndGet() {
+        assertThat(refDataValueCache.getTypedValueBuffer(mapDefinition1, "key1")).isEmpty();
+
+        final ByteBuffer valueBuffer = stringValueBuffer("value1");
+        refDataValueCache.put(mapDefinition1, "key1", new TypedByteBuffer(StringValue.TYPE_ID, valueBuffer));
+
+        // Put must not move the position of the buffer it was given
+        assertThat(valueBuffer.position()).isZero();
+
+        final Optional<TypedByteBuffer> optTypedByteBuffer = refDataValueCache.getTypedValueBuffer(
+                mapDefinition1, "key1");
+        assertThat(optTypedByteBuffer).isPresent();
+        assertThat(optTypedByteBuffer.get().getTypeId()).isEqualTo(StringValue.TYPE_ID);
+        assertThat(StandardCharsets.UTF_8.decode(optTypedByteBuffer.get().getByteBuffer()).toString())
+                .isEqualTo("value1");
+
+        final Optional<RefDataValue> optRefDataValue = refDataValueCache.getValue(mapDefinition1, "key1");
+        assertThat(optRefDataValue)
+                .map(refDataValue -> ((StringValue) refDataValue).getValue())
+                .hasValue("value1");
+
+        // Same key in another ref stream is a different entry
+        assertThat(refDataValueCache.getTypedValueBuffer(mapDefinition2, "key1")).isEmpty();
+
+        assertThat(refDataValueCache.getSystemInfo().getDetails())
+                .containsEntry("Hits", 2L)
+                .containsEntry("Misses", 2L);
+    }
+
+    @Test
+    void testTooLarge() {
+        final String largeValue = "x".repeat(new ReferenceDataConfig().getMaxCachedValueSize() + 1);
+        refDataValueCache.put(mapDefinition1,
+                "key1",
+                new TypedByteBuffer(StringValue.TYPE_ID, stringValueBuffer(largeValue)));
+
+        assertThat(refDataValueCache.getTypedValueBuffer(mapDefinition1, "key1")).isEmpty();
+        assertThat(refDataValueCache.getSystemInfo().getDetails())
+                .containsEntry("Values too large to cache", 1L);
+    }
+
+    @Test
+    void testInvalidate() {
+        refDataValueCache.put(mapDefinition1,
+                "key1",
+                new TypedByteBuffer(StringValue.TYPE_ID, stringValueBuffer("value1")));
+        refDataValueCache.put(mapDefinition2,
+                "key1",
+                new TypedByteBuffer(StringValue.TYPE_ID, stringValueBuffer("value2")));
+
+        refDataValueCache.invalidate(refStreamDefinition1);
+
+        assertThat(refDataValueCache.getTypedValueBuffer(mapDefinition1, "key1")).isEmpty();
+        assertThat(refDataValueCache.getTypedValueBuffer(mapDefinition2, "key1")).isPresent();
+    }
+
+    private ByteBuffer stringValueBuffer(final String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,89 @@
+package stroom.pipeline.refdata.store.offheapstore.databases;
+
+import stroom.bytebuffer.ByteBufferPoolFactory;
+import stroom.pipeline.refdata.store.offheapstore.MapBloomFilter;
+import stroom.pipeline.refdata.store.offheapstore.UID;
+import stroom.pipeline.refdata.store.offheapstore.serdes.MapBloomFilterSerde;
+import stroom.pipeline.refdata.store.offheapstore.serdes.UIDSerde;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestMapBloomFilterDb extends AbstractStoreDbTest {
+
+    private static final int KEY_COUNT = 100_000;
+
+    private MapBloomFilterDb mapBloomFilterDb = null;
+
+    @BeforeEach
+    void setup() {
+        mapBloomFilterDb = new MapBloomFilterDb(
+                lmdbEnv,
+                new ByteBufferPoolFactory().getByteBufferPool(),
+                new UIDSerde(),
+                new MapBloomFilterSerde());
+    }
+
+    @Test
+    void testPutAndGet() {
+        final UID uid1 = UID.of(ByteBuffer.allocateDirect(UID.UID_ARRAY_LENGTH), 1, 0, 0, 1);
+        final UID uid2 = UID.of(ByteBuffer.allocateDirect(UID.UID_ARRAY_LENGTH), 2, 0, 0, 2);
+
+        // Far bigger than a pooled buffer once serialised
+        final MapBloomFilter mapBloomFilter1 = MapBloomFilter.create(KEY_COUNT, 0.01, false);
+        IntStream.range(0, KEY_COUNT)
+                .forEach(i -> mapBloomFilter1.put("key" + i));
+        final MapBloomFilter mapBloomFilter2 = MapBloomFilter.create(1, 0.01, true);
+        mapBloomFilter2.put("key0");
+
+        lmdbEnv.doWithWriteTxn(writeTxn -> {
+            mapBloomFilterDb.put(writeTxn, uid1, mapBloomFilter1);
+            mapBloomFilterDb.put(writeTxn, uid2, mapBloomFilter2);
+        });
+
+        final MapBloomFilter mapBloomFilter1b = mapBloomFilterDb.get(uid1).orElseThrow();
+        final MapBloomFilter mapBloomFilter2b = mapBloomFilterDb.get(uid2).orElseThrow();
+
+        assertThat(mapBloomFilter1b.hasRanges()).isFalse();
+        assertThat(mapBloomFilter2b.hasRanges()).isTrue();
+
+        // No false negatives
+        assertThat(IntStream.range(0, KEY_COUNT)
+                .filter(i -> mapBloomFilter1b.isDefinitelyAbsent("key" + i))
+                .count())
+                .isZero();
+
+        // Allow plenty of headroom over the 1% target
+        final long falsePositiveCount = IntStream.range(KEY_COUNT, KEY_COUNT * 2)
+                .filter(i -> !mapBloomFilter1b.isDefinitelyAbsent("key" + i))
+                .count();
+        assertThat(falsePositiveCount)
+                .isLessThan(KEY_COUNT / 50);
+
+        // Has ranges so can never be sure a key is absent
+        assertThat(mapBloomFilter2b.isDefinitelyAbsent("foo")).isFalse();
+    }
+
+    @Test
+    void testPutReplaces() {
+        final UID uid1 = UID.of(ByteBuffer.allocateDirect(UID.UID_ARRAY_LENGTH), 1, 0, 0, 1);
+
+        final MapBloomFilter mapBloomFilter1 = MapBloomFilter.create(1, 0.01, false);
+        mapBloomFilter1.put("key1");
+        final MapBloomFilter mapBloomFilter2 = MapBloomFilter.create(1, 0.01, false);
+        mapBloomFilter2.put("key2");
+
+        lmdbEnv.doWithWriteTxn(writeTxn -> {
+            mapBloomFilterDb.put(writeTxn, uid1, mapBloomFilter1);
+            mapBloomFilterDb.put(writeTxn, uid1, mapBloomFilter2);
+        });
+
+        assertThat(mapBloomFilterDb.getEntryCount()).isEqualTo(1);
+        assertThat(mapBloomFilterDb.get(uid1).orElseThrow().isDefinitelyAbsent("key2")).isFalse();
+    }
+}
@@ -17,6 +17,8 @@
 
 package stroom.pipeline.refdata.store.onheapstore;
 
+import stroom.cache.api.CacheManager;
+import stroom.cache.impl.CacheManagerImpl;
 import stroom.lmdb.PutOutcome;
 import stroom.pipeline.refdata.ReferenceDataConfig;
 import stroom.pipeline.refdata.store.MapDefinition;
@@ -108,6 +110,7 @@ class TestRefDataOnHeapStore {
                     @Override
                     protected void configure() {
                         bind(ReferenceDataConfig.class).toInstance(referenceDataConfig);
+                        bind(CacheManager.class).to(CacheManagerImpl.class);
                         bind(HomeDirProvider.class).toInstance(() -> tempDir);
                         bind(TempDirProvider.class).toInstance(() -> tempDir);
                         bind(PathCreator.class).to(SimplePathCreator.class);
@@ -0,0 +1,108 @@
+package stroom.pipeline.xsltfunctions;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.impl.CacheManagerImpl;
+import stroom.pipeline.PipelineConfig;
+import stroom.util.io.SimplePathCreator;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestHttpCallMaxConcurrentRequests {
+
+    private static final int CALLERS = 6;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService callerExecutor;
+    private String url;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), CALLERS);
+        server.createContext("/", exchange -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                // Hold on to the request so that unbounded callers would overlap.
+                Thread.sleep(50);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // The client can't start another request until it has this response.
+                active.decrementAndGet();
+            }
+            final byte[] bytes = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (final OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+            exchange.close();
+        });
+        serverExecutor = Executors.newFixedThreadPool(CALLERS);
+        server.setExecutor(serverExecutor);
+        server.start();
+        final InetSocketAddress address = server.getAddress();
+        url = "http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + "/";
+
+        callerExecutor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void afterEach() {
+        callerExecutor.shutdownNow();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void testMaxConcurrentRequests(@TempDir final Path tempDir) throws Exception {
+        try (final CacheManager cacheManager = new CacheManagerImpl()) {
+            final HttpCall httpCall = new HttpCall(
+                    new HttpClientCache(cacheManager,
+                            new PipelineConfig(),
+                            new SimplePathCreator(() -> tempDir, () -> tempDir)),
+                    new HttpCallResponseCache(cacheManager, new PipelineConfig()));
+
+            final List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try (final Response response = httpCall.execute(
+                            url, "", "", "", "{\"maxConcurrentRequests\": 1}")) {
+                        return HttpCallResponse.from(response).body();
+                    } catch (final IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }, callerExecutor));
+            }
+
+            for (final CompletableFuture<String> future : futures) {
+                assertThat(future.get(30, TimeUnit.SECONDS)).isEqualTo("ok");
+            }
+            // The service never saw more than one request at once.
+            assertThat(maxActive).hasValue(1);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package stroom.pipeline.xsltfunctions;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.impl.CacheManagerImpl;
+import stroom.pipeline.PipelineConfig;
+import stroom.pipeline.xsltfunctions.HttpCallResponseCache.Key;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestHttpCallResponseCache {
+
+    private static final Key KEY = new Key("", "http://localhost/lookup?id=1", "", "application/json", "");
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    @Test
+    void testCachesResponses() throws IOException {
+        try (final CacheManager cacheManager = new CacheManagerImpl()) {
+            final HttpCallResponseCache cache = new HttpCallResponseCache(cacheManager, new PipelineConfig());
+            final AtomicInteger calls = new AtomicInteger();
+
+            assertThat(cache.get(KEY, TTL, () -> response(200, calls)).body()).isEqualTo("1");
+            assertThat(cache.get(KEY, TTL, () -> response(200, calls)).body()).isEqualTo("1");
+            assertThat(calls).hasValue(1);
+
+            // Different requests have their own responses.
+            final Key otherKey = new Key("", "http://localhost/lookup?id=2", "", "application/json", "");
+            assertThat(cache.get(otherKey, TTL, () -> response(200, calls)).body()).isEqualTo("2");
+            assertThat(calls).hasValue(2);
+        }
+    }
+
+    @Test
+    void testNoTtl() throws IOException {
+        try (final CacheManager cacheManager = new CacheManagerImpl()) {
+            final HttpCallResponseCache cache = new HttpCallResponseCache(cacheManager, new PipelineConfig());
+            final AtomicInteger calls = new AtomicInteger();
+
+            cache.get(KEY, null, () -> response(200, calls));
+            cache.get(KEY, null, () -> response(200, calls));
+            assertThat(calls).hasValue(2);
+        }
+    }
+
+    @Test
+    void testServerErrorsNotCached() throws IOException {
+        try (final CacheManager cacheManager = new CacheManagerImpl()) {
+            final HttpCallResponseCache cache = new HttpCallResponseCache(cacheManager, new PipelineConfig());
+            final AtomicInteger calls = new AtomicInteger();
+
+            cache.get(KEY, TTL, () -> response(503, calls));
+            cache.get(KEY, TTL, () -> response(503, calls));
+            assertThat(calls).hasValue(2);
+
+            cache.get(KEY, TTL, () -> response(404, calls));
+            cache.get(KEY, TTL, () -> response(404, calls));
+            assertThat(calls).hasValue(3);
+        }
+    }
+
+    @Test
+    void testCoalescing() throws Exception {
+        try (final CacheManager cacheManager = new CacheManagerImpl()) {
+            final HttpCallResponseCache cache = new HttpCallResponseCache(cacheManager, new PipelineConfig());
+            final AtomicInteger calls = new AtomicInteger();
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+
+            final CompletableFuture<HttpCallResponse> first = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cache.get(KEY, TTL, () -> {
+                        started.countDown();
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return response(200, calls);
+                    });
+                } catch (final IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // The second caller should wait for the in flight request rather than making its own.
+            final CompletableFuture<HttpCallResponse> second = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cache.get(KEY, TTL, () -> response(200, calls));
+                } catch (final IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            awaitCoalesced(cache, 1);
+            release.countDown();
+
+            assertThat(first.get(10, TimeUnit.SECONDS).body()).isEqualTo("1");
+            assertThat(second.get(10, TimeUnit.SECONDS).body()).isEqualTo("1");
+            assertThat(calls).hasValue(1);
+            assertThat(getClientDetail(cache, "Misses")).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void testCoalescedCallersGetFailure() throws Exception {
+        try (final CacheManager cacheManager = new CacheManagerImpl()) {
+            final HttpCallResponseCache cache = new HttpCallResponseCache(cacheManager, new PipelineConfig());
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+
+            // Errors as well as exceptions must be passed on to callers waiting for the request.
+            final CompletableFuture<HttpCallResponse> first = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cache.get(KEY, TTL, () -> {
+                        started.countDown();
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new AssertionError("Failed");
+                    });
+                } catch (final IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            final CompletableFuture<HttpCallResponse> second = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cache.get(KEY, TTL, () -> {
+                        throw new IllegalStateException("Second caller should not make a request");
+                    });
+                } catch (final IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            awaitCoalesced(cache, 1);
+            release.countDown();
+
+            assertThatThrownBy(() -> first.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(AssertionError.class);
+            assertThatThrownBy(() -> second.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(AssertionError.class);
+        }
+    }
+
+    @Test
+    void testFailedReadsNotCached() throws IOException {
+        try (final CacheManager cacheManager = new CacheManagerImpl()) {
+            final HttpCallResponseCache cache = new HttpCallResponseCache(cacheManager, new PipelineConfig());
+            final AtomicInteger calls = new AtomicInteger();
+
+            assertThatThrownBy(() -> cache.get(KEY, TTL, () -> {
+                calls.incrementAndGet();
+                throw new IOException("Body read failed");
+            })).isInstanceOf(IOException.class);
+
+            assertThat(cache.get(KEY, TTL, () -> response(200, calls)).body()).isEqualTo("2");
+            assertThat(calls).hasValue(2);
+        }
+    }
+
+    private void awaitCoalesced(final HttpCallResponseCache cache, final long count) {
+        // Wait for the second caller to join the in flight request before letting it complete.
+        final long endTime = System.currentTimeMillis() + 10_000;
+        while (getClientDetail(cache, "Coalesced") < count) {
+            assertThat(System.currentTimeMillis()).isLessThan(endTime);
+            Thread.onSpinWait();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long getClientDetail(final HttpCallResponseCache cache, final String name) {
+        final Map<String, Object> clients = (Map<String, Object>) cache.getSystemInfo().getDetails().get("Clients");
+        final Map<String, Object> details = (Map<String, Object>) clients.get("default");
+        return (Long) details.get(name);
+    }
+
+    private HttpCallResponse response(final int code, final AtomicInteger calls) {
+        final int call = calls.incrementAndGet();
+        return new HttpCallResponse(code < 400, code, "", Collections.emptyMap(), String.valueOf(call));
+    }
+}
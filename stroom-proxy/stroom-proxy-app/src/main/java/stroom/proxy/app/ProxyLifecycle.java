@@ -8,6 +8,10 @@ import stroom.proxy.repo.AggregateForwarder;
 import stroom.proxy.repo.Aggregator;
 import stroom.proxy.repo.AggregatorConfig;
 import stroom.proxy.repo.Cleanup;
+import stroom.proxy.repo.DestinationBatchExecutor;
+import stroom.proxy.repo.DestinationBatchExecutor.DestinationBatchSupplier;
+import stroom.proxy.repo.ForwardDest;
+import stroom.proxy.repo.ForwardDestinationMetrics;
 import stroom.proxy.repo.FrequencyBatchExecutor;
 import stroom.proxy.repo.FrequencyExecutor;
 import stroom.proxy.repo.ParallelExecutor;
@@ -26,9 +30,13 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Provider;
 
@@ -54,7 +62,8 @@ public class ProxyLifecycle implements Managed {
                           final Provider<Cleanup> cleanupProvider,
                           final Provider<Set<Flushable>> flushableProvider,
                           final Provider<FileScanners> fileScannersProvider,
-                          final Provider<EventStore> eventStoreProvider) {
+                          final Provider<EventStore> eventStoreProvider,
+                          final ForwardDestinationMetrics forwardDestinationMetrics) {
 
         // Get forwarding destinations.
         final List<ForwardConfig> forwardDestinations = proxyConfig.getForwardDestinations();
@@ -66,6 +75,18 @@ public class ProxyLifecycle implements Managed {
 
             final long dbFlushFrequencyMs = proxyDbConfig.getFlushFrequency().toMillis();
 
+            // Each destination gets its own forwarding threads so a slow one can't hold up the others.
+            final Map<String, Integer> forwardThreadCounts = forwardDestinations
+                    .stream()
+                    .filter(forwardConfig -> forwardConfig.getThreadCount() != null)
+                    .collect(Collectors.toMap(ForwardConfig::getName, ForwardConfig::getThreadCount, (a, b) -> a));
+            final ToIntFunction<String> forwardThreadCount = destination ->
+                    Objects.requireNonNullElse(forwardThreadCounts.get(destination),
+                            threadConfig.getForwardThreadCount());
+            final ToIntFunction<String> forwardRetryThreadCount = destination ->
+                    threadConfig.getForwardRetryThreadCount();
+            final int forwardQueueSize = threadConfig.getForwardQueueSize();
+
             // Start looking at file store to add sources to the DB.
             final SequentialFileStore sequentialFileStore = sequentialFileStoreProvider.get();
             addParallelExecutor(
@@ -119,19 +140,23 @@ public class ProxyLifecycle implements Managed {
                         dbFlushFrequencyMs);
 
                 // Forward records.
-                addFrequencyBatchExecutor("AggregateForwarder - forwardNext",
-                        threadConfig.getForwardThreadCount(),
+                addDestinationBatchExecutor("AggregateForwarder - forwardNext",
+                        aggregateForwarder.getForwardDests(),
                         aggregateForwarder::getNewForwardAggregates,
+                        forwardThreadCount,
+                        forwardQueueSize,
                         aggregateForwarder::forward,
-                        dbFlushFrequencyMs);
+                        forwardDestinationMetrics);
 
                 // Retry forward records.
                 final long retryFrequency = proxyConfig.getRetryFrequency().toMillis();
-                addFrequencyBatchExecutor("AggregateForwarder - forwardRetry",
-                        threadConfig.getForwardRetryThreadCount(),
+                addDestinationBatchExecutor("AggregateForwarder - forwardRetry",
+                        aggregateForwarder.getForwardDests(),
                         aggregateForwarder::getRetryForwardAggregates,
+                        forwardRetryThreadCount,
+                        forwardQueueSize,
                         forwardAggregate -> aggregateForwarder.forwardRetry(forwardAggregate, retryFrequency),
-                        dbFlushFrequencyMs);
+                        forwardDestinationMetrics);
 
             } else {
                 // We are going to do source forwarding so reset aggregate forwarder.
@@ -146,19 +171,23 @@ public class ProxyLifecycle implements Managed {
                         dbFlushFrequencyMs);
 
                 // Forward records.
-                addFrequencyBatchExecutor("SourceForwarder - forwardNext",
-                        threadConfig.getForwardThreadCount(),
+                addDestinationBatchExecutor("SourceForwarder - forwardNext",
+                        sourceForwarder.getForwardDests(),
                         sourceForwarder::getNewForwardSources,
+                        forwardThreadCount,
+                        forwardQueueSize,
                         sourceForwarder::forward,
-                        dbFlushFrequencyMs);
+                        forwardDestinationMetrics);
 
                 // Retry forward records.
                 final long retryFrequency = proxyConfig.getRetryFrequency().toMillis();
-                addFrequencyBatchExecutor("SourceForwarder - forwardRetry",
-                        threadConfig.getForwardRetryThreadCount(),
+                addDestinationBatchExecutor("SourceForwarder - forwardRetry",
+                        sourceForwarder.getForwardDests(),
                         sourceForwarder::getRetryForwardSources,
+                        forwardRetryThreadCount,
+                        forwardQueueSize,
                         forwardSource -> sourceForwarder.forwardRetry(forwardSource, retryFrequency),
-                        dbFlushFrequencyMs);
+                        forwardDestinationMetrics);
             }
 
             addFrequencyExecutor("Cleanup - cleanupSources",
@@ -211,6 +240,24 @@ public class ProxyLifecycle implements Managed {
         services.add(executor);
     }
 
+    private <T> void addDestinationBatchExecutor(final String threadName,
+                                                 final List<ForwardDest> forwardDests,
+                                                 final DestinationBatchSupplier<T> supplier,
+                                                 final ToIntFunction<String> threadCountFunction,
+                                                 final int queueSize,
+                                                 final Consumer<T> consumer,
+                                                 final ForwardDestinationMetrics forwardDestinationMetrics) {
+        final DestinationBatchExecutor<T> executor = new DestinationBatchExecutor<>(
+                threadName,
+                forwardDests,
+                supplier,
+                threadCountFunction,
+                queueSize,
+                consumer,
+                forwardDestinationMetrics);
+        services.add(executor);
+    }
+
     @Override
     public void start() throws Exception {
         LOGGER.info("Starting Stroom Proxy");
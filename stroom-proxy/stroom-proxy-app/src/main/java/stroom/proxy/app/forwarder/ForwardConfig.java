@@ -15,4 +15,9 @@ public interface ForwardConfig {
     boolean isEnabled();
 
     String getName();
+
+    /**
+     * The number of threads to forward to this destination with or null to use the default.
+     */
+    Integer getThreadCount();
 }
@@ -17,15 +17,18 @@ public class ForwardFileConfig extends AbstractConfig implements ForwardConfig,
     private final boolean enabled;
     private final String name;
     private final String path;
+    private final Integer threadCount;
 
     @SuppressWarnings("unused")
     @JsonCreator
     public ForwardFileConfig(@JsonProperty("enabled") final boolean enabled,
                              @JsonProperty("name") final String name,
-                             @JsonProperty("path") final String path) {
+                             @JsonProperty("path") final String path,
+                             @JsonProperty("threadCount") final Integer threadCount) {
         this.enabled = enabled;
         this.name = name;
         this.path = path;
+        this.threadCount = threadCount;
     }
 
     /**
@@ -51,6 +54,12 @@ public class ForwardFileConfig extends AbstractConfig implements ForwardConfig,
         return path;
     }
 
+    @JsonProperty
+    @Override
+    public Integer getThreadCount() {
+        return threadCount;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -61,12 +70,12 @@ public class ForwardFileConfig extends AbstractConfig implements ForwardConfig,
         }
         final ForwardFileConfig that = (ForwardFileConfig) o;
         return enabled == that.enabled && Objects.equals(name, that.name) && Objects.equals(path,
-                that.path);
+                that.path) && Objects.equals(threadCount, that.threadCount);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(enabled, name, path);
+        return Objects.hash(enabled, name, path, threadCount);
     }
 
     @Override
@@ -75,6 +84,7 @@ public class ForwardFileConfig extends AbstractConfig implements ForwardConfig,
                 "enabled=" + enabled +
                 ", name='" + name + '\'' +
                 ", path='" + path + '\'' +
+                ", threadCount=" + threadCount +
                 '}';
     }
 }
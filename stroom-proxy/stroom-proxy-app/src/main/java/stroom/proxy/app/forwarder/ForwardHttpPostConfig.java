@@ -22,6 +22,7 @@ public class ForwardHttpPostConfig extends AbstractConfig implements ForwardConf
     private final Integer forwardTimeoutMs;
     private final Integer forwardDelayMs;
     private final Integer forwardChunkSize;
+    private final Integer threadCount;
     private SSLConfig sslConfig; // TODO : MAKE FINAL
 
     @SuppressWarnings("unused")
@@ -33,7 +34,8 @@ public class ForwardHttpPostConfig extends AbstractConfig implements ForwardConf
                                  @JsonProperty("forwardTimeoutMs") final Integer forwardTimeoutMs,
                                  @JsonProperty("forwardDelayMs") final Integer forwardDelayMs,
                                  @JsonProperty("forwardChunkSize") final Integer forwardChunkSize,
-                                 @JsonProperty("sslConfig") final SSLConfig sslConfig) {
+                                 @JsonProperty("sslConfig") final SSLConfig sslConfig,
+                                 @JsonProperty("threadCount") final Integer threadCount) {
         this.enabled = enabled;
         this.name = name;
         this.userAgent = userAgent;
@@ -42,6 +44,7 @@ public class ForwardHttpPostConfig extends AbstractConfig implements ForwardConf
         this.forwardDelayMs = forwardDelayMs;
         this.forwardChunkSize = forwardChunkSize;
         this.sslConfig = sslConfig;
+        this.threadCount = threadCount;
     }
 
     /**
@@ -108,6 +111,12 @@ public class ForwardHttpPostConfig extends AbstractConfig implements ForwardConf
         this.sslConfig = sslConfig;
     }
 
+    @JsonProperty
+    @Override
+    public Integer getThreadCount() {
+        return threadCount;
+    }
+
     public static ForwardHttpPostConfig withForwardUrl(final String name,
                                                 final String forwardUrl) {
         return new ForwardHttpPostConfig(
@@ -118,6 +127,7 @@ public class ForwardHttpPostConfig extends AbstractConfig implements ForwardConf
                 30_000,
                 null,
                 null,
+                null,
                 null);
     }
 
@@ -135,7 +145,8 @@ public class ForwardHttpPostConfig extends AbstractConfig implements ForwardConf
                 forwardTimeoutMs,
                 that.forwardTimeoutMs) && Objects.equals(forwardDelayMs,
                 that.forwardDelayMs) && Objects.equals(forwardChunkSize,
-                that.forwardChunkSize) && Objects.equals(sslConfig, that.sslConfig);
+                that.forwardChunkSize) && Objects.equals(sslConfig, that.sslConfig) && Objects.equals(
+                threadCount, that.threadCount);
     }
 
     @Override
@@ -147,7 +158,8 @@ public class ForwardHttpPostConfig extends AbstractConfig implements ForwardConf
                 forwardTimeoutMs,
                 forwardDelayMs,
                 forwardChunkSize,
-                sslConfig);
+                sslConfig,
+                threadCount);
     }
 
     @Override
@@ -161,6 +173,7 @@ public class ForwardHttpPostConfig extends AbstractConfig implements ForwardConf
                 ", forwardDelayMs=" + forwardDelayMs +
                 ", forwardChunkSize=" + forwardChunkSize +
                 ", sslConfig=" + sslConfig +
+                ", threadCount=" + threadCount +
                 '}';
     }
 }
@@ -4,11 +4,12 @@ import stroom.meta.api.AttributeMap;
 import stroom.meta.api.AttributeMapUtil;
 import stroom.meta.api.StandardHeaderArguments;
 import stroom.proxy.repo.LogStream;
+import stroom.proxy.repo.ZipStreamHandler;
+import stroom.receive.common.RawZipEntry;
 import stroom.receive.common.StreamHandler;
 import stroom.receive.common.StroomStreamException;
 import stroom.util.cert.SSLUtil;
 import stroom.util.concurrent.ThreadUtil;
-import stroom.util.io.StreamUtil;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 
@@ -22,8 +23,6 @@ import java.net.URL;
 import java.util.Map.Entry;
 import java.util.UUID;
 import java.util.function.Consumer;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 import javax.net.ssl.SSLSocketFactory;
 
 /**
@@ -38,9 +37,8 @@ public class ForwardStreamHandler implements StreamHandler {
     private final AttributeMap attributeMap;
     private final String forwardUrl;
     private final Integer forwardDelayMs;
-    private final byte[] buffer = new byte[StreamUtil.BUFFER_SIZE];
     private HttpURLConnection connection;
-    private final ZipOutputStream zipOutputStream;
+    private final ZipStreamHandler zipStreamHandler;
     private final long startTimeMs;
     private long totalBytesSent = 0;
 
@@ -94,27 +92,35 @@ public class ForwardStreamHandler implements StreamHandler {
             connection.setChunkedStreamingMode(forwardChunkSize);
         }
         connection.connect();
-        zipOutputStream = new ZipOutputStream(connection.getOutputStream());
+        zipStreamHandler = new ZipStreamHandler(connection.getOutputStream());
     }
 
     @Override
     public long addEntry(final String entry,
                          final InputStream inputStream,
                          final Consumer<Long> progressHandler) throws IOException {
-        // First call we set up if we are going to do chunked streaming
-        zipOutputStream.putNextEntry(new ZipEntry(entry));
-
-        final long bytesSent = StreamUtil.streamToStream(inputStream, zipOutputStream, buffer, progressHandler);
+        final long bytesSent = zipStreamHandler.addEntry(entry, inputStream, progressHandler);
         totalBytesSent += bytesSent;
+        delay();
+        return bytesSent;
+    }
 
+    @Override
+    public boolean addRawEntry(final String entry,
+                               final RawZipEntry rawZipEntry,
+                               final InputStream rawInputStream,
+                               final Consumer<Long> progressHandler) throws IOException {
+        zipStreamHandler.addRawEntry(entry, rawZipEntry, rawInputStream, progressHandler);
+        totalBytesSent += rawZipEntry.size();
+        delay();
+        return true;
+    }
+
+    private void delay() {
         if (forwardDelayMs != null) {
             LOGGER.debug(() -> "handleEntryData() - adding delay " + forwardDelayMs);
             ThreadUtil.sleep(forwardDelayMs);
         }
-
-        zipOutputStream.closeEntry();
-
-        return bytesSent;
     }
 
     void error() {
@@ -123,7 +129,7 @@ public class ForwardStreamHandler implements StreamHandler {
     }
 
     void close() throws IOException {
-        zipOutputStream.close();
+        zipStreamHandler.close();
         LOGGER.debug(() -> "handleFooter() - header fields " + connection.getHeaderFields());
         logAndDisconnect();
     }
@@ -4,6 +4,7 @@ import stroom.util.shared.AbstractConfig;
 import stroom.util.shared.IsProxyConfig;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 import javax.inject.Singleton;
@@ -15,6 +16,7 @@ public class ThreadConfig extends AbstractConfig implements IsProxyConfig {
     private int examineSourceThreadCount = 3;
     private int forwardThreadCount = 10;
     private int forwardRetryThreadCount = 2;
+    private int forwardQueueSize = 1000;
 
     @JsonProperty
     public int getExamineSourceThreadCount() {
@@ -27,6 +29,8 @@ public class ThreadConfig extends AbstractConfig implements IsProxyConfig {
     }
 
     @JsonProperty
+    @JsonPropertyDescription("The number of threads to forward data with for each forward destination. " +
+            "Can be overridden for individual destinations with their threadCount property.")
     public int getForwardThreadCount() {
         return forwardThreadCount;
     }
@@ -37,6 +41,7 @@ public class ThreadConfig extends AbstractConfig implements IsProxyConfig {
     }
 
     @JsonProperty
+    @JsonPropertyDescription("The number of threads to retry failed forwards with for each forward destination.")
     public int getForwardRetryThreadCount() {
         return forwardRetryThreadCount;
     }
@@ -45,4 +50,17 @@ public class ThreadConfig extends AbstractConfig implements IsProxyConfig {
     public void setForwardRetryThreadCount(final int forwardRetryThreadCount) {
         this.forwardRetryThreadCount = forwardRetryThreadCount;
     }
+
+    @JsonProperty
+    @JsonPropertyDescription("The maximum number of items to read from the store and queue for the threads " +
+            "of each forward destination. When a destination's queue is full no more items are read for it " +
+            "until there is space, the rest stay in the store, so a slow destination doesn't hold up the others.")
+    public int getForwardQueueSize() {
+        return forwardQueueSize;
+    }
+
+    @JsonProperty
+    public void setForwardQueueSize(final int forwardQueueSize) {
+        this.forwardQueueSize = forwardQueueSize;
+    }
 }
@@ -78,7 +78,7 @@ abstract class AbstractTestStoreAndForward {
                             .aggregationFrequency(StroomDuration.ofSeconds(1))
                             .build())
                     .addForwardDestination(new ForwardFileConfig(true, "test",
-                            FileUtil.getCanonicalPath(outDir)))
+                            FileUtil.getCanonicalPath(outDir), null))
                     .build();
 
             final Config config = new Config();
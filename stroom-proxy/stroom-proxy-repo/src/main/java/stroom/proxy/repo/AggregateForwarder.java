@@ -29,6 +29,7 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.net.HostNameUtil;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -51,6 +52,7 @@ public class AggregateForwarder {
     private final ForwarderDestinations forwarderDestinations;
     private final Sender sender;
     private final ProgressLog progressLog;
+    private final ForwardDestinationMetrics forwardDestinationMetrics;
 
     private volatile String hostName = null;
 
@@ -62,7 +64,8 @@ public class AggregateForwarder {
                        final ForwardDestinations forwardDestinations,
                        final ForwarderDestinations forwarderDestinations,
                        final Sender sender,
-                       final ProgressLog progressLog) {
+                       final ProgressLog progressLog,
+                       final ForwardDestinationMetrics forwardDestinationMetrics) {
         this.feedDao = feedDao;
         this.sourceItemDao = sourceItemDao;
         this.aggregator = aggregator;
@@ -72,6 +75,7 @@ public class AggregateForwarder {
         this.forwarderDestinations = forwarderDestinations;
         this.sender = sender;
         this.progressLog = progressLog;
+        this.forwardDestinationMetrics = forwardDestinationMetrics;
 
         init();
     }
@@ -125,6 +129,18 @@ public class AggregateForwarder {
         return forwardAggregateDao.getRetryForwardAggregate();
     }
 
+    public List<ForwardDest> getForwardDests() {
+        return forwardDestinations.getForwardDests();
+    }
+
+    public Batch<ForwardAggregate> getNewForwardAggregates(final ForwardDest forwardDest, final int limit) {
+        return forwardAggregateDao.getNewForwardAggregates(forwardDest, limit);
+    }
+
+    public Batch<ForwardAggregate> getRetryForwardAggregates(final ForwardDest forwardDest, final int limit) {
+        return forwardAggregateDao.getRetryForwardAggregate(forwardDest, limit);
+    }
+
     public void forwardRetry(final ForwardAggregate forwardAggregate,
                              final long retryFrequency) {
         final long oldest = System.currentTimeMillis() - retryFrequency;
@@ -140,6 +156,7 @@ public class AggregateForwarder {
     }
 
     public void forward(final ForwardAggregate forwardAggregate) {
+        final long startTime = System.currentTimeMillis();
         final Aggregate aggregate = forwardAggregate.getAggregate();
         final AtomicBoolean success = new AtomicBoolean();
         final AtomicReference<String> error = new AtomicReference<>();
@@ -195,6 +212,13 @@ public class AggregateForwarder {
                 .tries(forwardAggregate.getTries() + 1)
                 .build();
         forwardAggregateDao.update(updatedForwardAggregate);
+
+        forwardDestinationMetrics.recordForward(
+                forwardAggregate.getForwardDest().getName(),
+                startTime - forwardAggregate.getUpdateTimeMs(),
+                System.currentTimeMillis() - startTime,
+                success.get(),
+                forwardAggregate.getTries() > 0);
     }
 
     private String getHostName() {
@@ -0,0 +1,187 @@
+package stroom.proxy.repo;
+
+import stroom.proxy.repo.queue.Batch;
+import stroom.util.concurrent.UncheckedInterruptedException;
+import stroom.util.thread.CustomThreadFactory;
+import stroom.util.thread.StroomThreadGroup;
+
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Like {@link FrequencyBatchExecutor} but gives each forward destination its own bounded queue and
+ * pool of worker threads so that a slow destination can't hold up the others.
+ * <p>
+ * Each destination has a thread that reads items for that destination from the store and only reads
+ * as many as there is room for in the destination's queue. When a destination isn't keeping up the rest
+ * of its items are left in the store and are read once its workers have freed up space.
+ */
+public class DestinationBatchExecutor<T> implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DestinationBatchExecutor.class);
+
+    private final String threadName;
+    private final List<ForwardDest> forwardDests;
+    private final DestinationBatchSupplier<T> batchSupplier;
+    private final ToIntFunction<String> threadCountFunction;
+    private final int queueSize;
+    private final Consumer<T> consumer;
+    private final ForwardDestinationMetrics forwardDestinationMetrics;
+    private final List<ExecutorService> executorServices = new ArrayList<>();
+    private boolean stopped;
+
+    /**
+     * @param threadName                The base name to give threads.
+     * @param forwardDests              The destinations to read and process items for.
+     * @param batchSupplier             Supplies batches of items for a destination.
+     * @param threadCountFunction       Gets the number of worker threads to use for a destination.
+     * @param queueSize                 The maximum number of items to read from the store and queue for the
+     *                                  workers of each destination.
+     * @param consumer                  Processes an item.
+     * @param forwardDestinationMetrics Records the size of each destination queue.
+     */
+    public DestinationBatchExecutor(final String threadName,
+                                    final List<ForwardDest> forwardDests,
+                                    final DestinationBatchSupplier<T> batchSupplier,
+                                    final ToIntFunction<String> threadCountFunction,
+                                    final int queueSize,
+                                    final Consumer<T> consumer,
+                                    final ForwardDestinationMetrics forwardDestinationMetrics) {
+        this.threadName = threadName;
+        this.forwardDests = forwardDests;
+        this.batchSupplier = batchSupplier;
+        this.threadCountFunction = threadCountFunction;
+        this.queueSize = Math.max(1, queueSize);
+        this.consumer = consumer;
+        this.forwardDestinationMetrics = forwardDestinationMetrics;
+    }
+
+    private ThreadFactory createThreadFactory(final String name) {
+        return new CustomThreadFactory(
+                name + " ",
+                StroomThreadGroup.instance(),
+                Thread.NORM_PRIORITY - 1);
+    }
+
+    @Override
+    public synchronized void start() {
+        // Don't start threads that won't be stopped if we are shutting down.
+        if (stopped) {
+            return;
+        }
+
+        for (final ForwardDest forwardDest : forwardDests) {
+            final String destination = forwardDest.getName();
+            final int threadCount = Math.max(1, threadCountFunction.applyAsInt(destination));
+            LOGGER.info("Starting {} '{}' thread(s) for destination '{}'", threadCount, threadName, destination);
+
+            final DestinationQueue<T> queue = new DestinationQueue<>(queueSize);
+            forwardDestinationMetrics.registerQueue(destination, threadName, queue::size);
+
+            // One thread to fill the queue plus the workers.
+            final ExecutorService executorService = Executors.newFixedThreadPool(threadCount + 1,
+                    createThreadFactory(threadName + " - " + destination));
+            executorServices.add(executorService);
+            executorService.execute(() -> fillQueue(forwardDest, queue));
+            for (int i = 0; i < threadCount; i++) {
+                executorService.execute(() -> process(queue));
+            }
+        }
+    }
+
+    private void fillQueue(final ForwardDest forwardDest, final DestinationQueue<T> queue) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                queue.fill(limit -> batchSupplier.get(forwardDest, limit));
+            } catch (final InterruptedException e) {
+                throw UncheckedInterruptedException.create(e);
+            } catch (final RuntimeException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    private void process(final DestinationQueue<T> queue) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                final T t = queue.take();
+                consumer.accept(t);
+            } catch (final InterruptedException e) {
+                throw UncheckedInterruptedException.create(e);
+            } catch (final RuntimeException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        stopped = true;
+        executorServices.forEach(ExecutorService::shutdownNow);
+    }
+
+    /**
+     * Supplies the next batch of items for a destination, waiting until there is at least one.
+     */
+    public interface DestinationBatchSupplier<T> {
+
+        /**
+         * @param limit The maximum number of items to supply.
+         */
+        Batch<T> get(ForwardDest forwardDest, int limit);
+    }
+
+    /**
+     * A queue for the workers of one destination. Room for items is reserved before they are read from
+     * the store so that no more than the queue size are ever held in memory.
+     */
+    private static class DestinationQueue<T> {
+
+        private final BlockingQueue<T> queue = new LinkedBlockingQueue<>();
+        private final Semaphore space;
+
+        DestinationQueue(final int queueSize) {
+            space = new Semaphore(queueSize);
+        }
+
+        /**
+         * Wait for room in the queue and then add the items read for as much room as there is.
+         */
+        void fill(final IntFunction<Batch<T>> reader) throws InterruptedException {
+            space.acquire();
+            final int limit = 1 + space.drainPermits();
+            int added = 0;
+            try {
+                final List<T> items = reader.apply(limit).list();
+                queue.addAll(items);
+                added = items.size();
+            } finally {
+                // Give back any room we didn't use.
+                space.release(limit - added);
+            }
+        }
+
+        T take() throws InterruptedException {
+            final T item = queue.take();
+            space.release();
+            return item;
+        }
+
+        int size() {
+            return queue.size();
+        }
+    }
+}
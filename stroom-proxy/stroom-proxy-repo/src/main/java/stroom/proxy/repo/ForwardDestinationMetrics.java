@@ -0,0 +1,116 @@
+package stroom.proxy.repo;
+
+import stroom.util.HasHealthCheck;
+
+import com.codahale.metrics.health.HealthCheck;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.inject.Singleton;
+
+/**
+ * Records how each forward destination is keeping up so that a degraded destination can be
+ * spotted from the health check.
+ */
+@Singleton
+public class ForwardDestinationMetrics implements HasHealthCheck {
+
+    private final Map<String, DestinationMetrics> destinationMetricsMap = new ConcurrentHashMap<>();
+    private final long startTimeMs = System.currentTimeMillis();
+
+    /**
+     * @param destination The name of the forward destination.
+     * @param queueName   The name of the queue, e.g. new or retry.
+     * @param queueSize   Supplies the number of records currently queued for the destination.
+     */
+    public void registerQueue(final String destination,
+                              final String queueName,
+                              final IntSupplier queueSize) {
+        getDestinationMetrics(destination).queueSizes.put(queueName, queueSize);
+    }
+
+    /**
+     * @param destination The name of the forward destination.
+     * @param lagMs       How long the record waited since it was created or last tried.
+     * @param durationMs  How long it took to try and forward the record.
+     * @param success     Whether the record was forwarded.
+     * @param retry       Whether this was a retry of a record that failed before.
+     */
+    public void recordForward(final String destination,
+                              final long lagMs,
+                              final long durationMs,
+                              final boolean success,
+                              final boolean retry) {
+        final DestinationMetrics destinationMetrics = getDestinationMetrics(destination);
+        if (success) {
+            destinationMetrics.forwarded.increment();
+        } else {
+            destinationMetrics.failed.increment();
+        }
+        if (retry) {
+            destinationMetrics.retries.increment();
+        }
+        destinationMetrics.totalLagMs.add(lagMs);
+        destinationMetrics.maxLagMs.accumulate(lagMs);
+        destinationMetrics.totalForwardTimeMs.add(durationMs);
+        destinationMetrics.maxForwardTimeMs.accumulate(durationMs);
+    }
+
+    private DestinationMetrics getDestinationMetrics(final String destination) {
+        return destinationMetricsMap.computeIfAbsent(destination, k -> new DestinationMetrics());
+    }
+
+    @Override
+    public HealthCheck.Result getHealth() {
+        final long elapsedMs = Math.max(1, System.currentTimeMillis() - startTimeMs);
+        final Map<String, Object> destinations = new TreeMap<>();
+        destinationMetricsMap.forEach((destination, destinationMetrics) ->
+                destinations.put(destination, destinationMetrics.getDetails(elapsedMs)));
+
+        return HealthCheck.Result.builder()
+                .healthy()
+                .withDetail("destinations", destinations)
+                .build();
+    }
+
+    private static class DestinationMetrics {
+
+        private final Map<String, IntSupplier> queueSizes = new ConcurrentHashMap<>();
+        private final LongAdder forwarded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder totalLagMs = new LongAdder();
+        private final LongAccumulator maxLagMs = new LongAccumulator(Math::max, 0);
+        private final LongAdder totalForwardTimeMs = new LongAdder();
+        private final LongAccumulator maxForwardTimeMs = new LongAccumulator(Math::max, 0);
+
+        Map<String, Object> getDetails(final long elapsedMs) {
+            final long forwardedCount = forwarded.sum();
+            final long attempts = forwardedCount + failed.sum();
+
+            final Map<String, Object> queued = new TreeMap<>();
+            queueSizes.forEach((queueName, queueSize) -> queued.put(queueName, queueSize.getAsInt()));
+
+            final Map<String, Object> details = new LinkedHashMap<>();
+            details.put("queued", queued);
+            details.put("forwarded", forwardedCount);
+            details.put("failed", failed.sum());
+            details.put("retries", retries.sum());
+            details.put("forwardedPerSecond", forwardedCount * 1000 / elapsedMs);
+            details.put("meanLagMs", attempts == 0
+                    ? null
+                    : totalLagMs.sum() / attempts);
+            details.put("maxLagMs", maxLagMs.get());
+            details.put("meanForwardTimeMs", attempts == 0
+                    ? null
+                    : totalForwardTimeMs.sum() / attempts);
+            details.put("maxForwardTimeMs", maxForwardTimeMs.get());
+            return details;
+        }
+    }
+}
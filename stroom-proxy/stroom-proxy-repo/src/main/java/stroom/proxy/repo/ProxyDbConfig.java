@@ -12,6 +12,7 @@ import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 import java.util.List;
+import javax.validation.constraints.Pattern;
 
 @JsonPropertyOrder(alphabetic = true)
 public class ProxyDbConfig extends AbstractConfig implements IsProxyConfig {
@@ -38,6 +39,10 @@ public class ProxyDbConfig extends AbstractConfig implements IsProxyConfig {
     protected static final StroomDuration DEFAULT_FLUSH_FREQUENCY = StroomDuration.ofSeconds(1);
     protected static final StroomDuration DEFAULT_CLEANUP_FREQUENCY = StroomDuration.ofSeconds(1);
 
+    public static final String STORE_TYPE_SQLITE = "SQLITE";
+    public static final String STORE_TYPE_JOURNAL = "JOURNAL";
+    private static final String STORE_TYPE_PATTERN = "^(" + STORE_TYPE_SQLITE + "|" + STORE_TYPE_JOURNAL + ")$";
+
     private final String dbDir;
     private final List<String> globalPragma;
     private final List<String> connectionPragma;
@@ -47,6 +52,7 @@ public class ProxyDbConfig extends AbstractConfig implements IsProxyConfig {
 
     private final StroomDuration flushFrequency;
     private final StroomDuration cleanupFrequency;
+    private final String storeType;
 
     public ProxyDbConfig() {
         dbDir = "db";
@@ -57,6 +63,7 @@ public class ProxyDbConfig extends AbstractConfig implements IsProxyConfig {
         batchSize = DEFAULT_BATCH_SIZE;
         flushFrequency = DEFAULT_FLUSH_FREQUENCY;
         cleanupFrequency = DEFAULT_CLEANUP_FREQUENCY;
+        storeType = STORE_TYPE_SQLITE;
     }
 
     @JsonCreator
@@ -68,7 +75,8 @@ public class ProxyDbConfig extends AbstractConfig implements IsProxyConfig {
             @JsonProperty("maintenancePragmaFrequency") final StroomDuration maintenancePragmaFrequency,
             @JsonProperty("batchSize") final int batchSize,
             @JsonProperty("flushFrequency") final StroomDuration flushFrequency,
-            @JsonProperty("cleanupFrequency") final StroomDuration cleanupFrequency) {
+            @JsonProperty("cleanupFrequency") final StroomDuration cleanupFrequency,
+            @JsonProperty("storeType") final String storeType) {
         this.dbDir = dbDir;
         this.globalPragma = List.copyOf(globalPragma);
         this.connectionPragma = List.copyOf(connectionPragma);
@@ -81,6 +89,9 @@ public class ProxyDbConfig extends AbstractConfig implements IsProxyConfig {
         }
         this.flushFrequency = flushFrequency;
         this.cleanupFrequency = cleanupFrequency;
+        this.storeType = storeType == null
+                ? STORE_TYPE_SQLITE
+                : storeType;
     }
 
     @RequiresRestart(value = RestartScope.SYSTEM)
@@ -137,4 +148,18 @@ public class ProxyDbConfig extends AbstractConfig implements IsProxyConfig {
         return cleanupFrequency;
     }
 
+    @RequiresRestart(value = RestartScope.SYSTEM)
+    @JsonProperty
+    @JsonPropertyDescription("The store used to keep track of received data until it has been forwarded. " +
+            "Possible values are 'SQLITE' and 'JOURNAL', default is 'SQLITE'. 'JOURNAL' keeps the tables in memory " +
+            "and appends changes to a journal in the DB dir. When the journal grows larger than the last " +
+            "snapshot all tables are written to a new snapshot, which blocks all other access to the store while " +
+            "it is written, so the pause grows with the number of items held. An existing SQLite DB is migrated " +
+            "to the journal store on first startup and renamed with a '.migrated' suffix. There is no migration " +
+            "back to 'SQLITE'.")
+    @Pattern(regexp = STORE_TYPE_PATTERN)
+    public String getStoreType() {
+        return storeType;
+    }
+
 }
@@ -7,10 +7,27 @@ import stroom.db.util.AbstractDataSourceProviderModule;
 import stroom.db.util.DataSourceFactory;
 import stroom.db.util.DataSourceProxy;
 import stroom.db.util.FlywayUtil;
+import stroom.proxy.repo.dao.AggregateDao;
+import stroom.proxy.repo.dao.FeedDao;
 import stroom.proxy.repo.dao.ForwardAggregateDao;
+import stroom.proxy.repo.dao.ForwardDestDao;
 import stroom.proxy.repo.dao.ForwardSourceDao;
 import stroom.proxy.repo.dao.SourceDao;
 import stroom.proxy.repo.dao.SourceItemDao;
+import stroom.proxy.repo.dao.SqliteAggregateDao;
+import stroom.proxy.repo.dao.SqliteFeedDao;
+import stroom.proxy.repo.dao.SqliteForwardAggregateDao;
+import stroom.proxy.repo.dao.SqliteForwardDestDao;
+import stroom.proxy.repo.dao.SqliteForwardSourceDao;
+import stroom.proxy.repo.dao.SqliteSourceDao;
+import stroom.proxy.repo.dao.SqliteSourceItemDao;
+import stroom.proxy.repo.dao.journal.JournalAggregateDao;
+import stroom.proxy.repo.dao.journal.JournalFeedDao;
+import stroom.proxy.repo.dao.journal.JournalForwardAggregateDao;
+import stroom.proxy.repo.dao.journal.JournalForwardDestDao;
+import stroom.proxy.repo.dao.journal.JournalForwardSourceDao;
+import stroom.proxy.repo.dao.journal.JournalSourceDao;
+import stroom.proxy.repo.dao.journal.JournalSourceItemDao;
 import stroom.util.guice.GuiceUtil;
 import stroom.util.io.FileUtil;
 import stroom.util.logging.LambdaLogger;
@@ -24,11 +41,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 import javax.sql.DataSource;
 
 public class ProxyDbModule extends AbstractModule {
 
+    public static final String DB_FILE_NAME = "proxy-repo.db";
+
     private static final String MODULE = "stroom-proxy-repo";
     private static final String FLYWAY_LOCATIONS = "stroom/proxy/repo/db/sqlite";
     private static final String FLYWAY_TABLE = "proxy_repo_schema_history";
@@ -56,10 +76,85 @@ public class ProxyDbModule extends AbstractModule {
 
         final AbstractDbConfig config = getDbConfig(repoDbDirProvider);
         final DataSource dataSource = dataSourceFactory.create(config, MODULE, true);
-        FlywayUtil.migrate(dataSource, FLYWAY_LOCATIONS, FLYWAY_TABLE, MODULE);
+        migrateSchema(dataSource);
         return new DataSourceImpl(dataSource, proxyDbConfig);
     }
 
+    /**
+     * Bring the proxy repo DB schema up to date.
+     */
+    public static void migrateSchema(final DataSource dataSource) {
+        FlywayUtil.migrate(dataSource, FLYWAY_LOCATIONS, FLYWAY_TABLE, MODULE);
+    }
+
+    @Provides
+    @Singleton
+    FeedDao getFeedDao(final ProxyDbConfig proxyDbConfig,
+                       final Provider<SqliteFeedDao> sqliteProvider,
+                       final Provider<JournalFeedDao> journalProvider) {
+        return select(proxyDbConfig, sqliteProvider, journalProvider);
+    }
+
+    @Provides
+    @Singleton
+    ForwardDestDao getForwardDestDao(final ProxyDbConfig proxyDbConfig,
+                                     final Provider<SqliteForwardDestDao> sqliteProvider,
+                                     final Provider<JournalForwardDestDao> journalProvider) {
+        return select(proxyDbConfig, sqliteProvider, journalProvider);
+    }
+
+    @Provides
+    @Singleton
+    SourceDao getSourceDao(final ProxyDbConfig proxyDbConfig,
+                           final Provider<SqliteSourceDao> sqliteProvider,
+                           final Provider<JournalSourceDao> journalProvider) {
+        return select(proxyDbConfig, sqliteProvider, journalProvider);
+    }
+
+    @Provides
+    @Singleton
+    SourceItemDao getSourceItemDao(final ProxyDbConfig proxyDbConfig,
+                                   final Provider<SqliteSourceItemDao> sqliteProvider,
+                                   final Provider<JournalSourceItemDao> journalProvider) {
+        return select(proxyDbConfig, sqliteProvider, journalProvider);
+    }
+
+    @Provides
+    @Singleton
+    AggregateDao getAggregateDao(final ProxyDbConfig proxyDbConfig,
+                                 final Provider<SqliteAggregateDao> sqliteProvider,
+                                 final Provider<JournalAggregateDao> journalProvider) {
+        return select(proxyDbConfig, sqliteProvider, journalProvider);
+    }
+
+    @Provides
+    @Singleton
+    ForwardAggregateDao getForwardAggregateDao(final ProxyDbConfig proxyDbConfig,
+                                               final Provider<SqliteForwardAggregateDao> sqliteProvider,
+                                               final Provider<JournalForwardAggregateDao> journalProvider) {
+        return select(proxyDbConfig, sqliteProvider, journalProvider);
+    }
+
+    @Provides
+    @Singleton
+    ForwardSourceDao getForwardSourceDao(final ProxyDbConfig proxyDbConfig,
+                                         final Provider<SqliteForwardSourceDao> sqliteProvider,
+                                         final Provider<JournalForwardSourceDao> journalProvider) {
+        return select(proxyDbConfig, sqliteProvider, journalProvider);
+    }
+
+    /**
+     * Only the DAOs for the configured store are created so the other store is never opened.
+     */
+    private static <T> T select(final ProxyDbConfig proxyDbConfig,
+                                final Provider<? extends T> sqliteProvider,
+                                final Provider<? extends T> journalProvider) {
+        if (ProxyDbConfig.STORE_TYPE_JOURNAL.equals(proxyDbConfig.getStoreType())) {
+            return journalProvider.get();
+        }
+        return sqliteProvider.get();
+    }
+
     private AbstractDbConfig getDbConfig(final RepoDbDirProvider repoDbDirProvider) {
         final Path dbDir = repoDbDirProvider.get();
 
@@ -68,7 +163,7 @@ public class ProxyDbModule extends AbstractModule {
             throw new RuntimeException("Unable to find DB dir: " + FileUtil.getCanonicalPath(dbDir));
         }
 
-        final Path path = dbDir.resolve("proxy-repo.db");
+        final Path path = dbDir.resolve(DB_FILE_NAME);
         final String fullPath = FileUtil.getCanonicalPath(path);
 
         final ConnectionConfig connectionConfig = ConnectionConfig.builder()
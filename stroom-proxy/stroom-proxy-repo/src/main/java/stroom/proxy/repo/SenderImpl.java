@@ -6,12 +6,14 @@ import stroom.data.zip.StroomZipFileType;
 import stroom.proxy.repo.store.FileSet;
 import stroom.proxy.repo.store.SequentialFileStore;
 import stroom.receive.common.ProgressHandler;
+import stroom.receive.common.RawZipEntry;
 import stroom.receive.common.StreamHandler;
 import stroom.util.io.ByteCountInputStream;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.shared.ModelStringUtil;
 
+import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 
@@ -24,6 +26,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
 import javax.inject.Inject;
 
 public class SenderImpl implements Sender {
@@ -86,24 +89,27 @@ public class SenderImpl implements Sender {
                                 fullTargetName);
 
                         final ZipArchiveEntry zipArchiveEntry = zipFile.getEntry(fullSourceName);
-                        try (final ByteCountInputStream inputStream =
-                                new ByteCountInputStream(zipFile.getInputStream(zipArchiveEntry))) {
-                            LOGGER.debug(() -> "sendEntry() - " + fullTargetName);
-
-                            handler.addEntry(targetName + extension, inputStream, progressHandler);
-                            final long totalRead = inputStream.getCount();
-
-                            LOGGER.trace(() -> "sendEntry() - " +
-                                    fullTargetName +
-                                    " " +
-                                    ModelStringUtil.formatIECByteSizeString(
-                                            totalRead));
-
-                            if (totalRead == 0) {
-                                LOGGER.warn(() -> "sendEntry() - " + fullTargetName + " IS BLANK");
-                            }
-                            LOGGER.debug(() -> "sendEntry() - " + fullTargetName + " size is " + totalRead);
+                        LOGGER.debug(() -> "sendEntry() - " + fullTargetName);
+
+                        final long totalRead = sendEntry(
+                                fullTargetName,
+                                zipArchiveEntry,
+                                (entry, raw) -> raw
+                                        ? zipFile.getRawInputStream(entry)
+                                        : zipFile.getInputStream(entry),
+                                handler,
+                                progressHandler);
+
+                        LOGGER.trace(() -> "sendEntry() - " +
+                                fullTargetName +
+                                " " +
+                                ModelStringUtil.formatIECByteSizeString(
+                                        totalRead));
+
+                        if (totalRead == 0) {
+                            LOGGER.warn(() -> "sendEntry() - " + fullTargetName + " IS BLANK");
                         }
+                        LOGGER.debug(() -> "sendEntry() - " + fullTargetName + " size is " + totalRead);
 
                         progressLog.increment("AggregateForwarder - forwardAggregateEntry");
                     }
@@ -155,11 +161,60 @@ public class SenderImpl implements Sender {
                           final StroomZipFileType stroomZipFileType,
                           final StreamHandler handler,
                           final Consumer<Long> progressHandler) throws IOException {
-        try (final InputStream inputStream =
-                stroomZipFile.getInputStream(baseName, stroomZipFileType)) {
-            if (inputStream != null) {
-                handler.addEntry(baseName + stroomZipFileType.getExtension(), inputStream, progressHandler);
+        final ZipArchiveEntry zipArchiveEntry = stroomZipFile.getZipArchiveEntry(baseName, stroomZipFileType);
+        if (zipArchiveEntry != null) {
+            sendEntry(baseName + stroomZipFileType.getExtension(),
+                    zipArchiveEntry,
+                    (entry, raw) -> raw
+                            ? stroomZipFile.getRawInputStream(entry)
+                            : stroomZipFile.getInputStream(entry),
+                    handler,
+                    progressHandler);
+        }
+    }
+
+    /**
+     * Send an entry to the handler. If the handler can take it, the compressed data of the entry is
+     * copied as is rather than being decompressed for the handler to compress again.
+     *
+     * @return The uncompressed size of the entry.
+     */
+    private long sendEntry(final String targetName,
+                           final ZipArchiveEntry zipArchiveEntry,
+                           final EntryInputStreamProvider inputStreamProvider,
+                           final StreamHandler handler,
+                           final Consumer<Long> progressHandler) throws IOException {
+        if (canCopyRaw(zipArchiveEntry)) {
+            final RawZipEntry rawZipEntry = new RawZipEntry(
+                    zipArchiveEntry.getMethod(),
+                    zipArchiveEntry.getCrc(),
+                    zipArchiveEntry.getCompressedSize(),
+                    zipArchiveEntry.getSize());
+            try (final InputStream rawInputStream = inputStreamProvider.get(zipArchiveEntry, true)) {
+                if (handler.addRawEntry(targetName, rawZipEntry, rawInputStream, progressHandler)) {
+                    return zipArchiveEntry.getSize();
+                }
             }
         }
+
+        try (final ByteCountInputStream inputStream =
+                new ByteCountInputStream(inputStreamProvider.get(zipArchiveEntry, false))) {
+            handler.addEntry(targetName, inputStream, progressHandler);
+            return inputStream.getCount();
+        }
+    }
+
+    private boolean canCopyRaw(final ZipArchiveEntry zipArchiveEntry) {
+        // We need to know everything about the compressed data up front to write it to another zip.
+        return (zipArchiveEntry.getMethod() == ZipEntry.DEFLATED || zipArchiveEntry.getMethod() == ZipEntry.STORED)
+                && !zipArchiveEntry.getGeneralPurposeBit().usesEncryption()
+                && zipArchiveEntry.getCrc() != -1
+                && zipArchiveEntry.getCompressedSize() != ArchiveEntry.SIZE_UNKNOWN
+                && zipArchiveEntry.getSize() != ArchiveEntry.SIZE_UNKNOWN;
+    }
+
+    private interface EntryInputStreamProvider {
+
+        InputStream get(ZipArchiveEntry zipArchiveEntry, boolean raw) throws IOException;
     }
 }
@@ -28,6 +28,7 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.net.HostNameUtil;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -49,6 +50,7 @@ public class SourceForwarder {
     private final ForwarderDestinations forwarderDestinations;
     private final Sender sender;
     private final ProgressLog progressLog;
+    private final ForwardDestinationMetrics forwardDestinationMetrics;
 
     private volatile String hostName = null;
 
@@ -59,7 +61,8 @@ public class SourceForwarder {
                     final ForwardDestinations forwardDestinations,
                     final ForwarderDestinations forwarderDestinations,
                     final Sender sender,
-                    final ProgressLog progressLog) {
+                    final ProgressLog progressLog,
+                    final ForwardDestinationMetrics forwardDestinationMetrics) {
 
         this.feedDao = feedDao;
         this.sources = sources;
@@ -69,6 +72,7 @@ public class SourceForwarder {
         this.forwarderDestinations = forwarderDestinations;
         this.sender = sender;
         this.progressLog = progressLog;
+        this.forwardDestinationMetrics = forwardDestinationMetrics;
 
         init();
     }
@@ -132,6 +136,18 @@ public class SourceForwarder {
         return forwardSourceDao.getRetryForwardSources();
     }
 
+    public List<ForwardDest> getForwardDests() {
+        return forwardDestinations.getForwardDests();
+    }
+
+    public Batch<ForwardSource> getNewForwardSources(final ForwardDest forwardDest, final int limit) {
+        return forwardSourceDao.getNewForwardSources(forwardDest, limit);
+    }
+
+    public Batch<ForwardSource> getRetryForwardSources(final ForwardDest forwardDest, final int limit) {
+        return forwardSourceDao.getRetryForwardSources(forwardDest, limit);
+    }
+
     public void forwardRetry(final ForwardSource forwardSource,
                              final long retryFrequency) {
         final long oldest = System.currentTimeMillis() - retryFrequency;
@@ -147,6 +163,7 @@ public class SourceForwarder {
     }
 
     public void forward(final ForwardSource forwardSource) {
+        final long startTime = System.currentTimeMillis();
         final RepoSource source = forwardSource.getSource();
         final AtomicBoolean success = new AtomicBoolean();
         final AtomicReference<String> error = new AtomicReference<>();
@@ -197,6 +214,13 @@ public class SourceForwarder {
                 .tries(forwardSource.getTries() + 1)
                 .build();
         forwardSourceDao.update(updatedForwardAggregate);
+
+        forwardDestinationMetrics.recordForward(
+                forwardSource.getForwardDest().getName(),
+                startTime - forwardSource.getUpdateTimeMs(),
+                System.currentTimeMillis() - startTime,
+                success.get(),
+                forwardSource.getTries() > 0);
     }
 
     private String getHostName() {
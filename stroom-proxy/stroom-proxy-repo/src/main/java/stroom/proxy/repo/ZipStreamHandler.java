@@ -0,0 +1,59 @@
+package stroom.proxy.repo;
+
+import stroom.receive.common.RawZipEntry;
+import stroom.receive.common.StreamHandler;
+import stroom.util.io.StreamUtil;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Writes the entries it is given to a zip. Raw entries are copied into the zip as is.
+ * Progress is reported as uncompressed bytes for both kinds of entry.
+ */
+public class ZipStreamHandler implements StreamHandler, AutoCloseable {
+
+    private final byte[] buffer = new byte[StreamUtil.BUFFER_SIZE];
+    private final ZipArchiveOutputStream zipOutputStream;
+
+    public ZipStreamHandler(final OutputStream outputStream) {
+        this.zipOutputStream = new ZipArchiveOutputStream(outputStream);
+    }
+
+    @Override
+    public long addEntry(final String entry,
+                         final InputStream inputStream,
+                         final Consumer<Long> progressHandler) throws IOException {
+        zipOutputStream.putArchiveEntry(new ZipArchiveEntry(entry));
+        final long bytesWritten = StreamUtil.streamToStream(inputStream, zipOutputStream, buffer, progressHandler);
+        zipOutputStream.closeArchiveEntry();
+        return bytesWritten;
+    }
+
+    @Override
+    public boolean addRawEntry(final String entry,
+                               final RawZipEntry rawZipEntry,
+                               final InputStream rawInputStream,
+                               final Consumer<Long> progressHandler) throws IOException {
+        // The compressed data is copied as is so we only need to describe it in the new entry.
+        final ZipArchiveEntry zipArchiveEntry = new ZipArchiveEntry(entry);
+        zipArchiveEntry.setMethod(rawZipEntry.method());
+        zipArchiveEntry.setCrc(rawZipEntry.crc());
+        zipArchiveEntry.setCompressedSize(rawZipEntry.compressedSize());
+        zipArchiveEntry.setSize(rawZipEntry.size());
+        zipOutputStream.addRawArchiveEntry(zipArchiveEntry, rawInputStream);
+
+        progressHandler.accept(rawZipEntry.size());
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipOutputStream.close();
+    }
+}
@@ -1,171 +1,31 @@
 package stroom.proxy.repo.dao;
 
-import stroom.db.util.JooqUtil;
 import stroom.proxy.repo.Items;
-import stroom.proxy.repo.ProxyDbConfig;
 import stroom.proxy.repo.RepoSource;
 import stroom.proxy.repo.RepoSourceItem;
 import stroom.proxy.repo.RepoSourceItemRef;
 import stroom.proxy.repo.queue.Batch;
-import stroom.proxy.repo.queue.BindWriteQueue;
-import stroom.proxy.repo.queue.OperationWriteQueue;
-import stroom.proxy.repo.queue.ReadQueue;
-import stroom.proxy.repo.queue.RecordQueue;
-import stroom.proxy.repo.queue.WriteQueue;
-import stroom.util.logging.Metrics;
 import stroom.util.shared.Flushable;
 
-import org.jooq.DSLContext;
-import org.jooq.Field;
-
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
-import javax.inject.Inject;
-import javax.inject.Singleton;
-
-import static stroom.proxy.repo.db.jooq.tables.SourceItem.SOURCE_ITEM;
-
-@Singleton
-public class SourceItemDao implements Flushable {
-
-    private static final Field<?>[] SOURCE_ITEM_COLUMNS = new Field<?>[]{
-            SOURCE_ITEM.ID,
-            SOURCE_ITEM.NAME,
-            SOURCE_ITEM.EXTENSIONS,
-            SOURCE_ITEM.FK_FEED_ID,
-            SOURCE_ITEM.BYTE_SIZE,
-            SOURCE_ITEM.FK_SOURCE_ID,
-            SOURCE_ITEM.FILE_STORE_ID,
-            SOURCE_ITEM.FK_AGGREGATE_ID,
-            SOURCE_ITEM.NEW_POSITION};
-
-    private final SqliteJooqHelper jooq;
-
-    private final SourceDao sourceDao;
-
-    private final AtomicLong sourceItemId = new AtomicLong();
-    private final AtomicLong sourceItemNewPosition = new AtomicLong();
-
-    private final RecordQueue recordQueue;
-    private final OperationWriteQueue sourceUpdateQueue;
-    private final BindWriteQueue sourceItemQueue;
-    private final ReadQueue<RepoSourceItemRef> sourceItemReadQueue;
-
-    @Inject
-    SourceItemDao(final SqliteJooqHelper jooq,
-                  final SourceDao sourceDao,
-                  final ProxyDbConfig dbConfig) {
-        this.jooq = jooq;
-        this.sourceDao = sourceDao;
-        init();
-
-        sourceUpdateQueue = new OperationWriteQueue();
-        sourceItemQueue = new BindWriteQueue(SOURCE_ITEM, SOURCE_ITEM_COLUMNS);
-        final List<WriteQueue> writeQueues = List.of(sourceItemQueue, sourceUpdateQueue);
-
-        sourceItemReadQueue = new ReadQueue<>(this::read, dbConfig.getBatchSize());
-        final List<ReadQueue<?>> readQueues = List.of(sourceItemReadQueue);
-
-        recordQueue = new RecordQueue(jooq, writeQueues, readQueues, dbConfig.getBatchSize());
-    }
 
-    private long read(final long currentReadPos, final long limit, List<RepoSourceItemRef> readQueue) {
-        final AtomicLong pos = new AtomicLong(currentReadPos);
-        jooq.readOnlyTransactionResult(context -> context
-                        .select(SOURCE_ITEM.ID,
-                                SOURCE_ITEM.FK_FEED_ID,
-                                SOURCE_ITEM.BYTE_SIZE,
-                                SOURCE_ITEM.NEW_POSITION)
-                        .from(SOURCE_ITEM)
-                        .where(SOURCE_ITEM.NEW_POSITION.isNotNull())
-                        .and(SOURCE_ITEM.NEW_POSITION.gt(currentReadPos))
-                        .orderBy(SOURCE_ITEM.NEW_POSITION)
-                        .limit(limit)
-                        .fetch())
-                .forEach(r -> {
-                    pos.set(r.get(SOURCE_ITEM.NEW_POSITION));
-                    final RepoSourceItemRef repoSourceItemRef = new RepoSourceItemRef(
-                            r.get(SOURCE_ITEM.ID),
-                            r.get(SOURCE_ITEM.FK_FEED_ID),
-                            r.get(SOURCE_ITEM.BYTE_SIZE)
-                    );
-                    readQueue.add(repoSourceItemRef);
-                });
-        return pos.get();
-    }
+public interface SourceItemDao extends Flushable {
 
-    private void init() {
-        jooq.readOnlyTransaction(context -> {
-            sourceItemId.set(JooqUtil
-                    .getMaxId(context, SOURCE_ITEM, SOURCE_ITEM.ID)
-                    .orElse(0L));
+    void clear();
 
-            sourceItemNewPosition.set(JooqUtil
-                    .getMaxId(context, SOURCE_ITEM, SOURCE_ITEM.NEW_POSITION)
-                    .orElse(0L));
-        });
-    }
+    int countItems();
 
-    public void clear() {
-        jooq.transaction(context -> {
-            JooqUtil.deleteAll(context, SOURCE_ITEM);
-            JooqUtil.checkEmpty(context, SOURCE_ITEM);
-        });
-        recordQueue.clear();
-        init();
-    }
-
-    public int countItems() {
-        return jooq.readOnlyTransactionResult(context -> JooqUtil.count(context, SOURCE_ITEM));
-    }
-
-    public void addItems(final RepoSource source,
-                         final Collection<RepoSourceItem> items) {
-        recordQueue.add(() -> {
-            for (final RepoSourceItem sourceItemRecord : items) {
-                final long itemRecordId = sourceItemId.incrementAndGet();
-
-                final Object[] sourceItem = new Object[SOURCE_ITEM_COLUMNS.length];
-                sourceItem[0] = itemRecordId;
-                sourceItem[1] = sourceItemRecord.name();
-                sourceItem[2] = sourceItemRecord.extensions();
-                sourceItem[3] = sourceItemRecord.feedId();
-                sourceItem[4] = sourceItemRecord.totalByteSize();
-                sourceItem[5] = sourceItemRecord.repoSource().id();
-                sourceItem[6] = sourceItemRecord.repoSource().fileStoreId();
-                sourceItem[7] = sourceItemRecord.aggregateId();
-                sourceItem[8] = sourceItemNewPosition.incrementAndGet();
-                sourceItemQueue.add(sourceItem);
-            }
-
-            sourceUpdateQueue.add(context ->
-                    sourceDao.setSourceExamined(context, source.id(), true, items.size()));
-        });
-    }
+    /**
+     * Queue the items found in a source to be added to the store and mark the source as examined.
+     */
+    void addItems(RepoSource source, Collection<RepoSourceItem> items);
 
-    public Batch<RepoSourceItemRef> getNewSourceItems() {
-        return recordQueue.getBatch(sourceItemReadQueue);
-    }
+    Batch<RepoSourceItemRef> getNewSourceItems();
 
-    public Batch<RepoSourceItemRef> getNewSourceItems(final long timeout,
-                                                      final TimeUnit timeUnit) {
-        return recordQueue.getBatch(sourceItemReadQueue, timeout, timeUnit);
-    }
+    Batch<RepoSourceItemRef> getNewSourceItems(long timeout, TimeUnit timeUnit);
 
-    public void deleteBySourceId(final DSLContext context, final long sourceId) {
-        // Delete source items.
-        Metrics.measure("Delete source items by source id", () -> {
-            context
-                    .deleteFrom(SOURCE_ITEM)
-                    .where(SOURCE_ITEM.FK_SOURCE_ID.eq(sourceId))
-                    .execute();
-        });
-    }
+    void deleteBySourceId(long sourceId);
 
     /**
      * Fetch a list of all source entries that belong to the specified aggregate.
@@ -173,45 +33,5 @@ public class SourceItemDao implements Flushable {
      * @param aggregateId The id of the aggregate to get source entries for.
      * @return A list of source entries for the aggregate.
      */
-    public Items fetchSourceItemsByAggregateId(final long aggregateId) {
-        final Map<Items.Source, List<Items.Item>> resultMap = new HashMap<>();
-
-        // Get all the source zip entries that we want to write to the forwarding location.
-        jooq.readOnlyTransactionResult(context -> context
-                        .select(
-                                SOURCE_ITEM.ID,
-                                SOURCE_ITEM.NAME,
-                                SOURCE_ITEM.EXTENSIONS,
-                                SOURCE_ITEM.FK_FEED_ID,
-                                SOURCE_ITEM.BYTE_SIZE,
-                                SOURCE_ITEM.FK_SOURCE_ID,
-                                SOURCE_ITEM.FILE_STORE_ID,
-                                SOURCE_ITEM.FK_AGGREGATE_ID)
-                        .from(SOURCE_ITEM)
-                        .where(SOURCE_ITEM.FK_AGGREGATE_ID.eq(aggregateId))
-                        .fetch())
-                .forEach(r -> {
-                    final Items.Source source = new Items.Source(
-                            r.get(SOURCE_ITEM.FK_SOURCE_ID),
-                            r.get(SOURCE_ITEM.FILE_STORE_ID));
-
-                    final Items.Item item = new Items.Item(
-                            source,
-                            r.get(SOURCE_ITEM.ID),
-                            r.get(SOURCE_ITEM.NAME),
-                            r.get(SOURCE_ITEM.FK_FEED_ID),
-                            r.get(SOURCE_ITEM.FK_AGGREGATE_ID),
-                            r.get(SOURCE_ITEM.BYTE_SIZE),
-                            r.get(SOURCE_ITEM.EXTENSIONS));
-
-                    resultMap.computeIfAbsent(source, s -> new ArrayList<>()).add(item);
-                });
-
-        return new Items(resultMap);
-    }
-
-    @Override
-    public void flush() {
-        recordQueue.flush();
-    }
+    Items fetchSourceItemsByAggregateId(long aggregateId);
 }
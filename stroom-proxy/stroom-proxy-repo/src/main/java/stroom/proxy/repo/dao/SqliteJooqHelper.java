@@ -81,14 +81,12 @@ public class SqliteJooqHelper {
     }
 
     public <R> R readOnlyTransactionResult(final Function<DSLContext, R> function) {
-        return maintainDb(() -> {
-            final String method = getMethod();
-            return Metrics.measure(method, () ->
-                    useConnectionResult(connection -> {
-                        final DSLContext context = createContext(connection);
-                        return function.apply(context);
-                    }));
-        });
+        return maintainDb(() ->
+                measure(() ->
+                        useConnectionResult(connection -> {
+                            final DSLContext context = createContext(connection);
+                            return function.apply(context);
+                        })));
     }
 
     public void transaction(final Consumer<DSLContext> consumer) {
@@ -100,7 +98,7 @@ public class SqliteJooqHelper {
 
     public <R> R transactionResult(final Function<DSLContext, R> function) {
         return maintainDb(() ->
-                Metrics.measure(getMethod(), () ->
+                measure(() ->
                         useConnectionResult(connection -> {
                             try {
                                 transactionLock.lockInterruptibly();
@@ -129,6 +127,14 @@ public class SqliteJooqHelper {
                         })));
     }
 
+    private <R> R measure(final Supplier<R> supplier) {
+        // Finding the calling method is expensive so only do it if we are recording metrics.
+        if (Metrics.isEnabled()) {
+            return Metrics.measure(getMethod(), supplier);
+        }
+        return supplier.get();
+    }
+
     private void beginTransaction(final Connection connection) throws SQLException {
         final long startTime = System.currentTimeMillis();
         long lastReport = startTime;
@@ -0,0 +1,54 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.Aggregate;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+record AggregateRow(long id,
+                    long createTimeMs,
+                    long feedId,
+                    long byteSize,
+                    int items,
+                    boolean complete,
+                    Long newPosition) implements JournalRow {
+
+    Aggregate toAggregate() {
+        return new Aggregate(id, feedId);
+    }
+
+    AggregateRow addItem(final long itemByteSize) {
+        return new AggregateRow(id, createTimeMs, feedId, byteSize + itemByteSize, items + 1, complete, newPosition);
+    }
+
+    AggregateRow complete(final long newPosition) {
+        return new AggregateRow(id, createTimeMs, feedId, byteSize, items, true, newPosition);
+    }
+
+    AggregateRow clearNewPosition() {
+        return new AggregateRow(id, createTimeMs, feedId, byteSize, items, complete, null);
+    }
+
+    @Override
+    public void write(final DataOutput out) throws IOException {
+        out.writeLong(id);
+        out.writeLong(createTimeMs);
+        out.writeLong(feedId);
+        out.writeLong(byteSize);
+        out.writeInt(items);
+        out.writeBoolean(complete);
+        JournalRow.writeNullableLong(out, newPosition);
+    }
+
+    static AggregateRow read(final DataInput in) throws IOException {
+        return new AggregateRow(
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                in.readInt(),
+                in.readBoolean(),
+                JournalRow.readNullableLong(in));
+    }
+}
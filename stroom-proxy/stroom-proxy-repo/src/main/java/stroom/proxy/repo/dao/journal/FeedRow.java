@@ -0,0 +1,28 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.FeedKey;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+record FeedRow(long id, String feedName, String typeName) implements JournalRow {
+
+    FeedKey key() {
+        return new FeedKey(feedName, typeName);
+    }
+
+    @Override
+    public void write(final DataOutput out) throws IOException {
+        out.writeLong(id);
+        JournalRow.writeNullableString(out, feedName);
+        JournalRow.writeNullableString(out, typeName);
+    }
+
+    static FeedRow read(final DataInput in) throws IOException {
+        return new FeedRow(
+                in.readLong(),
+                JournalRow.readNullableString(in),
+                JournalRow.readNullableString(in));
+    }
+}
@@ -0,0 +1,59 @@
+package stroom.proxy.repo.dao.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Holds the rows that match a predicate ordered by id.
+ */
+class FilterIndex<R extends JournalRow> implements JournalIndex<R> {
+
+    private final Predicate<R> predicate;
+    private final NavigableMap<Long, R> rows = new TreeMap<>();
+
+    FilterIndex(final Predicate<R> predicate) {
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void add(final R row) {
+        if (predicate.test(row)) {
+            rows.put(row.id(), row);
+        }
+    }
+
+    @Override
+    public void remove(final R row) {
+        rows.remove(row.id());
+    }
+
+    @Override
+    public void clear() {
+        rows.clear();
+    }
+
+    /**
+     * @return Up to limit rows with an id greater than the supplied id in id order.
+     */
+    List<R> after(final long id, final long limit) {
+        final List<R> list = new ArrayList<>();
+        for (final R row : rows.tailMap(id, false).values()) {
+            if (list.size() >= limit) {
+                break;
+            }
+            list.add(row);
+        }
+        return list;
+    }
+
+    List<R> all() {
+        return new ArrayList<>(rows.values());
+    }
+
+    int size() {
+        return rows.size();
+    }
+}
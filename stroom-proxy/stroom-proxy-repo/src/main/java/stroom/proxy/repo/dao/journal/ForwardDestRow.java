@@ -0,0 +1,20 @@
+package stroom.proxy.repo.dao.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+record ForwardDestRow(long id, String name) implements JournalRow {
+
+    @Override
+    public void write(final DataOutput out) throws IOException {
+        out.writeLong(id);
+        JournalRow.writeNullableString(out, name);
+    }
+
+    static ForwardDestRow read(final DataInput in) throws IOException {
+        return new ForwardDestRow(
+                in.readLong(),
+                JournalRow.readNullableString(in));
+    }
+}
@@ -0,0 +1,53 @@
+package stroom.proxy.repo.dao.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A forward aggregate or forward source row. The parent id is the id of the aggregate or source being forwarded.
+ */
+record ForwardRow(long id,
+                  long updateTimeMs,
+                  int forwardDestId,
+                  long parentId,
+                  boolean success,
+                  String error,
+                  long tries,
+                  Long newPosition,
+                  Long retryPosition) implements JournalRow {
+
+    ForwardRow update(final long updateTimeMs,
+                      final boolean success,
+                      final String error,
+                      final long tries,
+                      final Long retryPosition) {
+        return new ForwardRow(id, updateTimeMs, forwardDestId, parentId, success, error, tries, null, retryPosition);
+    }
+
+    @Override
+    public void write(final DataOutput out) throws IOException {
+        out.writeLong(id);
+        out.writeLong(updateTimeMs);
+        out.writeInt(forwardDestId);
+        out.writeLong(parentId);
+        out.writeBoolean(success);
+        JournalRow.writeNullableString(out, error);
+        out.writeLong(tries);
+        JournalRow.writeNullableLong(out, newPosition);
+        JournalRow.writeNullableLong(out, retryPosition);
+    }
+
+    static ForwardRow read(final DataInput in) throws IOException {
+        return new ForwardRow(
+                in.readLong(),
+                in.readLong(),
+                in.readInt(),
+                in.readLong(),
+                in.readBoolean(),
+                JournalRow.readNullableString(in),
+                in.readLong(),
+                JournalRow.readNullableLong(in),
+                JournalRow.readNullableLong(in));
+    }
+}
@@ -0,0 +1,64 @@
+package stroom.proxy.repo.dao.journal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Groups rows by a key, e.g. a foreign key. Rows with a null key are not indexed.
+ */
+class GroupIndex<K, R extends JournalRow> implements JournalIndex<R> {
+
+    private final Function<R, K> keyFunction;
+    private final Map<K, NavigableMap<Long, R>> groups = new HashMap<>();
+
+    GroupIndex(final Function<R, K> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    @Override
+    public void add(final R row) {
+        final K key = keyFunction.apply(row);
+        if (key != null) {
+            groups.computeIfAbsent(key, k -> new TreeMap<>()).put(row.id(), row);
+        }
+    }
+
+    @Override
+    public void remove(final R row) {
+        final K key = keyFunction.apply(row);
+        if (key != null) {
+            final NavigableMap<Long, R> group = groups.get(key);
+            if (group != null) {
+                group.remove(row.id());
+                if (group.isEmpty()) {
+                    groups.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        groups.clear();
+    }
+
+    /**
+     * @return A copy of the rows in the group ordered by id so the caller is free to change the table.
+     */
+    List<R> get(final K key) {
+        final NavigableMap<Long, R> group = groups.get(key);
+        return group == null
+                ? Collections.emptyList()
+                : new ArrayList<>(group.values());
+    }
+
+    boolean contains(final K key) {
+        return groups.containsKey(key);
+    }
+}
@@ -0,0 +1,192 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.Aggregate;
+import stroom.proxy.repo.ProxyDbConfig;
+import stroom.proxy.repo.RepoSourceItemRef;
+import stroom.proxy.repo.dao.AggregateDao;
+import stroom.proxy.repo.queue.Batch;
+import stroom.proxy.repo.queue.OperationWriteQueue;
+import stroom.proxy.repo.queue.ReadQueue;
+import stroom.proxy.repo.queue.RecordQueue;
+import stroom.proxy.repo.queue.WriteQueue;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class JournalAggregateDao implements AggregateDao {
+
+    private final JournalStore store;
+    private final AtomicLong aggregateId = new AtomicLong();
+    private final AtomicLong aggregateNewPosition = new AtomicLong();
+
+    private final RecordQueue<JournalTransaction> recordQueue;
+    private final OperationWriteQueue<JournalTransaction> aggregateWriteQueue;
+    private final ReadQueue<Aggregate> aggregateReadQueue;
+
+    @Inject
+    JournalAggregateDao(final JournalStore store,
+                        final ProxyDbConfig dbConfig) {
+        this.store = store;
+        init();
+
+        aggregateWriteQueue = new OperationWriteQueue<>();
+        final List<WriteQueue<JournalTransaction>> writeQueues = List.of(aggregateWriteQueue);
+
+        aggregateReadQueue = new ReadQueue<>(this::read, dbConfig.getBatchSize());
+        final List<ReadQueue<?>> readQueues = List.of(aggregateReadQueue);
+
+        recordQueue = new RecordQueue<>(store::transaction, writeQueues, readQueues, dbConfig.getBatchSize());
+    }
+
+    private long read(final long currentReadPos, final long limit, List<Aggregate> readQueue) {
+        return store.read(() -> {
+            long pos = currentReadPos;
+            for (final AggregateRow row : store.aggregatesByNewPosition.after(currentReadPos, limit)) {
+                pos = row.newPosition();
+                readQueue.add(row.toAggregate());
+            }
+            return pos;
+        });
+    }
+
+    private void init() {
+        store.read(() -> {
+            aggregateId.set(store.aggregates.maxId());
+            aggregateNewPosition.set(store.aggregatesByNewPosition.max());
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        store.transaction(transaction -> transaction.clear(store.aggregates));
+        recordQueue.clear();
+        init();
+    }
+
+    @Override
+    public synchronized long closeAggregates(final int maxItemsPerAggregate,
+                                             final long maxUncompressedByteSize,
+                                             final long maxAggregateAgeMs,
+                                             final long limit) {
+        final long oldestMs = System.currentTimeMillis() - maxAggregateAgeMs;
+
+        final List<Long> list = store.read(() -> store.openAggregates
+                .all()
+                .stream()
+                .filter(row -> row.items() >= maxItemsPerAggregate ||
+                        row.byteSize() >= maxUncompressedByteSize ||
+                        row.createTimeMs() <= oldestMs)
+                .sorted(Comparator.comparingLong(AggregateRow::createTimeMs))
+                .limit(limit)
+                .map(AggregateRow::id)
+                .collect(Collectors.toList()));
+
+        recordQueue.add(() -> {
+            for (final long id : list) {
+                aggregateWriteQueue.add(transaction -> {
+                    final AggregateRow row = store.aggregates.get(id);
+                    if (row != null) {
+                        transaction.put(store.aggregates, row.complete(aggregateNewPosition.incrementAndGet()));
+                    }
+                });
+            }
+        });
+
+        // Ensure all changes are flushed to the store.
+        recordQueue.flush();
+
+        return list.size();
+    }
+
+    @Override
+    public Batch<Aggregate> getNewAggregates() {
+        return recordQueue.getBatch(aggregateReadQueue);
+    }
+
+    @Override
+    public Batch<Aggregate> getNewAggregates(final long timeout,
+                                             final TimeUnit timeUnit) {
+        return recordQueue.getBatch(aggregateReadQueue, timeout, timeUnit);
+    }
+
+    @Override
+    public synchronized void addItems(final Batch<RepoSourceItemRef> newSourceItems,
+                                      final int maxItemsPerAggregate,
+                                      final long maxUncompressedByteSize) {
+        if (!newSourceItems.isEmpty()) {
+            final Map<Long, List<RepoSourceItemRef>> itemMap = newSourceItems
+                    .list()
+                    .stream()
+                    .collect(Collectors.groupingBy(RepoSourceItemRef::feedId));
+
+            store.transaction(transaction -> {
+                AggregateRow current = null;
+
+                for (final List<RepoSourceItemRef> items : itemMap.values()) {
+                    for (final RepoSourceItemRef item : items) {
+
+                        // Get an aggregate to fit the item.
+                        if (current != null) {
+                            if (current.feedId() != item.feedId() ||
+                                    current.items() >= maxItemsPerAggregate ||
+                                    (current.items() > 0 &&
+                                            current.byteSize() + item.totalByteSize() > maxUncompressedByteSize)) {
+                                transaction.put(store.aggregates, current);
+                                current = null;
+                            }
+                        }
+
+                        if (current == null) {
+                            current = getTargetAggregate(item, maxItemsPerAggregate, maxUncompressedByteSize)
+                                    .orElseGet(() -> new AggregateRow(
+                                            aggregateId.incrementAndGet(),
+                                            System.currentTimeMillis(),
+                                            item.feedId(),
+                                            0L,
+                                            0,
+                                            false,
+                                            null));
+                        }
+
+                        current = current.addItem(item.totalByteSize());
+
+                        // Mark the item as added by setting the aggregate id.
+                        final SourceItemRow sourceItem = store.sourceItems.get(item.id());
+                        if (sourceItem != null) {
+                            transaction.put(store.sourceItems, sourceItem.aggregate(current.id()));
+                        }
+                    }
+                }
+
+                if (current != null) {
+                    transaction.put(store.aggregates, current);
+                }
+            });
+        }
+    }
+
+    private Optional<AggregateRow> getTargetAggregate(final RepoSourceItemRef item,
+                                                      final int maxItemsPerAggregate,
+                                                      final long maxUncompressedByteSize) {
+        final long maxAggregateSize = Math.max(0, maxUncompressedByteSize - item.totalByteSize());
+        return store.openAggregatesByFeed
+                .get(item.feedId())
+                .stream()
+                .filter(row -> row.byteSize() <= maxAggregateSize && row.items() < maxItemsPerAggregate)
+                .min(Comparator.comparingLong(AggregateRow::createTimeMs));
+    }
+
+    @Override
+    public int countAggregates() {
+        return store.read(store.aggregates::size);
+    }
+}
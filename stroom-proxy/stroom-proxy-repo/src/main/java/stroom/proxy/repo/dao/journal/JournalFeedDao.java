@@ -0,0 +1,84 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.FeedKey;
+import stroom.proxy.repo.dao.FeedDao;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class JournalFeedDao implements FeedDao {
+
+    private final JournalStore store;
+    private final AtomicLong feedId = new AtomicLong();
+    private final Cache<FeedKey, Long> idCache;
+    private final Cache<Long, FeedKey> keyCache;
+
+    @Inject
+    JournalFeedDao(final JournalStore store) {
+        this.store = store;
+
+        idCache = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .build();
+        keyCache = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .build();
+
+        init();
+    }
+
+    private void init() {
+        feedId.set(store.read(store.feeds::maxId));
+    }
+
+    @Override
+    public long getId(final FeedKey feedKey) {
+        final Long result = idCache.get(feedKey, k -> store.transactionResult(transaction -> {
+            final List<FeedRow> rows = store.feedsByKey.get(k);
+            if (!rows.isEmpty()) {
+                return rows.get(0).id();
+            }
+
+            final long id = feedId.incrementAndGet();
+            transaction.put(store.feeds, new FeedRow(id, k.feed(), k.type()));
+            return id;
+        }));
+
+        if (result == null) {
+            throw new NullPointerException("Unexpected");
+        }
+        return result;
+    }
+
+    @Override
+    public FeedKey getKey(final long id) {
+        return keyCache.get(id, k -> store.read(() -> {
+            final FeedRow row = store.feeds.get(id);
+            return row == null
+                    ? null
+                    : row.key();
+        }));
+    }
+
+    @Override
+    public void clear() {
+        store.transaction(transaction -> transaction.clear(store.feeds));
+        idCache.invalidateAll();
+        keyCache.invalidateAll();
+        init();
+    }
+
+    @Override
+    public int countFeeds() {
+        return store.read(store.feeds::size);
+    }
+}
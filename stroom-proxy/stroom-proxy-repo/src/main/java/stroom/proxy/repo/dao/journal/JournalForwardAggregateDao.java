@@ -0,0 +1,365 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.Aggregate;
+import stroom.proxy.repo.ForwardAggregate;
+import stroom.proxy.repo.ForwardDest;
+import stroom.proxy.repo.ProxyDbConfig;
+import stroom.proxy.repo.dao.ForwardAggregateDao;
+import stroom.proxy.repo.queue.Batch;
+import stroom.proxy.repo.queue.OperationWriteQueue;
+import stroom.proxy.repo.queue.ReadQueue;
+import stroom.proxy.repo.queue.RecordQueue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class JournalForwardAggregateDao implements ForwardAggregateDao {
+
+    private final JournalStore store;
+    private final ProxyDbConfig dbConfig;
+    private final AtomicLong forwardAggregateId = new AtomicLong();
+    private final AtomicLong forwardAggregateNewPosition = new AtomicLong();
+    private final AtomicLong forwardAggregateRetryPosition = new AtomicLong();
+
+    private final RecordQueue<JournalTransaction> recordQueue;
+    private final OperationWriteQueue<JournalTransaction> aggregateUpdateQueue;
+    private final OperationWriteQueue<JournalTransaction> forwardAggregateWriteQueue;
+    private final ReadQueue<ForwardAggregate> forwardAggregateReadQueue;
+    private final Map<Integer, ReadQueue<ForwardAggregate>> forwardAggregateReadQueuesByDest =
+            new ConcurrentHashMap<>();
+
+    private final RecordQueue<JournalTransaction> retryRecordQueue;
+    private final OperationWriteQueue<JournalTransaction> retryUpdateQueue;
+    private final ReadQueue<ForwardAggregate> retryReadQueue;
+    private final Map<Integer, ReadQueue<ForwardAggregate>> retryReadQueuesByDest = new ConcurrentHashMap<>();
+
+    @Inject
+    JournalForwardAggregateDao(final JournalStore store,
+                               final ProxyDbConfig dbConfig) {
+        this.store = store;
+        this.dbConfig = dbConfig;
+        init();
+
+        aggregateUpdateQueue = new OperationWriteQueue<>();
+        forwardAggregateWriteQueue = new OperationWriteQueue<>();
+        forwardAggregateReadQueue = new ReadQueue<>(this::readNew, dbConfig.getBatchSize());
+        recordQueue = new RecordQueue<>(
+                store::transaction,
+                List.of(forwardAggregateWriteQueue, aggregateUpdateQueue),
+                List.of(forwardAggregateReadQueue),
+                dbConfig.getBatchSize());
+
+        retryUpdateQueue = new OperationWriteQueue<>();
+        retryReadQueue = new ReadQueue<>(this::readRetry, dbConfig.getBatchSize());
+        retryRecordQueue = new RecordQueue<>(
+                store::transaction,
+                Collections.singletonList(retryUpdateQueue),
+                Collections.singletonList(retryReadQueue),
+                dbConfig.getBatchSize());
+    }
+
+    private long readNew(final long currentReadPos, final long limit, List<ForwardAggregate> readQueue) {
+        return store.read(() -> read(
+                currentReadPos,
+                readQueue,
+                store.forwardAggregatesByNewPosition.after(currentReadPos, limit),
+                ForwardRow::newPosition));
+    }
+
+    private long readRetry(final long currentReadPos, final long limit, List<ForwardAggregate> readQueue) {
+        return store.read(() -> read(
+                currentReadPos,
+                readQueue,
+                store.forwardAggregatesByRetryPosition.after(currentReadPos, limit),
+                ForwardRow::retryPosition));
+    }
+
+    private ReadQueue<ForwardAggregate> createNewReadQueue(final int forwardDestId) {
+        final ReadQueue<ForwardAggregate> readQueue = new ReadQueue<>((currentReadPos, limit, list) ->
+                store.read(() -> read(
+                        currentReadPos,
+                        list,
+                        store.forwardAggregatesByNewPosition.after(currentReadPos,
+                                limit,
+                                row -> row.forwardDestId() == forwardDestId),
+                        ForwardRow::newPosition)),
+                dbConfig.getBatchSize());
+        recordQueue.addReadQueue(readQueue);
+        return readQueue;
+    }
+
+    private ReadQueue<ForwardAggregate> createRetryReadQueue(final int forwardDestId) {
+        final ReadQueue<ForwardAggregate> readQueue = new ReadQueue<>((currentReadPos, limit, list) ->
+                store.read(() -> read(
+                        currentReadPos,
+                        list,
+                        store.forwardAggregatesByRetryPosition.after(currentReadPos,
+                                limit,
+                                row -> row.forwardDestId() == forwardDestId),
+                        ForwardRow::retryPosition)),
+                dbConfig.getBatchSize());
+        retryRecordQueue.addReadQueue(readQueue);
+        return readQueue;
+    }
+
+    private long read(final long currentReadPos,
+                      final List<ForwardAggregate> readQueue,
+                      final List<ForwardRow> rows,
+                      final Function<ForwardRow, Long> positionFunction) {
+        long pos = currentReadPos;
+        for (final ForwardRow row : rows) {
+            pos = positionFunction.apply(row);
+            final ForwardDestRow forwardDestRow = store.forwardDests.get(row.forwardDestId());
+            final AggregateRow aggregateRow = store.aggregates.get(row.parentId());
+            // Rows that no longer join to a dest and aggregate are skipped.
+            if (forwardDestRow != null && aggregateRow != null) {
+                final ForwardDest forwardDest = new ForwardDest(row.forwardDestId(), forwardDestRow.name());
+                readQueue.add(new ForwardAggregate(
+                        row.id(),
+                        row.updateTimeMs(),
+                        aggregateRow.toAggregate(),
+                        forwardDest,
+                        row.success(),
+                        row.error(),
+                        row.tries()));
+            }
+        }
+        return pos;
+    }
+
+    private void init() {
+        store.read(() -> {
+            forwardAggregateId.set(store.forwardAggregates.maxId());
+            forwardAggregateNewPosition.set(store.forwardAggregatesByNewPosition.max());
+            forwardAggregateRetryPosition.set(store.forwardAggregatesByRetryPosition.max());
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        store.transaction(transaction -> transaction.clear(store.forwardAggregates));
+        recordQueue.clear();
+        retryRecordQueue.clear();
+        init();
+    }
+
+    @Override
+    public void addNewForwardAggregates(final List<ForwardDest> newForwardDests) {
+        if (newForwardDests.size() > 0) {
+            // Aggregates that have already had forwards created for the existing dests.
+            forEachAggregateBatch(row -> row.newPosition() == null &&
+                            store.forwardAggregatesByAggregate.contains(row.id()),
+                    batch -> createForwardAggregates(batch, newForwardDests));
+        }
+    }
+
+    @Override
+    public void removeOldForwardAggregates(final List<ForwardDest> oldForwardDests) {
+        if (oldForwardDests.size() > 0) {
+            final Set<Integer> oldIds = oldForwardDests
+                    .stream()
+                    .map(ForwardDest::getId)
+                    .collect(Collectors.toSet());
+
+            store.transaction(transaction -> {
+                for (final ForwardRow row : List.copyOf(store.forwardAggregates.values())) {
+                    if (oldIds.contains(row.forwardDestId())) {
+                        transaction.delete(store.forwardAggregates, row.id());
+                    }
+                }
+            });
+
+            // Aggregates that no longer have anywhere to be forwarded to.
+            forEachAggregateBatch(row -> row.newPosition() == null &&
+                            !store.forwardAggregatesByAggregate.contains(row.id()),
+                    batch -> store.transaction(transaction -> {
+                        for (final Aggregate aggregate : batch.list()) {
+                            deleteAggregate(transaction, aggregate.id());
+                        }
+                    }));
+        }
+    }
+
+    private void forEachAggregateBatch(final Predicate<AggregateRow> predicate,
+                                       final Consumer<Batch<Aggregate>> consumer) {
+        final AtomicLong minId = new AtomicLong();
+        final int batchSize = dbConfig.getBatchSize();
+        boolean full = true;
+        while (full) {
+            final List<Aggregate> aggregates = store.read(() -> store.aggregates
+                    .find(minId.get(), batchSize, predicate)
+                    .stream()
+                    .map(AggregateRow::toAggregate)
+                    .collect(Collectors.toList()));
+            if (!aggregates.isEmpty()) {
+                minId.set(aggregates.get(aggregates.size() - 1).id());
+            }
+
+            final Batch<Aggregate> batch = new Batch<>(aggregates, aggregates.size() == batchSize);
+            consumer.accept(batch);
+            full = batch.full();
+        }
+    }
+
+    @Override
+    public void createForwardAggregates(final Batch<Aggregate> aggregates,
+                                        final List<ForwardDest> forwardDests) {
+        recordQueue.add(() -> {
+            for (final Aggregate aggregate : aggregates.list()) {
+                for (final ForwardDest forwardDest : forwardDests) {
+                    final ForwardRow row = new ForwardRow(
+                            forwardAggregateId.incrementAndGet(),
+                            System.currentTimeMillis(),
+                            forwardDest.getId(),
+                            aggregate.id(),
+                            false,
+                            null,
+                            0,
+                            forwardAggregateNewPosition.incrementAndGet(),
+                            null);
+                    forwardAggregateWriteQueue.add(transaction -> transaction.put(store.forwardAggregates, row));
+                }
+
+                // Remove the queue position from the aggregate so we don't try and create forwarders again.
+                aggregateUpdateQueue.add(transaction -> {
+                    final AggregateRow row = store.aggregates.get(aggregate.id());
+                    if (row != null) {
+                        transaction.put(store.aggregates, row.clearNewPosition());
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public Batch<ForwardAggregate> getNewForwardAggregates() {
+        return recordQueue.getBatch(forwardAggregateReadQueue);
+    }
+
+    @Override
+    public Batch<ForwardAggregate> getRetryForwardAggregate() {
+        return retryRecordQueue.getBatch(retryReadQueue);
+    }
+
+    @Override
+    public Batch<ForwardAggregate> getNewForwardAggregates(final ForwardDest forwardDest,
+                                                           final int limit) {
+        return recordQueue.getBatch(forwardAggregateReadQueuesByDest.computeIfAbsent(forwardDest.getId(),
+                this::createNewReadQueue), limit);
+    }
+
+    @Override
+    public Batch<ForwardAggregate> getRetryForwardAggregate(final ForwardDest forwardDest,
+                                                            final int limit) {
+        return retryRecordQueue.getBatch(retryReadQueuesByDest.computeIfAbsent(forwardDest.getId(),
+                this::createRetryReadQueue), limit);
+    }
+
+    @Override
+    public Batch<ForwardAggregate> getNewForwardAggregates(final long timeout,
+                                                           final TimeUnit timeUnit) {
+        return recordQueue.getBatch(forwardAggregateReadQueue, timeout, timeUnit);
+    }
+
+    @Override
+    public Batch<ForwardAggregate> getRetryForwardAggregate(final long timeout,
+                                                            final TimeUnit timeUnit) {
+        return retryRecordQueue.getBatch(retryReadQueue, timeout, timeUnit);
+    }
+
+    @Override
+    public void update(final ForwardAggregate forwardAggregate) {
+        if (forwardAggregate.isSuccess()) {
+            final long aggregateId = forwardAggregate.getAggregate().id();
+
+            // Mark success and see if we can delete this record and cascade.
+            store.transaction(transaction -> {
+                updateForwardAggregate(transaction, forwardAggregate, null);
+
+                final boolean remainingForwards = store.forwardAggregatesByAggregate
+                        .get(aggregateId)
+                        .stream()
+                        .anyMatch(row -> !row.success());
+                if (!remainingForwards) {
+                    deleteAggregate(transaction, aggregateId);
+                }
+            });
+        } else {
+            // Update and schedule for retry.
+            retryRecordQueue.add(() ->
+                    retryUpdateQueue.add(transaction ->
+                            updateForwardAggregate(
+                                    transaction,
+                                    forwardAggregate,
+                                    forwardAggregateRetryPosition.incrementAndGet())));
+        }
+    }
+
+    private void updateForwardAggregate(final JournalTransaction transaction,
+                                        final ForwardAggregate forwardAggregate,
+                                        final Long retryPosition) {
+        final ForwardRow row = store.forwardAggregates.get(forwardAggregate.getId());
+        if (row != null) {
+            transaction.put(store.forwardAggregates, row.update(
+                    forwardAggregate.getUpdateTimeMs(),
+                    forwardAggregate.isSuccess(),
+                    forwardAggregate.getError(),
+                    forwardAggregate.getTries(),
+                    retryPosition));
+        }
+    }
+
+    private void deleteAggregate(final JournalTransaction transaction, final long aggregateId) {
+        final List<SourceItemRow> sourceItems = store.sourceItemsByAggregate.get(aggregateId);
+
+        // Update the source item count.
+        final Map<Long, Integer> counts = new HashMap<>();
+        for (final SourceItemRow sourceItem : sourceItems) {
+            counts.merge(sourceItem.sourceId(), 1, Integer::sum);
+        }
+        counts.forEach((sourceId, count) -> {
+            final SourceRow source = store.sources.get(sourceId);
+            if (source != null) {
+                transaction.put(store.sources, source.removeItems(count));
+            }
+        });
+
+        // Delete source items.
+        for (final SourceItemRow sourceItem : sourceItems) {
+            transaction.delete(store.sourceItems, sourceItem.id());
+        }
+
+        // Delete forward records.
+        for (final ForwardRow forwardRow : store.forwardAggregatesByAggregate.get(aggregateId)) {
+            transaction.delete(store.forwardAggregates, forwardRow.id());
+        }
+
+        // Delete aggregate.
+        transaction.delete(store.aggregates, aggregateId);
+    }
+
+    @Override
+    public int countForwardAggregates() {
+        return store.read(store.forwardAggregates::size);
+    }
+
+    @Override
+    public void flush() {
+        recordQueue.flush();
+        retryRecordQueue.flush();
+    }
+}
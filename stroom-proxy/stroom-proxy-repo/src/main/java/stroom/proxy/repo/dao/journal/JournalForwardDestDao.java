@@ -0,0 +1,63 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.ForwardDest;
+import stroom.proxy.repo.dao.ForwardDestDao;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class JournalForwardDestDao implements ForwardDestDao {
+
+    private final JournalStore store;
+    private final AtomicInteger forwardDestRecordId = new AtomicInteger();
+
+    @Inject
+    JournalForwardDestDao(final JournalStore store) {
+        this.store = store;
+        init();
+    }
+
+    private void init() {
+        forwardDestRecordId.set(store.read(() -> (int) store.forwardDests.maxId()));
+    }
+
+    @Override
+    public void clear() {
+        store.transaction(transaction -> transaction.clear(store.forwardDests));
+        init();
+    }
+
+    @Override
+    public List<ForwardDest> getAllForwardDests() {
+        return store.read(() -> store.forwardDests
+                .values()
+                .stream()
+                .map(row -> new ForwardDest((int) row.id(), row.name()))
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public int getForwardDestId(final String name) {
+        Objects.requireNonNull(name, "The forward dest name is null");
+        return store.transactionResult(transaction -> {
+            final List<ForwardDestRow> rows = store.forwardDestsByName.get(name);
+            if (!rows.isEmpty()) {
+                return (int) rows.get(0).id();
+            }
+
+            final int newId = forwardDestRecordId.incrementAndGet();
+            transaction.put(store.forwardDests, new ForwardDestRow(newId, name));
+            return newId;
+        });
+    }
+
+    @Override
+    public int countForwardDest() {
+        return store.read(store.forwardDests::size);
+    }
+}
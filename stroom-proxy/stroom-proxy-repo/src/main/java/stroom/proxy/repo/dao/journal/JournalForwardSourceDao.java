@@ -0,0 +1,330 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.ForwardDest;
+import stroom.proxy.repo.ForwardSource;
+import stroom.proxy.repo.ProxyDbConfig;
+import stroom.proxy.repo.RepoSource;
+import stroom.proxy.repo.dao.ForwardSourceDao;
+import stroom.proxy.repo.queue.Batch;
+import stroom.proxy.repo.queue.OperationWriteQueue;
+import stroom.proxy.repo.queue.ReadQueue;
+import stroom.proxy.repo.queue.RecordQueue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class JournalForwardSourceDao implements ForwardSourceDao {
+
+    private final JournalStore store;
+    private final ProxyDbConfig dbConfig;
+    private final AtomicLong forwardSourceId = new AtomicLong();
+    private final AtomicLong forwardSourceNewPosition = new AtomicLong();
+    private final AtomicLong forwardSourceRetryPosition = new AtomicLong();
+
+    private final RecordQueue<JournalTransaction> recordQueue;
+    private final OperationWriteQueue<JournalTransaction> sourceUpdateQueue;
+    private final OperationWriteQueue<JournalTransaction> forwardSourceWriteQueue;
+    private final ReadQueue<ForwardSource> forwardSourceReadQueue;
+    private final Map<Integer, ReadQueue<ForwardSource>> forwardSourceReadQueuesByDest = new ConcurrentHashMap<>();
+
+    private final RecordQueue<JournalTransaction> retryRecordQueue;
+    private final OperationWriteQueue<JournalTransaction> retryUpdateQueue;
+    private final ReadQueue<ForwardSource> retryReadQueue;
+    private final Map<Integer, ReadQueue<ForwardSource>> retryReadQueuesByDest = new ConcurrentHashMap<>();
+
+    @Inject
+    JournalForwardSourceDao(final JournalStore store,
+                            final ProxyDbConfig dbConfig) {
+        this.store = store;
+        this.dbConfig = dbConfig;
+        init();
+
+        sourceUpdateQueue = new OperationWriteQueue<>();
+        forwardSourceWriteQueue = new OperationWriteQueue<>();
+        forwardSourceReadQueue = new ReadQueue<>(this::readNew, dbConfig.getBatchSize());
+        recordQueue = new RecordQueue<>(
+                store::transaction,
+                List.of(forwardSourceWriteQueue, sourceUpdateQueue),
+                List.of(forwardSourceReadQueue),
+                dbConfig.getBatchSize());
+
+        retryUpdateQueue = new OperationWriteQueue<>();
+        retryReadQueue = new ReadQueue<>(this::readRetry, dbConfig.getBatchSize());
+        retryRecordQueue = new RecordQueue<>(
+                store::transaction,
+                Collections.singletonList(retryUpdateQueue),
+                Collections.singletonList(retryReadQueue),
+                dbConfig.getBatchSize());
+    }
+
+    private long readNew(final long currentReadPos, final long limit, List<ForwardSource> readQueue) {
+        return store.read(() -> read(
+                currentReadPos,
+                readQueue,
+                store.forwardSourcesByNewPosition.after(currentReadPos, limit),
+                ForwardRow::newPosition));
+    }
+
+    private long readRetry(final long currentReadPos, final long limit, List<ForwardSource> readQueue) {
+        return store.read(() -> read(
+                currentReadPos,
+                readQueue,
+                store.forwardSourcesByRetryPosition.after(currentReadPos, limit),
+                ForwardRow::retryPosition));
+    }
+
+    private ReadQueue<ForwardSource> createNewReadQueue(final int forwardDestId) {
+        final ReadQueue<ForwardSource> readQueue = new ReadQueue<>((currentReadPos, limit, list) ->
+                store.read(() -> read(
+                        currentReadPos,
+                        list,
+                        store.forwardSourcesByNewPosition.after(currentReadPos,
+                                limit,
+                                row -> row.forwardDestId() == forwardDestId),
+                        ForwardRow::newPosition)),
+                dbConfig.getBatchSize());
+        recordQueue.addReadQueue(readQueue);
+        return readQueue;
+    }
+
+    private ReadQueue<ForwardSource> createRetryReadQueue(final int forwardDestId) {
+        final ReadQueue<ForwardSource> readQueue = new ReadQueue<>((currentReadPos, limit, list) ->
+                store.read(() -> read(
+                        currentReadPos,
+                        list,
+                        store.forwardSourcesByRetryPosition.after(currentReadPos,
+                                limit,
+                                row -> row.forwardDestId() == forwardDestId),
+                        ForwardRow::retryPosition)),
+                dbConfig.getBatchSize());
+        retryRecordQueue.addReadQueue(readQueue);
+        return readQueue;
+    }
+
+    private long read(final long currentReadPos,
+                      final List<ForwardSource> readQueue,
+                      final List<ForwardRow> rows,
+                      final Function<ForwardRow, Long> positionFunction) {
+        long pos = currentReadPos;
+        for (final ForwardRow row : rows) {
+            pos = positionFunction.apply(row);
+            final ForwardDestRow forwardDestRow = store.forwardDests.get(row.forwardDestId());
+            final SourceRow sourceRow = store.sources.get(row.parentId());
+            // Rows that no longer join to a dest and source are skipped.
+            if (forwardDestRow != null && sourceRow != null) {
+                final ForwardDest forwardDest = new ForwardDest(row.forwardDestId(), forwardDestRow.name());
+                readQueue.add(new ForwardSource(
+                        row.id(),
+                        row.updateTimeMs(),
+                        sourceRow.toRepoSource(),
+                        forwardDest,
+                        row.success(),
+                        row.error(),
+                        row.tries()));
+            }
+        }
+        return pos;
+    }
+
+    private void init() {
+        store.read(() -> {
+            forwardSourceId.set(store.forwardSources.maxId());
+            forwardSourceNewPosition.set(store.forwardSourcesByNewPosition.max());
+            forwardSourceRetryPosition.set(store.forwardSourcesByRetryPosition.max());
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        store.transaction(transaction -> transaction.clear(store.forwardSources));
+        recordQueue.clear();
+        retryRecordQueue.clear();
+        init();
+    }
+
+    @Override
+    public void addNewForwardSources(final List<ForwardDest> newForwardDests) {
+        if (newForwardDests.size() > 0) {
+            final AtomicLong minId = new AtomicLong();
+            final int batchSize = dbConfig.getBatchSize();
+            boolean full = true;
+            while (full) {
+                // Sources that have already had forwards created for the existing dests.
+                final List<RepoSource> sources = store.read(() -> store.sources
+                        .find(minId.get(), batchSize, row -> row.newPosition() == null &&
+                                store.forwardSourcesBySource.contains(row.id()))
+                        .stream()
+                        .map(SourceRow::toRepoSource)
+                        .collect(Collectors.toList()));
+                if (!sources.isEmpty()) {
+                    minId.set(sources.get(sources.size() - 1).id());
+                }
+
+                final Batch<RepoSource> batch = new Batch<>(sources, sources.size() == batchSize);
+                createForwardSources(batch, newForwardDests);
+                full = batch.full();
+            }
+        }
+    }
+
+    @Override
+    public void removeOldForwardSources(final List<ForwardDest> oldForwardDests) {
+        if (oldForwardDests.size() > 0) {
+            final Set<Integer> oldIds = oldForwardDests
+                    .stream()
+                    .map(ForwardDest::getId)
+                    .collect(Collectors.toSet());
+
+            store.transaction(transaction -> {
+                for (final ForwardRow row : List.copyOf(store.forwardSources.values())) {
+                    if (oldIds.contains(row.forwardDestId())) {
+                        transaction.delete(store.forwardSources, row.id());
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void createForwardSources(final Batch<RepoSource> sources,
+                                     final List<ForwardDest> forwardDests) {
+        recordQueue.add(() -> {
+            for (final RepoSource source : sources.list()) {
+                for (final ForwardDest forwardDest : forwardDests) {
+                    final ForwardRow row = new ForwardRow(
+                            forwardSourceId.incrementAndGet(),
+                            System.currentTimeMillis(),
+                            forwardDest.getId(),
+                            source.id(),
+                            false,
+                            null,
+                            0,
+                            forwardSourceNewPosition.incrementAndGet(),
+                            null);
+                    forwardSourceWriteQueue.add(transaction -> transaction.put(store.forwardSources, row));
+                }
+
+                // Remove the queue position from the source so we don't try and create forwarders again.
+                sourceUpdateQueue.add(transaction -> {
+                    final SourceRow row = store.sources.get(source.id());
+                    if (row != null) {
+                        transaction.put(store.sources, row.clearNewPosition());
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public Batch<ForwardSource> getNewForwardSources() {
+        return recordQueue.getBatch(forwardSourceReadQueue);
+    }
+
+    @Override
+    public Batch<ForwardSource> getRetryForwardSources() {
+        return retryRecordQueue.getBatch(retryReadQueue);
+    }
+
+    @Override
+    public Batch<ForwardSource> getNewForwardSources(final ForwardDest forwardDest,
+                                                     final int limit) {
+        return recordQueue.getBatch(forwardSourceReadQueuesByDest.computeIfAbsent(forwardDest.getId(),
+                this::createNewReadQueue), limit);
+    }
+
+    @Override
+    public Batch<ForwardSource> getRetryForwardSources(final ForwardDest forwardDest,
+                                                       final int limit) {
+        return retryRecordQueue.getBatch(retryReadQueuesByDest.computeIfAbsent(forwardDest.getId(),
+                this::createRetryReadQueue), limit);
+    }
+
+    @Override
+    public Batch<ForwardSource> getNewForwardSources(final long timeout,
+                                                     final TimeUnit timeUnit) {
+        return recordQueue.getBatch(forwardSourceReadQueue, timeout, timeUnit);
+    }
+
+    @Override
+    public Batch<ForwardSource> getRetryForwardSources(final long timeout,
+                                                       final TimeUnit timeUnit) {
+        return retryRecordQueue.getBatch(retryReadQueue, timeout, timeUnit);
+    }
+
+    @Override
+    public void update(final ForwardSource forwardSource) {
+        if (forwardSource.isSuccess()) {
+            final long sourceId = forwardSource.getSource().id();
+
+            // Mark success and see if we can delete this record and cascade.
+            store.transaction(transaction -> {
+                updateForwardSource(transaction, forwardSource, null);
+
+                final boolean remainingForwards = store.forwardSourcesBySource
+                        .get(sourceId)
+                        .stream()
+                        .anyMatch(row -> !row.success());
+                if (!remainingForwards) {
+                    deleteForwardSource(transaction, sourceId);
+                }
+            });
+        } else {
+            // Update and schedule for retry.
+            retryRecordQueue.add(() ->
+                    retryUpdateQueue.add(transaction ->
+                            updateForwardSource(
+                                    transaction,
+                                    forwardSource,
+                                    forwardSourceRetryPosition.incrementAndGet())));
+        }
+    }
+
+    private void updateForwardSource(final JournalTransaction transaction,
+                                     final ForwardSource forwardSource,
+                                     final Long retryPosition) {
+        final ForwardRow row = store.forwardSources.get(forwardSource.getId());
+        if (row != null) {
+            transaction.put(store.forwardSources, row.update(
+                    forwardSource.getUpdateTimeMs(),
+                    forwardSource.isSuccess(),
+                    forwardSource.getError(),
+                    forwardSource.getTries(),
+                    retryPosition));
+        }
+    }
+
+    private void deleteForwardSource(final JournalTransaction transaction, final long sourceId) {
+        // Mark source as forwarded by setting examined with 0 items.
+        final SourceRow source = store.sources.get(sourceId);
+        if (source != null) {
+            transaction.put(store.sources, source.examined(true, 0));
+        }
+
+        // Delete forward records.
+        for (final ForwardRow forwardRow : store.forwardSourcesBySource.get(sourceId)) {
+            transaction.delete(store.forwardSources, forwardRow.id());
+        }
+    }
+
+    @Override
+    public int countForwardSource() {
+        return store.read(store.forwardSources::size);
+    }
+
+    @Override
+    public void flush() {
+        recordQueue.flush();
+        retryRecordQueue.flush();
+    }
+}
@@ -0,0 +1,13 @@
+package stroom.proxy.repo.dao.journal;
+
+/**
+ * Keeps a view of the rows in a {@link JournalTable} up to date as rows are put and deleted.
+ */
+interface JournalIndex<R extends JournalRow> {
+
+    void add(R row);
+
+    void remove(R row);
+
+    void clear();
+}
@@ -0,0 +1,59 @@
+package stroom.proxy.repo.dao.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An immutable row held by a {@link JournalTable}. Rows write themselves to snapshots and journal frames.
+ */
+interface JournalRow {
+
+    long id();
+
+    void write(DataOutput out) throws IOException;
+
+    @FunctionalInterface
+    interface Reader<R extends JournalRow> {
+
+        R read(DataInput in) throws IOException;
+    }
+
+    static void writeNullableLong(final DataOutput out, final Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    static Long readNullableLong(final DataInput in) throws IOException {
+        return in.readBoolean()
+                ? in.readLong()
+                : null;
+    }
+
+    /**
+     * Strings are written as length prefixed UTF-8 as error messages can exceed the limit of
+     * {@link DataOutput#writeUTF(String)}.
+     */
+    static void writeNullableString(final DataOutput out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static String readNullableString(final DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
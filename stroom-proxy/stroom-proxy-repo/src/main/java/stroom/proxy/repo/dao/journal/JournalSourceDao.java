@@ -0,0 +1,187 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.FeedKey;
+import stroom.proxy.repo.ProxyDbConfig;
+import stroom.proxy.repo.RepoSource;
+import stroom.proxy.repo.dao.FeedDao;
+import stroom.proxy.repo.dao.SourceDao;
+import stroom.proxy.repo.queue.Batch;
+import stroom.proxy.repo.queue.OperationWriteQueue;
+import stroom.proxy.repo.queue.ReadQueue;
+import stroom.proxy.repo.queue.RecordQueue;
+import stroom.proxy.repo.queue.WriteQueue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class JournalSourceDao implements SourceDao {
+
+    private final JournalStore store;
+    private final FeedDao feedDao;
+
+    private final AtomicLong sourceId = new AtomicLong();
+    private final AtomicLong sourceNewPosition = new AtomicLong();
+
+    private final RecordQueue<JournalTransaction> recordQueue;
+    private final OperationWriteQueue<JournalTransaction> sourceQueue;
+    private final ReadQueue<RepoSource> sourceReadQueue;
+
+    @Inject
+    JournalSourceDao(final JournalStore store,
+                     final FeedDao feedDao,
+                     final ProxyDbConfig dbConfig) {
+        this.store = store;
+        this.feedDao = feedDao;
+        init();
+
+        sourceQueue = new OperationWriteQueue<>();
+        final List<WriteQueue<JournalTransaction>> writeQueues = List.of(sourceQueue);
+
+        sourceReadQueue = new ReadQueue<>(this::read, dbConfig.getBatchSize());
+        final List<ReadQueue<?>> readQueues = List.of(sourceReadQueue);
+
+        recordQueue = new RecordQueue<>(store::transaction, writeQueues, readQueues, dbConfig.getBatchSize());
+    }
+
+    private long read(final long currentReadPos, final long limit, List<RepoSource> readQueue) {
+        return store.read(() -> {
+            long pos = currentReadPos;
+            for (final SourceRow row : store.sourcesByNewPosition.after(currentReadPos, limit)) {
+                pos = row.newPosition();
+                readQueue.add(row.toRepoSource());
+            }
+            return pos;
+        });
+    }
+
+    private void init() {
+        store.read(() -> {
+            sourceId.set(store.sources.maxId());
+            sourceNewPosition.set(store.sourcesByNewPosition.max());
+            return null;
+        });
+    }
+
+    @Override
+    public long getMaxFileStoreId() {
+        return store.read(() -> store.sources.max(SourceRow::fileStoreId));
+    }
+
+    @Override
+    public void clear() {
+        store.transaction(transaction -> transaction.clear(store.sources));
+        recordQueue.clear();
+        init();
+    }
+
+    @Override
+    public void addSource(final long fileStoreId,
+                          final String feedName,
+                          final String typeName) {
+        final long feedId = feedDao.getId(new FeedKey(feedName, typeName));
+        recordQueue.add(() -> {
+            final SourceRow row = new SourceRow(
+                    sourceId.incrementAndGet(),
+                    fileStoreId,
+                    feedId,
+                    false,
+                    false,
+                    0,
+                    sourceNewPosition.incrementAndGet());
+            sourceQueue.add(transaction -> transaction.put(store.sources, row));
+        });
+    }
+
+    @Override
+    public Batch<RepoSource> getNewSources() {
+        return recordQueue.getBatch(sourceReadQueue);
+    }
+
+    @Override
+    public Batch<RepoSource> getNewSources(final long timeout,
+                                           final TimeUnit timeUnit) {
+        return recordQueue.getBatch(sourceReadQueue, timeout, timeUnit);
+    }
+
+    @Override
+    public int countSources() {
+        return store.read(store.sources::size);
+    }
+
+    @Override
+    public void markDeletableSources() {
+        store.transaction(transaction -> {
+            for (final SourceRow row : store.examinedEmptySources.all()) {
+                transaction.put(store.sources, row.markDeleted());
+            }
+        });
+    }
+
+    @Override
+    public List<RepoSource> getDeletableSources(final long minSourceId,
+                                                final int limit) {
+        return store.read(() -> store.deletedSources
+                .after(minSourceId, limit)
+                .stream()
+                .map(SourceRow::toRepoSource)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public int countDeletableSources() {
+        markDeletableSources();
+        return getDeletableSources(0, 1000).size();
+    }
+
+    @Override
+    public int deleteSources() {
+        return store.transactionResult(transaction -> {
+            final List<SourceRow> rows = store.deletedSources.all();
+            for (final SourceRow row : rows) {
+                transaction.delete(store.sources, row.id());
+            }
+            return rows.size();
+        });
+    }
+
+    @Override
+    public void resetExamined() {
+        store.transaction(transaction -> {
+            for (final SourceRow row : List.copyOf(store.sources.values())) {
+                transaction.put(store.sources, row.resetExamined());
+            }
+        });
+    }
+
+    @Override
+    public void setSourceExamined(final long sourceId,
+                                  final boolean examined,
+                                  final int itemCount) {
+        store.transaction(transaction -> setSourceExamined(transaction, sourceId, examined, itemCount));
+    }
+
+    void setSourceExamined(final JournalTransaction transaction,
+                           final long sourceId,
+                           final boolean examined,
+                           final int itemCount) {
+        final SourceRow row = store.sources.get(sourceId);
+        if (row != null) {
+            transaction.put(store.sources, row.examined(examined, itemCount));
+        }
+    }
+
+    @Override
+    public void flush() {
+        recordQueue.flush();
+    }
+
+    @Override
+    public void clearQueue() {
+        recordQueue.clear();
+    }
+}
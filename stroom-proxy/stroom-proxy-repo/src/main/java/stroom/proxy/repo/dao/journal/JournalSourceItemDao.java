@@ -0,0 +1,153 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.Items;
+import stroom.proxy.repo.ProxyDbConfig;
+import stroom.proxy.repo.RepoSource;
+import stroom.proxy.repo.RepoSourceItem;
+import stroom.proxy.repo.RepoSourceItemRef;
+import stroom.proxy.repo.dao.SourceItemDao;
+import stroom.proxy.repo.queue.Batch;
+import stroom.proxy.repo.queue.OperationWriteQueue;
+import stroom.proxy.repo.queue.ReadQueue;
+import stroom.proxy.repo.queue.RecordQueue;
+import stroom.proxy.repo.queue.WriteQueue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class JournalSourceItemDao implements SourceItemDao {
+
+    private final JournalStore store;
+    private final JournalSourceDao sourceDao;
+
+    private final AtomicLong sourceItemId = new AtomicLong();
+    private final AtomicLong sourceItemNewPosition = new AtomicLong();
+
+    private final RecordQueue<JournalTransaction> recordQueue;
+    private final OperationWriteQueue<JournalTransaction> sourceUpdateQueue;
+    private final OperationWriteQueue<JournalTransaction> sourceItemQueue;
+    private final ReadQueue<RepoSourceItemRef> sourceItemReadQueue;
+
+    @Inject
+    JournalSourceItemDao(final JournalStore store,
+                         final JournalSourceDao sourceDao,
+                         final ProxyDbConfig dbConfig) {
+        this.store = store;
+        this.sourceDao = sourceDao;
+        init();
+
+        sourceUpdateQueue = new OperationWriteQueue<>();
+        sourceItemQueue = new OperationWriteQueue<>();
+        final List<WriteQueue<JournalTransaction>> writeQueues = List.of(sourceItemQueue, sourceUpdateQueue);
+
+        sourceItemReadQueue = new ReadQueue<>(this::read, dbConfig.getBatchSize());
+        final List<ReadQueue<?>> readQueues = List.of(sourceItemReadQueue);
+
+        recordQueue = new RecordQueue<>(store::transaction, writeQueues, readQueues, dbConfig.getBatchSize());
+    }
+
+    private long read(final long currentReadPos, final long limit, List<RepoSourceItemRef> readQueue) {
+        return store.read(() -> {
+            long pos = currentReadPos;
+            for (final SourceItemRow row : store.sourceItemsByNewPosition.after(currentReadPos, limit)) {
+                pos = row.newPosition();
+                readQueue.add(new RepoSourceItemRef(row.id(), row.feedId(), row.byteSize()));
+            }
+            return pos;
+        });
+    }
+
+    private void init() {
+        store.read(() -> {
+            sourceItemId.set(store.sourceItems.maxId());
+            sourceItemNewPosition.set(store.sourceItemsByNewPosition.max());
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        store.transaction(transaction -> transaction.clear(store.sourceItems));
+        recordQueue.clear();
+        init();
+    }
+
+    @Override
+    public int countItems() {
+        return store.read(store.sourceItems::size);
+    }
+
+    @Override
+    public void addItems(final RepoSource source,
+                         final Collection<RepoSourceItem> items) {
+        recordQueue.add(() -> {
+            for (final RepoSourceItem item : items) {
+                final SourceItemRow row = new SourceItemRow(
+                        sourceItemId.incrementAndGet(),
+                        item.name(),
+                        item.extensions(),
+                        item.feedId(),
+                        item.totalByteSize(),
+                        item.repoSource().id(),
+                        item.repoSource().fileStoreId(),
+                        item.aggregateId(),
+                        sourceItemNewPosition.incrementAndGet());
+                sourceItemQueue.add(transaction -> transaction.put(store.sourceItems, row));
+            }
+
+            sourceUpdateQueue.add(transaction ->
+                    sourceDao.setSourceExamined(transaction, source.id(), true, items.size()));
+        });
+    }
+
+    @Override
+    public Batch<RepoSourceItemRef> getNewSourceItems() {
+        return recordQueue.getBatch(sourceItemReadQueue);
+    }
+
+    @Override
+    public Batch<RepoSourceItemRef> getNewSourceItems(final long timeout,
+                                                      final TimeUnit timeUnit) {
+        return recordQueue.getBatch(sourceItemReadQueue, timeout, timeUnit);
+    }
+
+    @Override
+    public void deleteBySourceId(final long sourceId) {
+        store.transaction(transaction -> {
+            for (final SourceItemRow row : store.sourceItemsBySource.get(sourceId)) {
+                transaction.delete(store.sourceItems, row.id());
+            }
+        });
+    }
+
+    @Override
+    public Items fetchSourceItemsByAggregateId(final long aggregateId) {
+        final Map<Items.Source, List<Items.Item>> resultMap = new HashMap<>();
+        store.read(() -> store.sourceItemsByAggregate.get(aggregateId)).forEach(row -> {
+            final Items.Source source = new Items.Source(row.sourceId(), row.fileStoreId());
+            final Items.Item item = new Items.Item(
+                    source,
+                    row.id(),
+                    row.name(),
+                    row.feedId(),
+                    row.aggregateId(),
+                    row.byteSize(),
+                    row.extensions());
+            resultMap.computeIfAbsent(source, s -> new ArrayList<>()).add(item);
+        });
+        return new Items(resultMap);
+    }
+
+    @Override
+    public void flush() {
+        recordQueue.flush();
+    }
+}
@@ -0,0 +1,468 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.FeedKey;
+import stroom.proxy.repo.ProxyDbModule;
+import stroom.proxy.repo.RepoDbDirProvider;
+import stroom.util.concurrent.UncheckedInterruptedException;
+import stroom.util.io.FileUtil;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Holds the proxy repo bookkeeping tables in memory and makes them durable with an append only journal.
+ * <p>
+ * Each committed transaction is appended to the journal as one frame made up of a length, a CRC and the changes.
+ * Frames are handed to the OS on commit but are not forced to disk, which gives the same guarantees as SQLite with
+ * {@code synchronous = normal}. When the journal grows larger than the last snapshot the tables are written to a new
+ * snapshot and the journal is started again. On startup the snapshot is loaded and the journal is replayed over it.
+ * A torn frame at the end of the journal, e.g. after a crash, is truncated.
+ * <p>
+ * If there is no snapshot or journal but there is a SQLite proxy repo DB then it is migrated into the store on
+ * startup.
+ */
+@Singleton
+public class JournalStore {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(JournalStore.class);
+
+    static final String SNAPSHOT_FILE_NAME = "proxy-repo.snapshot";
+    static final String JOURNAL_FILE_NAME = "proxy-repo.journal";
+
+    private static final int MAGIC = 0x50524a53;
+    private static final int VERSION = 1;
+    // Magic, version and generation.
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    // Length and CRC.
+    private static final int FRAME_HEADER_SIZE = 4 + 4;
+    private static final long MIN_COMPACT_BYTES = 64L * 1024 * 1024;
+
+    final JournalTable<FeedRow> feeds =
+            new JournalTable<>(1, "feed", FeedRow::read);
+    final GroupIndex<FeedKey, FeedRow> feedsByKey =
+            feeds.groupIndex(FeedRow::key);
+
+    final JournalTable<ForwardDestRow> forwardDests =
+            new JournalTable<>(2, "forward_dest", ForwardDestRow::read);
+    final GroupIndex<String, ForwardDestRow> forwardDestsByName =
+            forwardDests.groupIndex(ForwardDestRow::name);
+
+    final JournalTable<SourceRow> sources =
+            new JournalTable<>(3, "source", SourceRow::read);
+    final PositionIndex<SourceRow> sourcesByNewPosition =
+            sources.positionIndex(SourceRow::newPosition);
+    final FilterIndex<SourceRow> examinedEmptySources =
+            sources.filterIndex(row -> row.examined() && row.itemCount() == 0 && !row.deleted());
+    final FilterIndex<SourceRow> deletedSources =
+            sources.filterIndex(SourceRow::deleted);
+
+    final JournalTable<SourceItemRow> sourceItems =
+            new JournalTable<>(4, "source_item", SourceItemRow::read);
+    final PositionIndex<SourceItemRow> sourceItemsByNewPosition =
+            sourceItems.positionIndex(SourceItemRow::newPosition);
+    final GroupIndex<Long, SourceItemRow> sourceItemsBySource =
+            sourceItems.groupIndex(SourceItemRow::sourceId);
+    final GroupIndex<Long, SourceItemRow> sourceItemsByAggregate =
+            sourceItems.groupIndex(SourceItemRow::aggregateId);
+
+    final JournalTable<AggregateRow> aggregates =
+            new JournalTable<>(5, "aggregate", AggregateRow::read);
+    final PositionIndex<AggregateRow> aggregatesByNewPosition =
+            aggregates.positionIndex(AggregateRow::newPosition);
+    final GroupIndex<Long, AggregateRow> openAggregatesByFeed =
+            aggregates.groupIndex(row -> row.complete()
+                    ? null
+                    : row.feedId());
+    final FilterIndex<AggregateRow> openAggregates =
+            aggregates.filterIndex(row -> !row.complete());
+
+    final JournalTable<ForwardRow> forwardAggregates =
+            new JournalTable<>(6, "forward_aggregate", ForwardRow::read);
+    final PositionIndex<ForwardRow> forwardAggregatesByNewPosition =
+            forwardAggregates.positionIndex(ForwardRow::newPosition);
+    final PositionIndex<ForwardRow> forwardAggregatesByRetryPosition =
+            forwardAggregates.positionIndex(ForwardRow::retryPosition);
+    final GroupIndex<Long, ForwardRow> forwardAggregatesByAggregate =
+            forwardAggregates.groupIndex(ForwardRow::parentId);
+
+    final JournalTable<ForwardRow> forwardSources =
+            new JournalTable<>(7, "forward_source", ForwardRow::read);
+    final PositionIndex<ForwardRow> forwardSourcesByNewPosition =
+            forwardSources.positionIndex(ForwardRow::newPosition);
+    final PositionIndex<ForwardRow> forwardSourcesByRetryPosition =
+            forwardSources.positionIndex(ForwardRow::retryPosition);
+    final GroupIndex<Long, ForwardRow> forwardSourcesBySource =
+            forwardSources.groupIndex(ForwardRow::parentId);
+
+    private final List<JournalTable<?>> tables = List.of(
+            feeds,
+            forwardDests,
+            sources,
+            sourceItems,
+            aggregates,
+            forwardAggregates,
+            forwardSources);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long minCompactBytes;
+    private final Path snapshotFile;
+    private final Path journalFile;
+
+    private FileChannel journalChannel;
+    private long generation;
+    private long snapshotBytes;
+    private long journalBytes;
+
+    @Inject
+    JournalStore(final RepoDbDirProvider repoDbDirProvider) {
+        this(repoDbDirProvider.get(), MIN_COMPACT_BYTES);
+    }
+
+    JournalStore(final Path dbDir, final long minCompactBytes) {
+        this.minCompactBytes = minCompactBytes;
+        FileUtil.mkdirs(dbDir);
+        if (!Files.isDirectory(dbDir)) {
+            throw new RuntimeException("Unable to find DB dir: " + FileUtil.getCanonicalPath(dbDir));
+        }
+        snapshotFile = dbDir.resolve(SNAPSHOT_FILE_NAME);
+        journalFile = dbDir.resolve(JOURNAL_FILE_NAME);
+        final Path sqliteFile = dbDir.resolve(ProxyDbModule.DB_FILE_NAME);
+
+        try {
+            if (Files.isRegularFile(snapshotFile)) {
+                readSnapshot();
+                openJournal();
+            } else if (!Files.isRegularFile(journalFile) && Files.isRegularFile(sqliteFile)) {
+                SqliteMigration.migrate(sqliteFile, this);
+                compact();
+                SqliteMigration.retire(sqliteFile);
+            } else {
+                openJournal();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    <R> R read(final Supplier<R> supplier) {
+        final Lock readLock = lock.readLock();
+        try {
+            readLock.lockInterruptibly();
+            try {
+                return supplier.get();
+            } finally {
+                readLock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        }
+    }
+
+    void transaction(final Consumer<JournalTransaction> consumer) {
+        transactionResult(transaction -> {
+            consumer.accept(transaction);
+            return null;
+        });
+    }
+
+    <R> R transactionResult(final Function<JournalTransaction, R> function) {
+        final Lock writeLock = lock.writeLock();
+        try {
+            writeLock.lockInterruptibly();
+            try {
+                final JournalTransaction transaction = new JournalTransaction();
+                final R result;
+                try {
+                    result = function.apply(transaction);
+                    commit(transaction);
+                } catch (final RuntimeException | Error e) {
+                    transaction.rollback();
+                    throw e;
+                }
+
+                if (journalBytes > Math.max(minCompactBytes, snapshotBytes)) {
+                    try {
+                        compact();
+                    } catch (final IOException | RuntimeException e) {
+                        // The transaction is already in the journal so just try again after the next one.
+                        LOGGER.error(() -> "Unable to compact journal " + FileUtil.getCanonicalPath(journalFile), e);
+                    }
+                }
+                return result;
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        }
+    }
+
+    private void commit(final JournalTransaction transaction) {
+        if (transaction.isEmpty()) {
+            return;
+        }
+
+        final byte[] redo = transaction.getRedo();
+        final CRC32 crc = new CRC32();
+        crc.update(redo);
+        final ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + redo.length);
+        frame.putInt(redo.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(redo);
+        frame.flip();
+
+        try {
+            while (frame.hasRemaining()) {
+                journalChannel.write(frame);
+            }
+            journalBytes += FRAME_HEADER_SIZE + redo.length;
+        } catch (final IOException e) {
+            // Don't leave part of a frame behind for later frames to be appended to.
+            try {
+                journalChannel.truncate(journalBytes);
+                journalChannel.position(journalBytes);
+            } catch (final IOException e2) {
+                e.addSuppressed(e2);
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write all tables to a new snapshot and start a new journal.
+     */
+    private void compact() throws IOException {
+        final long nextGeneration = generation + 1;
+        final Path tempFile = snapshotFile.resolveSibling(SNAPSHOT_FILE_NAME + ".tmp");
+        LOGGER.debug(() -> "Writing snapshot " + FileUtil.getCanonicalPath(snapshotFile));
+
+        try (final OutputStream outputStream = Files.newOutputStream(tempFile)) {
+            final CheckedOutputStream checkedOutputStream =
+                    new CheckedOutputStream(new BufferedOutputStream(outputStream), new CRC32());
+            final DataOutputStream out = new DataOutputStream(checkedOutputStream);
+            writeHeader(out, nextGeneration);
+            for (final JournalTable<?> table : tables) {
+                out.writeByte(table.getCode());
+                out.writeInt(table.size());
+                for (final JournalRow row : table.values()) {
+                    row.write(out);
+                }
+            }
+            out.writeLong(checkedOutputStream.getChecksum().getValue());
+            out.flush();
+        }
+        try (final FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Make sure the rename is durable before we reset the journal that the old snapshot depends on.
+        syncDir(snapshotFile.getParent());
+
+        // The snapshot now holds everything in the journal so the journal is no longer needed. If we fail before the
+        // journal has been replaced then the old generation will be ignored on the next startup.
+        generation = nextGeneration;
+        snapshotBytes = Files.size(snapshotFile);
+        resetJournal();
+    }
+
+    private void readSnapshot() throws IOException {
+        try (final InputStream inputStream = Files.newInputStream(snapshotFile)) {
+            final CheckedInputStream checkedInputStream =
+                    new CheckedInputStream(new BufferedInputStream(inputStream), new CRC32());
+            final DataInputStream in = new DataInputStream(checkedInputStream);
+            generation = readHeader(in, snapshotFile);
+            for (final JournalTable<?> table : tables) {
+                final int code = in.readByte();
+                if (code != table.getCode()) {
+                    throw new IOException("Expected table " + table.getName() + " in " +
+                            FileUtil.getCanonicalPath(snapshotFile));
+                }
+                final int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    readRow(table, in);
+                }
+            }
+            final long checksum = checkedInputStream.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("Checksum mismatch in " + FileUtil.getCanonicalPath(snapshotFile));
+            }
+        }
+        snapshotBytes = Files.size(snapshotFile);
+    }
+
+    /**
+     * Replay the journal over the tables and open it to append new frames.
+     */
+    private void openJournal() throws IOException {
+        if (!Files.isRegularFile(journalFile) || Files.size(journalFile) < HEADER_SIZE) {
+            resetJournal();
+            return;
+        }
+
+        long validBytes = HEADER_SIZE;
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(journalFile)))) {
+            final long journalGeneration = readHeader(in, journalFile);
+            if (journalGeneration < generation) {
+                // The snapshot was written after this journal so it already contains all of these changes.
+                LOGGER.info(() -> "Ignoring journal " + FileUtil.getCanonicalPath(journalFile) +
+                        " from generation " + journalGeneration + " as snapshot is generation " + generation);
+                resetJournal();
+                return;
+            } else if (journalGeneration > generation) {
+                // The snapshot this journal follows on from is missing so we can't rebuild the tables.
+                throw new IOException("Journal " + FileUtil.getCanonicalPath(journalFile) +
+                        " is generation " + journalGeneration + " but snapshot " +
+                        FileUtil.getCanonicalPath(snapshotFile) + " is generation " + generation);
+            }
+
+            final long fileSize = Files.size(journalFile);
+            while (true) {
+                final byte[] redo = readFrame(in, fileSize - validBytes);
+                if (redo == null) {
+                    break;
+                }
+                apply(redo);
+                validBytes += FRAME_HEADER_SIZE + redo.length;
+            }
+        }
+
+        final long fileSize = Files.size(journalFile);
+        if (validBytes < fileSize) {
+            final long torn = fileSize - validBytes;
+            LOGGER.warn(() -> "Truncating " + torn + " bytes of incomplete or corrupt journal from " +
+                    FileUtil.getCanonicalPath(journalFile));
+        }
+        journalChannel = FileChannel.open(journalFile, StandardOpenOption.WRITE);
+        journalChannel.truncate(validBytes);
+        journalChannel.position(validBytes);
+        journalBytes = validBytes;
+    }
+
+    /**
+     * @return The changes in the next frame or null if there are no more complete and valid frames.
+     */
+    private byte[] readFrame(final DataInputStream in, final long remaining) throws IOException {
+        if (remaining < FRAME_HEADER_SIZE) {
+            return null;
+        }
+        final int length;
+        final int crc;
+        try {
+            length = in.readInt();
+            crc = in.readInt();
+        } catch (final EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > remaining - FRAME_HEADER_SIZE) {
+            return null;
+        }
+        final byte[] redo = new byte[length];
+        in.readFully(redo);
+        final CRC32 actual = new CRC32();
+        actual.update(redo);
+        if ((int) actual.getValue() != crc) {
+            return null;
+        }
+        return redo;
+    }
+
+    private void apply(final byte[] redo) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(redo));
+        while (in.available() > 0) {
+            final byte op = in.readByte();
+            final JournalTable<?> table = getTable(in.readByte());
+            switch (op) {
+                case JournalTransaction.PUT -> readRow(table, in);
+                case JournalTransaction.DELETE -> table.remove(in.readLong());
+                case JournalTransaction.CLEAR -> table.clear();
+                default -> throw new IOException("Unknown journal operation " + op);
+            }
+        }
+    }
+
+    private JournalTable<?> getTable(final int code) throws IOException {
+        for (final JournalTable<?> table : tables) {
+            if (table.getCode() == code) {
+                return table;
+            }
+        }
+        throw new IOException("Unknown journal table " + code);
+    }
+
+    private <R extends JournalRow> void readRow(final JournalTable<R> table,
+                                                final DataInputStream in) throws IOException {
+        table.put(table.getReader().read(in));
+    }
+
+    private void resetJournal() throws IOException {
+        if (journalChannel != null) {
+            journalChannel.close();
+        }
+        journalChannel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(generation);
+        header.flip();
+        while (header.hasRemaining()) {
+            journalChannel.write(header);
+        }
+        journalChannel.force(true);
+        journalBytes = HEADER_SIZE;
+    }
+
+    private void syncDir(final Path dir) {
+        try (final FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            // Not all platforms allow a directory to be opened to sync it.
+            LOGGER.debug(() -> "Unable to sync " + FileUtil.getCanonicalPath(dir), e);
+        }
+    }
+
+    private void writeHeader(final DataOutputStream out, final long generation) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(generation);
+    }
+
+    private long readHeader(final DataInputStream in, final Path file) throws IOException {
+        final int magic = in.readInt();
+        final int version = in.readInt();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException("Unexpected header in " + FileUtil.getCanonicalPath(file));
+        }
+        return in.readLong();
+    }
+}
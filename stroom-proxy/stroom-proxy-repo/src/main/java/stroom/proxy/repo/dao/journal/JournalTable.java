@@ -0,0 +1,138 @@
+package stroom.proxy.repo.dao.journal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * An in memory table of rows keyed by id along with the indexes needed to query it.
+ * <p>
+ * Tables are only changed through a {@link JournalTransaction} so that every change is journaled and can be
+ * rolled back.
+ */
+class JournalTable<R extends JournalRow> {
+
+    private final int code;
+    private final String name;
+    private final JournalRow.Reader<R> reader;
+    private final NavigableMap<Long, R> rows = new TreeMap<>();
+    private final List<JournalIndex<R>> indexes = new ArrayList<>();
+
+    JournalTable(final int code,
+                 final String name,
+                 final JournalRow.Reader<R> reader) {
+        this.code = code;
+        this.name = name;
+        this.reader = reader;
+    }
+
+    PositionIndex<R> positionIndex(final Function<R, Long> positionFunction) {
+        return addIndex(new PositionIndex<>(positionFunction));
+    }
+
+    <K> GroupIndex<K, R> groupIndex(final Function<R, K> keyFunction) {
+        return addIndex(new GroupIndex<>(keyFunction));
+    }
+
+    FilterIndex<R> filterIndex(final Predicate<R> predicate) {
+        return addIndex(new FilterIndex<>(predicate));
+    }
+
+    private <I extends JournalIndex<R>> I addIndex(final I index) {
+        indexes.add(index);
+        return index;
+    }
+
+    int getCode() {
+        return code;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    JournalRow.Reader<R> getReader() {
+        return reader;
+    }
+
+    R get(final long id) {
+        return rows.get(id);
+    }
+
+    Collection<R> values() {
+        return rows.values();
+    }
+
+    /**
+     * @return Up to limit rows that match the predicate with an id greater than the supplied id in id order.
+     */
+    List<R> find(final long afterId, final long limit, final Predicate<R> predicate) {
+        final List<R> list = new ArrayList<>();
+        for (final R row : rows.tailMap(afterId, false).values()) {
+            if (list.size() >= limit) {
+                break;
+            }
+            if (predicate.test(row)) {
+                list.add(row);
+            }
+        }
+        return list;
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    long maxId() {
+        return rows.isEmpty()
+                ? 0
+                : rows.lastKey();
+    }
+
+    long max(final ToLongFunction<R> function) {
+        long max = 0;
+        for (final R row : rows.values()) {
+            max = Math.max(max, function.applyAsLong(row));
+        }
+        return max;
+    }
+
+    /**
+     * @return The row that was replaced or null if there was no row with the same id.
+     */
+    R put(final R row) {
+        final R previous = rows.put(row.id(), row);
+        for (final JournalIndex<R> index : indexes) {
+            if (previous != null) {
+                index.remove(previous);
+            }
+            index.add(row);
+        }
+        return previous;
+    }
+
+    /**
+     * @return The row that was removed or null if there was no row with the id.
+     */
+    R remove(final long id) {
+        final R previous = rows.remove(id);
+        if (previous != null) {
+            for (final JournalIndex<R> index : indexes) {
+                index.remove(previous);
+            }
+        }
+        return previous;
+    }
+
+    void clear() {
+        rows.clear();
+        for (final JournalIndex<R> index : indexes) {
+            index.clear();
+        }
+    }
+}
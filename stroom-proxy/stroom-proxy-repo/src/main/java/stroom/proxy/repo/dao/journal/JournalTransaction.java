@@ -0,0 +1,86 @@
+package stroom.proxy.repo.dao.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes made within a {@link JournalStore} transaction.
+ * <p>
+ * Changes are applied to the tables straight away so that later reads in the same transaction see them. Each change
+ * records how to undo it so the transaction can be rolled back, and how to redo it so the transaction can be
+ * appended to the journal as a single frame when it commits.
+ */
+public class JournalTransaction {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte CLEAR = 3;
+
+    private final ByteArrayOutputStream redo = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(redo);
+    private final List<Runnable> undo = new ArrayList<>();
+
+    JournalTransaction() {
+    }
+
+    <R extends JournalRow> void put(final JournalTable<R> table, final R row) {
+        final R previous = table.put(row);
+        if (previous == null) {
+            undo.add(() -> table.remove(row.id()));
+        } else {
+            undo.add(() -> table.put(previous));
+        }
+        try {
+            out.writeByte(PUT);
+            out.writeByte(table.getCode());
+            row.write(out);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    <R extends JournalRow> void delete(final JournalTable<R> table, final long id) {
+        final R previous = table.remove(id);
+        if (previous != null) {
+            undo.add(() -> table.put(previous));
+            try {
+                out.writeByte(DELETE);
+                out.writeByte(table.getCode());
+                out.writeLong(id);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    <R extends JournalRow> void clear(final JournalTable<R> table) {
+        final List<R> previous = new ArrayList<>(table.values());
+        table.clear();
+        undo.add(() -> previous.forEach(table::put));
+        try {
+            out.writeByte(CLEAR);
+            out.writeByte(table.getCode());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    boolean isEmpty() {
+        return redo.size() == 0;
+    }
+
+    byte[] getRedo() {
+        return redo.toByteArray();
+    }
+
+    void rollback() {
+        for (int i = undo.size() - 1; i >= 0; i--) {
+            undo.get(i).run();
+        }
+        undo.clear();
+    }
+}
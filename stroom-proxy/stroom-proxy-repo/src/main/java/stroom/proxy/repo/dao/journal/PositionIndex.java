@@ -0,0 +1,73 @@
+package stroom.proxy.repo.dao.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Orders rows by a nullable queue position so that readers can page through rows added after the last position
+ * they read. Rows without a position are not indexed.
+ */
+class PositionIndex<R extends JournalRow> implements JournalIndex<R> {
+
+    private final Function<R, Long> positionFunction;
+    private final NavigableMap<Long, R> rows = new TreeMap<>();
+
+    PositionIndex(final Function<R, Long> positionFunction) {
+        this.positionFunction = positionFunction;
+    }
+
+    @Override
+    public void add(final R row) {
+        final Long position = positionFunction.apply(row);
+        if (position != null) {
+            rows.put(position, row);
+        }
+    }
+
+    @Override
+    public void remove(final R row) {
+        final Long position = positionFunction.apply(row);
+        if (position != null) {
+            rows.remove(position);
+        }
+    }
+
+    @Override
+    public void clear() {
+        rows.clear();
+    }
+
+    /**
+     * @return Up to limit rows with a position greater than the supplied position in position order.
+     */
+    List<R> after(final long position, final long limit) {
+        return after(position, limit, row -> true);
+    }
+
+    /**
+     * @return Up to limit rows that match the predicate with a position greater than the supplied position in
+     * position order.
+     */
+    List<R> after(final long position, final long limit, final Predicate<R> predicate) {
+        final List<R> list = new ArrayList<>();
+        for (final R row : rows.tailMap(position, false).values()) {
+            if (list.size() >= limit) {
+                break;
+            }
+            if (predicate.test(row)) {
+                list.add(row);
+            }
+        }
+        return list;
+    }
+
+    long max() {
+        return rows.isEmpty()
+                ? 0
+                : rows.lastKey();
+    }
+}
@@ -0,0 +1,46 @@
+package stroom.proxy.repo.dao.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+record SourceItemRow(long id,
+                     String name,
+                     String extensions,
+                     long feedId,
+                     long byteSize,
+                     long sourceId,
+                     long fileStoreId,
+                     Long aggregateId,
+                     Long newPosition) implements JournalRow {
+
+    SourceItemRow aggregate(final long aggregateId) {
+        return new SourceItemRow(id, name, extensions, feedId, byteSize, sourceId, fileStoreId, aggregateId, null);
+    }
+
+    @Override
+    public void write(final DataOutput out) throws IOException {
+        out.writeLong(id);
+        JournalRow.writeNullableString(out, name);
+        JournalRow.writeNullableString(out, extensions);
+        out.writeLong(feedId);
+        out.writeLong(byteSize);
+        out.writeLong(sourceId);
+        out.writeLong(fileStoreId);
+        JournalRow.writeNullableLong(out, aggregateId);
+        JournalRow.writeNullableLong(out, newPosition);
+    }
+
+    static SourceItemRow read(final DataInput in) throws IOException {
+        return new SourceItemRow(
+                in.readLong(),
+                JournalRow.readNullableString(in),
+                JournalRow.readNullableString(in),
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                JournalRow.readNullableLong(in),
+                JournalRow.readNullableLong(in));
+    }
+}
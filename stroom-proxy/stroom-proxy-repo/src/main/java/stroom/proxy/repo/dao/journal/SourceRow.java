@@ -0,0 +1,62 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.RepoSource;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+record SourceRow(long id,
+                 long fileStoreId,
+                 long feedId,
+                 boolean examined,
+                 boolean deleted,
+                 int itemCount,
+                 Long newPosition) implements JournalRow {
+
+    RepoSource toRepoSource() {
+        return new RepoSource(id, fileStoreId, feedId);
+    }
+
+    SourceRow examined(final boolean examined, final int itemCount) {
+        return new SourceRow(id, fileStoreId, feedId, examined, deleted, itemCount, null);
+    }
+
+    SourceRow markDeleted() {
+        return new SourceRow(id, fileStoreId, feedId, examined, true, itemCount, newPosition);
+    }
+
+    SourceRow resetExamined() {
+        return new SourceRow(id, fileStoreId, feedId, false, deleted, 0, newPosition);
+    }
+
+    SourceRow removeItems(final int count) {
+        return new SourceRow(id, fileStoreId, feedId, examined, deleted, itemCount - count, newPosition);
+    }
+
+    SourceRow clearNewPosition() {
+        return new SourceRow(id, fileStoreId, feedId, examined, deleted, itemCount, null);
+    }
+
+    @Override
+    public void write(final DataOutput out) throws IOException {
+        out.writeLong(id);
+        out.writeLong(fileStoreId);
+        out.writeLong(feedId);
+        out.writeBoolean(examined);
+        out.writeBoolean(deleted);
+        out.writeInt(itemCount);
+        JournalRow.writeNullableLong(out, newPosition);
+    }
+
+    static SourceRow read(final DataInput in) throws IOException {
+        return new SourceRow(
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                in.readBoolean(),
+                in.readBoolean(),
+                in.readInt(),
+                JournalRow.readNullableLong(in));
+    }
+}
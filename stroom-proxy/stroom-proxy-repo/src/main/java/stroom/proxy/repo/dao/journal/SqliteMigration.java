@@ -0,0 +1,138 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.ProxyDbModule;
+import stroom.util.io.FileUtil;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static stroom.proxy.repo.db.jooq.tables.Aggregate.AGGREGATE;
+import static stroom.proxy.repo.db.jooq.tables.Feed.FEED;
+import static stroom.proxy.repo.db.jooq.tables.ForwardAggregate.FORWARD_AGGREGATE;
+import static stroom.proxy.repo.db.jooq.tables.ForwardDest.FORWARD_DEST;
+import static stroom.proxy.repo.db.jooq.tables.ForwardSource.FORWARD_SOURCE;
+import static stroom.proxy.repo.db.jooq.tables.Source.SOURCE;
+import static stroom.proxy.repo.db.jooq.tables.SourceItem.SOURCE_ITEM;
+
+/**
+ * Copies the contents of a SQLite proxy repo DB into a {@link JournalStore} so that a proxy can switch to the journal
+ * store without losing track of data it has already received.
+ */
+final class SqliteMigration {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(SqliteMigration.class);
+
+    static final String MIGRATED_SUFFIX = ".migrated";
+
+    private SqliteMigration() {
+        // Utility class.
+    }
+
+    /**
+     * Load all rows from the SQLite DB into the store tables. The caller is responsible for writing a snapshot of the
+     * loaded tables.
+     */
+    static void migrate(final Path dbFile, final JournalStore store) {
+        LOGGER.info(() -> "Migrating " + FileUtil.getCanonicalPath(dbFile) + " to journal store");
+
+        final SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + FileUtil.getCanonicalPath(dbFile));
+        // Bring an old DB up to the current schema before we read it.
+        ProxyDbModule.migrateSchema(dataSource);
+
+        final DSLContext context = DSL.using(dataSource, SQLDialect.SQLITE);
+        copy(context, FEED, store.feeds, r -> new FeedRow(
+                r.getId(),
+                r.getFeedName(),
+                r.getTypeName()));
+        copy(context, FORWARD_DEST, store.forwardDests, r -> new ForwardDestRow(
+                r.getId(),
+                r.getName()));
+        copy(context, SOURCE, store.sources, r -> new SourceRow(
+                r.getId(),
+                r.getFileStoreId(),
+                r.getFkFeedId(),
+                Boolean.TRUE.equals(r.getExamined()),
+                Boolean.TRUE.equals(r.getDeleted()),
+                Objects.requireNonNullElse(r.getItemCount(), 0),
+                r.getNewPosition()));
+        copy(context, SOURCE_ITEM, store.sourceItems, r -> new SourceItemRow(
+                r.getId(),
+                r.getName(),
+                r.getExtensions(),
+                r.getFkFeedId(),
+                Objects.requireNonNullElse(r.getByteSize(), 0L),
+                r.getFkSourceId(),
+                r.getFileStoreId(),
+                r.getFkAggregateId(),
+                r.getNewPosition()));
+        copy(context, AGGREGATE, store.aggregates, r -> new AggregateRow(
+                r.getId(),
+                r.getCreateTimeMs(),
+                r.getFkFeedId(),
+                r.getByteSize(),
+                r.getItems(),
+                Boolean.TRUE.equals(r.getComplete()),
+                r.getNewPosition()));
+        copy(context, FORWARD_AGGREGATE, store.forwardAggregates, r -> new ForwardRow(
+                r.getId(),
+                r.getUpdateTimeMs(),
+                r.getFkForwardDestId(),
+                r.getFkAggregateId(),
+                Boolean.TRUE.equals(r.getSuccess()),
+                r.getError(),
+                Objects.requireNonNullElse(r.getTries(), 0L),
+                r.getNewPosition(),
+                r.getRetryPosition()));
+        copy(context, FORWARD_SOURCE, store.forwardSources, r -> new ForwardRow(
+                r.getId(),
+                r.getUpdateTimeMs(),
+                r.getFkForwardDestId(),
+                r.getFkSourceId(),
+                Boolean.TRUE.equals(r.getSuccess()),
+                r.getError(),
+                Objects.requireNonNullElse(r.getTries(), 0L),
+                r.getNewPosition(),
+                r.getRetryPosition()));
+    }
+
+    private static <T extends Record, R extends JournalRow> void copy(final DSLContext context,
+                                                                      final Table<T> from,
+                                                                      final JournalTable<R> to,
+                                                                      final Function<T, R> mapper) {
+        try (final Cursor<T> cursor = context.selectFrom(from).fetchLazy()) {
+            for (final T record : cursor) {
+                to.put(mapper.apply(record));
+            }
+        }
+        LOGGER.info(() -> "Migrated " + to.size() + " " + to.getName() + " rows");
+    }
+
+    /**
+     * Rename the SQLite DB files once they have been migrated so they are not used again.
+     */
+    static void retire(final Path dbFile) throws IOException {
+        for (final String suffix : new String[]{"", "-wal", "-shm"}) {
+            final Path file = dbFile.resolveSibling(dbFile.getFileName() + suffix);
+            if (Files.exists(file)) {
+                Files.move(file,
+                        file.resolveSibling(file.getFileName() + MIGRATED_SUFFIX),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -8,12 +8,12 @@ import org.jooq.Table;
 import java.util.ArrayList;
 import java.util.List;
 
-public class BindWriteQueue implements WriteQueue {
+public class BindWriteQueue implements WriteQueue<DSLContext> {
 
     private final Table<?> table;
     private final Field<?>[] columns;
     private final Object[] values;
-    private final List<Object[]> queue = new ArrayList<>();
+    private List<Object[]> queue = new ArrayList<>();
 
     public BindWriteQueue(final Table<?> table,
                           final Field<?>[] columns) {
@@ -49,4 +49,19 @@ public class BindWriteQueue implements WriteQueue {
     public void clear() {
         queue.clear();
     }
+
+    @Override
+    public WriteQueue<DSLContext> drain() {
+        final BindWriteQueue drained = new BindWriteQueue(table, columns);
+        drained.queue = queue;
+        queue = new ArrayList<>();
+        return drained;
+    }
+
+    @Override
+    public void restore(final WriteQueue<DSLContext> drained) {
+        final List<Object[]> list = ((BindWriteQueue) drained).queue;
+        list.addAll(queue);
+        queue = list;
+    }
 }
@@ -1,25 +1,23 @@
 package stroom.proxy.repo.queue;
 
-import org.jooq.DSLContext;
-
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 
-public class OperationWriteQueue implements WriteQueue {
+public class OperationWriteQueue<C> implements WriteQueue<C> {
 
-    private final List<Consumer<DSLContext>> queue = new ArrayList<>();
+    private List<Consumer<C>> queue = new ArrayList<>();
 
     @Override
-    public void flush(final DSLContext context) {
+    public void flush(final C context) {
         if (queue.size() > 0) {
-            for (final Consumer<DSLContext> consumer : queue) {
+            for (final Consumer<C> consumer : queue) {
                 consumer.accept(context);
             }
         }
     }
 
-    public void add(Consumer<DSLContext> operation) {
+    public void add(Consumer<C> operation) {
         queue.add(operation);
     }
 
@@ -32,4 +30,19 @@ public class OperationWriteQueue implements WriteQueue {
     public void clear() {
         queue.clear();
     }
+
+    @Override
+    public WriteQueue<C> drain() {
+        final OperationWriteQueue<C> drained = new OperationWriteQueue<>();
+        drained.queue = queue;
+        queue = new ArrayList<>();
+        return drained;
+    }
+
+    @Override
+    public void restore(final WriteQueue<C> drained) {
+        final List<Consumer<C>> list = ((OperationWriteQueue<C>) drained).queue;
+        list.addAll(queue);
+        queue = list;
+    }
 }
@@ -12,6 +12,7 @@ public class ReadQueue<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ReadQueue.class);
 
     private final int batchSize;
+    private volatile int limit;
     private volatile List<T> readQueue = Collections.emptyList();
     private final RecordReader<T> recordReader;
 
@@ -21,15 +22,24 @@ public class ReadQueue<T> {
                      final int batchSize) {
         this.recordReader = recordReader;
         this.batchSize = batchSize;
+        this.limit = batchSize;
     }
 
     public void fill() {
+        fill(batchSize);
+    }
+
+    /**
+     * @param limit The maximum number of records to read, e.g. to read no more than a consumer has room for.
+     */
+    public void fill(final int limit) {
         if (readQueue.size() != 0) {
             throw new RuntimeException("Expected empty queue");
         }
         readQueue = new ArrayList<>();
+        this.limit = limit;
         try {
-            readPos = recordReader.read(readPos, batchSize, readQueue);
+            readPos = recordReader.read(readPos, limit, readQueue);
         } catch (final RuntimeException e) {
             LOGGER.error(e.getMessage(), e);
             throw e;
@@ -39,7 +49,11 @@ public class ReadQueue<T> {
     public Batch<T> getBatch() {
         final List<T> result = readQueue;
         readQueue = Collections.emptyList();
-        return new Batch(result, result.size() == batchSize);
+        return new Batch(result, result.size() == limit);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
     }
 
     public int size() {
@@ -1,66 +1,97 @@
 package stroom.proxy.repo.queue;
 
-import stroom.proxy.repo.dao.SqliteJooqHelper;
 import stroom.util.concurrent.UncheckedInterruptedException;
 import stroom.util.shared.Flushable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
-public class RecordQueue implements Flushable {
+/**
+ * Queues writes in memory and flushes them to the store in batches.
+ * <p>
+ * The write lock is only held while writes are appended to the queues or handed over to be
+ * flushed, so threads adding records are never blocked by store transactions. Flushes are
+ * serialised by the flush lock so that records are always committed in the order they were added
+ * and readers never skip past positions that have yet to be committed.
+ *
+ * @param <C> The type of context the store provides to write within a transaction.
+ */
+public class RecordQueue<C> implements Flushable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RecordQueue.class);
 
-    private final SqliteJooqHelper jooq;
-    private final List<WriteQueue> writeQueues;
+    private final Consumer<Consumer<C>> transaction;
+    private final List<WriteQueue<C>> writeQueues;
     private final List<ReadQueue<?>> readQueues;
     private final int batchSize;
+    private final ReentrantLock flushLock = new ReentrantLock();
     private final ReentrantLock writeLock = new ReentrantLock();
     private final Condition writeLockCondition = writeLock.newCondition();
     private final ReentrantLock readLock = new ReentrantLock();
+    private volatile long flushCount;
 
-    public RecordQueue(final SqliteJooqHelper jooq,
-                       final List<WriteQueue> writeQueues,
+    /**
+     * @param transaction Runs the supplied writes in a single store transaction.
+     */
+    public RecordQueue(final Consumer<Consumer<C>> transaction,
+                       final List<WriteQueue<C>> writeQueues,
                        final List<ReadQueue<?>> readQueues,
                        final int batchSize) {
-        this.jooq = jooq;
+        this.transaction = transaction;
         this.writeQueues = writeQueues;
-        this.readQueues = readQueues;
+        this.readQueues = new CopyOnWriteArrayList<>(readQueues);
         this.batchSize = batchSize;
     }
 
+    /**
+     * Add a queue to read records with once the record queue has been created, e.g. a queue for each forward
+     * dest, so that it is cleared along with the others.
+     */
+    public void addReadQueue(final ReadQueue<?> readQueue) {
+        readQueues.add(readQueue);
+    }
+
     public void clear() {
         try {
-            readLock.lockInterruptibly();
+            flushLock.lockInterruptibly();
             try {
-                writeLock.lockInterruptibly();
+                readLock.lockInterruptibly();
                 try {
-                    for (final WriteQueue writeQueue : writeQueues) {
-                        try {
-                            writeQueue.clear();
-                        } catch (final RuntimeException e) {
-                            LOGGER.error(e.getMessage(), e);
-                            throw e;
+                    writeLock.lockInterruptibly();
+                    try {
+                        for (final WriteQueue<C> writeQueue : writeQueues) {
+                            try {
+                                writeQueue.clear();
+                            } catch (final RuntimeException e) {
+                                LOGGER.error(e.getMessage(), e);
+                                throw e;
+                            }
                         }
-                    }
-                    for (final ReadQueue<?> readQueue : readQueues) {
-                        try {
-                            readQueue.clear();
-                        } catch (final RuntimeException e) {
-                            LOGGER.error(e.getMessage(), e);
-                            throw e;
+                        for (final ReadQueue<?> readQueue : readQueues) {
+                            try {
+                                readQueue.clear();
+                            } catch (final RuntimeException e) {
+                                LOGGER.error(e.getMessage(), e);
+                                throw e;
+                            }
                         }
+                    } finally {
+                        writeLock.unlock();
                     }
                 } finally {
-                    writeLock.unlock();
+                    readLock.unlock();
                 }
             } finally {
-                readLock.unlock();
+                flushLock.unlock();
             }
         } catch (final InterruptedException e) {
             throw UncheckedInterruptedException.create(e);
@@ -77,42 +108,85 @@ public class RecordQueue implements Flushable {
      * @param runnable The runnable that will add items to queues.
      */
     public void add(final Runnable runnable) {
+        final boolean full;
         try {
             writeLock.lockInterruptibly();
             try {
                 runnable.run();
-                final int maxQueueSize = getMaxQueueSize();
-                if (maxQueueSize >= batchSize) {
-                    flushInternal(jooq);
-                }
+                full = getMaxQueueSize() >= batchSize;
             } finally {
                 writeLock.unlock();
             }
         } catch (final InterruptedException e) {
             throw UncheckedInterruptedException.create(e);
         }
+
+        // Flush outside the write lock so other threads can keep adding while we write.
+        if (full) {
+            flush();
+        }
     }
 
     @Override
     public void flush() {
         try {
-            writeLock.lockInterruptibly();
+            flushLock.lockInterruptibly();
             try {
-                final int maxQueueSize = getMaxQueueSize();
-                if (maxQueueSize > 0) {
-                    flushInternal(jooq);
+                final List<WriteQueue<C>> drained = drain();
+                if (!drained.isEmpty()) {
+                    try {
+                        flushInternal(drained);
+                    } catch (final RuntimeException e) {
+                        restore(drained);
+                        throw e;
+                    }
+
+                    writeLock.lockInterruptibly();
+                    try {
+                        flushCount++;
+                        writeLockCondition.signalAll();
+                    } finally {
+                        writeLock.unlock();
+                    }
                 }
             } finally {
-                writeLock.unlock();
+                flushLock.unlock();
             }
         } catch (final InterruptedException e) {
             throw UncheckedInterruptedException.create(e);
         }
     }
 
-    private void flushInternal(final SqliteJooqHelper jooq) {
-        jooq.transaction(context -> {
-            for (final WriteQueue writeQueue : writeQueues) {
+    private List<WriteQueue<C>> drain() throws InterruptedException {
+        writeLock.lockInterruptibly();
+        try {
+            if (getMaxQueueSize() == 0) {
+                return Collections.emptyList();
+            }
+            final List<WriteQueue<C>> drained = new ArrayList<>(writeQueues.size());
+            for (final WriteQueue<C> writeQueue : writeQueues) {
+                drained.add(writeQueue.drain());
+            }
+            return drained;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void restore(final List<WriteQueue<C>> drained) throws InterruptedException {
+        writeLock.lockInterruptibly();
+        try {
+            for (int i = 0; i < writeQueues.size(); i++) {
+                writeQueues.get(i).restore(drained.get(i));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void flushInternal(final List<WriteQueue<C>> drained) {
+        transaction.accept(context -> {
+            for (final WriteQueue<C> writeQueue : drained) {
                 try {
                     writeQueue.flush(context);
                 } catch (final RuntimeException e) {
@@ -121,75 +195,92 @@ public class RecordQueue implements Flushable {
                 }
             }
         });
-        for (final WriteQueue writeQueue : writeQueues) {
-            writeQueue.clear();
-        }
-        writeLockCondition.signalAll();
     }
 
     public <T> Batch<T> getBatch(final ReadQueue<T> readQueue) {
-        Batch<T> batch = Batch.emptyBatch();
+        return getBatch(readQueue, readQueue.getBatchSize());
+    }
+
+    /**
+     * Wait for at least one record to be available and then get up to limit records.
+     */
+    public <T> Batch<T> getBatch(final ReadQueue<T> readQueue,
+                                 final int limit) {
         try {
-            readLock.lockInterruptibly();
-            try {
-                batch = readQueue.getBatch();
-                while (batch.isEmpty()) {
-                    writeLock.lockInterruptibly();
-                    try {
-                        readQueue.fill();
-                        if (readQueue.size() == 0) {
-                            // Wait for new inserts.
-                            writeLockCondition.await();
-                        }
-                    } catch (final RuntimeException e) {
-                        LOGGER.error(e.getMessage(), e);
-                        throw e;
-                    } finally {
-                        writeLock.unlock();
+            while (true) {
+                final long lastFlushCount = flushCount;
+                final Batch<T> batch = read(readQueue, limit);
+                if (!batch.isEmpty()) {
+                    return batch;
+                }
+
+                writeLock.lockInterruptibly();
+                try {
+                    // Wait for new inserts unless some were flushed while we were reading.
+                    if (flushCount == lastFlushCount) {
+                        writeLockCondition.await();
                     }
-                    batch = readQueue.getBatch();
+                } finally {
+                    writeLock.unlock();
                 }
-            } finally {
-                readLock.unlock();
             }
         } catch (final InterruptedException e) {
             throw UncheckedInterruptedException.create(e);
         }
-        return batch;
     }
 
     public <T> Batch<T> getBatch(final ReadQueue<T> readQueue,
                                  final long timeout,
                                  final TimeUnit timeUnit) {
-        Batch<T> batch = Batch.emptyBatch();
         try {
-            readLock.lockInterruptibly();
-            try {
-                batch = readQueue.getBatch();
-                while (batch.isEmpty()) {
-                    writeLock.lockInterruptibly();
-                    try {
-                        readQueue.fill();
-                        if (readQueue.size() == 0) {
-                            // Wait for new inserts.
-                            if (!writeLockCondition.await(timeout, timeUnit)) {
-                                return batch;
-                            }
+            while (true) {
+                final long lastFlushCount = flushCount;
+                final Batch<T> batch = read(readQueue, readQueue.getBatchSize());
+                if (!batch.isEmpty()) {
+                    return batch;
+                }
+
+                writeLock.lockInterruptibly();
+                try {
+                    // Wait for new inserts unless some were flushed while we were reading.
+                    if (flushCount == lastFlushCount) {
+                        if (!writeLockCondition.await(timeout, timeUnit)) {
+                            return batch;
                         }
-                    } catch (final RuntimeException e) {
-                        LOGGER.error(e.getMessage(), e);
-                        throw e;
-                    } finally {
-                        writeLock.unlock();
                     }
-                    batch = readQueue.getBatch();
+                } finally {
+                    writeLock.unlock();
                 }
-            } finally {
-                readLock.unlock();
             }
         } catch (final InterruptedException e) {
             throw UncheckedInterruptedException.create(e);
         }
-        return batch;
+    }
+
+    private <T> Batch<T> read(final ReadQueue<T> readQueue,
+                              final int limit) throws InterruptedException {
+        // The read lock is only held while reading, not while waiting for inserts, so a reader that is waiting
+        // doesn't hold up readers of other queues.
+        readLock.lockInterruptibly();
+        try {
+            Batch<T> batch = readQueue.getBatch();
+            if (batch.isEmpty()) {
+                fill(readQueue, limit);
+                batch = readQueue.getBatch();
+            }
+            return batch;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void fill(final ReadQueue<?> readQueue,
+                      final int limit) {
+        try {
+            readQueue.fill(limit);
+        } catch (final RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+            throw e;
+        }
     }
 }
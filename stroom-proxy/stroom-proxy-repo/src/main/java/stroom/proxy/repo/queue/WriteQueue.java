@@ -1,12 +1,30 @@
 package stroom.proxy.repo.queue;
 
-import org.jooq.DSLContext;
+/**
+ * Queues writes in memory until they are flushed to a store.
+ *
+ * @param <C> The type of context the store provides to write within a transaction.
+ */
+public interface WriteQueue<C> {
 
-public interface WriteQueue {
-
-    void flush(DSLContext context);
+    void flush(C context);
 
     int size();
 
     void clear();
+
+    /**
+     * Move all queued writes to a new queue so that more writes can be queued while they are flushed.
+     *
+     * @return A queue containing all of the writes that were in this queue.
+     */
+    WriteQueue<C> drain();
+
+    /**
+     * Put writes that were drained from this queue but could not be flushed back in front of any
+     * writes that have been queued since so that they are retried in order on the next flush.
+     *
+     * @param drained A queue previously returned by {@link #drain()}.
+     */
+    void restore(WriteQueue<C> drained);
 }
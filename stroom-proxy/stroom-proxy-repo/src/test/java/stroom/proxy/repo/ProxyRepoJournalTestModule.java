@@ -0,0 +1,26 @@
+package stroom.proxy.repo;
+
+import com.google.inject.AbstractModule;
+
+/**
+ * The same as {@link ProxyRepoTestModule} but with the journal bookkeeping store.
+ */
+public class ProxyRepoJournalTestModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+        install(new ProxyRepoTestModule());
+
+        final ProxyDbConfig defaultConfig = new ProxyDbConfig();
+        bind(ProxyDbConfig.class).toInstance(new ProxyDbConfig(
+                defaultConfig.getDbDir(),
+                defaultConfig.getGlobalPragma(),
+                defaultConfig.getConnectionPragma(),
+                defaultConfig.getMaintenancePragma(),
+                defaultConfig.getMaintenancePragmaFrequency(),
+                defaultConfig.getBatchSize(),
+                defaultConfig.getFlushFrequency(),
+                defaultConfig.getCleanupFrequency(),
+                ProxyDbConfig.STORE_TYPE_JOURNAL));
+    }
+}
@@ -0,0 +1,142 @@
+package stroom.proxy.repo;
+
+import stroom.proxy.repo.queue.Batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestDestinationBatchExecutor {
+
+    private static final ForwardDest SLOW = new ForwardDest(1, "slow");
+    private static final ForwardDest FAST = new ForwardDest(2, "fast");
+    private static final String QUEUE_NAME = "Test";
+    private static final int ITEM_COUNT = 10;
+    private static final int QUEUE_SIZE = 2;
+
+    @Test
+    void testSlowDestinationDoesNotBlockOthers() throws InterruptedException {
+        final Store store = new Store();
+        final CountDownLatch slowStarted = new CountDownLatch(1);
+        final CountDownLatch fastComplete = new CountDownLatch(ITEM_COUNT);
+        final CountDownLatch slowComplete = new CountDownLatch(ITEM_COUNT);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<Item> fastProcessed = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Item> slowProcessed = new ConcurrentLinkedQueue<>();
+        final ForwardDestinationMetrics metrics = new ForwardDestinationMetrics();
+
+        final DestinationBatchExecutor<Item> executor = new DestinationBatchExecutor<>(
+                QUEUE_NAME,
+                List.of(SLOW, FAST),
+                store::read,
+                destination -> 1,
+                QUEUE_SIZE,
+                item -> {
+                    if (SLOW.getName().equals(item.destination())) {
+                        slowStarted.countDown();
+                        try {
+                            // Simulate a destination that has stopped responding.
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        slowProcessed.add(item);
+                        slowComplete.countDown();
+                    } else {
+                        fastProcessed.add(item);
+                        fastComplete.countDown();
+                    }
+                },
+                metrics);
+
+        executor.start();
+        try {
+            // The fast destination should get everything even though the slow one is stuck.
+            assertThat(fastComplete.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(slowStarted.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(fastProcessed)
+                    .extracting(Item::id)
+                    .containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+
+            // Wait for the slow destination's queue to fill.
+            final long endMs = System.currentTimeMillis() + 10_000;
+            while (getQueued(metrics, SLOW) < QUEUE_SIZE && System.currentTimeMillis() < endMs) {
+                Thread.sleep(10);
+            }
+
+            // Only the item in progress and a full queue are read, the rest are left in the store.
+            assertThat(getQueued(metrics, SLOW)).isEqualTo(QUEUE_SIZE);
+            assertThat(store.getReadCount(SLOW)).isEqualTo(QUEUE_SIZE + 1);
+            Thread.sleep(100);
+            assertThat(getQueued(metrics, SLOW)).isEqualTo(QUEUE_SIZE);
+            assertThat(store.getReadCount(SLOW)).isEqualTo(QUEUE_SIZE + 1);
+
+            // Once the slow destination recovers it gets all of its items in order.
+            release.countDown();
+            assertThat(slowComplete.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(slowProcessed)
+                    .extracting(Item::id)
+                    .containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+            assertThat(store.getReadCount(SLOW)).isEqualTo(ITEM_COUNT);
+            assertThat(getQueued(metrics, SLOW)).isZero();
+        } finally {
+            release.countDown();
+            executor.stop();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int getQueued(final ForwardDestinationMetrics metrics, final ForwardDest forwardDest) {
+        final Map<String, Object> destinations = (Map<String, Object>) metrics
+                .getHealth()
+                .getDetails()
+                .get("destinations");
+        final Map<String, Object> details = (Map<String, Object>) destinations.get(forwardDest.getName());
+        final Map<String, Object> queued = (Map<String, Object>) details.get("queued");
+        return (Integer) queued.get(QUEUE_NAME);
+    }
+
+    /**
+     * Holds the items for each destination and reads them from a position per destination like the
+     * forward DAOs.
+     */
+    private static class Store {
+
+        private final Map<String, AtomicInteger> readCounts = new ConcurrentHashMap<>();
+
+        Batch<Item> read(final ForwardDest forwardDest, final int limit) {
+            final AtomicInteger readCount = readCounts.computeIfAbsent(forwardDest.getName(),
+                    k -> new AtomicInteger());
+            final List<Item> items = new ArrayList<>();
+            while (items.size() < limit && readCount.get() < ITEM_COUNT) {
+                items.add(new Item(forwardDest.getName(), readCount.getAndIncrement()));
+            }
+            if (items.isEmpty()) {
+                // Supply nothing more until the executor is stopped.
+                try {
+                    new CountDownLatch(1).await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new Batch<>(items, items.size() == limit);
+        }
+
+        int getReadCount(final ForwardDest forwardDest) {
+            return readCounts.get(forwardDest.getName()).get();
+        }
+    }
+
+    private record Item(String destination, int id) {
+
+    }
+}
@@ -0,0 +1,102 @@
+package stroom.proxy.repo;
+
+import stroom.proxy.repo.dao.AggregateDao;
+import stroom.proxy.repo.dao.ForwardDestDao;
+import stroom.proxy.repo.dao.SourceDao;
+import stroom.proxy.repo.dao.SourceItemDao;
+import stroom.proxy.repo.dao.journal.JournalSourceDao;
+
+import name.falgout.jeffrey.testing.junit.guice.GuiceExtension;
+import name.falgout.jeffrey.testing.junit.guice.IncludeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the aggregate and forward flow against the journal store to check the journal DAOs behave like the SQLite
+ * ones.
+ */
+@ExtendWith(GuiceExtension.class)
+@IncludeModule(ProxyRepoJournalTestModule.class)
+public class TestJournalAggregator {
+
+    @Inject
+    private SourceDao sourceDao;
+    @Inject
+    private SourceItemDao sourceItemDao;
+    @Inject
+    private RepoSources proxyRepoSources;
+    @Inject
+    private RepoSourceItems proxyRepoSourceEntries;
+    @Inject
+    private AggregateDao aggregateDao;
+    @Inject
+    private Aggregator aggregator;
+    @Inject
+    private AggregateForwarder aggregateForwarder;
+    @Inject
+    private ForwardDestDao forwardDestDao;
+    @Inject
+    private MockForwardDestinations mockForwardDestinations;
+    @Inject
+    private TestSourceEntries testSourceEntries;
+
+    @BeforeEach
+    void beforeEach() {
+        aggregateForwarder.clear();
+        aggregator.clear();
+        proxyRepoSourceEntries.clear();
+        proxyRepoSources.clear();
+        mockForwardDestinations.clear();
+    }
+
+    @Test
+    void testJournalDaosSelected() {
+        assertThat(sourceDao).isInstanceOf(JournalSourceDao.class);
+    }
+
+    @Test
+    void testWithSourceEntries() {
+        assertThat(sourceItemDao.countItems()).isZero();
+        assertThat(aggregateDao.countAggregates()).isZero();
+        assertThat(sourceDao.countDeletableSources()).isZero();
+
+        // Add entries.
+        testSourceEntries.addEntries();
+        assertThat(sourceItemDao.countItems()).isEqualTo(1000);
+
+        // Make sure we have no existing aggregates.
+        aggregator.closeOldAggregates(1, 1, System.currentTimeMillis());
+
+        // Aggregate.
+        aggregator.aggregateAll();
+        assertThat(sourceItemDao.getNewSourceItems(0, TimeUnit.MILLISECONDS).isEmpty()).isTrue();
+
+        // Close all aggregates.
+        assertThat(aggregateDao.getNewAggregates(0, TimeUnit.MILLISECONDS).isEmpty()).isTrue();
+        aggregator.closeOldAggregates(1, 1, System.currentTimeMillis());
+        assertThat(aggregateDao.countAggregates()).isEqualTo(10);
+        assertThat(sourceDao.countDeletableSources()).isZero();
+
+        // Now forward the completed aggregates.
+        forwardDestDao.getForwardDestId("http://test-url.com");
+        aggregateForwarder.createAllForwardAggregates();
+        aggregateForwarder.flush();
+        assertThat(sourceDao.countDeletableSources()).isZero();
+
+        aggregateForwarder.forwardAll();
+
+        // We should now have no source entries but some sources we can delete.
+        assertThat(sourceItemDao.countItems()).isZero();
+        assertThat(aggregateDao.countAggregates()).isZero();
+        assertThat(sourceDao.countDeletableSources()).isOne();
+
+        sourceDao.deleteSources();
+        assertThat(sourceDao.countSources()).isZero();
+    }
+}
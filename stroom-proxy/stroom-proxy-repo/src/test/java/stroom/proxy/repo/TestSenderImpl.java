@@ -0,0 +1,121 @@
+package stroom.proxy.repo;
+
+import stroom.receive.common.RawZipEntry;
+import stroom.receive.common.StreamHandler;
+import stroom.util.io.StreamUtil;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestSenderImpl {
+
+    private static final String META = "Feed:TEST_FEED\n";
+    private static final String DATA = "Sample Data ".repeat(1000);
+
+    @Test
+    void testRawCopy(@TempDir final Path tempDir) throws IOException {
+        final Path zipFile = createZip(tempDir);
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        final AtomicInteger rawEntries = new AtomicInteger();
+        final AtomicInteger entries = new AtomicInteger();
+        final AtomicLong progress = new AtomicLong();
+
+        try (final ZipStreamHandler zipStreamHandler = new ZipStreamHandler(byteArrayOutputStream)) {
+            // Count the calls made to the real handler.
+            final StreamHandler handler = new StreamHandler() {
+                @Override
+                public long addEntry(final String entry,
+                                     final InputStream inputStream,
+                                     final Consumer<Long> progressHandler) throws IOException {
+                    entries.incrementAndGet();
+                    return zipStreamHandler.addEntry(entry, inputStream, progressHandler);
+                }
+
+                @Override
+                public boolean addRawEntry(final String entry,
+                                           final RawZipEntry rawZipEntry,
+                                           final InputStream rawInputStream,
+                                           final Consumer<Long> progressHandler) throws IOException {
+                    rawEntries.incrementAndGet();
+                    return zipStreamHandler.addRawEntry(entry, rawZipEntry, rawInputStream, progressHandler);
+                }
+            };
+            new SenderImpl(null, null).processZipFile(zipFile, handler, progress::addAndGet);
+        }
+
+        assertThat(rawEntries).hasValue(2);
+        assertThat(entries).hasValue(0);
+        assertThat(readZip(byteArrayOutputStream.toByteArray()))
+                .containsEntry("001.meta", META)
+                .containsEntry("001.dat", DATA);
+        // Progress is in uncompressed bytes, the same as when entries are added uncompressed.
+        assertThat(progress).hasValue(uncompressedSize());
+    }
+
+    @Test
+    void testFallback(@TempDir final Path tempDir) throws IOException {
+        final Path zipFile = createZip(tempDir);
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        final AtomicLong progress = new AtomicLong();
+
+        // Handlers that don't take raw entries should be given the uncompressed data.
+        try (final ZipStreamHandler zipStreamHandler = new ZipStreamHandler(byteArrayOutputStream)) {
+            final StreamHandler handler = zipStreamHandler::addEntry;
+            new SenderImpl(null, null).processZipFile(zipFile, handler, progress::addAndGet);
+        }
+
+        assertThat(readZip(byteArrayOutputStream.toByteArray()))
+                .containsEntry("001.meta", META)
+                .containsEntry("001.dat", DATA);
+        assertThat(progress).hasValue(uncompressedSize());
+    }
+
+    private long uncompressedSize() {
+        return META.getBytes(StreamUtil.DEFAULT_CHARSET).length + DATA.getBytes(StreamUtil.DEFAULT_CHARSET).length;
+    }
+
+    private Path createZip(final Path dir) throws IOException {
+        final Path zipFile = dir.resolve("test.zip");
+        try (final OutputStream outputStream = Files.newOutputStream(zipFile);
+                final ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry("001.meta"));
+            zipOutputStream.write(META.getBytes(StreamUtil.DEFAULT_CHARSET));
+            zipOutputStream.closeEntry();
+            zipOutputStream.putNextEntry(new ZipEntry("001.dat"));
+            zipOutputStream.write(DATA.getBytes(StreamUtil.DEFAULT_CHARSET));
+            zipOutputStream.closeEntry();
+        }
+        return zipFile;
+    }
+
+    private Map<String, String> readZip(final byte[] bytes) throws IOException {
+        final Map<String, String> map = new HashMap<>();
+        try (final ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+            ZipEntry zipEntry = zipInputStream.getNextEntry();
+            while (zipEntry != null) {
+                map.put(zipEntry.getName(), new String(zipInputStream.readAllBytes(), StreamUtil.DEFAULT_CHARSET));
+                zipEntry = zipInputStream.getNextEntry();
+            }
+        }
+        return map;
+    }
+}
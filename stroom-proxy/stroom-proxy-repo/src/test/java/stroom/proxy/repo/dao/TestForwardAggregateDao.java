@@ -1,6 +1,8 @@
 package stroom.proxy.repo.dao;
 
 import stroom.proxy.repo.FeedKey;
+import stroom.proxy.repo.ForwardAggregate;
+import stroom.proxy.repo.ForwardDest;
 import stroom.proxy.repo.ProxyRepoTestModule;
 import stroom.proxy.repo.RepoSource;
 import stroom.proxy.repo.RepoSourceItem;
@@ -14,6 +16,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
@@ -54,6 +57,74 @@ public class TestForwardAggregateDao {
         assertThat(forwardDestDao.countForwardDest()).isZero();
 //        assertThat(sourceDao.pathExists("test")).isFalse();
 
+        createAggregates();
+
+        // Create forward aggregates.
+        forwardDestDao.getForwardDestId("test");
+        assertThat(forwardDestDao.countForwardDest()).isOne();
+        BatchUtil.transfer(
+                () -> aggregateDao.getNewAggregates(0, TimeUnit.MILLISECONDS),
+                batch -> forwardAggregateDao.createForwardAggregates(batch,
+                        forwardDestDao.getAllForwardDests())
+        );
+        forwardAggregateDao.flush();
+        assertThat(forwardAggregateDao.countForwardAggregates()).isEqualTo(10);
+
+        // Mark all as forwarded.
+        BatchUtil.transferEach(
+                () -> forwardAggregateDao.getNewForwardAggregates(0, TimeUnit.MILLISECONDS),
+                forwardAggregate -> forwardAggregateDao.update(forwardAggregate.copy().tries(1).success(true).build())
+        );
+
+        sourceDao.countDeletableSources();
+        sourceDao.deleteSources();
+
+        assertThat(forwardAggregateDao.countForwardAggregates()).isZero();
+        assertThat(aggregateDao.countAggregates()).isZero();
+        assertThat(sourceItemDao.countItems()).isZero();
+        assertThat(sourceDao.countSources()).isZero();
+    }
+
+    @Test
+    void testGetForwardAggregatesByDest() {
+        createAggregates();
+
+        final ForwardDest dest1 = new ForwardDest(forwardDestDao.getForwardDestId("test1"), "test1");
+        final ForwardDest dest2 = new ForwardDest(forwardDestDao.getForwardDestId("test2"), "test2");
+        BatchUtil.transfer(
+                () -> aggregateDao.getNewAggregates(0, TimeUnit.MILLISECONDS),
+                batch -> forwardAggregateDao.createForwardAggregates(batch, List.of(dest1, dest2))
+        );
+        forwardAggregateDao.flush();
+        assertThat(forwardAggregateDao.countForwardAggregates()).isEqualTo(20);
+
+        // Each dest is read from its own position and only up to the limit.
+        final Batch<ForwardAggregate> first = forwardAggregateDao.getNewForwardAggregates(dest1, 3);
+        assertThat(first.list()).hasSize(3);
+        assertThat(first.full()).isTrue();
+        assertThat(first.list())
+                .extracting(forwardAggregate -> forwardAggregate.getForwardDest().getName())
+                .containsOnly("test1");
+
+        final Batch<ForwardAggregate> all = forwardAggregateDao.getNewForwardAggregates(dest2, 100);
+        assertThat(all.list()).hasSize(10);
+        assertThat(all.full()).isFalse();
+        assertThat(all.list())
+                .extracting(forwardAggregate -> forwardAggregate.getForwardDest().getName())
+                .containsOnly("test2");
+
+        // The rest for the first dest are still there to read.
+        final Batch<ForwardAggregate> rest = forwardAggregateDao.getNewForwardAggregates(dest1, 100);
+        assertThat(rest.list()).hasSize(7);
+        assertThat(rest.list())
+                .extracting(forwardAggregate -> forwardAggregate.getAggregate().id())
+                .doesNotContainAnyElementsOf(first.list()
+                        .stream()
+                        .map(forwardAggregate -> forwardAggregate.getAggregate().id())
+                        .toList());
+    }
+
+    private void createAggregates() {
         sourceDao.addSource(1L, "test", "test");
         sourceDao.flush();
 
@@ -92,31 +163,5 @@ public class TestForwardAggregateDao {
                 1000);
         assertThat(count).isEqualTo(10);
         assertThat(aggregateDao.countAggregates()).isEqualTo(10);
-
-        // Create forward aggregates.
-        forwardDestDao.getForwardDestId("test");
-        assertThat(forwardDestDao.countForwardDest()).isOne();
-        BatchUtil.transfer(
-                () -> aggregateDao.getNewAggregates(0, TimeUnit.MILLISECONDS),
-                batch -> forwardAggregateDao.createForwardAggregates(batch,
-                        forwardDestDao.getAllForwardDests())
-        );
-        forwardAggregateDao.flush();
-        assertThat(forwardAggregateDao.countForwardAggregates()).isEqualTo(10);
-
-        // Mark all as forwarded.
-        BatchUtil.transferEach(
-                () -> forwardAggregateDao.getNewForwardAggregates(0, TimeUnit.MILLISECONDS),
-                forwardAggregate -> forwardAggregateDao.update(forwardAggregate.copy().tries(1).success(true).build())
-        );
-
-        sourceDao.countDeletableSources();
-        sourceDao.deleteSources();
-
-        assertThat(forwardAggregateDao.countForwardAggregates()).isZero();
-        assertThat(aggregateDao.countAggregates()).isZero();
-        assertThat(sourceItemDao.countItems()).isZero();
-        assertThat(sourceDao.countSources()).isZero();
     }
 }
-
@@ -73,6 +73,41 @@ public class TestSourceDao {
         LOGGER.info(Duration.of(System.currentTimeMillis() - now, ChronoUnit.MILLIS).toString());
     }
 
+    @Test
+    void testAddSourceThroughputWhileFlushing() {
+        final int producerThreads = 10;
+        final int totalSources = 1_000_000;
+        final AtomicLong totalAdded = new AtomicLong();
+        final CompletableFuture[] all = new CompletableFuture[producerThreads];
+
+        // Flush frequently so producers are adding while the queue is being written to the DB.
+        final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(1);
+        scheduledExecutorService.scheduleAtFixedRate(() -> {
+            sourceDao.flush();
+        }, 100, 100, TimeUnit.MILLISECONDS);
+
+        final long now = System.currentTimeMillis();
+        for (int threads = 0; threads < producerThreads; threads++) {
+            all[threads] = CompletableFuture.runAsync(() -> {
+                long added = totalAdded.incrementAndGet();
+                while (added <= totalSources) {
+                    sourceDao.addSource(added, "test", "test");
+                    added = totalAdded.incrementAndGet();
+                }
+            });
+        }
+        CompletableFuture.allOf(all).join();
+        final long elapsed = System.currentTimeMillis() - now;
+
+        scheduledExecutorService.shutdownNow();
+        sourceDao.flush();
+
+        LOGGER.info("Added " + totalSources + " sources in " +
+                Duration.of(elapsed, ChronoUnit.MILLIS) + " (" +
+                (totalSources * 1000L / Math.max(1, elapsed)) + " per second)");
+        assertThat(sourceDao.countSources()).isEqualTo(totalSources);
+    }
+
     @Test
     void testSourceDirectSimple() {
         testSourceDirect(1, 1, 1);
@@ -23,8 +23,6 @@ import static org.assertj.core.api.Assertions.assertThat;
 @IncludeModule(ProxyRepoTestModule.class)
 public class TestSourceEntryDao {
 
-    @Inject
-    private SqliteJooqHelper jooq;
     @Inject
     private FeedDao feedDao;
     @Inject
@@ -70,9 +68,9 @@ public class TestSourceEntryDao {
         sourceItemDao.flush();
 
         assertThat(sourceDao.countDeletableSources()).isZero();
-        jooq.transaction(context -> sourceItemDao.deleteBySourceId(context, source.id()));
+        sourceItemDao.deleteBySourceId(source.id());
         assertThat(sourceDao.countDeletableSources()).isZero();
-        jooq.transaction(context -> sourceDao.setSourceExamined(context, source.id(), true, 0));
+        sourceDao.setSourceExamined(source.id(), true, 0);
         assertThat(sourceDao.countDeletableSources()).isOne();
 
         sourceDao.deleteSources();
@@ -0,0 +1,161 @@
+package stroom.proxy.repo.dao.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestJournalStore {
+
+    private static final long NEVER_COMPACT = Long.MAX_VALUE;
+
+    @Test
+    void testReplay(@TempDir final Path dbDir) {
+        final JournalStore store = new JournalStore(dbDir, NEVER_COMPACT);
+        store.transaction(transaction -> {
+            transaction.put(store.feeds, new FeedRow(1, "FEED_1", "Raw Events"));
+            transaction.put(store.feeds, new FeedRow(2, "FEED_2", null));
+        });
+        store.transaction(transaction -> transaction.delete(store.feeds, 1));
+        store.transaction(transaction -> transaction.put(store.sources,
+                new SourceRow(1, 10, 2, false, false, 0, 1L)));
+
+        final JournalStore reopened = new JournalStore(dbDir, NEVER_COMPACT);
+        assertThat(reopened.feeds.get(1)).isNull();
+        assertThat(reopened.feeds.get(2)).isEqualTo(new FeedRow(2, "FEED_2", null));
+        assertThat(reopened.sources.get(1)).isEqualTo(new SourceRow(1, 10, 2, false, false, 0, 1L));
+        assertThat(reopened.sourcesByNewPosition.max()).isOne();
+        assertThat(Files.exists(dbDir.resolve(JournalStore.SNAPSHOT_FILE_NAME))).isFalse();
+    }
+
+    @Test
+    void testRollback(@TempDir final Path dbDir) {
+        final JournalStore store = new JournalStore(dbDir, NEVER_COMPACT);
+        store.transaction(transaction -> transaction.put(store.feeds, new FeedRow(1, "FEED_1", null)));
+
+        assertThatThrownBy(() -> store.transaction(transaction -> {
+            transaction.put(store.feeds, new FeedRow(1, "CHANGED", null));
+            transaction.put(store.feeds, new FeedRow(2, "FEED_2", null));
+            throw new IllegalStateException("Test");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(store.feeds.get(1).feedName()).isEqualTo("FEED_1");
+        assertThat(store.feeds.get(2)).isNull();
+        assertThat(store.feedsByKey.contains(new FeedRow(2, "FEED_2", null).key())).isFalse();
+
+        final JournalStore reopened = new JournalStore(dbDir, NEVER_COMPACT);
+        assertThat(reopened.feeds.size()).isOne();
+        assertThat(reopened.feeds.get(1).feedName()).isEqualTo("FEED_1");
+    }
+
+    @Test
+    void testTornTail(@TempDir final Path dbDir) throws IOException {
+        final JournalStore store = new JournalStore(dbDir, NEVER_COMPACT);
+        store.transaction(transaction -> transaction.put(store.feeds, new FeedRow(1, "FEED_1", null)));
+        final Path journalFile = dbDir.resolve(JournalStore.JOURNAL_FILE_NAME);
+        final long validSize = Files.size(journalFile);
+
+        // Simulate a crash part way through writing a frame.
+        Files.write(journalFile, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        final JournalStore reopened = new JournalStore(dbDir, NEVER_COMPACT);
+        assertThat(reopened.feeds.size()).isOne();
+        assertThat(Files.size(journalFile)).isEqualTo(validSize);
+
+        // Make sure new frames are appended after the valid ones.
+        reopened.transaction(transaction -> transaction.put(reopened.feeds, new FeedRow(2, "FEED_2", null)));
+        final JournalStore reopenedAgain = new JournalStore(dbDir, NEVER_COMPACT);
+        assertThat(reopenedAgain.feeds.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testCorruptFrame(@TempDir final Path dbDir) throws IOException {
+        final JournalStore store = new JournalStore(dbDir, NEVER_COMPACT);
+        store.transaction(transaction -> transaction.put(store.feeds, new FeedRow(1, "FEED_1", null)));
+        final Path journalFile = dbDir.resolve(JournalStore.JOURNAL_FILE_NAME);
+        final long validSize = Files.size(journalFile);
+        store.transaction(transaction -> transaction.put(store.feeds, new FeedRow(2, "FEED_2", null)));
+
+        // Flip the last byte of the second frame so its CRC no longer matches.
+        final byte[] bytes = Files.readAllBytes(journalFile);
+        bytes[bytes.length - 1] ^= 0xFF;
+        Files.write(journalFile, bytes);
+
+        final JournalStore reopened = new JournalStore(dbDir, NEVER_COMPACT);
+        assertThat(reopened.feeds.size()).isOne();
+        assertThat(Files.size(journalFile)).isEqualTo(validSize);
+    }
+
+    @Test
+    void testCompact(@TempDir final Path dbDir) throws IOException {
+        // Compact after every transaction.
+        final JournalStore store = new JournalStore(dbDir, 0);
+        for (int i = 1; i <= 10; i++) {
+            final long id = i;
+            store.transaction(transaction -> transaction.put(store.feeds, new FeedRow(id, "FEED_" + id, null)));
+        }
+        store.transaction(transaction -> transaction.delete(store.feeds, 5));
+
+        final Path snapshotFile = dbDir.resolve(JournalStore.SNAPSHOT_FILE_NAME);
+        final Path journalFile = dbDir.resolve(JournalStore.JOURNAL_FILE_NAME);
+        assertThat(Files.exists(snapshotFile)).isTrue();
+        // The journal is compacted whenever it grows larger than the snapshot.
+        assertThat(Files.size(journalFile)).isLessThanOrEqualTo(Files.size(snapshotFile));
+
+        final JournalStore reopened = new JournalStore(dbDir, NEVER_COMPACT);
+        assertThat(reopened.feeds.size()).isEqualTo(9);
+        assertThat(reopened.feeds.get(5)).isNull();
+        assertThat(reopened.feeds.maxId()).isEqualTo(10);
+
+        // Changes after the snapshot are replayed from the journal.
+        reopened.transaction(transaction -> transaction.put(reopened.feeds, new FeedRow(11, "FEED_11", null)));
+        final JournalStore reopenedAgain = new JournalStore(dbDir, NEVER_COMPACT);
+        assertThat(reopenedAgain.feeds.size()).isEqualTo(10);
+    }
+
+    @Test
+    void testStaleJournalIgnored(@TempDir final Path dbDir) throws IOException {
+        final JournalStore store = new JournalStore(dbDir, NEVER_COMPACT);
+        store.transaction(transaction -> transaction.put(store.feeds, new FeedRow(1, "FEED_1", null)));
+        final Path journalFile = dbDir.resolve(JournalStore.JOURNAL_FILE_NAME);
+        final byte[] oldJournal = Files.readAllBytes(journalFile);
+
+        // Compact, then put back the journal from before the snapshot as if we crashed before it was reset.
+        final JournalStore compacting = new JournalStore(dbDir, 0);
+        compacting.transaction(transaction -> transaction.delete(compacting.feeds, 1));
+        Files.write(journalFile, oldJournal);
+
+        final JournalStore reopened = new JournalStore(dbDir, NEVER_COMPACT);
+        assertThat(reopened.feeds.size()).isZero();
+    }
+
+    @Test
+    void testNewerJournalFails(@TempDir final Path dbDir) throws IOException {
+        final JournalStore store = new JournalStore(dbDir, NEVER_COMPACT);
+        store.transaction(transaction -> transaction.put(store.feeds, new FeedRow(1, "FEED_1", null)));
+        final JournalStore compacting = new JournalStore(dbDir, 0);
+        compacting.transaction(transaction -> transaction.put(compacting.feeds, new FeedRow(2, "FEED_2", null)));
+
+        // Make the journal look as if it follows on from a later snapshot that has been lost.
+        final Path journalFile = dbDir.resolve(JournalStore.JOURNAL_FILE_NAME);
+        try (final FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            final ByteBuffer generation = ByteBuffer.allocate(Long.BYTES);
+            generation.putLong(100);
+            generation.flip();
+            channel.write(generation, 8);
+        }
+
+        assertThatThrownBy(() -> new JournalStore(dbDir, NEVER_COMPACT))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("generation 100");
+    }
+}
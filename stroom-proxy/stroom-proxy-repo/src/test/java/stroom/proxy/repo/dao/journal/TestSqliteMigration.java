@@ -0,0 +1,98 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.FeedKey;
+import stroom.proxy.repo.ProxyDbConfig;
+import stroom.proxy.repo.ProxyDbModule;
+import stroom.proxy.repo.ProxyRepoTestModule;
+import stroom.proxy.repo.RepoDbDirProvider;
+import stroom.proxy.repo.RepoSource;
+import stroom.proxy.repo.RepoSourceItem;
+import stroom.proxy.repo.dao.FeedDao;
+import stroom.proxy.repo.dao.SourceDao;
+import stroom.proxy.repo.dao.SourceItemDao;
+import stroom.proxy.repo.queue.Batch;
+
+import name.falgout.jeffrey.testing.junit.guice.GuiceExtension;
+import name.falgout.jeffrey.testing.junit.guice.IncludeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(GuiceExtension.class)
+@IncludeModule(ProxyRepoTestModule.class)
+public class TestSqliteMigration {
+
+    @Inject
+    private RepoDbDirProvider repoDbDirProvider;
+    @Inject
+    private FeedDao feedDao;
+    @Inject
+    private SourceDao sourceDao;
+    @Inject
+    private SourceItemDao sourceItemDao;
+
+    @Test
+    void testMigrate() {
+        // Fill the SQLite DB.
+        sourceDao.addSource(1L, "TEST_FEED", null);
+        sourceDao.addSource(2L, "TEST_FEED", null);
+        sourceDao.flush();
+
+        final Batch<RepoSource> sources = sourceDao.getNewSources(0, TimeUnit.MILLISECONDS);
+        assertThat(sources.list()).hasSize(2);
+        final RepoSource source = sources.list().get(0);
+        final long feedId = feedDao.getId(new FeedKey("TEST_FEED", null));
+        final List<RepoSourceItem> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(new RepoSourceItem(source, i, "item" + i, feedId, null, 0, "dat"));
+        }
+        sourceItemDao.addItems(source, items);
+        sourceItemDao.flush();
+
+        final Path dbDir = repoDbDirProvider.get();
+        final Path dbFile = dbDir.resolve(ProxyDbModule.DB_FILE_NAME);
+        assertThat(Files.exists(dbFile)).isTrue();
+
+        // Open the journal store on the same dir so the SQLite DB is migrated.
+        final JournalStore store = new JournalStore(dbDir, Long.MAX_VALUE);
+        assertThat(store.feeds.size()).isOne();
+        assertThat(store.sources.size()).isEqualTo(2);
+        assertThat(store.sourceItems.size()).isEqualTo(10);
+        assertThat(store.sourceItemsBySource.get(source.id())).hasSize(10);
+        // The source with items has been examined and the other is still queued.
+        assertThat(store.sources.get(source.id()).examined()).isTrue();
+        assertThat(store.sources.get(source.id()).itemCount()).isEqualTo(10);
+        assertThat(store.sourcesByNewPosition.after(0, 10))
+                .extracting(SourceRow::fileStoreId)
+                .containsExactly(2L);
+
+        // The SQLite DB is retired and a snapshot written.
+        assertThat(Files.exists(dbFile)).isFalse();
+        assertThat(Files.exists(dbDir.resolve(ProxyDbModule.DB_FILE_NAME + SqliteMigration.MIGRATED_SUFFIX)))
+                .isTrue();
+        assertThat(Files.exists(dbDir.resolve(JournalStore.SNAPSHOT_FILE_NAME))).isTrue();
+
+        // The journal DAOs carry on where the SQLite ones left off.
+        final JournalFeedDao journalFeedDao = new JournalFeedDao(store);
+        assertThat(journalFeedDao.getId(new FeedKey("TEST_FEED", null))).isEqualTo(feedId);
+        final JournalSourceDao journalSourceDao = new JournalSourceDao(store, journalFeedDao, new ProxyDbConfig());
+        assertThat(journalSourceDao.getMaxFileStoreId()).isEqualTo(2);
+        journalSourceDao.addSource(3L, "TEST_FEED", null);
+        journalSourceDao.flush();
+        assertThat(journalSourceDao.getNewSources(0, TimeUnit.MILLISECONDS).list())
+                .extracting(RepoSource::fileStoreId)
+                .containsExactly(2L, 3L);
+
+        // Reopening loads the snapshot rather than migrating again.
+        final JournalStore reopened = new JournalStore(dbDir, Long.MAX_VALUE);
+        assertThat(reopened.sources.size()).isEqualTo(3);
+    }
+}
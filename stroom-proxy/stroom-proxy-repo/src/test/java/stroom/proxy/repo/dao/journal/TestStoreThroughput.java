@@ -0,0 +1,83 @@
+package stroom.proxy.repo.dao.journal;
+
+import stroom.proxy.repo.ProxyRepoJournalTestModule;
+import stroom.proxy.repo.ProxyRepoTestModule;
+import stroom.proxy.repo.RepoSource;
+import stroom.proxy.repo.dao.SourceDao;
+import stroom.proxy.repo.queue.Batch;
+
+import com.google.inject.Guice;
+import com.google.inject.Module;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the bookkeeping throughput of the SQLite and journal stores for the same DAO workload.
+ */
+public class TestStoreThroughput {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestStoreThroughput.class);
+
+    private static final int PRODUCER_THREADS = 10;
+    private static final int TOTAL_SOURCES = 1_000_000;
+
+    @Test
+    void testAddSourceThroughput() {
+        final long sqliteRate = addSources("SQLITE", new ProxyRepoTestModule());
+        final long journalRate = addSources("JOURNAL", new ProxyRepoJournalTestModule());
+        LOGGER.info("Journal store added sources at " +
+                String.format("%.2f", (double) journalRate / Math.max(1, sqliteRate)) +
+                " times the rate of the SQLite store");
+    }
+
+    private long addSources(final String storeType, final Module module) {
+        final SourceDao sourceDao = Guice.createInjector(module).getInstance(SourceDao.class);
+        final AtomicLong totalAdded = new AtomicLong();
+        final CompletableFuture[] all = new CompletableFuture[PRODUCER_THREADS];
+
+        // Flush frequently so producers are adding while the queue is being written to the store.
+        final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(1);
+        scheduledExecutorService.scheduleAtFixedRate(sourceDao::flush, 100, 100, TimeUnit.MILLISECONDS);
+
+        final long now = System.currentTimeMillis();
+        for (int threads = 0; threads < PRODUCER_THREADS; threads++) {
+            all[threads] = CompletableFuture.runAsync(() -> {
+                long added = totalAdded.incrementAndGet();
+                while (added <= TOTAL_SOURCES) {
+                    sourceDao.addSource(added, "test", "test");
+                    added = totalAdded.incrementAndGet();
+                }
+            });
+        }
+        CompletableFuture.allOf(all).join();
+        scheduledExecutorService.shutdownNow();
+        sourceDao.flush();
+
+        // Include reading the queue back as forwarding depends on both.
+        long read = 0;
+        Batch<RepoSource> batch = sourceDao.getNewSources(0, TimeUnit.MILLISECONDS);
+        while (!batch.isEmpty()) {
+            read += batch.list().size();
+            batch = sourceDao.getNewSources(0, TimeUnit.MILLISECONDS);
+        }
+        final long elapsed = System.currentTimeMillis() - now;
+
+        final long rate = TOTAL_SOURCES * 1000L / Math.max(1, elapsed);
+        LOGGER.info(storeType + " added and read " + TOTAL_SOURCES + " sources in " +
+                Duration.of(elapsed, ChronoUnit.MILLIS) + " (" + rate + " per second)");
+        assertThat(read).isEqualTo(TOTAL_SOURCES);
+        assertThat(sourceDao.countSources()).isEqualTo(TOTAL_SOURCES);
+        return rate;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.dashboard.expression.v1;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.text.ParseException;
+import java.util.function.Supplier;
+
+@SuppressWarnings("unused") //Used by FunctionFactory
+@FunctionDef(
+        name = ApproxCountUnique.NAME,
+        commonCategory = FunctionCategory.AGGREGATE,
+        commonReturnType = ValLong.class,
+        commonReturnDescription = "The estimated number of unique values",
+        signatures = {
+                @FunctionSignature(
+                        category = FunctionCategory.AGGREGATE,
+                        description = "Estimates the number of unique values across all grouped records. " +
+                                "Unlike countUnique this uses a fixed amount of memory per group (a few KB) " +
+                                "regardless of the number of unique values, at the cost of a typical error " +
+                                "of around 1.6%.",
+                        args = @FunctionArg(
+                                name = "values",
+                                description = "Grouped field or the result of another function",
+                                argType = Val.class))})
+class ApproxCountUnique extends AbstractFunction {
+
+    static final String NAME = "approxCountUnique";
+
+    private Generator gen;
+    private Function function;
+
+    public ApproxCountUnique(final String name) {
+        super(name, 1, 1);
+    }
+
+    @Override
+    public void setParams(final Param[] params) throws ParseException {
+        super.setParams(params);
+
+        final Param param = params[0];
+        if (param instanceof Function) {
+            function = (Function) param;
+
+            if (function.hasAggregate()) {
+                throw new ParseException(name + " cannot be applied to aggregating function", 0);
+            }
+
+        } else {
+            /*
+             * Optimise replacement of static input in case user does something
+             * stupid.
+             */
+            gen = new StaticValueFunction(ValLong.create(1)).createGenerator();
+        }
+    }
+
+    @Override
+    public Generator createGenerator() {
+        if (gen != null) {
+            return gen;
+        }
+
+        final Generator childGenerator = function.createGenerator();
+        return new Gen(childGenerator);
+    }
+
+    @Override
+    public boolean isAggregate() {
+        return true;
+    }
+
+    @Override
+    public boolean hasAggregate() {
+        return isAggregate();
+    }
+
+    private static final class Gen extends AbstractSingleChildGenerator {
+
+        private final HyperLogLog sketch = new HyperLogLog();
+
+        Gen(final Generator childGenerator) {
+            super(childGenerator);
+        }
+
+        @Override
+        public void set(final Val[] values) {
+            childGenerator.set(values);
+            final Val value = childGenerator.eval(null);
+            if (value.type().isValue()) {
+                sketch.add(value);
+            }
+        }
+
+        @Override
+        public Val eval(final Supplier<ChildData> childDataSupplier) {
+            return ValLong.create(sketch.estimate());
+        }
+
+        @Override
+        public void merge(final Generator generator) {
+            final Gen gen = (Gen) generator;
+            sketch.merge(gen.sketch);
+            super.merge(generator);
+        }
+
+        @Override
+        public void read(final Input input) {
+            sketch.read(input);
+        }
+
+        @Override
+        public void write(final Output output) {
+            sketch.write(output);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.dashboard.expression.v1;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size HyperLogLog sketch for estimating the number of distinct values seen.
+ * <p>
+ * The sketch holds 2^precision one byte registers so its size is independent of the number of
+ * values added to it. Two sketches of the same precision can be merged by taking the max of each
+ * register, which makes it cheap to combine partial results from multiple nodes.
+ * <p>
+ * When only a few registers are in use the sketch is serialised as a sparse list of
+ * (index, value) pairs to keep small groups small in the result store.
+ */
+final class HyperLogLog {
+
+    static final int DEFAULT_PRECISION = 12;
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 16;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int precision;
+    private final int registerCount;
+    private final byte[] registers;
+
+    HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    HyperLogLog(final int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " +
+                    MIN_PRECISION + " and " + MAX_PRECISION + " but was " + precision);
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+        this.registers = new byte[registerCount];
+    }
+
+    void add(final Val val) {
+        addHash(hash(val));
+    }
+
+    void addHash(final long hash) {
+        // Use the top bits to pick the register and the remaining bits to count leading zeros.
+        final int index = (int) (hash >>> (Long.SIZE - precision));
+        final long remaining = (hash << precision) | (1L << (precision - 1));
+        final byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    void merge(final HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Unable to merge sketches with different precision (" +
+                    precision + " and " + other.precision + ")");
+        }
+        for (int i = 0; i < registerCount; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (final byte register : registers) {
+            sum += 1D / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        final double estimate = alpha() * registerCount * registerCount / sum;
+        if (estimate <= 2.5D * registerCount && zeros > 0) {
+            // Small range correction using linear counting.
+            return Math.round(registerCount * Math.log((double) registerCount / zeros));
+        }
+        return Math.round(estimate);
+    }
+
+    void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    void read(final Input input) {
+        clear();
+        final int inputPrecision = input.readByteUnsigned();
+        if (inputPrecision != precision) {
+            throw new IllegalStateException("Unexpected sketch precision " + inputPrecision +
+                    ", expected " + precision);
+        }
+        final boolean sparse = input.readBoolean();
+        if (sparse) {
+            final int count = input.readInt(true);
+            for (int i = 0; i < count; i++) {
+                final int index = input.readInt(true);
+                registers[index] = input.readByte();
+            }
+        } else {
+            input.readBytes(registers);
+        }
+    }
+
+    void write(final Output output) {
+        output.writeByte(precision);
+
+        int used = 0;
+        for (final byte register : registers) {
+            if (register != 0) {
+                used++;
+            }
+        }
+
+        // A sparse entry costs up to 3 bytes for the index plus one for the value.
+        final boolean sparse = used * 4 < registerCount;
+        output.writeBoolean(sparse);
+        if (sparse) {
+            output.writeInt(used, true);
+            for (int i = 0; i < registerCount; i++) {
+                if (registers[i] != 0) {
+                    output.writeInt(i, true);
+                    output.writeByte(registers[i]);
+                }
+            }
+        } else {
+            output.writeBytes(registers);
+        }
+    }
+
+    int getPrecision() {
+        return precision;
+    }
+
+    private double alpha() {
+        switch (registerCount) {
+            case 16:
+                return 0.673D;
+            case 32:
+                return 0.697D;
+            case 64:
+                return 0.709D;
+            default:
+                return 0.7213D / (1D + 1.079D / registerCount);
+        }
+    }
+
+    /**
+     * Produce a well mixed 64 bit hash of a value. The type is included so that values that are
+     * considered unequal by {@link Val#equals(Object)}, e.g. a string and a number with the same
+     * string form, hash differently.
+     */
+    static long hash(final Val val) {
+        long hash = FNV_OFFSET_BASIS;
+        hash ^= val.type().getId();
+        hash *= FNV_PRIME;
+
+        final String string = val.toString();
+        if (string != null) {
+            for (int i = 0; i < string.length(); i++) {
+                hash ^= string.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The MurmurHash3 64 bit finaliser, used to spread FNV output across all bits.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,6 +1,20 @@
 package stroom.dashboard.expression.v1;
 
+import java.util.List;
+
 public interface ValuesConsumer {
 
     void add(Val[] values);
+
+    /**
+     * Add a batch of rows. Consumers that can amortise work across many rows, e.g. queue hand-offs
+     * or fan out to multiple downstream consumers, should override this.
+     *
+     * @param valuesList The rows to add.
+     */
+    default void addAll(final List<Val[]> valuesList) {
+        for (final Val[] values : valuesList) {
+            add(values);
+        }
+    }
 }
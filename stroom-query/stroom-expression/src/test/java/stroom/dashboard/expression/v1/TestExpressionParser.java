@@ -1439,6 +1439,34 @@ class TestExpressionParser extends AbstractExpressionParserTest {
         });
     }
 
+    @Test
+    void testApproxCountUnique() {
+        createGenerator("approxCountUnique(${val1})", gen -> {
+            gen.set(getVals(122D));
+            gen.set(getVals(133D));
+
+            Val out = gen.eval(null);
+            assertThat(out.toDouble()).isEqualTo(2D, Offset.offset(0D));
+
+            gen.set(getVals(11D));
+            gen.set(getVals(122D));
+
+            out = gen.eval(null);
+            assertThat(out.toDouble()).isEqualTo(3D, Offset.offset(0D));
+        });
+    }
+
+    @Test
+    void testApproxCountUniqueStaticValue() {
+        createGenerator("approxCountUnique('test')", gen -> {
+            gen.set(getVals(122D));
+            gen.set(getVals(133D));
+
+            final Val out = gen.eval(null);
+            assertThat(out.toDouble()).isEqualTo(1D, Offset.offset(0D));
+        });
+    }
+
     @Test
     void testAdd1() {
         createGenerator("3+4", gen -> {
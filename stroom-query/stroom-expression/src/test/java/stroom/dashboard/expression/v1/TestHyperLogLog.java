@@ -0,0 +1,96 @@
+package stroom.dashboard.expression.v1;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestHyperLogLog {
+
+    @Test
+    void testEmpty() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+    }
+
+    @Test
+    void testDuplicates() {
+        final HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add(ValString.create("user" + (i % 10)));
+        }
+        assertThat(sketch.estimate()).isEqualTo(10);
+    }
+
+    @Test
+    void testLargeCardinality() {
+        final int count = 1_000_000;
+        final HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < count; i++) {
+            sketch.add(ValLong.create(i));
+        }
+        // Standard error at the default precision is ~1.6% so allow a generous margin.
+        assertThat((double) sketch.estimate()).isBetween(count * 0.95, count * 1.05);
+    }
+
+    @Test
+    void testMerge() {
+        final HyperLogLog sketch1 = new HyperLogLog();
+        final HyperLogLog sketch2 = new HyperLogLog();
+        for (int i = 0; i < 50_000; i++) {
+            sketch1.add(ValInteger.create(i));
+        }
+        for (int i = 25_000; i < 75_000; i++) {
+            sketch2.add(ValInteger.create(i));
+        }
+        sketch1.merge(sketch2);
+        assertThat((double) sketch1.estimate()).isBetween(75_000 * 0.95, 75_000 * 1.05);
+    }
+
+    @Test
+    void testMergeDifferentPrecision() {
+        assertThatThrownBy(() -> new HyperLogLog(10).merge(new HyperLogLog(12)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testSerialisationSparse() {
+        final HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 20; i++) {
+            sketch.add(ValInteger.create(i));
+        }
+        final byte[] bytes = write(sketch);
+        assertThat(bytes.length).isLessThan(200);
+        assertThat(read(bytes).estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void testSerialisationDense() {
+        final HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add(ValInteger.create(i));
+        }
+        final byte[] bytes = write(sketch);
+        assertThat(bytes.length).isLessThanOrEqualTo((1 << HyperLogLog.DEFAULT_PRECISION) + 2);
+        assertThat(read(bytes).estimate()).isEqualTo(sketch.estimate());
+    }
+
+    private byte[] write(final HyperLogLog sketch) {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (final Output output = new Output(byteArrayOutputStream)) {
+            sketch.write(output);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private HyperLogLog read(final byte[] bytes) {
+        final HyperLogLog sketch = new HyperLogLog();
+        try (final Input input = new Input(bytes)) {
+            sketch.read(input);
+        }
+        return sketch;
+    }
+}
@@ -13,6 +13,7 @@ import com.esotericsoftware.kryo.io.Output;
 
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -73,6 +74,14 @@ public class Coprocessors implements Iterable<Coprocessor>, ValuesConsumer {
         coprocessorMap.values().forEach(coprocessor -> coprocessor.add(values));
     }
 
+    @Override
+    public void addAll(final List<Val[]> valuesList) {
+        counter.add(valuesList.size());
+        LOGGER.trace(() -> String.format("data batch of %s rows", valuesList.size()));
+        // Give the whole batch to each of our coprocessors
+        coprocessorMap.values().forEach(coprocessor -> coprocessor.addAll(valuesList));
+    }
+
     public ErrorConsumer getErrorConsumer() {
         return errorConsumer;
     }
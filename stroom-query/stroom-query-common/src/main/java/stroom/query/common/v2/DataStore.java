@@ -5,6 +5,7 @@ import stroom.dashboard.expression.v1.Val;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 public interface DataStore {
@@ -16,6 +17,18 @@ public interface DataStore {
      */
     void add(Val[] values);
 
+    /**
+     * Add a batch of rows to the data store. Stores that can do less work per row when given a batch
+     * should override this.
+     *
+     * @param valuesList The rows to add to the store.
+     */
+    default void addAll(final List<Val[]> valuesList) {
+        for (final Val[] values : valuesList) {
+            add(values);
+        }
+    }
+
     /**
      * Get data from the store
      *
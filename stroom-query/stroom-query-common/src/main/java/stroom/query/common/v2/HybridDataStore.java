@@ -0,0 +1,307 @@
+package stroom.query.common.v2;
+
+import stroom.dashboard.expression.v1.Val;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.logging.Metrics;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A data store that starts off as a {@link MapDataStore} on heap and transparently spills to an
+ * {@link LmdbDataStore} once more than maxOnHeapRows rows have been added. This means small searches
+ * don't pay the cost of creating an LMDB environment while large searches don't risk running out of
+ * heap.
+ * <p>
+ * The rows added while on heap are also held so that they can be replayed into the LMDB store when
+ * it spills. Payloads can only be read by the LMDB store so reading a payload always causes a spill.
+ * Once the map store is complete, e.g. a limited search has enough data, we stop holding rows as we
+ * will never spill and any further payloads are skipped.
+ */
+class HybridDataStore implements DataStore {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(HybridDataStore.class);
+
+    private final MapDataStore mapDataStore;
+    private final Supplier<LmdbDataStore> lmdbDataStoreSupplier;
+    private final int maxOnHeapRows;
+
+    // Rows added to the map store that will need to be replayed if we spill.
+    private final Queue<Val[]> onHeapRows = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger onHeapRowCount = new AtomicInteger();
+    // Adds to the map store hold the read lock so that a spill can't miss any rows.
+    private final ReadWriteLock spillLock = new ReentrantReadWriteLock();
+    private final CompletionState completionState = new HybridCompletionState();
+
+    private volatile DataStore delegate;
+    private volatile LmdbDataStore lmdbDataStore;
+    private volatile boolean cleared;
+    // Cleared once the map store completes as we will never need to spill after that.
+    private volatile boolean buffering = true;
+
+    HybridDataStore(final MapDataStore mapDataStore,
+                    final Supplier<LmdbDataStore> lmdbDataStoreSupplier,
+                    final int maxOnHeapRows) {
+        this.mapDataStore = mapDataStore;
+        this.lmdbDataStoreSupplier = lmdbDataStoreSupplier;
+        this.maxOnHeapRows = maxOnHeapRows;
+        this.delegate = mapDataStore;
+    }
+
+    @Override
+    public void add(final Val[] values) {
+        if (cleared) {
+            return;
+        }
+
+        LmdbDataStore lmdbDataStore = this.lmdbDataStore;
+        if (lmdbDataStore != null) {
+            lmdbDataStore.add(values);
+            return;
+        }
+
+        int rowCount = 0;
+        boolean mapComplete = false;
+        spillLock.readLock().lock();
+        try {
+            lmdbDataStore = this.lmdbDataStore;
+            if (cleared) {
+                // Cleared while we waited for the lock so there is nothing to add to.
+                return;
+            } else if (lmdbDataStore != null) {
+                lmdbDataStore.add(values);
+            } else {
+                mapDataStore.add(values);
+                if (buffering) {
+                    if (mapDataStore.getCompletionState().isComplete()) {
+                        mapComplete = true;
+                    } else {
+                        onHeapRows.add(values);
+                        rowCount = onHeapRowCount.incrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            spillLock.readLock().unlock();
+        }
+
+        if (mapComplete) {
+            // The map store has decided it has enough data so we will never spill and don't need the rows.
+            stopBuffering();
+        } else if (rowCount > maxOnHeapRows) {
+            spill();
+        }
+    }
+
+    /**
+     * Add a batch of rows taking the spill lock once for the whole batch.
+     */
+    @Override
+    public void addAll(final List<Val[]> valuesList) {
+        if (cleared) {
+            return;
+        }
+
+        LmdbDataStore lmdbDataStore = this.lmdbDataStore;
+        if (lmdbDataStore != null) {
+            lmdbDataStore.addAll(valuesList);
+            return;
+        }
+
+        int rowCount = 0;
+        boolean mapComplete = false;
+        spillLock.readLock().lock();
+        try {
+            lmdbDataStore = this.lmdbDataStore;
+            if (cleared) {
+                return;
+            } else if (lmdbDataStore != null) {
+                lmdbDataStore.addAll(valuesList);
+            } else {
+                mapDataStore.addAll(valuesList);
+                if (buffering) {
+                    if (mapDataStore.getCompletionState().isComplete()) {
+                        mapComplete = true;
+                    } else {
+                        onHeapRows.addAll(valuesList);
+                        rowCount = onHeapRowCount.addAndGet(valuesList.size());
+                    }
+                }
+            }
+        } finally {
+            spillLock.readLock().unlock();
+        }
+
+        if (mapComplete) {
+            stopBuffering();
+        } else if (rowCount > maxOnHeapRows) {
+            spill();
+        }
+    }
+
+    private void stopBuffering() {
+        spillLock.writeLock().lock();
+        try {
+            if (buffering) {
+                LOGGER.debug(() -> "Map store complete, discarding " + onHeapRowCount.get() + " buffered rows");
+                buffering = false;
+                onHeapRows.clear();
+                onHeapRowCount.set(0);
+            }
+        } finally {
+            spillLock.writeLock().unlock();
+        }
+    }
+
+    int getBufferedRowCount() {
+        return onHeapRowCount.get();
+    }
+
+    private LmdbDataStore spill() {
+        spillLock.writeLock().lock();
+        try {
+            // A cleared store is no longer buffering so will never spill.
+            if (lmdbDataStore == null && buffering) {
+                final CompletionState mapCompletionState = mapDataStore.getCompletionState();
+                Metrics.measure("Spill to LMDB", () -> {
+                    LOGGER.debug(() -> "Spilling " + onHeapRowCount.get() + " on heap rows to LMDB");
+                    final LmdbDataStore newLmdbDataStore = lmdbDataStoreSupplier.get();
+                    Val[] values;
+                    while ((values = onHeapRows.poll()) != null) {
+                        newLmdbDataStore.add(values);
+                    }
+                    lmdbDataStore = newLmdbDataStore;
+                    delegate = newLmdbDataStore;
+                });
+                mapDataStore.clear();
+
+                // Wake anything waiting on the map store so that it can wait on the LMDB store instead.
+                mapCompletionState.signalComplete();
+            }
+            return lmdbDataStore;
+        } finally {
+            spillLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void getData(final Consumer<Data> consumer) {
+        final LmdbDataStore lmdbDataStore = this.lmdbDataStore;
+        if (lmdbDataStore != null) {
+            lmdbDataStore.getData(consumer);
+            return;
+        }
+
+        // Stop the map store being cleared by a spill while we are reading it.
+        spillLock.readLock().lock();
+        try {
+            delegate.getData(consumer);
+        } finally {
+            spillLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        spillLock.writeLock().lock();
+        try {
+            cleared = true;
+            buffering = false;
+            onHeapRows.clear();
+            onHeapRowCount.set(0);
+            delegate.clear();
+        } finally {
+            spillLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletionState getCompletionState() {
+        return completionState;
+    }
+
+    @Override
+    public void readPayload(final Input input) {
+        // Only the LMDB store can read payloads.
+        LmdbDataStore lmdbDataStore = this.lmdbDataStore;
+        if (lmdbDataStore == null) {
+            lmdbDataStore = spill();
+        }
+        if (lmdbDataStore != null) {
+            lmdbDataStore.readPayload(input);
+        } else {
+            // The map store already has enough data so skip the payload, which is length prefixed.
+            final int length = input.readInt();
+            input.skip(length);
+        }
+    }
+
+    @Override
+    public void writePayload(final Output output) {
+        delegate.writePayload(output);
+    }
+
+    /**
+     * Completion state of whichever store is currently in use. Anything waiting on the map store
+     * when we spill is woken and then waits on the LMDB store.
+     */
+    private class HybridCompletionState implements CompletionState {
+
+        @Override
+        public void signalComplete() {
+            // Make sure the signal can't be lost by going to the map store while we spill.
+            spillLock.readLock().lock();
+            try {
+                delegate.getCompletionState().signalComplete();
+            } finally {
+                spillLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean isComplete() {
+            return delegate.getCompletionState().isComplete();
+        }
+
+        @Override
+        public void awaitCompletion() throws InterruptedException {
+            DataStore current;
+            do {
+                current = delegate;
+                current.getCompletionState().awaitCompletion();
+            } while (current != delegate);
+        }
+
+        @Override
+        public boolean awaitCompletion(final long timeout, final TimeUnit unit) throws InterruptedException {
+            final long endNanos = System.nanoTime() + unit.toNanos(timeout);
+            DataStore current;
+            do {
+                current = delegate;
+                final long remainingNanos = endNanos - System.nanoTime();
+                if (!current.getCompletionState().awaitCompletion(remainingNanos, TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+            } while (current != delegate);
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "HybridCompletionState{" +
+                    "delegate=" + delegate +
+                    '}';
+        }
+    }
+}
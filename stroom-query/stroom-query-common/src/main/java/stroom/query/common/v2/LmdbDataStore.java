@@ -51,8 +51,11 @@ import org.lmdbjava.Txn;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
@@ -76,6 +79,7 @@ public class LmdbDataStore implements DataStore {
     private final int minValueSize;
     private final int maxValueSize;
     private final Dbi<ByteBuffer> dbi;
+    private final LmdbSortedChildren sortedChildren;
 
     private final CompiledField[] compiledFields;
     private final CompiledSorter<Item>[] compiledSorters;
@@ -89,6 +93,7 @@ public class LmdbDataStore implements DataStore {
     private final AtomicBoolean shutdown = new AtomicBoolean();
 
     private final LmdbKVQueue queue;
+    private final LmdbKVCombiner combiner;
     private final CountDownLatch complete = new CountDownLatch(1);
     private final CompletionState completionState = new CompletionStateImpl(this, complete);
     private final AtomicLong uniqueKey = new AtomicLong();
@@ -135,11 +140,15 @@ public class LmdbDataStore implements DataStore {
         // Make safe for the file system.
         final String dirName = uuid.replaceAll("[^A-Za-z0-9]", "_");
         this.lmdbEnv = lmdbEnvFactory.builder(resultStoreConfig.getLmdbConfig())
-                .withMaxDbCount(1)
+                .withMaxDbCount(2)
                 .withSubDirectory(dirName)
                 .addEnvFlag(EnvFlags.MDB_NOTLS)
                 .build();
         this.dbi = lmdbEnv.openDbi(uuid);
+        this.sortedChildren = new LmdbSortedChildren(
+                lmdbEnv,
+                lmdbEnv.openDbi(uuid + "_sorted"),
+                compiledFields);
 
         // Find out if we have any sorting.
         boolean hasSort = false;
@@ -153,10 +162,35 @@ public class LmdbDataStore implements DataStore {
         // Determine if we are going to limit the result count.
         limitResultCount = maxResults != null && !hasSort && !compiledDepths.hasGroup();
 
+        // If we are grouping then combine rows for the same group on heap before they go to LMDB.
+        final int combinerMaxItems = resultStoreConfig.getCombinerMaxItems();
+        if (compiledDepths.hasGroup() && combinerMaxItems > 0) {
+            combiner = new LmdbKVCombiner(combinerMaxItems, COMMIT_FREQUENCY_MS, this::put);
+        } else {
+            combiner = null;
+        }
+
         // Start transfer loop.
         executorProvider.get().execute(this::transfer);
     }
 
+    /**
+     * Add a batch of rows, stopping as soon as we have enough data so we don't generate values for the
+     * rest of the batch only for them to be dropped by {@link #put(LmdbKV)}. Each row still goes on to
+     * the transfer queue on its own.
+     *
+     * @param valuesList The rows to add to the store.
+     */
+    @Override
+    public void addAll(final List<Val[]> valuesList) {
+        for (final Val[] values : valuesList) {
+            if (limitResultCount && hasEnoughData.get()) {
+                return;
+            }
+            add(values);
+        }
+    }
+
     /**
      * Add some values to the data store.
      *
@@ -253,7 +287,11 @@ public class LmdbDataStore implements DataStore {
                         keyBytes,
                         new Generators(compiledFields, generators));
                 parentRowKey = rowKey;
-                put(new LmdbKV(rowKey, rowValue));
+                if (combiner != null) {
+                    combiner.add(new LmdbKV(rowKey, rowValue));
+                } else {
+                    put(new LmdbKV(rowKey, rowValue));
+                }
 
             } else {
                 // This item will not be grouped.
@@ -337,6 +375,12 @@ public class LmdbDataStore implements DataStore {
                             uncommittedCount++;
                         }
 
+                        if (combiner != null) {
+                            // Don't leave groups held in the combiner if rows stop being added. Insert them
+                            // directly as this thread can't wait for space on the queue it consumes.
+                            uncommittedCount += combiner.flushIfDue(item -> insert(batchingWriteTxn, dbi, item));
+                        }
+
                         if (producePayloads && payloadCreator.isEmpty()) {
                             // Commit
                             LOGGER.debug(() -> "Committing for new payload");
@@ -564,6 +608,11 @@ public class LmdbDataStore implements DataStore {
                     componentId +
                     ") after store has been shut down");
         } else {
+            // Once the store is complete its content will not change so we can keep the sorted children
+            // of each parent we are asked for and read them back a page at a time for later requests.
+            final boolean useSortedChildren = !producePayloads && completionState.isComplete();
+            final Map<Key, List<LmdbValue>> newSortedChildren = new HashMap<>();
+
             lmdbEnv.doWithReadTxn(readTxn ->
                     Metrics.measure("getData", () ->
                             consumer.accept(new LmdbData(
@@ -572,7 +621,16 @@ public class LmdbDataStore implements DataStore {
                                     compiledFields,
                                     compiledSorters,
                                     maxResults,
-                                    queryKey))));
+                                    queryKey,
+                                    useSortedChildren
+                                            ? sortedChildren
+                                            : null,
+                                    newSortedChildren))));
+
+            // Write outside the read txn.
+            if (!newSortedChildren.isEmpty()) {
+                sortedChildren.write(newSortedChildren);
+            }
         }
     }
 
@@ -590,7 +648,10 @@ public class LmdbDataStore implements DataStore {
             // Let the transfer loop know it should stop ASAP.
             transferState.terminate();
 
-            // Clear the queue.
+            // Clear the queue and anything waiting to go on it.
+            if (combiner != null) {
+                combiner.clear();
+            }
             queue.clear();
 
             // If the transfer loop is waiting on new queue items ensure it loops once more.
@@ -607,6 +668,13 @@ public class LmdbDataStore implements DataStore {
             }
 
             try {
+                try {
+                    sortedChildren.close();
+                } catch (final RuntimeException e) {
+                    LOGGER.error(e::getMessage, e);
+                    errorConsumer.add(e);
+                }
+
                 try {
                     dbi.close();
                 } catch (final RuntimeException e) {
@@ -680,19 +748,25 @@ public class LmdbDataStore implements DataStore {
         private final CompiledSorter<Item>[] compiledSorters;
         private final Sizes maxResults;
         private final QueryKey queryKey;
+        private final LmdbSortedChildren sortedChildren;
+        private final Map<Key, List<LmdbValue>> newSortedChildren;
 
         public LmdbData(final Dbi<ByteBuffer> dbi,
                         final Txn<ByteBuffer> readTxn,
                         final CompiledField[] compiledFields,
                         final CompiledSorter<Item>[] compiledSorters,
                         final Sizes maxResults,
-                        final QueryKey queryKey) {
+                        final QueryKey queryKey,
+                        final LmdbSortedChildren sortedChildren,
+                        final Map<Key, List<LmdbValue>> newSortedChildren) {
             this.dbi = dbi;
             this.readTxn = readTxn;
             this.compiledFields = compiledFields;
             this.compiledSorters = compiledSorters;
             this.maxResults = maxResults;
             this.queryKey = queryKey;
+            this.sortedChildren = sortedChildren;
+            this.newSortedChildren = newSortedChildren;
         }
 
         /**
@@ -721,7 +795,29 @@ public class LmdbDataStore implements DataStore {
             return Metrics.measure("get", () -> {
                 final int depth = parentKey.size();
                 final int trimmedSize = maxResults.size(depth);
-                return getChildren(parentKey, depth, trimmedSize, false);
+
+                if (sortedChildren == null) {
+                    return getChildren(parentKey, depth, trimmedSize, false);
+                }
+
+                final Integer childCount = sortedChildren.getChildCount(parentKey);
+                if (childCount != null) {
+                    return new SortedItemsImpl(this, parentKey, childCount);
+                }
+
+                // Sort the children and keep them so we don't have to do this again.
+                final ItemsImpl items = getChildren(parentKey, depth, trimmedSize, false);
+                if (items.size() > 0) {
+                    final List<LmdbValue> values = new ArrayList<>(items.size());
+                    for (int i = 0; i < items.size(); i++) {
+                        final ItemImpl item = items.array[i];
+                        values.add(new LmdbValue(
+                                item.key.getBytes(),
+                                new Generators(compiledFields, item.generators)));
+                    }
+                    newSortedChildren.put(parentKey, values);
+                }
+                return items;
             });
         }
 
@@ -846,6 +942,54 @@ public class LmdbDataStore implements DataStore {
         }
     }
 
+    /**
+     * Children of a parent key that have already been sorted and written to {@link LmdbSortedChildren}.
+     * Each item is only read when requested.
+     */
+    private static class SortedItemsImpl implements Items {
+
+        private final LmdbData data;
+        private final Key parentKey;
+        private final int size;
+
+        SortedItemsImpl(final LmdbData data,
+                        final Key parentKey,
+                        final int size) {
+            this.data = data;
+            this.parentKey = parentKey;
+            this.size = size;
+        }
+
+        @Override
+        public Item get(final int index) {
+            final LmdbValue rowValue = data.sortedChildren.read(data.readTxn, parentKey, index);
+            return new ItemImpl(data, rowValue.getKey(), rowValue.getGenerators().getGenerators());
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        @NotNull
+        public Iterator<Item> iterator() {
+            return new Iterator<>() {
+                private int pos = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return size > pos;
+                }
+
+                @Override
+                public Item next() {
+                    return get(pos++);
+                }
+            };
+        }
+    }
+
     private static class ItemsImpl implements Items {
 
         private static final ItemsImpl EMPTY = new ItemsImpl(0);
@@ -1046,6 +1190,13 @@ public class LmdbDataStore implements DataStore {
         @Override
         public void signalComplete() {
             if (!isComplete()) {
+                // Make sure any combined rows are queued ahead of the completion marker. Don't do this
+                // if the transfer loop is completing itself due to an error as it can't drain the queue.
+                if (lmdbDataStore.combiner != null &&
+                        !lmdbDataStore.shutdown.get() &&
+                        !lmdbDataStore.transferState.isTransferThread()) {
+                    lmdbDataStore.combiner.flushAll();
+                }
                 // Add an empty item to the transfer queue.
                 lmdbDataStore.queue.complete();
             }
@@ -1085,6 +1236,10 @@ public class LmdbDataStore implements DataStore {
             return terminated.get();
         }
 
+        public boolean isTransferThread() {
+            return thread == Thread.currentThread();
+        }
+
         public synchronized void terminate() {
             terminated.set(true);
             if (thread != null) {
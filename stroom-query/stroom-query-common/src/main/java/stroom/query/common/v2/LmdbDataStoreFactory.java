@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
@@ -78,20 +79,36 @@ public class LmdbDataStoreFactory implements DataStoreFactory {
                     maxResults,
                     storeSize,
                     errorConsumer);
-        } else {
-            return new LmdbDataStore(
-                    lmdbEnvFactory,
-                    resultStoreConfig,
-                    queryKey,
-                    componentId,
-                    tableSettings,
-                    fieldIndex,
-                    paramMap,
-                    maxResults,
-                    producePayloads,
-                    executorProvider,
-                    errorConsumer);
         }
+
+        final Supplier<LmdbDataStore> lmdbDataStoreSupplier = () -> new LmdbDataStore(
+                lmdbEnvFactory,
+                resultStoreConfig,
+                queryKey,
+                componentId,
+                tableSettings,
+                fieldIndex,
+                paramMap,
+                maxResults,
+                producePayloads,
+                executorProvider,
+                errorConsumer);
+
+        // Payloads can only be produced by LMDB so only start on heap if we don't need them.
+        if (producePayloads || resultStoreConfig.getMaxOnHeapRows() <= 0) {
+            return lmdbDataStoreSupplier.get();
+        }
+
+        return new HybridDataStore(
+                new MapDataStore(
+                        tableSettings,
+                        fieldIndex,
+                        paramMap,
+                        maxResults,
+                        storeSize,
+                        errorConsumer),
+                lmdbDataStoreSupplier,
+                resultStoreConfig.getMaxOnHeapRows());
     }
 
     private Path getLocalDir(final Provider<ResultStoreConfig> resultStoreConfigProvider,
@@ -0,0 +1,147 @@
+package stroom.query.common.v2;
+
+import stroom.dashboard.expression.v1.Generator;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.logging.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Holds grouped rows on heap and merges the generators of rows with the same group key so that the
+ * LMDB transfer thread only has to do one read-modify-write per group per flush rather than one per
+ * row added. Merged rows are passed on to the consumer when the number of held groups reaches
+ * maxItems, when flushIntervalMs has elapsed since the last flush or when {@link #flushAll()} is
+ * called. As rows may stop arriving the transfer loop also calls {@link #flushIfDue(Consumer)} so
+ * that held groups are not kept back until the next add or completion.
+ * <p>
+ * The number of held groups is bounded. If the combiner is full and another thread is already
+ * flushing then rows are passed straight to the consumer without being combined.
+ */
+class LmdbKVCombiner {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(LmdbKVCombiner.class);
+
+    private final int maxItems;
+    private final long flushIntervalMs;
+    private final Consumer<LmdbKV> consumer;
+    private final Map<Key, LmdbKV> map = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile long lastFlushMs = System.currentTimeMillis();
+
+    LmdbKVCombiner(final int maxItems,
+                   final long flushIntervalMs,
+                   final Consumer<LmdbKV> consumer) {
+        this.maxItems = maxItems;
+        this.flushIntervalMs = flushIntervalMs;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Add a grouped row, merging it with any row already held for the same group key.
+     */
+    void add(final LmdbKV lmdbKV) {
+        if (map.size() >= maxItems) {
+            if (!flush()) {
+                // Another thread is flushing so don't grow the map any further.
+                consumer.accept(lmdbKV);
+                return;
+            }
+        }
+
+        map.compute(lmdbKV.getRowValue().getKey(), (k, existing) -> {
+            if (existing == null) {
+                return lmdbKV;
+            }
+            merge(existing, lmdbKV);
+            return existing;
+        });
+
+        if (lastFlushMs < System.currentTimeMillis() - flushIntervalMs) {
+            flush();
+        }
+    }
+
+    /**
+     * Pass all held rows to the consumer, waiting for any flush in progress on another thread.
+     */
+    void flushAll() {
+        flushLock.lock();
+        try {
+            drain(consumer);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Pass all held rows to the supplied consumer if flushIntervalMs has elapsed since the last flush
+     * and no other thread is flushing.
+     *
+     * @return The number of rows passed to the consumer.
+     */
+    int flushIfDue(final Consumer<LmdbKV> consumer) {
+        if (lastFlushMs < System.currentTimeMillis() - flushIntervalMs && flushLock.tryLock()) {
+            try {
+                return drain(consumer);
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Discard all held rows.
+     */
+    void clear() {
+        map.clear();
+    }
+
+    private boolean flush() {
+        if (flushLock.tryLock()) {
+            try {
+                drain(consumer);
+            } finally {
+                flushLock.unlock();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private int drain(final Consumer<LmdbKV> consumer) {
+        return Metrics.measure("Combiner flush", () -> {
+            lastFlushMs = System.currentTimeMillis();
+            LOGGER.trace(() -> "Flushing " + map.size() + " combined rows");
+            int count = 0;
+            for (final Key key : map.keySet()) {
+                // Rows added for this key after the remove will start a new partial.
+                final LmdbKV lmdbKV = map.remove(key);
+                if (lmdbKV != null) {
+                    consumer.accept(lmdbKV);
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+
+    private void merge(final LmdbKV existing, final LmdbKV lmdbKV) {
+        final Generator[] existingGenerators = existing.getRowValue().getGenerators().getGenerators();
+        final Generator[] newGenerators = lmdbKV.getRowValue().getGenerators().getGenerators();
+        for (int i = 0; i < existingGenerators.length; i++) {
+            final Generator newGenerator = newGenerators[i];
+            if (newGenerator != null) {
+                if (existingGenerators[i] == null) {
+                    existingGenerators[i] = newGenerator;
+                } else {
+                    existingGenerators[i].merge(newGenerator);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package stroom.query.common.v2;
+
+import stroom.lmdb.LmdbEnv;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.logging.Metrics;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.unsafe.UnsafeByteBufferInput;
+import com.esotericsoftware.kryo.unsafe.UnsafeByteBufferOutput;
+import org.lmdbjava.Dbi;
+import org.lmdbjava.Txn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the sorted and trimmed children of parent keys in a second LMDB db once a result store is
+ * complete, so that later requests can read the rows for a page directly by position rather than
+ * scanning and sorting all children of the parent again. Only used once the store is complete as
+ * until then the sort order can change with every row added.
+ * <p>
+ * Each child is stored under < depth >< parent key hash >< position >. As with the main db, parent
+ * keys can have colliding hashes so the value holds < parent key length >< parent key >< row value >
+ * for every parent that shares the db key and the full parent key is checked on read.
+ */
+class LmdbSortedChildren {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(LmdbSortedChildren.class);
+    private static final int MIN_VALUE_SIZE = 1024;
+
+    private final LmdbEnv lmdbEnv;
+    private final Dbi<ByteBuffer> dbi;
+    private final CompiledField[] compiledFields;
+    // parent key => number of sorted children held in the db
+    private final Map<Key, Integer> childCounts = new ConcurrentHashMap<>();
+
+    LmdbSortedChildren(final LmdbEnv lmdbEnv,
+                       final Dbi<ByteBuffer> dbi,
+                       final CompiledField[] compiledFields) {
+        this.lmdbEnv = lmdbEnv;
+        this.dbi = dbi;
+        this.compiledFields = compiledFields;
+    }
+
+    /**
+     * @return The number of sorted children held for the parent key or null if they have not been
+     * written yet.
+     */
+    Integer getChildCount(final Key parentKey) {
+        return childCounts.get(parentKey);
+    }
+
+    /**
+     * Write the sorted children of each parent key in a single write txn.
+     */
+    void write(final Map<Key, List<LmdbValue>> sortedChildrenByParent) {
+        Metrics.measure("Write sorted children", () -> {
+            try {
+                lmdbEnv.doWithWriteTxn(writeTxn ->
+                        sortedChildrenByParent.forEach((parentKey, values) -> {
+                            for (int i = 0; i < values.size(); i++) {
+                                final ByteBuffer keyBuffer = createKey(parentKey, i);
+                                final ByteBuffer existingValueBuffer = dbi.get(writeTxn, keyBuffer);
+                                dbi.put(writeTxn,
+                                        keyBuffer,
+                                        createValue(existingValueBuffer, parentKey, values.get(i)));
+                            }
+                        }));
+                sortedChildrenByParent.forEach((parentKey, values) ->
+                        childCounts.put(parentKey, values.size()));
+            } catch (final RuntimeException e) {
+                // Not fatal as we can always sort the children again.
+                LOGGER.debug(() -> "Unable to write sorted children: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Read the child at the supplied position in the sorted children of the parent key. The value
+     * must be read within the scope of readTxn.
+     */
+    LmdbValue read(final Txn<ByteBuffer> readTxn,
+                   final Key parentKey,
+                   final int index) {
+        final ByteBuffer valueBuffer = dbi.get(readTxn, createKey(parentKey, index));
+        if (valueBuffer != null) {
+            final byte[] parentKeyBytes = parentKey.getBytes();
+            try (final UnsafeByteBufferInput input = new UnsafeByteBufferInput(valueBuffer)) {
+                while (!input.end()) {
+                    final byte[] storedParentKeyBytes = readParentKey(input);
+                    final LmdbValue value = LmdbValue.read(compiledFields, input);
+                    if (Arrays.equals(parentKeyBytes, storedParentKeyBytes)) {
+                        return value;
+                    }
+                }
+            }
+        }
+        throw new RuntimeException("No sorted child at position " + index + " for " + parentKey);
+    }
+
+    void close() {
+        childCounts.clear();
+        dbi.close();
+    }
+
+    /**
+     * Create the value for a child, keeping the children of any other parent that shares the db key
+     * and replacing any previous child of the same parent.
+     */
+    private ByteBuffer createValue(final ByteBuffer existingValueBuffer,
+                                   final Key parentKey,
+                                   final LmdbValue value) {
+        final byte[] parentKeyBytes = parentKey.getBytes();
+        try (final UnsafeByteBufferOutput output = new UnsafeByteBufferOutput(MIN_VALUE_SIZE, -1)) {
+            if (existingValueBuffer != null) {
+                try (final UnsafeByteBufferInput input = new UnsafeByteBufferInput(existingValueBuffer)) {
+                    while (!input.end()) {
+                        final byte[] storedParentKeyBytes = readParentKey(input);
+                        final LmdbValue storedValue = LmdbValue.read(compiledFields, input);
+                        if (!Arrays.equals(parentKeyBytes, storedParentKeyBytes)) {
+                            LOGGER.debug(() -> "Sorted children of " + parentKey + " share a key with another parent");
+                            writeParentKey(output, storedParentKeyBytes);
+                            storedValue.write(output);
+                        }
+                    }
+                }
+            }
+
+            writeParentKey(output, parentKeyBytes);
+            value.write(output);
+            return output.getByteBuffer().flip();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeParentKey(final Output output, final byte[] parentKeyBytes) {
+        output.writeInt(parentKeyBytes.length);
+        output.writeBytes(parentKeyBytes);
+    }
+
+    private static byte[] readParentKey(final Input input) {
+        final int length = input.readInt();
+        return input.readBytes(length);
+    }
+
+    private ByteBuffer createKey(final Key parentKey, final int index) {
+        final ByteBuffer stem = createKeyStem(parentKey);
+        final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(stem.remaining() + Integer.BYTES);
+        byteBuffer.put(stem);
+        byteBuffer.putInt(index);
+        byteBuffer.flip();
+        return byteBuffer;
+    }
+
+    // Package private so tests can force parent key hash collisions.
+    ByteBuffer createKeyStem(final Key parentKey) {
+        return LmdbKey.createKeyStem(parentKey.size(), parentKey);
+    }
+}
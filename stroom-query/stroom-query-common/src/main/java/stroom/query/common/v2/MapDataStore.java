@@ -98,6 +98,23 @@ public class MapDataStore implements DataStore, Data {
         this.hasSort = hasSort;
     }
 
+    /**
+     * Add a batch of rows, stopping as soon as we have enough data so we don't generate values for the
+     * rest of the batch only for them to be ignored.
+     *
+     * @param valuesList The rows to add to the store.
+     */
+    @Override
+    public void addAll(final List<Val[]> valuesList) {
+        for (final Val[] values : valuesList) {
+            if (hasEnoughData) {
+                completionState.signalComplete();
+                return;
+            }
+            add(values);
+        }
+    }
+
     /**
      * Add some values to the data store.
      *
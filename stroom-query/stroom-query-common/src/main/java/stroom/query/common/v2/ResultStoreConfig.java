@@ -18,8 +18,10 @@ public class ResultStoreConfig extends AbstractConfig implements IsStroomConfig
 
     private final int maxPutsBeforeCommit;
     private final boolean offHeapResults;
+    private final int maxOnHeapRows;
 
     private final int valueQueueSize;
+    private final int combinerMaxItems;
     private final ByteSize minValueSize;
     private final ByteSize maxValueSize;
     private final ByteSize minPayloadSize;
@@ -33,8 +35,10 @@ public class ResultStoreConfig extends AbstractConfig implements IsStroomConfig
     public ResultStoreConfig() {
         maxPutsBeforeCommit = 100_000;
         offHeapResults = true;
+        maxOnHeapRows = 10_000;
 
         valueQueueSize = 1_000_000;
+        combinerMaxItems = 10_000;
         minValueSize = ByteSize.ofKibibytes(1);
         maxValueSize = ByteSize.ofMebibytes(1);
         minPayloadSize = ByteSize.ofMebibytes(1);
@@ -53,21 +57,25 @@ public class ResultStoreConfig extends AbstractConfig implements IsStroomConfig
     @JsonCreator
     public ResultStoreConfig(@JsonProperty("maxPutsBeforeCommit") final int maxPutsBeforeCommit,
                              @JsonProperty("offHeapResults") final boolean offHeapResults,
+                             @JsonProperty("maxOnHeapRows") final int maxOnHeapRows,
                              @JsonProperty("minValueSize") final ByteSize minValueSize,
                              @JsonProperty("maxValueSize") final ByteSize maxValueSize,
                              @JsonProperty("minPayloadSize") final ByteSize minPayloadSize,
                              @JsonProperty("maxPayloadSize") final ByteSize maxPayloadSize,
                              @JsonProperty("valueQueueSize") final int valueQueueSize,
+                             @JsonProperty("combinerMaxItems") final int combinerMaxItems,
                              @JsonProperty("lmdb") final ResultStoreLmdbConfig lmdbConfig,
                              @JsonProperty("searchResultCache") final CacheConfig searchResultCache,
                              @JsonProperty("storeSize") final String storeSize) {
         this.maxPutsBeforeCommit = maxPutsBeforeCommit;
         this.offHeapResults = offHeapResults;
+        this.maxOnHeapRows = maxOnHeapRows;
         this.minValueSize = minValueSize;
         this.maxValueSize = maxValueSize;
         this.minPayloadSize = minPayloadSize;
         this.maxPayloadSize = maxPayloadSize;
         this.valueQueueSize = valueQueueSize;
+        this.combinerMaxItems = combinerMaxItems;
         this.lmdbConfig = lmdbConfig;
         this.searchResultCache = searchResultCache;
         this.storeSize = storeSize;
@@ -89,6 +97,16 @@ public class ResultStoreConfig extends AbstractConfig implements IsStroomConfig
         return offHeapResults;
     }
 
+    @Min(0)
+    @JsonPropertyDescription("When storing search results off heap, the number of rows that will be held on " +
+            "heap for each result store before it is moved off heap. Small searches that stay below this " +
+            "number of rows avoid the cost of creating an off heap store. Set to 0 to always store results " +
+            "off heap.")
+    @JsonProperty("maxOnHeapRows")
+    public int getMaxOnHeapRows() {
+        return maxOnHeapRows;
+    }
+
     @JsonPropertyDescription("The minimum byte size of a value byte buffer.")
     public ByteSize getMinValueSize() {
         return minValueSize;
@@ -115,6 +133,16 @@ public class ResultStoreConfig extends AbstractConfig implements IsStroomConfig
         return valueQueueSize;
     }
 
+    @Min(0)
+    @JsonPropertyDescription("The maximum number of grouped rows to hold on heap per result store while " +
+            "merging rows for the same group, before they are written to the off heap store. Combining rows " +
+            "on heap reduces the number of off heap updates when there are many rows for each group. " +
+            "Memory use per result store grows with this value. Set to 0 to disable combining.")
+    @JsonProperty("combinerMaxItems")
+    public int getCombinerMaxItems() {
+        return combinerMaxItems;
+    }
+
     @JsonProperty("lmdb")
     public ResultStoreLmdbConfig getLmdbConfig() {
         return lmdbConfig;
@@ -135,7 +163,9 @@ public class ResultStoreConfig extends AbstractConfig implements IsStroomConfig
         return "ResultStoreConfig{" +
                 "maxPutsBeforeCommit=" + maxPutsBeforeCommit +
                 ", offHeapResults=" + offHeapResults +
+                ", maxOnHeapRows=" + maxOnHeapRows +
                 ", valueQueueSize=" + valueQueueSize +
+                ", combinerMaxItems=" + combinerMaxItems +
                 ", minValueSize=" + minValueSize +
                 ", maxValueSize=" + maxValueSize +
                 ", minPayloadSize=" + minPayloadSize +
@@ -100,6 +100,7 @@ public class SearchProgressLog {
         CLUSTER_SEARCH_TASK_HANDLER_EXEC("ClusterSearchTaskHandler - exec"),
         CLUSTER_SEARCH_TASK_HANDLER_SEARCH("ClusterSearchTaskHandler - search"),
         INDEX_SHARD_SEARCH_FACTORY_SEARCH("IndexShardSearchFactory - search"),
+        INDEX_SHARD_SEARCH_FACTORY_SKIP_SHARD("IndexShardSearchFactory - skip shard"),
         INDEX_SHARD_SEARCH_TASK_HANDLER_SEARCH_SHARD("IndexShardSearchTaskHandler - searchShard"),
         INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_PUT("IndexShardSearchTaskHandler - docIdStore.put"),
         INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE("IndexShardSearchTaskHandler - docIdStore.take"),
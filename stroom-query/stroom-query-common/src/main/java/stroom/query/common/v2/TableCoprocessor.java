@@ -22,6 +22,8 @@ import stroom.query.api.v2.TableSettings;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
+import java.util.List;
+
 public class TableCoprocessor implements Coprocessor {
 
     private final TableSettings tableSettings;
@@ -46,6 +48,11 @@ public class TableCoprocessor implements Coprocessor {
         dataStore.add(values);
     }
 
+    @Override
+    public void addAll(final List<Val[]> valuesList) {
+        dataStore.addAll(valuesList);
+    }
+
     @Override
     public ErrorConsumer getErrorConsumer() {
         return errorConsumer;
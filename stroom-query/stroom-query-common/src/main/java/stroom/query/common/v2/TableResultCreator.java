@@ -142,6 +142,20 @@ public class TableResultCreator implements ResultCreator {
         int maxResultsAtThisDepth = maxResults.size(depth);
         int resultCountAtThisLevel = 0;
 
+        // If no rows can be hidden or opened then we can go straight to the requested window rather
+        // than visiting every item.
+        if ((openGroups == null || openGroups.isEmpty()) && !rowCreator.hidesRows()) {
+            final int count = Math.min(items.size(), maxResultsAtThisDepth);
+            final int start = Math.min(count, Math.max(0, offset - pos.get()));
+            int index = start;
+            while (index < count && resultList.size() < length) {
+                resultList.add(rowCreator.create(fields, items.get(index), depth, errorConsumer));
+                index++;
+            }
+            pos.addAndGet(count);
+            return;
+        }
+
         for (final Item item : items) {
             boolean hide = false;
 
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.common.v2;
+
+import stroom.dashboard.expression.v1.FieldIndex;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValString;
+import stroom.lmdb.LmdbEnvFactory;
+import stroom.lmdb.LmdbLibraryConfig;
+import stroom.query.api.v2.Field;
+import stroom.query.api.v2.Format;
+import stroom.query.api.v2.OffsetRange;
+import stroom.query.api.v2.ParamUtil;
+import stroom.query.api.v2.QueryKey;
+import stroom.query.api.v2.ResultRequest;
+import stroom.query.api.v2.TableResult;
+import stroom.query.api.v2.TableSettings;
+import stroom.query.common.v2.format.FieldFormatter;
+import stroom.query.common.v2.format.FormatterFactory;
+import stroom.util.io.PathCreator;
+import stroom.util.io.SimplePathCreator;
+import stroom.util.io.TempDirProvider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestHybridDataStore extends AbstractDataStoreTest {
+
+    private static final int MAX_ON_HEAP_ROWS = 1000;
+
+    private Path tempDir;
+    private ExecutorService executorService;
+    private final AtomicInteger lmdbStoreCount = new AtomicInteger();
+
+    @BeforeEach
+    void setup(@TempDir final Path tempDir) {
+        this.tempDir = tempDir;
+        executorService = Executors.newCachedThreadPool();
+        lmdbStoreCount.set(0);
+    }
+
+    @AfterEach
+    void after() {
+        executorService.shutdown();
+    }
+
+    @Override
+    DataStore create(final TableSettings tableSettings, final Sizes maxResults, final Sizes storeSize) {
+        final FieldIndex fieldIndex = new FieldIndex();
+
+        final TempDirProvider tempDirProvider = () -> tempDir;
+        final PathCreator pathCreator = new SimplePathCreator(() -> tempDir, () -> tempDir);
+        final ResultStoreConfig resultStoreConfig = new ResultStoreConfig();
+        final LmdbLibraryConfig lmdbLibraryConfig = new LmdbLibraryConfig();
+        final LmdbEnvFactory lmdbEnvFactory = new LmdbEnvFactory(
+                pathCreator,
+                tempDirProvider,
+                () -> lmdbLibraryConfig);
+        final ErrorConsumer errorConsumer = new ErrorConsumerImpl();
+
+        return new HybridDataStore(
+                new MapDataStore(
+                        tableSettings,
+                        fieldIndex,
+                        Collections.emptyMap(),
+                        maxResults,
+                        storeSize,
+                        errorConsumer),
+                () -> {
+                    lmdbStoreCount.incrementAndGet();
+                    return new LmdbDataStore(
+                            lmdbEnvFactory,
+                            resultStoreConfig,
+                            new QueryKey(UUID.randomUUID().toString()),
+                            "0",
+                            tableSettings,
+                            fieldIndex,
+                            Collections.emptyMap(),
+                            maxResults,
+                            false,
+                            () -> executorService,
+                            errorConsumer);
+                },
+                MAX_ON_HEAP_ROWS);
+    }
+
+    @Test
+    void testStaysOnHeap() {
+        final DataStore dataStore = createGrouped();
+        addRows(dataStore, MAX_ON_HEAP_ROWS);
+
+        assertThat(lmdbStoreCount).hasValue(0);
+        assertThat(getTotalResults(dataStore)).isEqualTo(10);
+    }
+
+    @Test
+    void testSpillsToLmdb() {
+        final DataStore dataStore = createGrouped();
+        addRows(dataStore, MAX_ON_HEAP_ROWS * 3);
+
+        assertThat(lmdbStoreCount).hasValue(1);
+        assertThat(getTotalResults(dataStore)).isEqualTo(10);
+        dataStore.clear();
+    }
+
+    @Test
+    void testSpillsToLmdbInBatches() throws InterruptedException {
+        final DataStore dataStore = createGrouped();
+        final List<Val[]> batch = new ArrayList<>();
+        for (int i = 0; i < MAX_ON_HEAP_ROWS * 3; i++) {
+            batch.add(new Val[]{ValString.create("Text " + (i % 10))});
+            if (batch.size() == 100) {
+                dataStore.addAll(batch);
+                batch.clear();
+            }
+        }
+        dataStore.getCompletionState().signalComplete();
+        dataStore.getCompletionState().awaitCompletion();
+
+        assertThat(lmdbStoreCount).hasValue(1);
+        assertThat(getTotalResults(dataStore)).isEqualTo(10);
+        dataStore.clear();
+    }
+
+    @Test
+    void testStopsBufferingWhenMapStoreComplete() {
+        // No grouping or sorting so the map store completes once it has the requested number of results.
+        final TableSettings tableSettings = TableSettings.builder()
+                .addFields(Field.builder()
+                        .id("Text")
+                        .name("Text")
+                        .expression(ParamUtil.makeParam("Text"))
+                        .format(Format.TEXT)
+                        .build())
+                .build();
+        final HybridDataStore dataStore = (HybridDataStore) create(
+                tableSettings,
+                Sizes.create(10),
+                Sizes.create(10));
+        for (int i = 0; i < MAX_ON_HEAP_ROWS * 3; i++) {
+            dataStore.add(new Val[]{ValString.create("Text " + i)});
+        }
+
+        assertThat(dataStore.getCompletionState().isComplete()).isTrue();
+        assertThat(dataStore.getBufferedRowCount()).isZero();
+        assertThat(lmdbStoreCount).hasValue(0);
+        dataStore.clear();
+    }
+
+    @Test
+    void testAddAfterClear() {
+        final HybridDataStore dataStore = (HybridDataStore) createGrouped();
+        for (int i = 0; i < MAX_ON_HEAP_ROWS / 2; i++) {
+            dataStore.add(new Val[]{ValString.create("Text " + (i % 10))});
+        }
+        assertThat(dataStore.getBufferedRowCount()).isEqualTo(MAX_ON_HEAP_ROWS / 2);
+
+        dataStore.clear();
+        assertThat(dataStore.getBufferedRowCount()).isZero();
+
+        // Adding enough rows to spill after a clear must be ignored rather than failing.
+        for (int i = 0; i < MAX_ON_HEAP_ROWS * 3; i++) {
+            dataStore.add(new Val[]{ValString.create("Text " + (i % 10))});
+        }
+        dataStore.addAll(List.of(
+                new Val[]{ValString.create("Text 1")},
+                new Val[]{ValString.create("Text 2")}));
+
+        assertThat(dataStore.getBufferedRowCount()).isZero();
+        assertThat(lmdbStoreCount).hasValue(0);
+    }
+
+    private DataStore createGrouped() {
+        return create(createGroupedTableSettings());
+    }
+
+    private TableSettings createGroupedTableSettings() {
+        return TableSettings.builder()
+                .addFields(Field.builder()
+                        .id("Text")
+                        .name("Text")
+                        .expression(ParamUtil.makeParam("Text"))
+                        .format(Format.TEXT)
+                        .group(0)
+                        .build())
+                .build();
+    }
+
+    private void addRows(final DataStore dataStore, final int count) {
+        for (int i = 0; i < count; i++) {
+            final Val[] values = new Val[1];
+            values[0] = ValString.create("Text " + (i % 10));
+            dataStore.add(values);
+        }
+
+        // Wait for all items to be added.
+        try {
+            dataStore.getCompletionState().signalComplete();
+            dataStore.getCompletionState().awaitCompletion();
+        } catch (final InterruptedException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private int getTotalResults(final DataStore dataStore) {
+        final TableSettings tableSettings = createGroupedTableSettings();
+        final ResultRequest tableResultRequest = ResultRequest.builder()
+                .componentId("componentX")
+                .addMappings(tableSettings)
+                .requestedRange(new OffsetRange(0, 100))
+                .build();
+        final TableResultCreator tableComponentResultCreator = new TableResultCreator(
+                new FieldFormatter(new FormatterFactory(null)),
+                Sizes.create(50));
+        final TableResult searchResult = (TableResult) tableComponentResultCreator.create(
+                dataStore,
+                tableResultRequest);
+        return searchResult.getTotalResults();
+    }
+}
@@ -27,6 +27,9 @@ import stroom.query.api.v2.OffsetRange;
 import stroom.query.api.v2.ParamUtil;
 import stroom.query.api.v2.QueryKey;
 import stroom.query.api.v2.ResultRequest;
+import stroom.query.api.v2.Row;
+import stroom.query.api.v2.Sort;
+import stroom.query.api.v2.Sort.SortDirection;
 import stroom.query.api.v2.TableResult;
 import stroom.query.api.v2.TableSettings;
 import stroom.query.common.v2.format.FieldFormatter;
@@ -42,6 +45,7 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -145,4 +149,188 @@ class TestLmdbDataStore extends AbstractDataStoreTest {
                 tableResultRequest);
         assertThat(searchResult.getTotalResults().intValue()).isEqualTo(50);
     }
+
+    @Test
+    void testCombinedGroups() {
+        final FormatterFactory formatterFactory = new FormatterFactory(null);
+        final FieldFormatter fieldFormatter = new FieldFormatter(formatterFactory);
+
+        final TableSettings tableSettings = TableSettings.builder()
+                .addFields(Field.builder()
+                        .id("Text")
+                        .name("Text")
+                        .expression(ParamUtil.makeParam("Text"))
+                        .group(0)
+                        .build())
+                .addFields(Field.builder()
+                        .id("Count")
+                        .name("Count")
+                        .expression("count()")
+                        .build())
+                .build();
+
+        final DataStore dataStore = create(tableSettings);
+
+        // Many rows for each group so most are merged on heap before they get to LMDB.
+        for (int i = 0; i < 20000; i++) {
+            final Val[] values = new Val[1];
+            values[0] = ValString.create("Text " + (i % 10));
+            dataStore.add(values);
+        }
+
+        // Wait for all items to be added.
+        try {
+            dataStore.getCompletionState().signalComplete();
+            dataStore.getCompletionState().awaitCompletion();
+        } catch (final InterruptedException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+
+        final ResultRequest tableResultRequest = ResultRequest.builder()
+                .componentId("componentX")
+                .addMappings(tableSettings)
+                .requestedRange(new OffsetRange(0, 100))
+                .build();
+        final TableResultCreator tableComponentResultCreator = new TableResultCreator(
+                fieldFormatter,
+                defaultMaxResultsSizes);
+        final TableResult searchResult = (TableResult) tableComponentResultCreator.create(
+                dataStore,
+                tableResultRequest);
+        assertThat(searchResult.getTotalResults().intValue()).isEqualTo(10);
+        assertThat(searchResult.getRows())
+                .extracting(row -> row.getValues().get(1))
+                .containsOnly("2000");
+    }
+
+    @Test
+    void testCombinedGroupsFlushedWhenIdle() throws InterruptedException {
+        final FormatterFactory formatterFactory = new FormatterFactory(null);
+        final FieldFormatter fieldFormatter = new FieldFormatter(formatterFactory);
+
+        final TableSettings tableSettings = TableSettings.builder()
+                .addFields(Field.builder()
+                        .id("Text")
+                        .name("Text")
+                        .expression(ParamUtil.makeParam("Text"))
+                        .group(0)
+                        .build())
+                .addFields(Field.builder()
+                        .id("Count")
+                        .name("Count")
+                        .expression("count()")
+                        .build())
+                .build();
+
+        final DataStore dataStore = create(tableSettings);
+        for (int i = 0; i < 20000; i++) {
+            final Val[] values = new Val[1];
+            values[0] = ValString.create("Text " + (i % 10));
+            dataStore.add(values);
+        }
+
+        final ResultRequest tableResultRequest = ResultRequest.builder()
+                .componentId("componentX")
+                .addMappings(tableSettings)
+                .requestedRange(new OffsetRange(0, 100))
+                .build();
+        final TableResultCreator tableComponentResultCreator = new TableResultCreator(
+                fieldFormatter,
+                defaultMaxResultsSizes);
+
+        // Without adding any more rows or completing, the held groups should still reach LMDB.
+        final long endMs = System.currentTimeMillis() + 10_000;
+        TableResult searchResult = (TableResult) tableComponentResultCreator.create(
+                dataStore,
+                tableResultRequest);
+        while (!hasCount(searchResult, "2000") && System.currentTimeMillis() < endMs) {
+            Thread.sleep(100);
+            searchResult = (TableResult) tableComponentResultCreator.create(
+                    dataStore,
+                    tableResultRequest);
+        }
+        assertThat(dataStore.getCompletionState().isComplete()).isFalse();
+        assertThat(searchResult.getTotalResults().intValue()).isEqualTo(10);
+        assertThat(searchResult.getRows())
+                .extracting(row -> row.getValues().get(1))
+                .containsOnly("2000");
+
+        dataStore.getCompletionState().signalComplete();
+        dataStore.getCompletionState().awaitCompletion();
+        dataStore.clear();
+    }
+
+    private boolean hasCount(final TableResult searchResult, final String count) {
+        return Integer.valueOf(10).equals(searchResult.getTotalResults()) &&
+                searchResult.getRows()
+                        .stream()
+                        .allMatch(row -> count.equals(row.getValues().get(1)));
+    }
+
+    @Test
+    void testPagingAfterComplete() {
+        final FormatterFactory formatterFactory = new FormatterFactory(null);
+        final FieldFormatter fieldFormatter = new FieldFormatter(formatterFactory);
+
+        final TableSettings tableSettings = TableSettings.builder()
+                .addFields(Field.builder()
+                        .id("Text")
+                        .name("Text")
+                        .expression(ParamUtil.makeParam("Text"))
+                        .sort(new Sort(0, SortDirection.DESCENDING))
+                        .group(0)
+                        .build())
+                .build();
+
+        final DataStore dataStore = create(
+                tableSettings,
+                Sizes.create(Integer.MAX_VALUE),
+                Sizes.create(Integer.MAX_VALUE));
+
+        for (int i = 0; i < 3000; i++) {
+            final Val[] values = new Val[1];
+            values[0] = ValString.create("Text " + String.format("%04d", i % 1000));
+            dataStore.add(values);
+        }
+
+        // Wait for all items to be added.
+        try {
+            dataStore.getCompletionState().signalComplete();
+            dataStore.getCompletionState().awaitCompletion();
+        } catch (final InterruptedException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+
+        final TableResultCreator tableComponentResultCreator = new TableResultCreator(
+                fieldFormatter,
+                Sizes.create(Integer.MAX_VALUE));
+
+        // The first request sorts the store, later ones read the sorted rows back.
+        final List<Row> allRows = getRows(tableComponentResultCreator, dataStore, tableSettings, 0, 1000);
+        assertThat(allRows).hasSize(1000);
+        assertThat(allRows.get(0).getValues().get(0)).isEqualTo("Text 0999");
+        assertThat(allRows.get(999).getValues().get(0)).isEqualTo("Text 0000");
+
+        for (int offset = 0; offset < 1000; offset += 100) {
+            final List<Row> page = getRows(tableComponentResultCreator, dataStore, tableSettings, offset, 100);
+            assertThat(page).isEqualTo(allRows.subList(offset, offset + 100));
+        }
+    }
+
+    private List<Row> getRows(final TableResultCreator tableResultCreator,
+                              final DataStore dataStore,
+                              final TableSettings tableSettings,
+                              final int offset,
+                              final int length) {
+        final ResultRequest tableResultRequest = ResultRequest.builder()
+                .componentId("componentX")
+                .addMappings(tableSettings)
+                .requestedRange(new OffsetRange(offset, length))
+                .build();
+        final TableResult searchResult = (TableResult) tableResultCreator.create(
+                dataStore,
+                tableResultRequest);
+        assertThat(searchResult.getTotalResults().intValue()).isEqualTo(1000);
+        return searchResult.getRows();
+    }
 }
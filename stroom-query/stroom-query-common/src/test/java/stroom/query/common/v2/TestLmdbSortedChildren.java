@@ -0,0 +1,101 @@
+package stroom.query.common.v2;
+
+import stroom.dashboard.expression.v1.Generator;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValString;
+import stroom.lmdb.LmdbEnv;
+import stroom.lmdb.LmdbEnvFactory;
+import stroom.lmdb.LmdbLibraryConfig;
+import stroom.util.io.PathCreator;
+import stroom.util.io.SimplePathCreator;
+import stroom.util.io.TempDirProvider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestLmdbSortedChildren {
+
+    private static final CompiledField[] COMPILED_FIELDS = new CompiledField[0];
+
+    private LmdbEnv lmdbEnv;
+    private LmdbSortedChildren sortedChildren;
+
+    @BeforeEach
+    void setup(@TempDir final Path tempDir) {
+        final TempDirProvider tempDirProvider = () -> tempDir;
+        final PathCreator pathCreator = new SimplePathCreator(() -> tempDir, () -> tempDir);
+        final LmdbLibraryConfig lmdbLibraryConfig = new LmdbLibraryConfig();
+        final LmdbEnvFactory lmdbEnvFactory = new LmdbEnvFactory(
+                pathCreator,
+                tempDirProvider,
+                () -> lmdbLibraryConfig);
+        lmdbEnv = lmdbEnvFactory.builder(new ResultStoreConfig().getLmdbConfig())
+                .withMaxDbCount(1)
+                .withSubDirectory("sorted")
+                .build();
+
+        // Give every parent the same key stem to force hash collisions.
+        final ByteBuffer collidingStem = LmdbKey.createKeyStem(1, Key.root());
+        sortedChildren = new LmdbSortedChildren(lmdbEnv, lmdbEnv.openDbi("sorted"), COMPILED_FIELDS) {
+            @Override
+            ByteBuffer createKeyStem(final Key parentKey) {
+                return collidingStem.duplicate();
+            }
+        };
+    }
+
+    @AfterEach
+    void after() {
+        sortedChildren.close();
+        lmdbEnv.close();
+        lmdbEnv.delete();
+    }
+
+    @Test
+    void testCollidingParents() {
+        final Key parentA = Key.root().resolve(new Val[]{ValString.create("A")});
+        final Key parentB = Key.root().resolve(new Val[]{ValString.create("B")});
+
+        sortedChildren.write(Map.of(parentA, createChildren(parentA, 3)));
+        sortedChildren.write(Map.of(parentB, createChildren(parentB, 2)));
+
+        assertThat(sortedChildren.getChildCount(parentA)).isEqualTo(3);
+        assertThat(sortedChildren.getChildCount(parentB)).isEqualTo(2);
+        assertChildren(parentA, 3);
+        assertChildren(parentB, 2);
+
+        // Writing the children of a parent again replaces them without touching the other parent.
+        sortedChildren.write(Map.of(parentA, createChildren(parentA, 3)));
+        assertChildren(parentA, 3);
+        assertChildren(parentB, 2);
+    }
+
+    private List<LmdbValue> createChildren(final Key parentKey, final int count) {
+        final List<LmdbValue> children = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Key childKey = parentKey.resolve(new Val[]{ValString.create("Child " + i)});
+            children.add(new LmdbValue(childKey.getBytes(), new Generators(COMPILED_FIELDS, new Generator[0])));
+        }
+        return children;
+    }
+
+    private void assertChildren(final Key parentKey, final int count) {
+        lmdbEnv.doWithReadTxn(readTxn -> {
+            for (int i = 0; i < count; i++) {
+                final LmdbValue value = sortedChildren.read(readTxn, parentKey, i);
+                assertThat(value.getKey())
+                        .isEqualTo(parentKey.resolve(new Val[]{ValString.create("Child " + i)}));
+            }
+        });
+    }
+}
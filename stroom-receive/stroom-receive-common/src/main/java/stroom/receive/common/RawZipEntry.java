@@ -0,0 +1,14 @@
+package stroom.receive.common;
+
+/**
+ * Describes the compressed data of a zip entry so that it can be copied into another zip without
+ * being decompressed and compressed again.
+ *
+ * @param method         The zip compression method, e.g. {@link java.util.zip.ZipEntry#DEFLATED}.
+ * @param crc            The CRC-32 of the uncompressed data.
+ * @param compressedSize The size of the compressed data.
+ * @param size           The size of the uncompressed data.
+ */
+public record RawZipEntry(int method, long crc, long compressedSize, long size) {
+
+}
@@ -23,4 +23,19 @@ import java.util.function.Consumer;
 public interface StreamHandler {
 
     long addEntry(String entry, InputStream inputStream, Consumer<Long> progressHandler) throws IOException;
+
+    /**
+     * Add an entry from the already compressed data of a zip entry so that it doesn't need to be
+     * decompressed and compressed again. Handlers that need the uncompressed data, e.g. to modify
+     * it, should return false without reading the stream, in which case the caller must add the
+     * entry with {@link #addEntry(String, InputStream, Consumer)} instead.
+     *
+     * @return True if the entry was added.
+     */
+    default boolean addRawEntry(final String entry,
+                                final RawZipEntry rawZipEntry,
+                                final InputStream rawInputStream,
+                                final Consumer<Long> progressHandler) throws IOException {
+        return false;
+    }
 }
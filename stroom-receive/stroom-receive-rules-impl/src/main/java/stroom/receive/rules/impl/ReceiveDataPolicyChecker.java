@@ -20,6 +20,7 @@ package stroom.receive.rules.impl;
 import stroom.datasource.api.v2.AbstractField;
 import stroom.datasource.api.v2.FieldTypes;
 import stroom.docref.DocRef;
+import stroom.expression.matcher.CompiledExpression;
 import stroom.expression.matcher.ExpressionMatcher;
 import stroom.expression.matcher.ExpressionMatcherFactory;
 import stroom.meta.api.AttributeMap;
@@ -118,8 +119,13 @@ class ReceiveDataPolicyChecker {
                         .filter(Objects::nonNull)
                         .collect(Collectors.toMap(AbstractField::getName, Function.identity()));
 
+                // Compile the rules once so each check doesn't have to re-parse the term values.
                 final ExpressionMatcher expressionMatcher = expressionMatcherFactory.create(usedFieldMap);
-                checker = new CheckerImpl(expressionMatcher, activeRules, fieldMap);
+                final List<CompiledRule> compiledRules = activeRules
+                        .stream()
+                        .map(rule -> new CompiledRule(rule, expressionMatcher.compile(rule.getExpression())))
+                        .collect(Collectors.toList());
+                checker = new CheckerImpl(compiledRules, fieldMap);
 
             } else {
                 checker = new ReceiveAllChecker();
@@ -150,14 +156,11 @@ class ReceiveDataPolicyChecker {
 
     private static class CheckerImpl implements Checker {
 
-        private final ExpressionMatcher expressionMatcher;
-        private final List<ReceiveDataRule> activeRules;
+        private final List<CompiledRule> activeRules;
         private final Map<String, AbstractField> fieldMap;
 
-        CheckerImpl(final ExpressionMatcher expressionMatcher,
-                    final List<ReceiveDataRule> activeRules,
+        CheckerImpl(final List<CompiledRule> activeRules,
                     final Map<String, AbstractField> fieldMap) {
-            this.expressionMatcher = expressionMatcher;
             this.activeRules = activeRules;
             this.fieldMap = fieldMap;
         }
@@ -166,7 +169,7 @@ class ReceiveDataPolicyChecker {
         public RuleAction check(final AttributeMap attributeMap) {
             final Map<String, Object> map = createAttributeMap(attributeMap, fieldMap);
 
-            final ReceiveDataRule matchingRule = findMatchingRule(expressionMatcher, map, activeRules);
+            final ReceiveDataRule matchingRule = findMatchingRule(map, activeRules);
             if (matchingRule != null && matchingRule.getAction() != null) {
                 return matchingRule.getAction();
             }
@@ -208,20 +211,23 @@ class ReceiveDataPolicyChecker {
             return null;
         }
 
-        private ReceiveDataRule findMatchingRule(final ExpressionMatcher expressionMatcher,
-                                                 final Map<String, Object> attributeMap,
-                                                 final List<ReceiveDataRule> activeRules) {
-            for (final ReceiveDataRule rule : activeRules) {
+        private ReceiveDataRule findMatchingRule(final Map<String, Object> attributeMap,
+                                                 final List<CompiledRule> activeRules) {
+            for (final CompiledRule compiledRule : activeRules) {
                 try {
-                    if (expressionMatcher.match(attributeMap, rule.getExpression())) {
-                        return rule;
+                    if (compiledRule.compiledExpression().match(attributeMap)) {
+                        return compiledRule.rule();
                     }
                 } catch (final RuntimeException e) {
-                    LOGGER.error("Error in rule '" + rule.toString() + "' - " + e.getMessage(), e);
+                    LOGGER.error("Error in rule '" + compiledRule.rule().toString() + "' - " + e.getMessage(), e);
                 }
             }
 
             return null;
         }
     }
+
+    private record CompiledRule(ReceiveDataRule rule, CompiledExpression compiledExpression) {
+
+    }
 }
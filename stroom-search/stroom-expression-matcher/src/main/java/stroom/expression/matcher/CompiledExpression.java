@@ -0,0 +1,34 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.expression.matcher;
+
+import java.util.Map;
+
+/**
+ * An expression that has been compiled by {@link ExpressionCompiler} so that it can be matched
+ * against many attribute maps without re-parsing any of its term values. Implementations are
+ * immutable so can be shared between threads.
+ */
+@FunctionalInterface
+public interface CompiledExpression {
+
+    CompiledExpression MATCH_ALL = attributeMap -> true;
+    CompiledExpression MATCH_NONE = attributeMap -> false;
+
+    boolean match(Map<String, Object> attributeMap);
+}
@@ -0,0 +1,561 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.expression.matcher;
+
+import stroom.collection.api.CollectionService;
+import stroom.datasource.api.v2.AbstractField;
+import stroom.datasource.api.v2.DocRefField;
+import stroom.datasource.api.v2.FieldTypes;
+import stroom.dictionary.api.WordListProvider;
+import stroom.docref.DocRef;
+import stroom.query.api.v2.DateTimeSettings;
+import stroom.query.api.v2.ExpressionItem;
+import stroom.query.api.v2.ExpressionOperator;
+import stroom.query.api.v2.ExpressionTerm;
+import stroom.query.api.v2.ExpressionTerm.Condition;
+import stroom.query.common.v2.DateExpressionParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles an {@link ExpressionItem} tree into a {@link CompiledExpression} that can be matched
+ * against many attribute maps. All term values are parsed, patterns compiled and dictionary/folder
+ * contents loaded once at compile time, so matching only has to deal with the attribute values.
+ * <p>
+ * A term that is invalid, e.g. has an unknown field or an unparsable value, does not fail the
+ * compilation. Instead it compiles to an expression that throws each time it is matched, as
+ * {@link ExpressionMatcher} has always done, so callers can still report the error against the
+ * rule that contains it.
+ */
+public class ExpressionCompiler {
+
+    private static final String DELIMITER = ",";
+    // If a term value contains none of these then its pattern can only match the value itself
+    private static final String REGEX_CHARS = "\\^$.|?*+()[]{}";
+
+    private final Map<String, AbstractField> fieldMap;
+    private final WordListProvider wordListProvider;
+    private final CollectionService collectionService;
+    private final Map<DocRef, String[]> wordMap = new ConcurrentHashMap<>();
+    private final DateTimeSettings dateTimeSettings;
+    private final long nowEpochMilli;
+
+    public ExpressionCompiler(final Map<String, AbstractField> fieldMap) {
+        this(fieldMap, null, null, null, System.currentTimeMillis());
+    }
+
+    public ExpressionCompiler(final Map<String, AbstractField> fieldMap,
+                              final WordListProvider wordListProvider,
+                              final CollectionService collectionService,
+                              final DateTimeSettings dateTimeSettings,
+                              final long nowEpochMilli) {
+        this.fieldMap = fieldMap;
+        this.wordListProvider = wordListProvider;
+        this.collectionService = collectionService;
+        this.dateTimeSettings = dateTimeSettings;
+        this.nowEpochMilli = nowEpochMilli;
+    }
+
+    /**
+     * @return An expression that matches nothing if item is null or not enabled.
+     */
+    public CompiledExpression compile(final ExpressionItem item) {
+        // If the initial item is null or not enabled then don't match.
+        if (item == null || !item.enabled()) {
+            return CompiledExpression.MATCH_NONE;
+        }
+        return compileItem(item);
+    }
+
+    private CompiledExpression compileItem(final ExpressionItem item) {
+        if (!item.enabled()) {
+            // If the child item is not enabled then return and keep trying to match with other parts of the expression.
+            return CompiledExpression.MATCH_ALL;
+        }
+
+        if (item instanceof ExpressionOperator) {
+            return compileOperator((ExpressionOperator) item);
+        } else if (item instanceof ExpressionTerm) {
+            return compileTerm((ExpressionTerm) item);
+        } else {
+            throw new MatchException("Unexpected item type");
+        }
+    }
+
+    private CompiledExpression compileOperator(final ExpressionOperator operator) {
+        final List<ExpressionItem> children = operator.getChildren();
+        if (children == null || children.size() == 0) {
+            return CompiledExpression.MATCH_ALL;
+        }
+
+        switch (operator.op()) {
+            case AND: {
+                final CompiledExpression[] compiledChildren = compileChildren(children);
+                return attributeMap -> {
+                    for (final CompiledExpression child : compiledChildren) {
+                        if (!child.match(attributeMap)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+            case OR: {
+                final CompiledExpression[] compiledChildren = compileChildren(children);
+                return attributeMap -> {
+                    for (final CompiledExpression child : compiledChildren) {
+                        if (child.match(attributeMap)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+            case NOT: {
+                if (children.size() != 1) {
+                    return CompiledExpression.MATCH_NONE;
+                }
+                final CompiledExpression child = compileItem(children.get(0));
+                return attributeMap -> !child.match(attributeMap);
+            }
+            default:
+                throw new MatchException("Unexpected operator type");
+        }
+    }
+
+    private CompiledExpression[] compileChildren(final List<ExpressionItem> children) {
+        return children.stream()
+                .map(this::compileItem)
+                .toArray(CompiledExpression[]::new);
+    }
+
+    private CompiledExpression compileTerm(final ExpressionTerm term) {
+        try {
+            return doCompileTerm(term);
+        } catch (final RuntimeException e) {
+            // Defer the error until the term is matched
+            final String message = e.getMessage();
+            return attributeMap -> {
+                throw new MatchException(message, e);
+            };
+        }
+    }
+
+    private CompiledExpression doCompileTerm(final ExpressionTerm term) {
+        String termField = term.getField();
+        final Condition condition = term.getCondition();
+        String termValue = term.getValue();
+        final DocRef docRef = term.getDocRef();
+
+        // Clean strings to remove unwanted whitespace that the user may have
+        // added accidentally.
+        if (termField != null) {
+            termField = termField.trim();
+        }
+        if (termValue != null) {
+            termValue = termValue.trim();
+        }
+
+        // Try and find the referenced field.
+        if (termField == null || termField.length() == 0) {
+            throw new MatchException("Field not set");
+        }
+        final AbstractField field = fieldMap.get(termField);
+        if (field == null) {
+            throw new MatchException("Field not found in index: " + termField);
+        }
+        final String fieldName = field.getName();
+
+        // Ensure an appropriate termValue has been provided for the condition type.
+        if (Condition.IN_DICTIONARY.equals(condition) ||
+                Condition.IN_FOLDER.equals(condition) ||
+                Condition.IS_DOC_REF.equals(condition)) {
+            if (docRef == null || docRef.getUuid() == null) {
+                throw new MatchException("DocRef not set for field: " + termField);
+            }
+        } else {
+            if (termValue == null || termValue.length() == 0) {
+                throw new MatchException("Value not set");
+            }
+        }
+
+        final String attributeName = term.getField();
+
+        // Perform null/not null equality if required.
+        if (Condition.IS_NULL.equals(condition)) {
+            return attributeMap -> attributeMap.get(attributeName) == null;
+        } else if (Condition.IS_NOT_NULL.equals(condition)) {
+            return attributeMap -> attributeMap.get(attributeName) != null;
+        }
+
+        final AttributeMatcher attributeMatcher;
+        if (field.isNumeric()) {
+            attributeMatcher = compileNumericTerm(fieldName, condition, termValue, docRef, field);
+        } else if (FieldTypes.DATE.equals(field.getType())) {
+            attributeMatcher = compileDateTerm(fieldName, condition, termValue, docRef, field);
+        } else {
+            attributeMatcher = compileTextTerm(condition, termValue, docRef, field);
+        }
+
+        return attributeMap -> {
+            final Object attribute = attributeMap.get(attributeName);
+            if (attribute == null) {
+                throw new MatchException("Attribute '" + attributeName + "' not found");
+            }
+            return attributeMatcher.match(attribute);
+        };
+    }
+
+    private AttributeMatcher compileNumericTerm(final String fieldName,
+                                                final Condition condition,
+                                                final String termValue,
+                                                final DocRef docRef,
+                                                final AbstractField field) {
+        switch (condition) {
+            case EQUALS:
+            case CONTAINS: {
+                final long num = getNumber(fieldName, termValue);
+                return attribute -> getNumber(fieldName, attribute) == num;
+            }
+            case GREATER_THAN: {
+                final long num = getNumber(fieldName, termValue);
+                return attribute -> getNumber(fieldName, attribute) > num;
+            }
+            case GREATER_THAN_OR_EQUAL_TO: {
+                final long num = getNumber(fieldName, termValue);
+                return attribute -> getNumber(fieldName, attribute) >= num;
+            }
+            case LESS_THAN: {
+                final long num = getNumber(fieldName, termValue);
+                return attribute -> getNumber(fieldName, attribute) < num;
+            }
+            case LESS_THAN_OR_EQUAL_TO: {
+                final long num = getNumber(fieldName, termValue);
+                return attribute -> getNumber(fieldName, attribute) <= num;
+            }
+            case BETWEEN: {
+                final long[] between = getNumbers(fieldName, termValue);
+                if (between.length != 2) {
+                    throw new MatchException("2 numbers needed for between query");
+                }
+                if (between[0] >= between[1]) {
+                    throw new MatchException("From number must lower than to number");
+                }
+                final long from = between[0];
+                final long to = between[1];
+                return attribute -> {
+                    final long num = getNumber(fieldName, attribute);
+                    return num >= from && num <= to;
+                };
+            }
+            case IN: {
+                final long[] in = sorted(getNumbers(fieldName, termValue));
+                return attribute -> Arrays.binarySearch(in, getNumber(fieldName, attribute)) >= 0;
+            }
+            case IN_DICTIONARY: {
+                final long[] in = sorted(loadWordStream(docRef)
+                        .flatMapToLong(line -> Arrays.stream(getNumbers(fieldName, line)))
+                        .toArray());
+                if (in.length == 0) {
+                    return attribute -> false;
+                }
+                return attribute -> Arrays.binarySearch(in, getNumber(fieldName, attribute)) >= 0;
+            }
+            case IN_FOLDER:
+                return compileInFolder(docRef, field);
+            default:
+                throw new MatchException("Unexpected condition '" + condition.getDisplayValue() + "' for "
+                        + field.getType() + " field type");
+        }
+    }
+
+    private AttributeMatcher compileDateTerm(final String fieldName,
+                                             final Condition condition,
+                                             final String termValue,
+                                             final DocRef docRef,
+                                             final AbstractField field) {
+        switch (condition) {
+            case EQUALS:
+            case CONTAINS: {
+                final long date = getDate(fieldName, termValue);
+                return attribute -> getDate(fieldName, attribute) == date;
+            }
+            case GREATER_THAN: {
+                final long date = getDate(fieldName, termValue);
+                return attribute -> getDate(fieldName, attribute) > date;
+            }
+            case GREATER_THAN_OR_EQUAL_TO: {
+                final long date = getDate(fieldName, termValue);
+                return attribute -> getDate(fieldName, attribute) >= date;
+            }
+            case LESS_THAN: {
+                final long date = getDate(fieldName, termValue);
+                return attribute -> getDate(fieldName, attribute) < date;
+            }
+            case LESS_THAN_OR_EQUAL_TO: {
+                final long date = getDate(fieldName, termValue);
+                return attribute -> getDate(fieldName, attribute) <= date;
+            }
+            case BETWEEN: {
+                final long[] between = getDates(fieldName, termValue);
+                if (between.length != 2) {
+                    throw new MatchException("2 dates needed for between query");
+                }
+                if (between[0] >= between[1]) {
+                    throw new MatchException("From date must occur before to date");
+                }
+                final long from = between[0];
+                final long to = between[1];
+                return attribute -> {
+                    final long date = getDate(fieldName, attribute);
+                    return date >= from && date <= to;
+                };
+            }
+            case IN: {
+                final long[] in = sorted(getDates(fieldName, termValue));
+                return attribute -> Arrays.binarySearch(in, getDate(fieldName, attribute)) >= 0;
+            }
+            case IN_DICTIONARY: {
+                final long[] in = sorted(loadWordStream(docRef)
+                        .flatMapToLong(line -> Arrays.stream(getDates(fieldName, line)))
+                        .toArray());
+                if (in.length == 0) {
+                    return attribute -> false;
+                }
+                return attribute -> Arrays.binarySearch(in, getDate(fieldName, attribute)) >= 0;
+            }
+            case IN_FOLDER:
+                return compileInFolder(docRef, field);
+            default:
+                throw new MatchException("Unexpected condition '" + condition.getDisplayValue() + "' for "
+                        + field.getType() + " field type");
+        }
+    }
+
+    private AttributeMatcher compileTextTerm(final Condition condition,
+                                             final String termValue,
+                                             final DocRef docRef,
+                                             final AbstractField field) {
+        switch (condition) {
+            case EQUALS:
+            case CONTAINS:
+                return compileStringMatcher(Collections.singletonList(termValue));
+            case IN:
+                return compileStringMatcher(Arrays.asList(termValue.split(" ")));
+            case IN_DICTIONARY: {
+                final List<String> words = loadWordStream(docRef)
+                        .flatMap(line -> Arrays.stream(line.split(" ")))
+                        .collect(Collectors.toList());
+                if (words.isEmpty()) {
+                    return attribute -> false;
+                }
+                return compileStringMatcher(words);
+            }
+            case IN_FOLDER:
+                return compileInFolder(docRef, field);
+            case IS_DOC_REF:
+                return attribute -> isDocRef(docRef, attribute);
+            default:
+                throw new MatchException("Unexpected condition '" + condition.getDisplayValue() + "' for "
+                        + field.getType() + " field type");
+        }
+    }
+
+    /**
+     * Term values with no regex characters in them are held in a hash set and matched on equality,
+     * anything else is compiled to a pattern with '*' as a wildcard.
+     */
+    private AttributeMatcher compileStringMatcher(final List<String> termValues) {
+        final Set<String> literals = new HashSet<>();
+        final List<Pattern> patternList = new ArrayList<>();
+        for (final String termValue : termValues) {
+            if (isLiteral(termValue)) {
+                literals.add(termValue);
+            } else {
+                patternList.add(Pattern.compile(termValue.replaceAll("\\*", ".*")));
+            }
+        }
+        final Pattern[] patterns = patternList.toArray(new Pattern[0]);
+
+        return attribute -> {
+            if (attribute instanceof DocRef) {
+                final DocRef docRef = (DocRef) attribute;
+                return isStringMatch(literals, patterns, docRef.getUuid())
+                        || isStringMatch(literals, patterns, docRef.getName());
+            }
+            return isStringMatch(literals, patterns, attribute.toString());
+        };
+    }
+
+    private static boolean isStringMatch(final Set<String> literals,
+                                         final Pattern[] patterns,
+                                         final String value) {
+        if (value == null) {
+            return false;
+        }
+        if (literals.contains(value)) {
+            return true;
+        }
+        for (final Pattern pattern : patterns) {
+            if (pattern.matcher(value).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLiteral(final String termValue) {
+        for (int i = 0; i < termValue.length(); i++) {
+            if (REGEX_CHARS.indexOf(termValue.charAt(i)) != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private AttributeMatcher compileInFolder(final DocRef docRef, final AbstractField field) {
+        if (field instanceof DocRefField) {
+            final String type = ((DocRefField) field).getDocRefType();
+            if (type != null && collectionService != null) {
+                final Set<DocRef> descendants = collectionService.getDescendants(docRef, type);
+                if (descendants != null && descendants.size() > 0) {
+                    final Set<String> uuids = descendants.stream()
+                            .map(DocRef::getUuid)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toSet());
+                    return attribute -> {
+                        if (attribute instanceof DocRef) {
+                            final String uuid = ((DocRef) attribute).getUuid();
+                            return uuid != null && uuids.contains(uuid);
+                        }
+                        return false;
+                    };
+                }
+            }
+        }
+
+        return attribute -> false;
+    }
+
+    private static boolean isDocRef(final DocRef docRef, final Object attribute) {
+        if (attribute instanceof DocRef) {
+            final String uuid = ((DocRef) attribute).getUuid();
+            return (null != uuid && uuid.equals(docRef.getUuid()));
+        } else if (attribute instanceof String) {
+            // Trying to compare a string to a docRef so assume the string is EITHER the uuid or the name
+            // In theory a 'uuid' could match a name but as we use proper uuids it will be fine.
+            return Objects.equals(docRef.getName(), attribute)
+                    || Objects.equals(docRef.getUuid(), attribute);
+        }
+
+        return false;
+    }
+
+    private Stream<String> loadWordStream(final DocRef docRef) {
+        if (wordListProvider == null) {
+            return Stream.empty();
+        }
+
+        final String[] words = wordMap.computeIfAbsent(docRef, wordListProvider::getWords);
+        return words == null
+                ? Stream.empty()
+                : Arrays.stream(words);
+    }
+
+    private static long[] sorted(final long[] values) {
+        Arrays.sort(values);
+        return values;
+    }
+
+    private long getDate(final String fieldName, final Object value) {
+        try {
+            if (value instanceof Long) {
+                return (Long) value;
+            }
+
+            //empty optional will be caught below
+            return DateExpressionParser.parse(
+                    value.toString(),
+                    dateTimeSettings,
+                    nowEpochMilli).get().toInstant().toEpochMilli();
+        } catch (final Exception e) {
+            throw new MatchException("Expected a standard date value for field \"" + fieldName
+                    + "\" but was given string \"" + value + "\"");
+        }
+    }
+
+    private long[] getDates(final String fieldName, final Object value) {
+        final String[] values = value.toString().split(DELIMITER);
+        final long[] dates = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            dates[i] = getDate(fieldName, values[i].trim());
+        }
+
+        return dates;
+    }
+
+    private static long getNumber(final String fieldName, final Object value) {
+        try {
+            if (value instanceof Long) {
+                return (Long) value;
+            }
+            return Long.parseLong(value.toString());
+        } catch (final NumberFormatException e) {
+            throw new MatchException(
+                    "Expected a numeric value for field \"" + fieldName + "\" but was given string \"" + value + "\"");
+        }
+    }
+
+    private static long[] getNumbers(final String fieldName, final Object value) {
+        final String[] values = value.toString().split(DELIMITER);
+        final long[] numbers = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            numbers[i] = getNumber(fieldName, values[i].trim());
+        }
+
+        return numbers;
+    }
+
+    @FunctionalInterface
+    private interface AttributeMatcher {
+
+        boolean match(Object attribute);
+    }
+
+    static class MatchException extends RuntimeException {
+
+        MatchException(final String message) {
+            super(message);
+        }
+
+        MatchException(final String message, final Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
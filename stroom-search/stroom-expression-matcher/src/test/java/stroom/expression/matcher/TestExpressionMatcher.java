@@ -18,27 +18,38 @@ package stroom.expression.matcher;
 
 import stroom.datasource.api.v2.AbstractField;
 import stroom.datasource.api.v2.DocRefField;
+import stroom.datasource.api.v2.LongField;
 import stroom.datasource.api.v2.TextField;
+import stroom.dictionary.api.WordListProvider;
+import stroom.docref.DocRef;
 import stroom.query.api.v2.ExpressionOperator;
 import stroom.query.api.v2.ExpressionOperator.Op;
+import stroom.query.api.v2.ExpressionTerm;
 import stroom.query.api.v2.ExpressionTerm.Condition;
 
 import org.junit.jupiter.api.Test;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class TestExpressionMatcher {
 
     public static final DocRefField FEED = new DocRefField("Feed", "Feed");
     private static final TextField TYPE = new TextField("Type");
+    private static final LongField SIZE = new LongField("Size");
     private static final Map<String, AbstractField> FIELD_MAP = Map.of(
             FEED.getName(),
             FEED,
             TYPE.getName(),
-            TYPE);
+            TYPE,
+            SIZE.getName(),
+            SIZE);
+    private static final DocRef FEED_DICTIONARY = new DocRef("Dictionary", "feed-dict-uuid", "Feeds");
+    private static final DocRef SIZE_DICTIONARY = new DocRef("Dictionary", "size-dict-uuid", "Sizes");
 
     @Test
     void testSimpleMatch() {
@@ -75,6 +86,74 @@ class TestExpressionMatcher {
         test(createAttributeMap(), ExpressionOperator.builder().enabled(false).build(), false);
     }
 
+    @Test
+    void testCompiledNumeric() {
+        final CompiledExpression compiledExpression = createMatcher().compile(ExpressionOperator.builder()
+                .addTerm(SIZE.getName(), Condition.BETWEEN, "10,20")
+                .addOperator(ExpressionOperator.builder()
+                        .op(Op.NOT)
+                        .addTerm(SIZE.getName(), Condition.IN, "12, 14")
+                        .build())
+                .build());
+
+        assertThat(compiledExpression.match(Map.of(SIZE.getName(), 9L))).isFalse();
+        assertThat(compiledExpression.match(Map.of(SIZE.getName(), 10L))).isTrue();
+        assertThat(compiledExpression.match(Map.of(SIZE.getName(), "11"))).isTrue();
+        assertThat(compiledExpression.match(Map.of(SIZE.getName(), 12L))).isFalse();
+        assertThat(compiledExpression.match(Map.of(SIZE.getName(), 14L))).isFalse();
+        assertThat(compiledExpression.match(Map.of(SIZE.getName(), 20L))).isTrue();
+        assertThat(compiledExpression.match(Map.of(SIZE.getName(), 21L))).isFalse();
+    }
+
+    @Test
+    void testCompiledInDictionary() {
+        final CompiledExpression compiledExpression = createMatcher().compile(ExpressionOperator.builder()
+                .op(Op.OR)
+                .addTerm(ExpressionTerm.builder()
+                        .field(FEED.getName())
+                        .condition(Condition.IN_DICTIONARY)
+                        .docRef(FEED_DICTIONARY)
+                        .build())
+                .addTerm(ExpressionTerm.builder()
+                        .field(SIZE.getName())
+                        .condition(Condition.IN_DICTIONARY)
+                        .docRef(SIZE_DICTIONARY)
+                        .build())
+                .build());
+
+        assertThat(compiledExpression.match(createAttributeMap("FEED_A", 1L))).isTrue();
+        assertThat(compiledExpression.match(createAttributeMap("FEED_C", 1L))).isTrue();
+        assertThat(compiledExpression.match(createAttributeMap("TEST_FEED", 1L))).isTrue();
+        assertThat(compiledExpression.match(createAttributeMap("OTHER", 1L))).isFalse();
+        assertThat(compiledExpression.match(createAttributeMap("OTHER", 300L))).isTrue();
+        assertThat(compiledExpression.match(createAttributeMap(
+                new DocRef("Feed", "uuid", "FEED_B"), 1L))).isTrue();
+    }
+
+    @Test
+    void testCompiledInvalidTerm() {
+        // An invalid term only fails when it is matched
+        final CompiledExpression compiledExpression = createMatcher().compile(ExpressionOperator.builder()
+                .op(Op.OR)
+                .addTerm(FEED, Condition.EQUALS, "TEST_FEED")
+                .addTerm(SIZE.getName(), Condition.EQUALS, "foo")
+                .build());
+
+        assertThat(compiledExpression.match(createAttributeMap("TEST_FEED", 1L))).isTrue();
+        assertThatThrownBy(() -> compiledExpression.match(createAttributeMap("OTHER", 1L)))
+                .hasMessageContaining("Expected a numeric value");
+    }
+
+    @Test
+    void testCompiledMissingAttribute() {
+        final CompiledExpression compiledExpression = createMatcher().compile(ExpressionOperator.builder()
+                .addTerm(SIZE.getName(), Condition.EQUALS, "1")
+                .build());
+
+        assertThatThrownBy(() -> compiledExpression.match(createAttributeMap()))
+                .hasMessageContaining("not found");
+    }
+
     private void test(final Map<String, Object> attributeMap,
                       final ExpressionOperator expression,
                       final boolean outcome) {
@@ -86,12 +165,48 @@ class TestExpressionMatcher {
         assertThat(expressionMatcher.match(attributeMap, expression)).isEqualTo(outcome);
     }
 
+    private ExpressionMatcher createMatcher() {
+        final WordListProvider wordListProvider = new WordListProvider() {
+            @Override
+            public List<DocRef> findByName(final String dictionaryName) {
+                return null;
+            }
+
+            @Override
+            public String getCombinedData(final DocRef dictionaryRef) {
+                return null;
+            }
+
+            @Override
+            public String[] getWords(final DocRef dictionaryRef) {
+                if (FEED_DICTIONARY.equals(dictionaryRef)) {
+                    return new String[]{"FEED_A FEED_B", "FEED_C", "TEST_*"};
+                } else if (SIZE_DICTIONARY.equals(dictionaryRef)) {
+                    return new String[]{"100,200", "300"};
+                }
+                return null;
+            }
+        };
+        return new ExpressionMatcher(FIELD_MAP,
+                wordListProvider,
+                null,
+                null,
+                System.currentTimeMillis());
+    }
+
     private ExpressionOperator createExpression(final Op op, final String feedName) {
         final ExpressionOperator.Builder builder = ExpressionOperator.builder().op(op);
         builder.addTerm(FEED, Condition.EQUALS, feedName);
         return builder.build();
     }
 
+    private Map<String, Object> createAttributeMap(final Object feed, final long size) {
+        final Map<String, Object> attributeMap = createAttributeMap();
+        attributeMap.put(FEED.getName(), feed);
+        attributeMap.put(SIZE.getName(), size);
+        return attributeMap;
+    }
+
     private Map<String, Object> createAttributeMap() {
         final Map<String, Object> attributeMap = new HashMap<>();
         attributeMap.put(FEED.getName(), "TEST_FEED");
@@ -56,6 +56,7 @@ import org.elasticsearch.search.slice.SliceBuilder;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -235,13 +236,14 @@ public class ElasticSearchTaskHandler {
     }
 
     /**
-     * Receive a batch of search hits and send each one to the values consumer
+     * Receive a batch of search hits and send them to the values consumer as a single batch of rows
      */
     private void processResultBatch(final FieldIndex fieldIndex,
                                     final ValuesConsumer valuesConsumer,
                                     final ErrorConsumer errorConsumer,
                                     final AtomicLong hitCount,
                                     final SearchHit[] searchHits) {
+        final List<Val[]> valuesList = new ArrayList<>(searchHits.length);
         try {
             for (final SearchHit searchHit : searchHits) {
                 hitCount.incrementAndGet();
@@ -279,12 +281,17 @@ public class ElasticSearchTaskHandler {
                 }
 
                 if (values != null) {
-                    valuesConsumer.add(values);
+                    valuesList.add(values);
                 }
             }
         } catch (final RuntimeException e) {
             error(errorConsumer, e);
         }
+
+        // Pass on any rows we created before an error.
+        if (valuesList.size() > 0) {
+            valuesConsumer.addAll(valuesList);
+        }
     }
 
     /**
@@ -0,0 +1,52 @@
+package stroom.search.extraction;
+
+import stroom.dashboard.expression.v1.FieldIndex;
+import stroom.dashboard.expression.v1.Val;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the rows extracted from a stream and passes them on in batches so that downstream
+ * receivers, e.g. annotation decoration, can deal with many rows at once. Not thread safe as each
+ * extraction pipeline is only used by a single thread.
+ */
+class BatchingExtractionReceiver implements ExtractionReceiver {
+
+    private final ExtractionReceiver receiver;
+    private final int batchSize;
+    private List<Val[]> batch;
+
+    BatchingExtractionReceiver(final ExtractionReceiver receiver, final int batchSize) {
+        this.receiver = receiver;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>();
+    }
+
+    @Override
+    public FieldIndex getFieldIndex() {
+        return receiver.getFieldIndex();
+    }
+
+    @Override
+    public void add(final Val[] values) {
+        batch.add(values);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void addAll(final List<Val[]> valuesList) {
+        flush();
+        receiver.addAll(valuesList);
+    }
+
+    void flush() {
+        if (batch.size() > 0) {
+            final List<Val[]> list = batch;
+            batch = new ArrayList<>();
+            receiver.addAll(list);
+        }
+    }
+}
@@ -31,7 +31,9 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.pipeline.scope.PipelineScopeRunnable;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -119,6 +121,11 @@ public class ExtractionDecorator {
                         coprocessor.add(values);
                     }
 
+                    @Override
+                    public void addAll(final List<Val[]> valuesList) {
+                        coprocessor.addAll(valuesList);
+                    }
+
                     @Override
                     public FieldIndex getFieldIndex() {
                         return fieldIndex;
@@ -131,6 +138,11 @@ public class ExtractionDecorator {
                         coprocessorSet.forEach(coprocessor -> coprocessor.add(values));
                     }
 
+                    @Override
+                    public void addAll(final List<Val[]> valuesList) {
+                        coprocessorSet.forEach(coprocessor -> coprocessor.addAll(valuesList));
+                    }
+
                     @Override
                     public FieldIndex getFieldIndex() {
                         return fieldIndex;
@@ -177,31 +189,34 @@ public class ExtractionDecorator {
                     try {
                         boolean done = false;
                         while (!done) {
-                            // Poll for the next set of values.
+                            // Poll for the next batch of values.
                             // When we get null we are done.
-                            final Val[] values = storedDataQueue.take();
-                            if (values != null) {
+                            final List<Val[]> valuesList = storedDataQueue.take();
+                            if (valuesList != null) {
                                 if (!taskContext.isTerminated()) {
-                                    try {
-                                        info(taskContext, () -> "" +
-                                                "Creating extraction tasks - stored data queue size: " +
-                                                storedDataQueue.size() +
-                                                " stream event map size: " +
-                                                streamEventMap.size());
-
-                                        // If we have some values then map them.
-                                        SearchProgressLog.increment(queryKey,
-                                                SearchPhase.EXTRACTION_DECORATOR_FACTORY_STORED_DATA_QUEUE_TAKE);
-                                        final Event event = eventFactory.create(values);
-                                        SearchProgressLog.increment(
-                                                queryKey,
-                                                SearchPhase.EXTRACTION_DECORATOR_FACTORY_STREAM_EVENT_MAP_PUT);
-                                        streamEventMap.put(event);
-
-                                    } catch (final RuntimeException e) {
-                                        LOGGER.debug(e::getMessage, e);
-                                        receivers.values().forEach(receiver ->
-                                                errorConsumer.add(e));
+                                    info(taskContext, () -> "" +
+                                            "Creating extraction tasks - stored data queue size: " +
+                                            storedDataQueue.size() +
+                                            " stream event map size: " +
+                                            streamEventMap.size());
+                                    SearchProgressLog.add(queryKey,
+                                            SearchPhase.EXTRACTION_DECORATOR_FACTORY_STORED_DATA_QUEUE_TAKE,
+                                            valuesList.size());
+
+                                    for (final Val[] values : valuesList) {
+                                        try {
+                                            // If we have some values then map them.
+                                            final Event event = eventFactory.create(values);
+                                            SearchProgressLog.increment(
+                                                    queryKey,
+                                                    SearchPhase.EXTRACTION_DECORATOR_FACTORY_STREAM_EVENT_MAP_PUT);
+                                            streamEventMap.put(event);
+
+                                        } catch (final RuntimeException e) {
+                                            LOGGER.debug(e::getMessage, e);
+                                            receivers.values().forEach(receiver ->
+                                                    errorConsumer.add(e));
+                                        }
                                     }
                                 }
                             } else {
@@ -358,10 +373,12 @@ public class ExtractionDecorator {
                         info(taskContext,
                                 () -> "Transferring " + events.size() + " records from stream " + streamId);
                         // Pass raw values to coprocessors that are not requesting values to be extracted.
+                        final List<Val[]> valuesList = new ArrayList<>(events.size());
                         for (final Event event : events) {
-                            receiver.add(event.getValues());
-                            extractionCount.increment();
+                            valuesList.add(event.getValues());
                         }
+                        receiver.addAll(valuesList);
+                        extractionCount.add(events.size());
                     }
                 }
             } catch (final DataException e) {
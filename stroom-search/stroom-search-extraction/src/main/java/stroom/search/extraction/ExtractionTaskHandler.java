@@ -66,6 +66,8 @@ public class ExtractionTaskHandler {
 
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(ExtractionTaskHandler.class);
 
+    private static final int RECEIVER_BATCH_SIZE = 1000;
+
     private final Store streamStore;
     private final FeedHolder feedHolder;
     private final MetaDataHolder metaDataHolder;
@@ -150,14 +152,21 @@ public class ExtractionTaskHandler {
                 final AbstractSearchResultOutputFilter searchResultOutputFilter = getFilter(pipeline,
                         AbstractSearchResultOutputFilter.class);
 
-                searchResultOutputFilter.setup(queryKey, receiver);
+                // Pass the extracted values on in batches so that receivers can deal with many rows at once.
+                final BatchingExtractionReceiver batchingReceiver =
+                        new BatchingExtractionReceiver(receiver, RECEIVER_BATCH_SIZE);
+                searchResultOutputFilter.setup(queryKey, batchingReceiver);
                 if (alertDefinitions != null) {
                     searchResultOutputFilter.setupForAlerting(alertDefinitions,
                             paramMapForAlerting);
                 }
 
                 // Process the stream segments.
-                processData(queryKey, source, eventIds, pipelineRef, pipeline, errorConsumer);
+                try {
+                    processData(queryKey, source, eventIds, pipelineRef, pipeline, errorConsumer);
+                } finally {
+                    batchingReceiver.flush();
+                }
 
                 // Ensure count is the same.
                 if (eventIds.length != searchResultOutputFilter.getCount()) {
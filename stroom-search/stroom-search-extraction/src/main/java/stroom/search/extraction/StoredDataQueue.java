@@ -5,21 +5,140 @@ import stroom.dashboard.expression.v1.ValuesConsumer;
 import stroom.query.api.v2.QueryKey;
 import stroom.query.common.v2.SearchProgressLog;
 import stroom.query.common.v2.SearchProgressLog.SearchPhase;
-import stroom.util.concurrent.CompletableObjectQueue;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
 
-public class StoredDataQueue extends CompletableObjectQueue<Val[]> implements ValuesConsumer {
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues batches of stored data rows so that producers that read many rows at a time, e.g. from
+ * an index shard, only pay for one hand-off per batch rather than one per row. The capacity is
+ * still a number of rows so memory use is the same whether rows are added one at a time or in
+ * batches.
+ */
+public class StoredDataQueue implements ValuesConsumer {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(StoredDataQueue.class);
 
     private final QueryKey queryKey;
+    private final int capacity;
+
+    private final ArrayDeque<List<Val[]>> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int rowCount;
+    private boolean complete;
 
     public StoredDataQueue(final QueryKey queryKey,
                            final int capacity) {
-        super(capacity);
         this.queryKey = queryKey;
+        this.capacity = capacity;
     }
 
     @Override
     public void add(final Val[] values) {
-        SearchProgressLog.increment(queryKey, SearchPhase.EXTRACTION_DECORATOR_FACTORY_STORED_DATA_QUEUE_PUT);
-        put(values);
+        addAll(Collections.singletonList(values));
+    }
+
+    @Override
+    public void addAll(final List<Val[]> valuesList) {
+        if (valuesList.isEmpty()) {
+            return;
+        }
+
+        SearchProgressLog.add(queryKey,
+                SearchPhase.EXTRACTION_DECORATOR_FACTORY_STORED_DATA_QUEUE_PUT,
+                valuesList.size());
+        try {
+            lock.lockInterruptibly();
+            try {
+                // Always allow a batch into an empty queue so that a batch bigger than the capacity
+                // can't block forever.
+                while (rowCount > 0 && rowCount + valuesList.size() > capacity) {
+                    notFull.await();
+                }
+                queue.add(valuesList);
+                rowCount += valuesList.size();
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.error(e::getMessage, e);
+        }
+    }
+
+    /**
+     * Take the next batch of rows, waiting if necessary.
+     *
+     * @return The next batch of rows or null if the queue has been completed and there are no more
+     * rows to take.
+     */
+    public List<Val[]> take() {
+        try {
+            lock.lockInterruptibly();
+            try {
+                while (queue.isEmpty() && !complete) {
+                    notEmpty.await();
+                }
+                final List<Val[]> valuesList = queue.poll();
+                if (valuesList != null) {
+                    rowCount -= valuesList.size();
+                    notFull.signalAll();
+                }
+                return valuesList;
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.error(e::getMessage, e);
+        }
+        return null;
+    }
+
+    /**
+     * Mark the queue as complete. Once all remaining rows have been taken {@link #take()} will
+     * return null.
+     */
+    public void complete() {
+        lock.lock();
+        try {
+            complete = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            queue.clear();
+            rowCount = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of rows in the queue.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
     }
 }
@@ -0,0 +1,106 @@
+package stroom.search.extraction;
+
+import stroom.dashboard.expression.v1.FieldIndex;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValLong;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestBatchingExtractionReceiver {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final FieldIndex fieldIndex = FieldIndex.forFields("Id");
+    private final List<List<Val[]>> batches = new ArrayList<>();
+    private final ExtractionReceiver receiver = new ExtractionReceiver() {
+        @Override
+        public FieldIndex getFieldIndex() {
+            return fieldIndex;
+        }
+
+        @Override
+        public void add(final Val[] values) {
+            batches.add(List.of(values));
+        }
+
+        @Override
+        public void addAll(final List<Val[]> valuesList) {
+            batches.add(valuesList);
+        }
+    };
+
+    @Test
+    void testPartialFinalBatch() {
+        final BatchingExtractionReceiver batchingReceiver = new BatchingExtractionReceiver(receiver, BATCH_SIZE);
+        addRows(batchingReceiver, 0, 2500);
+
+        // Full batches are passed on as soon as they fill up.
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(0)).hasSize(BATCH_SIZE);
+        assertThat(batches.get(1)).hasSize(BATCH_SIZE);
+
+        // The rest are passed on when the stream has been processed.
+        batchingReceiver.flush();
+        assertThat(batches).hasSize(3);
+        assertThat(batches.get(2)).hasSize(500);
+        assertIds(0, 2500);
+
+        // Flushing again does nothing.
+        batchingReceiver.flush();
+        assertThat(batches).hasSize(3);
+    }
+
+    @Test
+    void testFlushBelowBatchSize() {
+        final BatchingExtractionReceiver batchingReceiver = new BatchingExtractionReceiver(receiver, BATCH_SIZE);
+        addRows(batchingReceiver, 0, 10);
+        assertThat(batches).isEmpty();
+
+        batchingReceiver.flush();
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).hasSize(10);
+        assertIds(0, 10);
+    }
+
+    @Test
+    void testAddAllKeepsOrder() {
+        final BatchingExtractionReceiver batchingReceiver = new BatchingExtractionReceiver(receiver, BATCH_SIZE);
+        addRows(batchingReceiver, 0, 10);
+
+        // Buffered rows are passed on before a batch that is added directly.
+        final List<Val[]> list = new ArrayList<>();
+        for (int i = 10; i < 20; i++) {
+            list.add(row(i));
+        }
+        batchingReceiver.addAll(list);
+        batchingReceiver.flush();
+
+        assertThat(batches).hasSize(2);
+        assertIds(0, 20);
+    }
+
+    private void addRows(final ExtractionReceiver extractionReceiver, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            extractionReceiver.add(row(i));
+        }
+    }
+
+    private Val[] row(final long id) {
+        return new Val[]{ValLong.create(id)};
+    }
+
+    private void assertIds(final int from, final int to) {
+        final List<Long> ids = new ArrayList<>();
+        batches.forEach(batch -> batch.forEach(values -> ids.add(values[0].toLong())));
+        final List<Long> expected = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            expected.add(i);
+        }
+        assertThat(ids).isEqualTo(expected);
+    }
+}
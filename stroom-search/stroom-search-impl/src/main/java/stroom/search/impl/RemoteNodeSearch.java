@@ -11,11 +11,15 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.shared.ResourcePaths;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import javax.inject.Inject;
+import javax.inject.Provider;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
@@ -30,14 +34,17 @@ public class RemoteNodeSearch implements NodeSearch {
     private final NodeService nodeService;
     private final NodeInfo nodeInfo;
     private final WebTargetFactory webTargetFactory;
+    private final Provider<SearchConfig> searchConfigProvider;
 
     @Inject
     public RemoteNodeSearch(final NodeService nodeService,
                             final NodeInfo nodeInfo,
-                            final WebTargetFactory webTargetFactory) {
+                            final WebTargetFactory webTargetFactory,
+                            final Provider<SearchConfig> searchConfigProvider) {
         this.nodeService = nodeService;
         this.nodeInfo = nodeInfo;
         this.webTargetFactory = webTargetFactory;
+        this.searchConfigProvider = searchConfigProvider;
     }
 
     public void searchNode(final String sourceNode,
@@ -82,8 +89,11 @@ public class RemoteNodeSearch implements NodeSearch {
             LOGGER.debug(() -> task.getSearchName() + " - searching node: " + targetNode + "...");
             taskContext.info(() -> task.getSearchName() + " - searching node: " + targetNode + "...");
 
-            // Poll for results until completion.
+            // Stream results if we can, otherwise poll for results until completion.
             boolean complete = false;
+            if (searchConfigProvider.get().isStreamRemoteResults()) {
+                complete = streamRemoteSearch(targetNode, queryKey, resultCollector);
+            }
             while (!Thread.currentThread().isInterrupted() && !complete) {
                 complete = pollRemoteSearch(targetNode, queryKey, resultCollector);
             }
@@ -133,6 +143,75 @@ public class RemoteNodeSearch implements NodeSearch {
         }
     }
 
+    /**
+     * @return True if the search is complete, false if streaming is not possible or the stream ended early and
+     * we need to fall back to polling. Polling picks up from wherever the stream left off.
+     */
+    private boolean streamRemoteSearch(final String nodeName,
+                                       final String queryKey,
+                                       final ClusterSearchResultCollector resultCollector) {
+        final String url = NodeCallUtil.getBaseEndpointUrl(nodeInfo, nodeService, nodeName)
+                + ResourcePaths.buildAuthenticatedApiPath(
+                RemoteSearchResource.BASE_PATH,
+                RemoteSearchResource.STREAM_PATH_PART);
+
+        final Response response;
+        try {
+            WebTarget webTarget = webTargetFactory.create(url);
+            webTarget = UriBuilderUtil.addParam(webTarget, "queryKey", queryKey);
+
+            response = webTarget
+                    .request(MediaType.APPLICATION_OCTET_STREAM)
+                    .get();
+        } catch (final ProcessingException e) {
+            LOGGER.debug(() -> "Error requesting result stream from node " + nodeName
+                    + ", falling back to polling: " + e.getMessage(), e);
+            return false;
+        }
+        return readStream(nodeName, response, resultCollector);
+    }
+
+    /**
+     * Hand each frame in the response to the collector in turn. Only a missing endpoint or a failure to read
+     * from the remote node results in a fall back to polling. Anything thrown by the collector is passed on.
+     *
+     * @return True if the search is complete, false if we need to fall back to polling.
+     */
+    static boolean readStream(final String nodeName,
+                              final Response response,
+                              final ClusterSearchResultCollector resultCollector) {
+        if (response.getStatus() == Status.NOT_FOUND.getStatusCode()) {
+            // Nodes on an older version won't have the stream endpoint.
+            response.close();
+            LOGGER.debug(() -> "Node " + nodeName + " does not support streaming search results");
+            return false;
+        } else if (response.getStatus() != Status.OK.getStatusCode()) {
+            LOGGER.debug(() -> "Unexpected status " + response.getStatus() + " streaming results from node "
+                    + nodeName + ", falling back to polling");
+            response.close();
+            return false;
+        }
+
+        try (final DataInputStream dataInputStream = RemoteSearchFrames.createReader(
+                response.readEntity(InputStream.class))) {
+            boolean complete = false;
+            while (!Thread.currentThread().isInterrupted() && !complete) {
+                // Each frame is read in full before it is handed to the collector. We don't read the next
+                // frame until the collector has dealt with this one so a busy collector holds back the
+                // remote node.
+                final byte[] frame = RemoteSearchFrames.readFrame(dataInputStream);
+
+                LOGGER.debug(() -> "Receive result for node: " + nodeName);
+                complete = resultCollector.onSuccess(nodeName, new ByteArrayInputStream(frame));
+            }
+            return complete;
+        } catch (final IOException | ProcessingException e) {
+            LOGGER.debug(() -> "Error streaming results from node " + nodeName + ", falling back to polling: "
+                    + e.getMessage(), e);
+            return false;
+        }
+    }
+
     private Boolean pollRemoteSearch(final String nodeName,
                                      final String queryKey,
                                      final ClusterSearchResultCollector resultCollector) throws IOException {
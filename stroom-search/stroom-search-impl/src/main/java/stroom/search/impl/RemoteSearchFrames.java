@@ -0,0 +1,47 @@
+package stroom.search.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The framing used to stream remote search results. The stream is gzipped and each frame is a poll response
+ * preceded by its length. The writer flushes after each frame so the reader gets it straight away.
+ */
+final class RemoteSearchFrames {
+
+    private RemoteSearchFrames() {
+        // Utility.
+    }
+
+    static DataOutputStream createWriter(final OutputStream outputStream) throws IOException {
+        return new DataOutputStream(new GZIPOutputStream(outputStream, true));
+    }
+
+    static void writeFrame(final DataOutputStream dataOutputStream,
+                           final ByteArrayOutputStream frame) throws IOException {
+        dataOutputStream.writeInt(frame.size());
+        frame.writeTo(dataOutputStream);
+        dataOutputStream.flush();
+    }
+
+    static DataInputStream createReader(final InputStream inputStream) throws IOException {
+        return new DataInputStream(new GZIPInputStream(inputStream));
+    }
+
+    /**
+     * Read the next frame in full.
+     *
+     * @throws java.io.EOFException If the stream ends before a whole frame has been read.
+     */
+    static byte[] readFrame(final DataInputStream dataInputStream) throws IOException {
+        final byte[] frame = new byte[dataInputStream.readInt()];
+        dataInputStream.readFully(frame);
+        return frame;
+    }
+}
@@ -40,6 +40,7 @@ public interface RemoteSearchResource extends RestResource {
     String BASE_PATH = "/remoteSearch" + ResourcePaths.V1;
     String START_PATH_PART = "/start";
     String POLL_PATH_PART = "/poll";
+    String STREAM_PATH_PART = "/stream";
     String DESTROY_PATH_PART = "/destroy";
 
     @POST
@@ -57,6 +58,14 @@ public interface RemoteSearchResource extends RestResource {
             operationId = "pollRemoteSearch")
     StreamingOutput poll(@QueryParam("queryKey") String queryKey);
 
+    @GET
+    @Path(STREAM_PATH_PART)
+    @Produces("application/octet-stream")
+    @Operation(
+            summary = "Stream search results for the supplied queryKey as they are produced until the search completes",
+            operationId = "streamRemoteSearch")
+    StreamingOutput stream(@QueryParam("queryKey") String queryKey);
+
     @GET
     @Path(DESTROY_PATH_PART)
     @Operation(
@@ -47,6 +47,12 @@ public class RemoteSearchResourceImpl implements RemoteSearchResource {
         return outputStream -> remoteSearchServiceProvider.get().poll(queryKey, outputStream);
     }
 
+    @Timed
+    @Override
+    public StreamingOutput stream(final String queryKey) {
+        return outputStream -> remoteSearchServiceProvider.get().stream(queryKey, outputStream);
+    }
+
     @Timed
     @Override
     public Boolean destroy(final String queryKey) {
@@ -10,6 +10,9 @@ import stroom.util.logging.LambdaLoggerFactory;
 
 import com.esotericsoftware.kryo.io.Output;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -18,6 +21,10 @@ class RemoteSearchResultFactory {
 
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(RemoteSearchResultFactory.class);
 
+    private static final long POLL_TIMEOUT_MS = 1000;
+    private static final long FRAME_CHECK_INTERVAL_MS = 100;
+    private static final long MAX_FRAME_INTERVAL_MS = 1000;
+
     private final TaskManager taskManager;
     private final SecurityContext securityContext;
 
@@ -35,38 +42,104 @@ class RemoteSearchResultFactory {
 
     public void write(final OutputStream outputStream) {
         try (final Output output = new Output(outputStream)) {
-            if (initialisationError != null) {
-                NodeResultSerialiser.write(output, true, coprocessors, initialisationError);
-            } else {
-                try {
-                    // Wait to complete.
-                    final boolean complete = coprocessors.getCompletionState().awaitCompletion(1, TimeUnit.SECONDS);
-
-                    // Write completion status.
-                    if (!started) {
-                        LOGGER.debug(() -> "Node search not started");
-                        NodeResultSerialiser.writeEmptyResponse(output, false);
-
-                    } else if (Thread.currentThread().isInterrupted() || destroy) {
-                        LOGGER.debug(() -> "Terminated or destroyed: terminated=" +
-                                Thread.currentThread().isInterrupted() +
-                                ", destroyed=" +
-                                destroy);
-                        NodeResultSerialiser.writeEmptyResponse(output, true);
-
-                    } else {
-                        // Drain all current errors to a list.
-                        final List<String> errorsSnapshot = coprocessors.getErrorConsumer().drain();
-                        NodeResultSerialiser.write(output, complete, coprocessors, errorsSnapshot);
-                    }
-
-                } catch (final InterruptedException e) {
-                    LOGGER.debug(e::getMessage, e);
+            write(output, POLL_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Write a frame of results each time more results are available until the search completes. Each frame is
+     * the same as the response to a single poll. A frame is written as soon as new values or errors have been
+     * added to the coprocessors, or once a second if there is nothing new, so the receiving node knows we are
+     * still alive. If the receiving node is slower to consume frames than we are to produce them then the write
+     * will block, which holds back any further frames and leaves the results to build up in the coprocessors
+     * until it catches up.
+     */
+    public void stream(final OutputStream outputStream) throws IOException {
+        final DataOutputStream dataOutputStream = RemoteSearchFrames.createWriter(outputStream);
+        final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        long lastValueCount = -1;
+        boolean complete = false;
+        while (!complete) {
+            final long valueCount = awaitNextFrame(lastValueCount);
+            frame.reset();
+            try (final Output output = new Output(frame)) {
+                complete = write(output, 0);
+            }
+            RemoteSearchFrames.writeFrame(dataOutputStream, frame);
+            lastValueCount = valueCount;
+        }
+        dataOutputStream.close();
+    }
+
+    /**
+     * Wait until there is something new to send, up to a limit of {@link #MAX_FRAME_INTERVAL_MS}.
+     *
+     * @return The value count at the point we stopped waiting.
+     */
+    private long awaitNextFrame(final long lastValueCount) {
+        final long deadline = System.currentTimeMillis() + MAX_FRAME_INTERVAL_MS;
+        try {
+            while (initialisationError == null && !destroy && System.currentTimeMillis() < deadline) {
+                if (!started) {
+                    Thread.sleep(FRAME_CHECK_INTERVAL_MS);
+                } else if (coprocessors.getCompletionState()
+                        .awaitCompletion(FRAME_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                        || coprocessors.getValueCount() != lastValueCount
+                        || coprocessors.getErrorConsumer().hasErrors()) {
+                    break;
+                }
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.debug(e::getMessage, e);
+            // Keep interrupting so the next write tells the receiving node we are done.
+            Thread.currentThread().interrupt();
+        }
+        return coprocessors != null
+                ? coprocessors.getValueCount()
+                : 0;
+    }
+
+    /**
+     * @return True if the written response tells the receiving node the search is complete.
+     */
+    private boolean write(final Output output, final long timeoutMs) {
+        if (initialisationError != null) {
+            NodeResultSerialiser.write(output, true, coprocessors, initialisationError);
+            return true;
+        } else {
+            try {
+                // Wait to complete.
+                final boolean complete = coprocessors.getCompletionState()
+                        .awaitCompletion(timeoutMs, TimeUnit.MILLISECONDS);
+
+                // Write completion status.
+                if (!started) {
+                    LOGGER.debug(() -> "Node search not started");
+                    NodeResultSerialiser.writeEmptyResponse(output, false);
+                    return false;
+
+                } else if (Thread.currentThread().isInterrupted() || destroy) {
+                    LOGGER.debug(() -> "Terminated or destroyed: terminated=" +
+                            Thread.currentThread().isInterrupted() +
+                            ", destroyed=" +
+                            destroy);
                     NodeResultSerialiser.writeEmptyResponse(output, true);
+                    return true;
 
-                    // Keep interrupting.
-                    Thread.currentThread().interrupt();
+                } else {
+                    // Drain all current errors to a list.
+                    final List<String> errorsSnapshot = coprocessors.getErrorConsumer().drain();
+                    NodeResultSerialiser.write(output, complete, coprocessors, errorsSnapshot);
+                    return complete;
                 }
+
+            } catch (final InterruptedException e) {
+                LOGGER.debug(e::getMessage, e);
+                NodeResultSerialiser.writeEmptyResponse(output, true);
+
+                // Keep interrupting.
+                Thread.currentThread().interrupt();
+                return true;
             }
         }
     }
@@ -175,6 +175,29 @@ public class RemoteSearchService {
         }
     }
 
+    public void stream(final String queryKey, final OutputStream outputStream) {
+        try {
+            LOGGER.debug(() -> "stream " + queryKey);
+            final Optional<RemoteSearchResultFactory> optional = remoteSearchResults.get(queryKey);
+
+            if (optional.isPresent()) {
+                final RemoteSearchResultFactory factory = optional.get();
+                factory.stream(outputStream);
+
+            } else {
+                // There aren't any results in the cache so the search is probably dead
+                LOGGER.error("Expected search results in cache for " + queryKey);
+                throw new RuntimeException("Expected search results in cache for " + queryKey);
+            }
+        } catch (final IOException | KryoException e) {
+            // Expected as the receiving node will close the stream once it no longer needs results.
+            LOGGER.debug(e::getMessage, e);
+        } catch (final RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+            throw e;
+        }
+    }
+
     public Boolean destroy(final String queryKey) {
         LOGGER.debug(() -> "destroy " + queryKey);
         remoteSearchResults.invalidate(queryKey);
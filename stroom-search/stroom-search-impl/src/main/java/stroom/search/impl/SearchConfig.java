@@ -24,6 +24,7 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
 
     private final int maxStoredDataQueueSize;
     private final int maxBooleanClauseCount;
+    private final boolean streamRemoteResults;
     private final ExtractionConfig extractionConfig;
     private final IndexShardSearchConfig shardConfig;
     private final ResultStoreConfig resultStoreConfig;
@@ -31,6 +32,7 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
     public SearchConfig() {
         maxStoredDataQueueSize = DEFAULT_MAX_STORED_DATA_QUEUE_SIZE;
         maxBooleanClauseCount = DEFAULT_MAX_BOOLEAN_CLAUSE_COUNT;
+        streamRemoteResults = true;
         extractionConfig = new ExtractionConfig();
         shardConfig = new IndexShardSearchConfig();
         resultStoreConfig = new ResultStoreConfig();
@@ -39,11 +41,13 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
     @JsonCreator
     public SearchConfig(@JsonProperty("maxStoredDataQueueSize") final int maxStoredDataQueueSize,
                         @JsonProperty("maxBooleanClauseCount") final int maxBooleanClauseCount,
+                        @JsonProperty("streamRemoteResults") final boolean streamRemoteResults,
                         @JsonProperty("extraction") final ExtractionConfig extractionConfig,
                         @JsonProperty("shard") final IndexShardSearchConfig shardConfig,
                         @JsonProperty("resultStore") final ResultStoreConfig resultStoreConfig) {
         this.maxStoredDataQueueSize = maxStoredDataQueueSize;
         this.maxBooleanClauseCount = maxBooleanClauseCount;
+        this.streamRemoteResults = streamRemoteResults;
         this.extractionConfig = extractionConfig;
         this.shardConfig = shardConfig;
         this.resultStoreConfig = resultStoreConfig;
@@ -60,6 +64,13 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
         return maxBooleanClauseCount;
     }
 
+    @JsonPropertyDescription("If true, results from searches on other nodes will be streamed back to this node " +
+            "over a single connection as they are produced. If false, or the other node does not support streaming, " +
+            "this node will repeatedly poll the other node for results.")
+    public boolean isStreamRemoteResults() {
+        return streamRemoteResults;
+    }
+
     @JsonProperty("extraction")
     public ExtractionConfig getExtractionConfig() {
         return extractionConfig;
@@ -80,6 +91,7 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
         return "SearchConfig{" +
                 "maxStoredDataQueueSize=" + maxStoredDataQueueSize +
                 ", maxBooleanClauseCount=" + maxBooleanClauseCount +
+                ", streamRemoteResults=" + streamRemoteResults +
                 '}';
     }
 }
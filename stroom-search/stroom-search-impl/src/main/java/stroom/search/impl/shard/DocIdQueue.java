@@ -1,10 +1,202 @@
 package stroom.search.impl.shard;
 
-import stroom.util.concurrent.CompletableObjectQueue;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
 
-public class DocIdQueue extends CompletableObjectQueue<Integer> {
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded ring buffer of primitive doc ids used to pass hits from the Lucene collector to the
+ * thread reading stored data. Doc ids are put and taken in batches so neither side has to box each
+ * id or take the lock for every hit.
+ */
+public class DocIdQueue {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(DocIdQueue.class);
+
+    private final int[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int head;
+    private int size;
+    private boolean complete;
+
+    private long putCount;
+    private long producerStallCount;
+    private long consumerStallCount;
 
     public DocIdQueue(final int capacity) {
-        super(capacity);
+        buffer = new int[Math.max(1, capacity)];
+    }
+
+    public void put(final int docId) {
+        putAll(new int[]{docId}, 1);
+    }
+
+    /**
+     * Put the first length doc ids from the supplied array, waiting for space as necessary. Doc ids
+     * put after the queue has been completed are ignored.
+     */
+    public void putAll(final int[] docIds, final int length) {
+        try {
+            lock.lockInterruptibly();
+            try {
+                int offset = 0;
+                while (offset < length) {
+                    while (size == buffer.length && !complete) {
+                        producerStallCount++;
+                        notFull.await();
+                    }
+                    if (complete) {
+                        return;
+                    }
+
+                    final int count = Math.min(length - offset, buffer.length - size);
+                    final int tail = (head + size) % buffer.length;
+                    final int firstPart = Math.min(count, buffer.length - tail);
+                    System.arraycopy(docIds, offset, buffer, tail, firstPart);
+                    System.arraycopy(docIds, offset + firstPart, buffer, 0, count - firstPart);
+
+                    size += count;
+                    offset += count;
+                    putCount += count;
+                    notEmpty.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.error(e::getMessage, e);
+        }
+    }
+
+    /**
+     * Take as many doc ids as are available up to the length of the supplied array, waiting if
+     * there are none.
+     *
+     * @return The number of doc ids copied into the supplied array or -1 if the queue has been
+     * completed and there are no more doc ids to take.
+     */
+    public int take(final int[] docIds) {
+        try {
+            lock.lockInterruptibly();
+            try {
+                while (size == 0 && !complete) {
+                    consumerStallCount++;
+                    notEmpty.await();
+                }
+                if (size == 0) {
+                    return -1;
+                }
+
+                final int count = Math.min(size, docIds.length);
+                final int firstPart = Math.min(count, buffer.length - head);
+                System.arraycopy(buffer, head, docIds, 0, firstPart);
+                System.arraycopy(buffer, 0, docIds, firstPart, count - firstPart);
+
+                head = (head + count) % buffer.length;
+                size -= count;
+                notFull.signalAll();
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.error(e::getMessage, e);
+        }
+        return -1;
+    }
+
+    /**
+     * Mark the queue as complete. Once all remaining doc ids have been taken {@link #take(int[])}
+     * will return -1.
+     */
+    public void complete() {
+        lock.lock();
+        try {
+            complete = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            head = 0;
+            size = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return The total number of doc ids that have been put.
+     */
+    public long getPutCount() {
+        lock.lock();
+        try {
+            return putCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of times the producer had to wait for the consumer to make space.
+     */
+    public long getProducerStallCount() {
+        lock.lock();
+        try {
+            return producerStallCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of times the consumer had to wait for the producer to add doc ids.
+     */
+    public long getConsumerStallCount() {
+        lock.lock();
+        try {
+            return consumerStallCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "DocIdQueue{" +
+                    "size=" + size +
+                    ", putCount=" + putCount +
+                    ", producerStallCount=" + producerStallCount +
+                    ", consumerStallCount=" + consumerStallCount +
+                    '}';
+        } finally {
+            lock.unlock();
+        }
     }
 }
@@ -0,0 +1,55 @@
+package stroom.search.impl.shard;
+
+import stroom.task.api.ExecutorProvider;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Runs the extra workers used to search the segments of an index shard in parallel, see
+ * {@link IndexShardSearchTaskHandler}. Workers run on the existing {@code Search Index Shard} thread
+ * pool, so they are stopped along with it, but no more than one per processor may run at once across
+ * all searches. When that budget is used up a segment worker runs on the thread searching the shard
+ * and the shard is in effect searched serially.
+ */
+@Singleton
+class IndexSegmentSearchExecutor implements Executor {
+
+    private static final int MAX_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private final Executor executor;
+    private final Semaphore permits;
+
+    @Inject
+    IndexSegmentSearchExecutor(final ExecutorProvider executorProvider) {
+        this(executorProvider.get(IndexShardSearchFactory.INDEX_SHARD_SEARCH_THREAD_POOL), MAX_THREADS);
+    }
+
+    IndexSegmentSearchExecutor(final Executor executor, final int maxThreads) {
+        this.executor = executor;
+        this.permits = new Semaphore(maxThreads);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        if (permits.tryAcquire()) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (final RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        } else {
+            // No segment threads are free so search on the calling thread.
+            command.run();
+        }
+    }
+}
@@ -38,15 +38,19 @@ public class IndexShardHitCollector extends SimpleCollector {
 
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardHitCollector.class);
 
+    // The number of doc ids to collect before passing them to the doc id queue.
+    private static final int DOC_ID_BATCH_SIZE = 256;
+
     private final TaskContext taskContext;
     private final IndexShard indexShard;
     private final QueryKey queryKey;
     private final Query query;
 
-    //an empty optional is used as a marker to indicate no more items will be added
     private final DocIdQueue docIdQueue;
     private final LongAdder totalHitCount;
     private final LongAdder localHitCount = new LongAdder();
+    private final int[] pendingDocIds = new int[DOC_ID_BATCH_SIZE];
+    private int pendingCount;
     private int docBase;
 
     public IndexShardHitCollector(final TaskContext taskContext,
@@ -69,6 +73,27 @@ public class IndexShardHitCollector extends SimpleCollector {
     protected void doSetNextReader(final LeafReaderContext context) throws IOException {
         super.doSetNextReader(context);
         docBase = context.docBase;
+
+        // Pass on the hits from the previous segment so the consumer isn't kept waiting.
+        flush();
+    }
+
+    /**
+     * Pass any collected doc ids that are still pending to the doc id queue. Must be called once
+     * the search has finished.
+     */
+    public void flush() {
+        if (pendingCount > 0) {
+            docIdQueue.putAll(pendingDocIds, pendingCount);
+            try {
+                SearchProgressLog.add(queryKey,
+                        SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_PUT,
+                        pendingCount);
+            } catch (final RuntimeException e) {
+                LOGGER.error("Error logging search progress: {}. {}", e.getMessage(), this, e);
+            }
+            pendingCount = 0;
+        }
     }
 
     @Override
@@ -78,13 +103,16 @@ public class IndexShardHitCollector extends SimpleCollector {
         if (!taskContext.isTerminated()) {
             final int docId = docBase + doc;
 
+            pendingDocIds[pendingCount++] = docId;
+            if (pendingCount == DOC_ID_BATCH_SIZE) {
+                flush();
+            }
+
             // Add to the hit count.
-            docIdQueue.put(docId);
             localHitCount.increment();
             totalHitCount.increment();
 
             try {
-                SearchProgressLog.increment(queryKey, SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_PUT);
                 info(() -> "Found " + localHitCount + " hits");
             } catch (final RuntimeException e) {
                 LOGGER.error("Error logging search progress: {}. {}", e.getMessage(), this, e);
@@ -92,6 +120,7 @@ public class IndexShardHitCollector extends SimpleCollector {
 
         } else {
             // We are terminating so let follow-on tasks know.
+            pendingCount = 0;
             docIdQueue.clear();
             docIdQueue.complete();
 
@@ -116,7 +145,9 @@ public class IndexShardHitCollector extends SimpleCollector {
         return "Query key: " + queryKey
                 + ", shard: " + NullSafe.get(indexShard, IndexShard::getId)
                 + ", shard hits: " + localHitCount.sum()
-                + ", total hits: " + NullSafe.getOrElse(totalHitCount, LongAdder::sum, -1);
+                + ", total hits: " + NullSafe.getOrElse(totalHitCount, LongAdder::sum, -1)
+                + ", producer stalls: " + docIdQueue.getProducerStallCount()
+                + ", consumer stalls: " + docIdQueue.getConsumerStallCount();
     }
 }
 
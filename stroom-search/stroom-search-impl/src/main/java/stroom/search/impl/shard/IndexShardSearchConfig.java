@@ -10,6 +10,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
 @JsonPropertyOrder(alphabetic = true)
 public class IndexShardSearchConfig extends AbstractConfig implements IsStroomConfig {
 
@@ -17,18 +20,28 @@ public class IndexShardSearchConfig extends AbstractConfig implements IsStroomCo
 
     private final int maxDocIdQueueSize;
     private final int maxThreadsPerTask;
+    private final int maxSegmentThreadsPerShard;
+    private final StroomDuration nearRealTimeMaxStaleness;
+    private final StroomDuration nearRealTimeMinRefreshInterval;
+    private final boolean nearRealTimeRefreshOnSearch;
     private final CacheConfig remoteSearchResultCache;
     private final CacheConfig indexShardSearcherCache;
 
     public IndexShardSearchConfig() {
         maxDocIdQueueSize = 1_000_000;
         maxThreadsPerTask = DEFAULT_MAX_THREADS_PER_TASK;
+        maxSegmentThreadsPerShard = 1;
+        nearRealTimeMaxStaleness = StroomDuration.ofSeconds(10);
+        nearRealTimeMinRefreshInterval = StroomDuration.ofSeconds(1);
+        nearRealTimeRefreshOnSearch = true;
         remoteSearchResultCache = CacheConfig.builder()
                 .maximumSize(100L)
                 .expireAfterAccess(StroomDuration.ofMinutes(10))
                 .build();
+        // Only shards with an open writer have a cached searcher so allow one for each writer the default
+        // index writer cache can hold open.
         indexShardSearcherCache = CacheConfig.builder()
-                .maximumSize(2L)
+                .maximumSize(100L)
                 .expireAfterAccess(StroomDuration.ofMinutes(1))
                 .build();
     }
@@ -36,10 +49,20 @@ public class IndexShardSearchConfig extends AbstractConfig implements IsStroomCo
     @JsonCreator
     public IndexShardSearchConfig(@JsonProperty("maxDocIdQueueSize") final int maxDocIdQueueSize,
                                   @JsonProperty("maxThreadsPerTask") final int maxThreadsPerTask,
+                                  @JsonProperty("maxSegmentThreadsPerShard") final int maxSegmentThreadsPerShard,
+                                  @JsonProperty("nearRealTimeMaxStaleness")
+                                  final StroomDuration nearRealTimeMaxStaleness,
+                                  @JsonProperty("nearRealTimeMinRefreshInterval")
+                                  final StroomDuration nearRealTimeMinRefreshInterval,
+                                  @JsonProperty("nearRealTimeRefreshOnSearch") final boolean nearRealTimeRefreshOnSearch,
                                   @JsonProperty("remoteSearchResultCache") final CacheConfig remoteSearchResultCache,
                                   @JsonProperty("indexShardSearcherCache") final CacheConfig indexShardSearcherCache) {
         this.maxDocIdQueueSize = maxDocIdQueueSize;
         this.maxThreadsPerTask = maxThreadsPerTask;
+        this.maxSegmentThreadsPerShard = maxSegmentThreadsPerShard;
+        this.nearRealTimeMaxStaleness = nearRealTimeMaxStaleness;
+        this.nearRealTimeMinRefreshInterval = nearRealTimeMinRefreshInterval;
+        this.nearRealTimeRefreshOnSearch = nearRealTimeRefreshOnSearch;
         this.remoteSearchResultCache = remoteSearchResultCache;
         this.indexShardSearcherCache = indexShardSearcherCache;
     }
@@ -55,6 +78,38 @@ public class IndexShardSearchConfig extends AbstractConfig implements IsStroomCo
         return maxThreadsPerTask;
     }
 
+    @Min(1)
+    @JsonPropertyDescription("The maximum number of threads used to search the segments of a single Lucene index " +
+            "shard in parallel. Searching segments in parallel reduces the time taken to search very large " +
+            "shards when there are only a few shards to search. Set to 1 to search each shard on a single thread")
+    public int getMaxSegmentThreadsPerShard() {
+        return maxSegmentThreadsPerShard;
+    }
+
+    @NotNull
+    @JsonPropertyDescription("The maximum age of the documents seen by a search of an index shard that is " +
+            "being written to. A search will wait for the shard's near real time searcher to be refreshed if " +
+            "it was last refreshed longer ago than this")
+    public StroomDuration getNearRealTimeMaxStaleness() {
+        return nearRealTimeMaxStaleness;
+    }
+
+    @NotNull
+    @JsonPropertyDescription("When 'nearRealTimeRefreshOnSearch' is true this is the minimum time between " +
+            "refreshes of the near real time searcher for an index shard that is being written to. Each refresh " +
+            "makes the writer flush the documents it has buffered to a new segment")
+    public StroomDuration getNearRealTimeMinRefreshInterval() {
+        return nearRealTimeMinRefreshInterval;
+    }
+
+    @JsonPropertyDescription("If true a search of an index shard that is being written to will refresh the " +
+            "shard's near real time searcher so it sees recently added documents, no more often than " +
+            "'nearRealTimeMinRefreshInterval'. If false searchers are only refreshed when they are older " +
+            "than 'nearRealTimeMaxStaleness'")
+    public boolean isNearRealTimeRefreshOnSearch() {
+        return nearRealTimeRefreshOnSearch;
+    }
+
     public CacheConfig getRemoteSearchResultCache() {
         return remoteSearchResultCache;
     }
@@ -68,6 +123,10 @@ public class IndexShardSearchConfig extends AbstractConfig implements IsStroomCo
         return "IndexShardSearchConfig{" +
                 "maxDocIdQueueSize=" + maxDocIdQueueSize +
                 ", maxThreadsPerTask=" + maxThreadsPerTask +
+                ", maxSegmentThreadsPerShard=" + maxSegmentThreadsPerShard +
+                ", nearRealTimeMaxStaleness=" + nearRealTimeMaxStaleness +
+                ", nearRealTimeMinRefreshInterval=" + nearRealTimeMinRefreshInterval +
+                ", nearRealTimeRefreshOnSearch=" + nearRealTimeRefreshOnSearch +
                 ", remoteSearchResultCache=" + remoteSearchResultCache +
                 ", indexShardSearcherCache=" + indexShardSearcherCache +
                 '}';
@@ -2,6 +2,8 @@ package stroom.search.impl.shard;
 
 import stroom.dashboard.expression.v1.FieldIndex;
 import stroom.dictionary.api.WordListProvider;
+import stroom.index.impl.IndexShardSummary;
+import stroom.index.impl.IndexShardSummaryCache;
 import stroom.index.impl.IndexStore;
 import stroom.index.shared.IndexDoc;
 import stroom.index.shared.IndexField;
@@ -29,8 +31,12 @@ import stroom.util.logging.LambdaLoggerFactory;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.Version;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
@@ -46,6 +52,8 @@ public class IndexShardSearchFactory {
     public static final ThreadPool INDEX_SHARD_SEARCH_THREAD_POOL = new ThreadPoolImpl("Search Index Shard");
 
     private final IndexStore indexStore;
+    private final IndexShardSummaryCache indexShardSummaryCache;
+    private final IndexShardSummaryStats indexShardSummaryStats;
     private final ExecutorProvider executorProvider;
     private final IndexShardSearchConfig indexShardSearchConfig;
     private final Provider<IndexShardSearchTaskHandler> indexShardSearchTaskHandlerProvider;
@@ -55,6 +63,8 @@ public class IndexShardSearchFactory {
 
     @Inject
     IndexShardSearchFactory(final IndexStore indexStore,
+                            final IndexShardSummaryCache indexShardSummaryCache,
+                            final IndexShardSummaryStats indexShardSummaryStats,
                             final ExecutorProvider executorProvider,
                             final IndexShardSearchConfig indexShardSearchConfig,
                             final Provider<IndexShardSearchTaskHandler> indexShardSearchTaskHandlerProvider,
@@ -62,6 +72,8 @@ public class IndexShardSearchFactory {
                             final TaskContextFactory taskContextFactory,
                             final SearchConfig searchConfig) {
         this.indexStore = indexStore;
+        this.indexShardSummaryCache = indexShardSummaryCache;
+        this.indexShardSummaryStats = indexShardSummaryStats;
         this.executorProvider = executorProvider;
         this.indexShardSearchConfig = indexShardSearchConfig;
         this.indexShardSearchTaskHandlerProvider = indexShardSearchTaskHandlerProvider;
@@ -92,12 +104,16 @@ public class IndexShardSearchFactory {
         final IndexFieldsMap indexFieldsMap = new IndexFieldsMap(index.getFields());
 
         final String[] storedFieldNames = new String[fieldIndex.size()];
+        final Set<String> storedFields = new HashSet<>();
         for (int i = 0; i < storedFieldNames.length; i++) {
             final String fieldName = fieldIndex.getField(i);
             if (fieldName != null) {
                 final IndexField indexField = indexFieldsMap.get(fieldName);
-                if (indexField != null && indexField.isStored()) {
+                if (indexField != null && (indexField.isStored() || indexField.isDocValues())) {
                     storedFieldNames[i] = fieldName;
+                    if (indexField.isStored()) {
+                        storedFields.add(fieldName);
+                    }
                 }
             }
         }
@@ -111,13 +127,16 @@ public class IndexShardSearchFactory {
         final CompletableFuture<Void>[] futures = new CompletableFuture[threadCount];
         final Executor executor = executorProvider.get(INDEX_SHARD_SEARCH_THREAD_POOL);
 
-        if (task.getShards().size() > 0) {
+        // Skip shards that the shard summaries tell us can't contain any matches.
+        final List<Long> shards = filterShards(task, expression, indexFieldsMap, parentContext);
+
+        if (shards.size() > 0) {
             final Map<Version, Optional<SearchExpressionQuery>> queryMap = new ConcurrentHashMap<>();
             final IndexShardQueryFactory queryFactory = createIndexShardQueryFactory(
                     task, expression, indexFieldsMap, queryMap, errorConsumer);
 
             // Create a queue of shards to search.
-            final ShardIdQueue shardIdQueue = new ShardIdQueue(task.getShards());
+            final ShardIdQueue shardIdQueue = new ShardIdQueue(shards);
             final AtomicInteger shardNo = new AtomicInteger();
             for (int i = 0; i < threadCount; i++) {
                 futures[i] = CompletableFuture.runAsync(() -> taskContextFactory
@@ -138,9 +157,10 @@ public class IndexShardSearchFactory {
                                                     task.getKey(),
                                                     queryFactory,
                                                     storedFieldNames,
+                                                    storedFields,
                                                     hitCount,
                                                     shardNo.incrementAndGet(),
-                                                    task.getShards().size(),
+                                                    shards.size(),
                                                     shardId,
                                                     storedDataQueue,
                                                     errorConsumer);
@@ -164,6 +184,51 @@ public class IndexShardSearchFactory {
                         }).run(), executor);
     }
 
+    private List<Long> filterShards(final ClusterSearchTask task,
+                                    final ExpressionOperator expression,
+                                    final IndexFieldsMap indexFieldsMap,
+                                    final TaskContext parentContext) {
+        final IndexShardSummaryFilter filter = new IndexShardSummaryFilter(
+                expression,
+                indexFieldsMap,
+                task.getDateTimeSettings(),
+                task.getNow());
+
+        final List<Long> shards = new ArrayList<>(task.getShards().size());
+        for (final Long shardId : task.getShards()) {
+            if (parentContext.isTerminated()) {
+                break;
+            }
+
+            boolean mightMatch = true;
+            boolean hadSummary = false;
+            try {
+                final IndexShardSummary summary = indexShardSummaryCache.get(shardId);
+                hadSummary = summary.isComplete();
+                mightMatch = filter.mightMatch(summary);
+            } catch (final RuntimeException e) {
+                // Search the shard if we can't tell.
+                LOGGER.debug(e::getMessage, e);
+                indexShardSummaryStats.recordError();
+            }
+
+            if (mightMatch) {
+                shards.add(shardId);
+                indexShardSummaryStats.recordSearched(hadSummary);
+            } else {
+                indexShardSummaryStats.recordSkipped();
+                LOGGER.debug(() -> "Skipping index shard " + shardId + " as it can't contain any matches");
+                SearchProgressLog.increment(task.getKey(), SearchPhase.INDEX_SHARD_SEARCH_FACTORY_SKIP_SHARD);
+            }
+        }
+
+        final int skipped = task.getShards().size() - shards.size();
+        if (skipped > 0) {
+            LOGGER.debug(() -> "Skipped " + skipped + " of " + task.getShards().size() + " index shards");
+        }
+        return shards;
+    }
+
     private IndexShardQueryFactory createIndexShardQueryFactory(
             final ClusterSearchTask task,
             final ExpressionOperator expression,
@@ -17,7 +17,6 @@
 package stroom.search.impl.shard;
 
 import stroom.dashboard.expression.v1.Val;
-import stroom.dashboard.expression.v1.ValString;
 import stroom.dashboard.expression.v1.ValuesConsumer;
 import stroom.index.impl.IndexShardService;
 import stroom.index.impl.IndexShardWriter;
@@ -39,16 +38,25 @@ import stroom.task.shared.ThreadPool;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.Version;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.LongAdder;
 import javax.inject.Inject;
@@ -59,24 +67,35 @@ public class IndexShardSearchTaskHandler {
 
     public static final ThreadPool THREAD_POOL = new ThreadPoolImpl("Search Index Shard");
 
+    // The maximum number of rows of stored data to pass on to the values consumer at once.
+    private static final int MAX_STORED_DATA_BATCH_SIZE = 100;
+    // The maximum number of doc ids to take from the doc id queue at once.
+    private static final int MAX_DOC_ID_BATCH_SIZE = 1000;
+
     private final IndexShardWriterCache indexShardWriterCache;
+    private final IndexShardSearcherCache indexShardSearcherCache;
     private final IndexShardService indexShardService;
     private final IndexShardSearchConfig shardConfig;
     private final Executor executor;
+    private final Executor segmentSearchExecutor;
     private final TaskContextFactory taskContextFactory;
 
     private QueryKey queryKey;
 
     @Inject
     IndexShardSearchTaskHandler(final IndexShardWriterCache indexShardWriterCache,
+                                final IndexShardSearcherCache indexShardSearcherCache,
                                 final IndexShardService indexShardService,
                                 final IndexShardSearchConfig shardConfig,
                                 final ExecutorProvider executorProvider,
+                                final IndexSegmentSearchExecutor segmentSearchExecutor,
                                 final TaskContextFactory taskContextFactory) {
         this.indexShardWriterCache = indexShardWriterCache;
+        this.indexShardSearcherCache = indexShardSearcherCache;
         this.indexShardService = indexShardService;
         this.shardConfig = shardConfig;
         this.executor = executorProvider.get(THREAD_POOL);
+        this.segmentSearchExecutor = segmentSearchExecutor;
         this.taskContextFactory = taskContextFactory;
     }
 
@@ -84,6 +103,7 @@ public class IndexShardSearchTaskHandler {
                             final QueryKey queryKey,
                             final IndexShardQueryFactory queryFactory,
                             final String[] storedFieldNames,
+                            final Set<String> storedFields,
                             final LongAdder hitCount,
                             final int shardNumber,
                             final int shardTotal,
@@ -106,13 +126,20 @@ public class IndexShardSearchTaskHandler {
                     throw new SearchException("Unable to find index shard with id = " + shardId);
                 }
 
-                indexShardSearcher = new IndexShardSearcher(indexShard, indexWriter);
+                if (indexWriter != null) {
+                    // Searches of a shard that is being written to share a near real time searcher that is
+                    // refreshed as configured rather than each opening a new reader from the writer.
+                    indexShardSearcher = indexShardSearcherCache.get(shardId);
+                } else {
+                    indexShardSearcher = new IndexShardSearcher(indexShard);
+                }
 
                 // Start searching.
                 searchShard(
                         taskContext,
                         queryFactory,
                         storedFieldNames,
+                        storedFields,
                         hitCount,
                         indexShardSearcher,
                         valuesConsumer,
@@ -145,6 +172,7 @@ public class IndexShardSearchTaskHandler {
     private void searchShard(final TaskContext parentContext,
                              final IndexShardQueryFactory queryFactory,
                              final String[] storedFieldNames,
+                             final Set<String> storedFields,
                              final LongAdder hitCount,
                              final IndexShardSearcher indexShardSearcher,
                              final ValuesConsumer valuesConsumer,
@@ -167,6 +195,10 @@ public class IndexShardSearchTaskHandler {
                 final SearcherManager searcherManager = indexShardSearcher.getSearcherManager();
                 final IndexSearcher searcher = searcherManager.acquire();
                 try {
+                    // Work out which fields can be read from doc values in this shard.
+                    final StoredDataReader storedDataReader =
+                            new StoredDataReader(searcher.getIndexReader(), storedFieldNames, storedFields);
+
                     final Runnable runnable = taskContextFactory.childContext(
                             parentContext,
                             "Index Searcher",
@@ -175,20 +207,34 @@ public class IndexShardSearchTaskHandler {
                                 try {
                                     LOGGER.logDurationIfDebugEnabled(() -> {
                                         try {
-                                            // Create a collector.
-                                            final IndexShardHitCollector collector = new IndexShardHitCollector(
-                                                    taskContext,
-                                                    queryKey,
-                                                    indexShard,
-                                                    query,
-                                                    docIdQueue,
-                                                    hitCount);
-
-                                            searcher.search(query, collector);
-
-                                            LOGGER.debug("Shard search complete. {}, query term [{}]",
-                                                    collector,
-                                                    query);
+                                            final int segmentCount = searcher.getIndexReader().leaves().size();
+                                            if (shardConfig.getMaxSegmentThreadsPerShard() > 1 && segmentCount > 1) {
+                                                searchSegments(
+                                                        taskContext,
+                                                        indexShard,
+                                                        query,
+                                                        searcher,
+                                                        docIdQueue,
+                                                        hitCount,
+                                                        errorConsumer);
+
+                                            } else {
+                                                // Create a collector.
+                                                final IndexShardHitCollector collector = new IndexShardHitCollector(
+                                                        taskContext,
+                                                        queryKey,
+                                                        indexShard,
+                                                        query,
+                                                        docIdQueue,
+                                                        hitCount);
+
+                                                searcher.search(query, collector);
+                                                collector.flush();
+
+                                                LOGGER.debug("Shard search complete. {}, query term [{}]",
+                                                        collector,
+                                                        query);
+                                            }
 
                                         } catch (final TaskTerminatedException e) {
                                             // Expected error on early completion.
@@ -204,25 +250,46 @@ public class IndexShardSearchTaskHandler {
                     final CompletableFuture<Void> completableFuture = CompletableFuture.runAsync(runnable, executor);
                     try {
                         // Start converting found docIds into stored data values
+                        final int[] docIds = new int[MAX_DOC_ID_BATCH_SIZE];
+                        List<Val[]> valuesList = new ArrayList<>(MAX_STORED_DATA_BATCH_SIZE);
                         boolean done = false;
                         while (!done) {
                             // Uncomment this to slow searches down in dev
 //                            ThreadUtil.sleepAtLeastIgnoreInterrupts(1_000);
 
-                            // Take the next item.
-                            // When we get null we are done.
-                            final Integer docId = docIdQueue.take();
-                            if (docId != null) {
+                            // Take the next batch of doc ids.
+                            // When we get -1 we are done.
+                            final int count = docIdQueue.take(docIds);
+                            if (count >= 0) {
                                 if (!parentContext.isTerminated()) {
-                                    // If we have a doc id then retrieve the stored data for it.
-                                    SearchProgressLog.increment(queryKey,
-                                            SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE);
-                                    getStoredData(storedFieldNames, valuesConsumer, searcher, docId, errorConsumer);
+                                    SearchProgressLog.add(queryKey,
+                                            SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE,
+                                            count);
+                                    for (int i = 0; i < count; i++) {
+                                        // Retrieve the stored data for each doc id.
+                                        getStoredData(storedDataReader, valuesList, searcher, docIds[i],
+                                                errorConsumer);
+                                        if (valuesList.size() >= MAX_STORED_DATA_BATCH_SIZE) {
+                                            valuesConsumer.addAll(valuesList);
+                                            valuesList = new ArrayList<>(MAX_STORED_DATA_BATCH_SIZE);
+                                        }
+                                    }
+                                }
+
+                                // Pass on the rows we have if we might be about to block waiting for the
+                                // searcher to find more docs.
+                                if (valuesList.size() > 0 && docIdQueue.isEmpty()) {
+                                    valuesConsumer.addAll(valuesList);
+                                    valuesList = new ArrayList<>(MAX_STORED_DATA_BATCH_SIZE);
                                 }
                             } else {
                                 done = true;
                             }
                         }
+
+                        if (valuesList.size() > 0) {
+                            valuesConsumer.addAll(valuesList);
+                        }
                     } catch (final RuntimeException e) {
                         error(errorConsumer, e);
                     } finally {
@@ -238,43 +305,120 @@ public class IndexShardSearchTaskHandler {
         }
     }
 
+    /**
+     * Search the segments of a shard in parallel, each with its own collector, so that a single large
+     * shard isn't limited to one thread. The number of threads is limited by
+     * {@link IndexShardSearchConfig#getMaxSegmentThreadsPerShard()} and each thread takes the next
+     * segment to search until there are none left. The calling thread is one of the workers and the rest
+     * come from {@link IndexSegmentSearchExecutor}, which runs them on the calling thread if it has no
+     * threads free. Doc ids from different segments may be interleaved in the doc id queue.
+     */
+    void searchSegments(final TaskContext parentContext,
+                        final IndexShard indexShard,
+                        final Query query,
+                        final IndexSearcher searcher,
+                        final DocIdQueue docIdQueue,
+                        final LongAdder hitCount,
+                        final ErrorConsumer errorConsumer) throws IOException {
+        final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        final Weight weight = searcher.createNormalizedWeight(query, false);
+        final Queue<LeafReaderContext> leafQueue = new ConcurrentLinkedQueue<>(leaves);
+
+        final int threadCount = Math.min(shardConfig.getMaxSegmentThreadsPerShard(), leaves.size());
+        LOGGER.debug(() -> "Searching " + leaves.size() + " segments with up to " + threadCount + " threads");
+
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[threadCount - 1];
+        for (int i = 0; i < futures.length; i++) {
+            final Runnable runnable = taskContextFactory.childContext(
+                    parentContext,
+                    "Search Index Segment",
+                    TerminateHandlerFactory.NOOP_FACTORY,
+                    taskContext -> searchSegments(
+                            taskContext, indexShard, query, weight, leafQueue, docIdQueue, hitCount, errorConsumer));
+            futures[i] = CompletableFuture.runAsync(runnable, segmentSearchExecutor);
+        }
+
+        // Take a share of the segments on this thread rather than just waiting for the others.
+        searchSegments(parentContext, indexShard, query, weight, leafQueue, docIdQueue, hitCount, errorConsumer);
+
+        // Wait for all segments to be searched.
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private void searchSegments(final TaskContext taskContext,
+                                final IndexShard indexShard,
+                                final Query query,
+                                final Weight weight,
+                                final Queue<LeafReaderContext> leafQueue,
+                                final DocIdQueue docIdQueue,
+                                final LongAdder hitCount,
+                                final ErrorConsumer errorConsumer) {
+        final IndexShardHitCollector collector = new IndexShardHitCollector(
+                taskContext,
+                queryKey,
+                indexShard,
+                query,
+                docIdQueue,
+                hitCount);
+        try {
+            LeafReaderContext leaf;
+            while (!taskContext.isTerminated() && (leaf = leafQueue.poll()) != null) {
+                searchSegment(weight, leaf, collector);
+            }
+            collector.flush();
+
+            LOGGER.debug("Segment search complete. {}, query term [{}]",
+                    collector,
+                    query);
+
+        } catch (final TaskTerminatedException e) {
+            // Expected error on early completion.
+            LOGGER.trace(e::getMessage, e);
+        } catch (final RuntimeException e) {
+            error(errorConsumer, e);
+        }
+    }
+
+    private void searchSegment(final Weight weight,
+                               final LeafReaderContext leaf,
+                               final IndexShardHitCollector collector) {
+        try {
+            final LeafCollector leafCollector;
+            try {
+                leafCollector = collector.getLeafCollector(leaf);
+            } catch (final CollectionTerminatedException e) {
+                // The collector doesn't want any hits from this segment.
+                return;
+            }
+
+            final BulkScorer scorer = weight.bulkScorer(leaf);
+            if (scorer != null) {
+                try {
+                    scorer.score(leafCollector, leaf.reader().getLiveDocs());
+                } catch (final CollectionTerminatedException e) {
+                    // The collector has finished with this segment.
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * This method takes a list of document id's and extracts the stored fields
      * that are required for data display. In some cases such as batch search we
      * only want to get stream and event ids, in these cases no values are
      * retrieved, only stream and event ids.
      */
-    private void getStoredData(final String[] storedFieldNames,
-                               final ValuesConsumer valuesConsumer,
+    private void getStoredData(final StoredDataReader storedDataReader,
+                               final List<Val[]> valuesList,
                                final IndexSearcher searcher,
                                final int docId,
                                final ErrorConsumer errorConsumer) {
         try {
             SearchProgressLog.increment(queryKey, SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_GET_STORED_DATA);
-            final Val[] values = new Val[storedFieldNames.length];
-            final Document document = searcher.doc(docId);
-
-            for (int i = 0; i < storedFieldNames.length; i++) {
-                final String storedField = storedFieldNames[i];
-
-                // If the field is null then it isn't stored.
-                if (storedField != null) {
-                    final IndexableField indexableField = document.getField(storedField);
-
-                    // If the field is not in fact stored then it will be null here.
-                    if (indexableField != null) {
-                        final String value = indexableField.stringValue();
-                        if (value != null) {
-                            final String trimmed = value.trim();
-                            if (trimmed.length() > 0) {
-                                values[i] = ValString.create(trimmed);
-                            }
-                        }
-                    }
-                }
-            }
-
-            valuesConsumer.add(values);
+            final Val[] values = storedDataReader.read(searcher, docId);
+            valuesList.add(values);
         } catch (final IOException | RuntimeException e) {
             error(errorConsumer, e);
         }
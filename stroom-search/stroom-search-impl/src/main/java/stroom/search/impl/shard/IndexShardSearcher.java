@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class IndexShardSearcher {
 
@@ -49,6 +50,12 @@ public class IndexShardSearcher {
     private final IndexWriter indexWriter;
     private final SearcherManager searcherManager;
 
+    /**
+     * The number of users of this searcher. The searcher is closed when the last one is done with it.
+     */
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private volatile long lastRefreshTime = System.currentTimeMillis();
+
     public IndexShardSearcher(final IndexShard indexShard) {
         this(indexShard, null);
     }
@@ -145,7 +152,58 @@ public class IndexShardSearcher {
         return searcherManager;
     }
 
-    public synchronized void destroy() {
+    /**
+     * Add a user of this searcher who must call {@link #destroy()} when done with it.
+     *
+     * @return False if the searcher has already been closed.
+     */
+    boolean incRef() {
+        int count = refCount.get();
+        while (count > 0) {
+            if (refCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+            count = refCount.get();
+        }
+        return false;
+    }
+
+    /**
+     * Refresh the searcher so that it sees documents recently added by the writer.
+     *
+     * @param block If false and another thread is refreshing the searcher then return without
+     *              waiting for it.
+     * @return True if the searcher has been refreshed.
+     */
+    boolean refresh(final boolean block) throws IOException {
+        final long now = System.currentTimeMillis();
+        if (block) {
+            searcherManager.maybeRefreshBlocking();
+        } else if (!searcherManager.maybeRefresh()) {
+            return false;
+        }
+        lastRefreshTime = now;
+        return true;
+    }
+
+    /**
+     * @return The time the searcher last started a refresh, i.e. the time after which documents added
+     * by the writer may not be visible.
+     */
+    long getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    /**
+     * Release this user's reference to the searcher and close it if there are no other users.
+     */
+    public void destroy() {
+        if (refCount.decrementAndGet() == 0) {
+            close();
+        }
+    }
+
+    private synchronized void close() {
         try {
             try {
                 searcherManager.close();
@@ -19,6 +19,11 @@ package stroom.search.impl.shard;
 
 public interface IndexShardSearcherCache {
 
+    /**
+     * Get a searcher for an index shard. If the shard is being written to the searcher is refreshed
+     * as configured so that it sees recently added documents. The caller must call
+     * {@link IndexShardSearcher#destroy()} when it has finished with the searcher.
+     */
     IndexShardSearcher get(Long indexShardId);
 
     void refresh();
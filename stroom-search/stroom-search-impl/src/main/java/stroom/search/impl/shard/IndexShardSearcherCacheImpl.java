@@ -34,10 +34,13 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogExecutionTime;
 import stroom.util.shared.Clearable;
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
 
 import org.apache.lucene.index.IndexWriter;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -45,12 +48,14 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
 @Singleton
-public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Clearable {
+public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Clearable, HasSystemInfo {
 
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardSearcherCacheImpl.class);
     private static final String CACHE_NAME = "Index Shard Searcher Cache";
@@ -65,6 +70,13 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
     private final Provider<IndexShardSearchConfig> indexShardSearchConfigProvider;
     private final SecurityContext securityContext;
 
+    // Metrics for the cost of refreshing near real time searchers.
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder blockingRefreshes = new LongAdder();
+    private final LongAdder skippedRefreshes = new LongAdder();
+    private final LongAdder refreshNanos = new LongAdder();
+    private final LongAccumulator maxRefreshNanos = new LongAccumulator(Math::max, 0);
+
     private volatile ICache<Key, IndexShardSearcher> cache;
 
     @Inject
@@ -128,7 +140,55 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
     public IndexShardSearcher get(final Long indexShardId) {
         final IndexWriter indexWriter = getWriter(indexShardId);
         final Key key = new Key(indexShardId, indexWriter);
-        return getCache().get(key);
+        IndexShardSearcher indexShardSearcher = getCache().get(key);
+        // The searcher may have been evicted and closed since we got it from the cache, in which case the
+        // cache will create a new one.
+        while (!indexShardSearcher.incRef()) {
+            indexShardSearcher = getCache().get(key);
+        }
+
+        if (indexWriter != null) {
+            try {
+                refreshIfStale(indexShardSearcher);
+            } catch (final IOException | RuntimeException e) {
+                // Search what we can see already.
+                LOGGER.debug(e::getMessage, e);
+            }
+        }
+        return indexShardSearcher;
+    }
+
+    /**
+     * Searches of shards that are being written to share a near real time searcher. Refreshing it makes
+     * the writer flush buffered documents to a new segment so we only refresh when the searcher is older
+     * than the configured minimum interval, if refreshing on search, or max staleness.
+     */
+    private void refreshIfStale(final IndexShardSearcher indexShardSearcher) throws IOException {
+        final IndexShardSearchConfig config = indexShardSearchConfigProvider.get();
+        final long age = System.currentTimeMillis() - indexShardSearcher.getLastRefreshTime();
+        if (age >= config.getNearRealTimeMaxStaleness().toMillis()) {
+            // Too stale to use so wait for any refresh that is already happening.
+            blockingRefreshes.increment();
+            refresh(indexShardSearcher, true);
+        } else if (config.isNearRealTimeRefreshOnSearch() &&
+                age >= config.getNearRealTimeMinRefreshInterval().toMillis()) {
+            refresh(indexShardSearcher, false);
+        }
+    }
+
+    private void refresh(final IndexShardSearcher indexShardSearcher, final boolean block) throws IOException {
+        final long startNanos = System.nanoTime();
+        if (indexShardSearcher.refresh(block)) {
+            final long nanos = System.nanoTime() - startNanos;
+            refreshes.increment();
+            refreshNanos.add(nanos);
+            maxRefreshNanos.accumulate(nanos);
+            LOGGER.debug(() -> "Refreshed searcher for index shard " +
+                    indexShardSearcher.getIndexShard().getId() + " in " + Duration.ofNanos(nanos));
+        } else {
+            // Another thread is refreshing it.
+            skippedRefreshes.increment();
+        }
     }
 
 //    @Override
@@ -249,8 +309,8 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
                             cache.asMap().values().forEach(v -> {
                                 if (v != null) {
                                     try {
-                                        v.getSearcherManager().maybeRefresh();
-                                    } catch (final IOException e) {
+                                        refresh(v, false);
+                                    } catch (final IOException | RuntimeException e) {
                                         LOGGER.error(e::getMessage, e);
                                     }
                                 }
@@ -261,6 +321,24 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
         }
     }
 
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        final long count = refreshes.sum();
+        return SystemInfoResult.builder(this)
+                .addDetail("cachedSearchers", cache == null
+                        ? 0
+                        : cache.size())
+                .addDetail("refreshes", count)
+                .addDetail("blockingRefreshes", blockingRefreshes.sum())
+                .addDetail("skippedRefreshes", skippedRefreshes.sum())
+                .addDetail("totalRefreshTime", Duration.ofNanos(refreshNanos.sum()).toString())
+                .addDetail("meanRefreshTime", Duration.ofNanos(count == 0
+                        ? 0
+                        : refreshNanos.sum() / count).toString())
+                .addDetail("maxRefreshTime", Duration.ofNanos(maxRefreshNanos.get()).toString())
+                .build();
+    }
+
     public static class Key {
 
         private final long indexShardId;
@@ -0,0 +1,183 @@
+package stroom.search.impl.shard;
+
+import stroom.index.impl.IndexShardSummary;
+import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFieldType;
+import stroom.index.shared.IndexFieldsMap;
+import stroom.query.api.v2.DateTimeSettings;
+import stroom.query.api.v2.ExpressionItem;
+import stroom.query.api.v2.ExpressionOperator;
+import stroom.query.api.v2.ExpressionTerm;
+import stroom.query.common.v2.DateExpressionParser;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+/**
+ * Uses the summary of an index shard to decide if the shard might contain documents that match a
+ * search expression, so that shards that can't match can be skipped without being opened. Only
+ * date field ranges and exact keyword terms can be answered by a summary so every other term is
+ * assumed to match, as are NOT operators.
+ */
+class IndexShardSummaryFilter {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardSummaryFilter.class);
+
+    private static final String DELIMITER = ",";
+
+    private final ExpressionOperator expression;
+    private final IndexFieldsMap indexFieldsMap;
+    private final DateTimeSettings dateTimeSettings;
+    private final long nowEpochMilli;
+
+    IndexShardSummaryFilter(final ExpressionOperator expression,
+                            final IndexFieldsMap indexFieldsMap,
+                            final DateTimeSettings dateTimeSettings,
+                            final long nowEpochMilli) {
+        this.expression = expression;
+        this.indexFieldsMap = indexFieldsMap;
+        this.dateTimeSettings = dateTimeSettings;
+        this.nowEpochMilli = nowEpochMilli;
+    }
+
+    /**
+     * @return False if the shard described by the summary definitely contains no matching documents.
+     */
+    boolean mightMatch(final IndexShardSummary summary) {
+        if (expression == null || !summary.isComplete()) {
+            return true;
+        }
+        return mightMatch(expression, summary);
+    }
+
+    private boolean mightMatch(final ExpressionItem item, final IndexShardSummary summary) {
+        if (item.enabled()) {
+            if (item instanceof ExpressionTerm) {
+                return mightMatch((ExpressionTerm) item, summary);
+
+            } else if (item instanceof ExpressionOperator) {
+                final ExpressionOperator operator = (ExpressionOperator) item;
+                if (operator.getChildren() != null) {
+                    switch (operator.op()) {
+                        case AND:
+                            for (final ExpressionItem child : operator.getChildren()) {
+                                if (child.enabled() && !mightMatch(child, summary)) {
+                                    return false;
+                                }
+                            }
+                            return true;
+                        case OR:
+                            boolean hasChildren = false;
+                            for (final ExpressionItem child : operator.getChildren()) {
+                                if (child.enabled()) {
+                                    hasChildren = true;
+                                    if (mightMatch(child, summary)) {
+                                        return true;
+                                    }
+                                }
+                            }
+                            return !hasChildren;
+                        default:
+                            return true;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean mightMatch(final ExpressionTerm term, final IndexShardSummary summary) {
+        final String field = term.getField() == null
+                ? null
+                : term.getField().trim();
+        final String value = term.getValue() == null
+                ? null
+                : term.getValue().trim();
+        if (field == null || value == null || value.isEmpty() || term.getCondition() == null) {
+            return true;
+        }
+
+        final IndexField indexField = indexFieldsMap.get(field);
+        if (indexField == null) {
+            return true;
+        }
+
+        final String fieldName = indexField.getFieldName();
+        try {
+            if (IndexFieldType.DATE_FIELD.equals(indexField.getFieldType())) {
+                if (summary.hasRange(fieldName)) {
+                    return mightMatchDate(term, fieldName, value, summary);
+                }
+            } else if (summary.hasTermFilter(fieldName, indexField.isCaseSensitive())) {
+                return mightMatchKeyword(term, fieldName, indexField, value, summary);
+            }
+        } catch (final RuntimeException e) {
+            // Leave it to the query builder to report bad values.
+            LOGGER.debug(e::getMessage, e);
+        }
+        return true;
+    }
+
+    private boolean mightMatchDate(final ExpressionTerm term,
+                                   final String fieldName,
+                                   final String value,
+                                   final IndexShardSummary summary) {
+        switch (term.getCondition()) {
+            case EQUALS:
+                final long date = getDate(value);
+                return summary.mightContainRange(fieldName, date, date);
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL_TO:
+                return summary.mightContainRange(fieldName, getDate(value), Long.MAX_VALUE);
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL_TO:
+                return summary.mightContainRange(fieldName, Long.MIN_VALUE, getDate(value));
+            case BETWEEN:
+                final long[] between = getDates(value);
+                return between.length != 2 || summary.mightContainRange(fieldName, between[0], between[1]);
+            case IN:
+                for (final long in : getDates(value)) {
+                    if (summary.mightContainRange(fieldName, in, in)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private boolean mightMatchKeyword(final ExpressionTerm term,
+                                      final String fieldName,
+                                      final IndexField indexField,
+                                      final String value,
+                                      final IndexShardSummary summary) {
+        switch (term.getCondition()) {
+            case EQUALS:
+            case CONTAINS:
+                // Keyword fields are searched for a single term, lower cased if the field isn't case
+                // sensitive.
+                final String val = indexField.isCaseSensitive()
+                        ? value
+                        : value.toLowerCase();
+                final boolean termContainsWildcard = (val.indexOf('*') != -1) || (val.indexOf('?') != -1);
+                return termContainsWildcard || summary.mightContainTerm(fieldName, val);
+            default:
+                return true;
+        }
+    }
+
+    private long getDate(final String value) {
+        return DateExpressionParser.parse(value, dateTimeSettings, nowEpochMilli)
+                .map(dt -> dt.toInstant().toEpochMilli())
+                .orElseThrow(() -> new RuntimeException("Unable to parse date " + value));
+    }
+
+    private long[] getDates(final String value) {
+        final String[] values = value.split(DELIMITER);
+        final long[] dates = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            dates[i] = getDate(values[i].trim());
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,54 @@
+package stroom.search.impl.shard;
+
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
+
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Singleton;
+
+/**
+ * Counts how many index shards searches on this node have skipped using their summaries so we can see
+ * whether the summaries are earning their keep.
+ */
+@Singleton
+class IndexShardSummaryStats implements HasSystemInfo {
+
+    private final LongAdder searched = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder noSummary = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param hadSummary False if the shard had no complete summary so had to be searched.
+     */
+    void recordSearched(final boolean hadSummary) {
+        searched.increment();
+        if (!hadSummary) {
+            noSummary.increment();
+        }
+    }
+
+    void recordSkipped() {
+        skipped.increment();
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        final long searchedCount = searched.sum();
+        final long skippedCount = skipped.sum();
+        final long total = searchedCount + skippedCount;
+        return SystemInfoResult.builder(this)
+                .addDetail("shardsSearched", searchedCount)
+                .addDetail("shardsSkipped", skippedCount)
+                .addDetail("skippedPercent", total == 0
+                        ? 0
+                        : Math.round(skippedCount * 100D / total))
+                .addDetail("shardsSearchedWithoutSummary", noSummary.sum())
+                .addDetail("summaryErrors", errors.sum())
+                .build();
+    }
+}
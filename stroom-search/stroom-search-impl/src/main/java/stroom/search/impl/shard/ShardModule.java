@@ -44,6 +44,8 @@ public class ShardModule extends AbstractModule {
                         .schedule(PERIODIC, "10m"));
 
         HasSystemInfoBinder.create(binder())
+                .bind(IndexShardSearcherCacheImpl.class)
+                .bind(IndexShardSummaryStats.class)
                 .bind(IndexShardSystemInfo.class);
     }
 
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl.shard;
+
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValString;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads the values of the requested fields for a matching document.
+ * <p>
+ * Where a field has been written to the shard as binary doc values the value is read from the
+ * column for that field. Any remaining fields are loaded from the stored document, restricted to
+ * just the fields that are still needed. If every requested field has doc values then the stored
+ * fields are never touched so we avoid decompressing stored field blocks altogether.
+ * <p>
+ * Documents written before a field had doc values, e.g. in older segments of a shard, have no
+ * value in the column so these fall back to reading the field from the stored document. Fields
+ * that only have doc values are never read from the stored document as there is nothing stored
+ * for them, so a doc values only field that is sparse doesn't force stored field reads.
+ * <p>
+ * Not thread safe, a reader should only be used by the thread consuming doc ids for a shard.
+ */
+class StoredDataReader {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(StoredDataReader.class);
+
+    private final String[] storedFieldNames;
+    private final BinaryDocValues[] docValues;
+    private final Bits[] docsWithField;
+    private final Set<String> storedFields;
+    private final Set<String> fieldsToLoad;
+
+    /**
+     * @param storedFieldNames The names of the fields to read or null where a field can't be read.
+     * @param storedFields     The names of the fields that are stored in the document, as opposed to
+     *                         only having doc values.
+     */
+    StoredDataReader(final IndexReader indexReader,
+                     final String[] storedFieldNames,
+                     final Set<String> storedFields) throws IOException {
+        this.storedFieldNames = storedFieldNames;
+        this.storedFields = storedFields;
+        this.docValues = new BinaryDocValues[storedFieldNames.length];
+        this.docsWithField = new Bits[storedFieldNames.length];
+        this.fieldsToLoad = new HashSet<>();
+
+        final FieldInfos fieldInfos = MultiFields.getMergedFieldInfos(indexReader);
+        for (int i = 0; i < storedFieldNames.length; i++) {
+            final String fieldName = storedFieldNames[i];
+            if (fieldName != null) {
+                final FieldInfo fieldInfo = fieldInfos.fieldInfo(fieldName);
+                // Older shards or fields without the doc values option will not have a column so fall
+                // back to the stored field.
+                if (fieldInfo != null && DocValuesType.BINARY.equals(fieldInfo.getDocValuesType())) {
+                    docValues[i] = MultiDocValues.getBinaryValues(indexReader, fieldName);
+                    docsWithField[i] = MultiDocValues.getDocsWithField(indexReader, fieldName);
+                }
+                if (docValues[i] == null) {
+                    fieldsToLoad.add(fieldName);
+                }
+            }
+        }
+
+        LOGGER.debug(() -> "Reading " + (storedFieldNames.length - fieldsToLoad.size()) +
+                " fields from doc values and " + fieldsToLoad.size() + " from stored fields");
+    }
+
+    Val[] read(final IndexSearcher searcher, final int docId) throws IOException {
+        final Val[] values = new Val[storedFieldNames.length];
+        final String[] strings = new String[storedFieldNames.length];
+
+        // Read doc values first and note any that this document doesn't have a value for.
+        Set<String> missingDocValues = null;
+        for (int i = 0; i < storedFieldNames.length; i++) {
+            final BinaryDocValues binaryDocValues = docValues[i];
+            if (binaryDocValues != null) {
+                final Bits bits = docsWithField[i];
+                if (bits == null || !bits.get(docId)) {
+                    // Only fall back to the stored document if there is something stored to read.
+                    if (!storedFields.contains(storedFieldNames[i])) {
+                        continue;
+                    }
+                    if (missingDocValues == null) {
+                        missingDocValues = new HashSet<>(fieldsToLoad);
+                    }
+                    missingDocValues.add(storedFieldNames[i]);
+                } else {
+                    final BytesRef bytesRef = binaryDocValues.get(docId);
+                    if (bytesRef != null && bytesRef.length > 0) {
+                        strings[i] = bytesRef.utf8ToString();
+                    }
+                }
+            }
+        }
+
+        final Set<String> load = missingDocValues != null
+                ? missingDocValues
+                : fieldsToLoad;
+        if (load.size() > 0) {
+            final Document document = searcher.doc(docId, load);
+            for (int i = 0; i < storedFieldNames.length; i++) {
+                final String storedField = storedFieldNames[i];
+                // If the field is null then it isn't stored.
+                if (storedField != null && strings[i] == null && load.contains(storedField)) {
+                    final IndexableField indexableField = document.getField(storedField);
+
+                    // If the field is not in fact stored then it will be null here.
+                    if (indexableField != null) {
+                        strings[i] = indexableField.stringValue();
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < storedFieldNames.length; i++) {
+            final String value = strings[i];
+            if (value != null) {
+                final String trimmed = value.trim();
+                if (trimmed.length() > 0) {
+                    values[i] = ValString.create(trimmed);
+                }
+            }
+        }
+
+        return values;
+    }
+}
@@ -16,6 +16,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
@@ -101,12 +103,14 @@ class TestQueues {
         final CompletableFuture<Void>[] consumers = new CompletableFuture[threads];
         for (int i = 0; i < threads; i++) {
             final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                final int[] docIds = new int[100];
                 boolean done = false;
                 while (!done) {
-                    if (queue.take() == null) {
+                    final int count = queue.take(docIds);
+                    if (count < 0) {
                         done = true;
                     } else {
-                        consumed.incrementAndGet();
+                        consumed.addAndGet(count);
                     }
                 }
             }, executorService);
@@ -122,6 +126,37 @@ class TestQueues {
         assertThat(consumed.get()).isEqualTo(MAX);
     }
 
+    @Test
+    void testDocIdQueueWrapsInOrder() {
+        // Use a small queue and batches that don't divide into it so puts and takes wrap around.
+        final DocIdQueue queue = new DocIdQueue(10);
+        final CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            final int[] docIds = new int[7];
+            int next = 0;
+            while (next < MAX) {
+                int length = 0;
+                while (length < docIds.length && next < MAX) {
+                    docIds[length++] = next++;
+                }
+                queue.putAll(docIds, length);
+            }
+            queue.complete();
+        }, executorService);
+
+        final int[] docIds = new int[3];
+        int expected = 0;
+        int count;
+        while ((count = queue.take(docIds)) >= 0) {
+            for (int i = 0; i < count; i++) {
+                assertThat(docIds[i]).isEqualTo(expected++);
+            }
+        }
+        producer.join();
+
+        assertThat(expected).isEqualTo(MAX);
+        assertThat(queue.getPutCount()).isEqualTo(MAX);
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     void testStoredDataQueue() {
@@ -140,7 +175,7 @@ class TestQueues {
                     if (id > MAX) {
                         run = false;
                     } else {
-                        queue.put(new Val[]{ValString.create("test"), ValString.create("test")});
+                        queue.add(new Val[]{ValString.create("test"), ValString.create("test")});
                     }
                 }
             }, executorService);
@@ -152,10 +187,11 @@ class TestQueues {
             final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
                 boolean done = false;
                 while (!done) {
-                    if (queue.take() == null) {
+                    final List<Val[]> valuesList = queue.take();
+                    if (valuesList == null) {
                         done = true;
                     } else {
-                        consumed.incrementAndGet();
+                        consumed.addAndGet(valuesList.size());
                     }
                 }
             }, executorService);
@@ -171,6 +207,55 @@ class TestQueues {
         assertThat(consumed.get()).isEqualTo(MAX);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStoredDataQueueBatches() {
+        final int threads = 10;
+        final int batchSize = 100;
+        // Make the queue smaller than the number of rows the producers can add at once.
+        final StoredDataQueue queue = new StoredDataQueue(new QueryKey(UUID.randomUUID().toString()), 1000);
+        final AtomicInteger produced = new AtomicInteger();
+        final AtomicInteger consumed = new AtomicInteger();
+
+        // Producer.
+        final CompletableFuture<Void>[] producers = new CompletableFuture[threads];
+        for (int i = 0; i < threads; i++) {
+            final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                boolean run = true;
+                while (run) {
+                    final List<Val[]> valuesList = new ArrayList<>(batchSize);
+                    while (valuesList.size() < batchSize && produced.incrementAndGet() <= MAX) {
+                        valuesList.add(new Val[]{ValString.create("test"), ValString.create("test")});
+                    }
+                    if (valuesList.size() < batchSize) {
+                        run = false;
+                    }
+                    queue.addAll(valuesList);
+                }
+            }, executorService);
+            producers[i] = future;
+        }
+
+        final CompletableFuture<Void> consumer = CompletableFuture.runAsync(() -> {
+            boolean done = false;
+            while (!done) {
+                final List<Val[]> valuesList = queue.take();
+                if (valuesList == null) {
+                    done = true;
+                } else {
+                    assertThat(queue.size()).isLessThanOrEqualTo(1000);
+                    consumed.addAndGet(valuesList.size());
+                }
+            }
+        }, executorService);
+
+        CompletableFuture.allOf(producers).join();
+        queue.complete();
+        consumer.join();
+
+        assertThat(consumed.get()).isEqualTo(MAX);
+    }
+
     @Test
     @RepeatedTest(100000)
     @SuppressWarnings("unchecked")
@@ -0,0 +1,125 @@
+package stroom.search.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestRemoteNodeSearch {
+
+    private static final String NODE = "node1";
+
+    @Test
+    void testReadStream() throws IOException {
+        final ClusterSearchResultCollector collector = mockCollector(new AtomicInteger());
+        final Response response = mockResponse(Status.OK, frames(false, false, true));
+
+        assertThat(RemoteNodeSearch.readStream(NODE, response, collector))
+                .isTrue();
+        verify(collector, times(3)).onSuccess(anyString(), any());
+    }
+
+    @Test
+    void testNotFoundFallsBackToPolling() throws IOException {
+        final ClusterSearchResultCollector collector = mockCollector(new AtomicInteger());
+        final Response response = mockResponse(Status.NOT_FOUND, new byte[0]);
+
+        assertThat(RemoteNodeSearch.readStream(NODE, response, collector))
+                .isFalse();
+        verify(response).close();
+        verify(collector, never()).onSuccess(anyString(), any());
+    }
+
+    @Test
+    void testErrorStatusFallsBackToPolling() throws IOException {
+        final ClusterSearchResultCollector collector = mockCollector(new AtomicInteger());
+        final Response response = mockResponse(Status.INTERNAL_SERVER_ERROR, new byte[0]);
+
+        assertThat(RemoteNodeSearch.readStream(NODE, response, collector))
+                .isFalse();
+        verify(collector, never()).onSuccess(anyString(), any());
+    }
+
+    @Test
+    void testTruncatedStreamFallsBackToPolling() throws IOException {
+        final AtomicInteger frameCount = new AtomicInteger();
+        final ClusterSearchResultCollector collector = mockCollector(frameCount);
+        // The remote node goes away part way through the second frame.
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (final DataOutputStream dataOutputStream = RemoteSearchFrames.createWriter(byteArrayOutputStream)) {
+            final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            frame.write(0);
+            RemoteSearchFrames.writeFrame(dataOutputStream, frame);
+            dataOutputStream.writeInt(100);
+            dataOutputStream.write(new byte[10]);
+        }
+        final Response response = mockResponse(Status.OK, byteArrayOutputStream.toByteArray());
+
+        assertThat(RemoteNodeSearch.readStream(NODE, response, collector))
+                .isFalse();
+        assertThat(frameCount)
+                .hasValue(1);
+    }
+
+    @Test
+    void testCollectorErrorIsNotSwallowed() throws IOException {
+        final ClusterSearchResultCollector collector = mock(ClusterSearchResultCollector.class);
+        when(collector.onSuccess(anyString(), any()))
+                .thenThrow(new IllegalStateException("Collector failed"));
+        final Response response = mockResponse(Status.OK, frames(false, true));
+
+        assertThatThrownBy(() -> RemoteNodeSearch.readStream(NODE, response, collector))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Collector failed");
+    }
+
+    /**
+     * Each frame is a single byte holding the completion state.
+     */
+    private static byte[] frames(final boolean... completeStates) throws IOException {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (final DataOutputStream dataOutputStream = RemoteSearchFrames.createWriter(byteArrayOutputStream)) {
+            for (final boolean complete : completeStates) {
+                final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+                frame.write(complete
+                        ? 1
+                        : 0);
+                RemoteSearchFrames.writeFrame(dataOutputStream, frame);
+            }
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static ClusterSearchResultCollector mockCollector(final AtomicInteger frameCount) {
+        final ClusterSearchResultCollector collector = mock(ClusterSearchResultCollector.class);
+        when(collector.onSuccess(anyString(), any())).thenAnswer(invocation -> {
+            frameCount.incrementAndGet();
+            final InputStream inputStream = invocation.getArgument(1);
+            return inputStream.read() == 1;
+        });
+        return collector;
+    }
+
+    private static Response mockResponse(final Status status, final byte[] body) {
+        final Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(status.getStatusCode());
+        when(response.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream(body));
+        return response;
+    }
+}
@@ -0,0 +1,151 @@
+package stroom.search.impl;
+
+import stroom.query.common.v2.CompletionStateImpl;
+import stroom.query.common.v2.Coprocessors;
+import stroom.query.common.v2.ErrorConsumerImpl;
+import stroom.security.api.SecurityContext;
+import stroom.task.api.TaskManager;
+
+import com.esotericsoftware.kryo.io.Input;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestRemoteSearchResultFactory {
+
+    private final AtomicLong valueCount = new AtomicLong();
+    private final CompletionStateImpl completionState = new CompletionStateImpl();
+    private final ErrorConsumerImpl errorConsumer = new ErrorConsumerImpl();
+
+    private ExecutorService executorService;
+    private RemoteSearchResultFactory factory;
+
+    @BeforeEach
+    void beforeEach() {
+        executorService = Executors.newSingleThreadExecutor();
+
+        final Coprocessors coprocessors = mock(Coprocessors.class);
+        when(coprocessors.getCompletionState()).thenReturn(completionState);
+        when(coprocessors.getErrorConsumer()).thenReturn(errorConsumer);
+        when(coprocessors.getValueCount()).thenAnswer(invocation -> valueCount.get());
+
+        factory = new RemoteSearchResultFactory(mock(TaskManager.class), mock(SecurityContext.class));
+        factory.setCoprocessors(coprocessors);
+        factory.setStarted(true);
+    }
+
+    @AfterEach
+    void afterEach() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testFramesFollowNewValues() throws Exception {
+        final PipedInputStream pipedInputStream = new PipedInputStream();
+        final CompletableFuture<Void> future = startStream(pipedInputStream);
+
+        try (final DataInputStream dataInputStream = RemoteSearchFrames.createReader(pipedInputStream)) {
+            // The first frame is written straight away.
+            assertThat(isComplete(RemoteSearchFrames.readFrame(dataInputStream)))
+                    .isFalse();
+
+            // New values get a new frame well before the once a second frame we get when there is nothing new.
+            valueCount.addAndGet(10);
+            final long startTime = System.currentTimeMillis();
+            assertThat(isComplete(RemoteSearchFrames.readFrame(dataInputStream)))
+                    .isFalse();
+            assertThat(System.currentTimeMillis() - startTime)
+                    .isLessThan(800);
+
+            completionState.signalComplete();
+            boolean complete = false;
+            while (!complete) {
+                complete = isComplete(RemoteSearchFrames.readFrame(dataInputStream));
+            }
+            assertThat(dataInputStream.read())
+                    .isEqualTo(-1);
+        }
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testInitialisationError() throws Exception {
+        factory.setInitialisationError(List.of("Bad query"));
+        final PipedInputStream pipedInputStream = new PipedInputStream();
+        final CompletableFuture<Void> future = startStream(pipedInputStream);
+
+        try (final DataInputStream dataInputStream = RemoteSearchFrames.createReader(pipedInputStream)) {
+            assertThat(isComplete(RemoteSearchFrames.readFrame(dataInputStream)))
+                    .isTrue();
+            assertThat(dataInputStream.read())
+                    .isEqualTo(-1);
+        }
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testStreamToRemoteNodeSearch() throws Exception {
+        final PipedInputStream pipedInputStream = new PipedInputStream();
+        final CompletableFuture<Void> future = startStream(pipedInputStream);
+
+        final Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(Status.OK.getStatusCode());
+        when(response.readEntity(InputStream.class)).thenReturn(pipedInputStream);
+
+        final AtomicLong frameCount = new AtomicLong();
+        final ClusterSearchResultCollector collector = mock(ClusterSearchResultCollector.class);
+        when(collector.onSuccess(anyString(), any())).thenAnswer(invocation -> {
+            if (frameCount.incrementAndGet() == 2) {
+                completionState.signalComplete();
+            }
+            return isComplete(((InputStream) invocation.getArgument(1)).readAllBytes());
+        });
+
+        assertThat(RemoteNodeSearch.readStream("node1", response, collector))
+                .isTrue();
+        verify(collector, times((int) frameCount.get())).onSuccess(anyString(), any());
+        assertThat(frameCount.get())
+                .isGreaterThanOrEqualTo(3);
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<Void> startStream(final PipedInputStream pipedInputStream) throws IOException {
+        final PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream);
+        return CompletableFuture.runAsync(() -> {
+            try (pipedOutputStream) {
+                factory.stream(pipedOutputStream);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executorService);
+    }
+
+    private static boolean isComplete(final byte[] frame) {
+        try (final Input input = new Input(frame)) {
+            return input.readBoolean();
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package stroom.search.impl.shard;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.ICache;
+import stroom.index.impl.IndexShardService;
+import stroom.index.impl.IndexShardWriter;
+import stroom.index.impl.IndexShardWriterCache;
+import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.security.api.SecurityContext;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.SimpleTaskContext;
+import stroom.task.api.SimpleTaskContextFactory;
+import stroom.task.shared.ThreadPool;
+import stroom.util.cache.CacheConfig;
+import stroom.util.time.StroomDuration;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestIndexShardSearcherCache {
+
+    private static final long INDEX_SHARD_ID = 1L;
+    private static final StroomDuration LONG_TIME = StroomDuration.ofHours(1);
+
+    private RAMDirectory directory;
+    private IndexWriter indexWriter;
+    private TestCacheManager cacheManager;
+    private IndexShardSearcherCacheImpl indexShardSearcherCache;
+    private volatile IndexShardSearchConfig config;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        directory = new RAMDirectory();
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()));
+        addDocument();
+        indexWriter.commit();
+
+        final IndexShard indexShard = new IndexShard();
+        indexShard.setId(INDEX_SHARD_ID);
+        indexShard.setStatus(IndexShardStatus.OPEN);
+        final IndexShardService indexShardService = mock(IndexShardService.class);
+        when(indexShardService.loadById(INDEX_SHARD_ID)).thenReturn(indexShard);
+
+        final IndexShardWriter indexShardWriter = mock(IndexShardWriter.class);
+        when(indexShardWriter.getWriter()).thenReturn(indexWriter);
+        final IndexShardWriterCache indexShardWriterCache = mock(IndexShardWriterCache.class);
+        when(indexShardWriterCache.getWriterByShardId(INDEX_SHARD_ID)).thenReturn(indexShardWriter);
+
+        final SecurityContext securityContext = mock(SecurityContext.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(securityContext).asProcessingUser(any(Runnable.class));
+
+        config = createConfig(LONG_TIME, LONG_TIME, true);
+        cacheManager = new TestCacheManager();
+        indexShardSearcherCache = new IndexShardSearcherCacheImpl(
+                cacheManager,
+                indexShardService,
+                indexShardWriterCache,
+                new ExecutorProvider() {
+                    @Override
+                    public Executor get(final ThreadPool threadPool) {
+                        return Runnable::run;
+                    }
+
+                    @Override
+                    public Executor get() {
+                        return Runnable::run;
+                    }
+                },
+                new SimpleTaskContextFactory(),
+                new SimpleTaskContext(),
+                () -> config,
+                securityContext);
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        indexShardSearcherCache.clear();
+        indexWriter.close();
+        directory.close();
+    }
+
+    @Test
+    void testEvictedSearcherStaysOpenUntilReleased() throws IOException {
+        final IndexShardSearcher searcher1 = indexShardSearcherCache.get(INDEX_SHARD_ID);
+
+        // Evicting the searcher mid search releases the cache's reference but the search still has one.
+        cacheManager.evictAll();
+        assertThat(countDocs(searcher1)).isEqualTo(1);
+
+        // The next search gets a new searcher.
+        final IndexShardSearcher searcher2 = indexShardSearcherCache.get(INDEX_SHARD_ID);
+        assertThat(searcher2).isNotSameAs(searcher1);
+
+        // The evicted searcher is closed once the search has finished with it.
+        searcher1.destroy();
+        assertThatThrownBy(() -> countDocs(searcher1)).isInstanceOf(AlreadyClosedException.class);
+        assertThat(searcher1.incRef()).isFalse();
+
+        // The new searcher is unaffected.
+        assertThat(countDocs(searcher2)).isEqualTo(1);
+        searcher2.destroy();
+    }
+
+    @Test
+    void testReleasedSearcherStaysOpenUntilEvicted() throws IOException {
+        final IndexShardSearcher searcher1 = indexShardSearcherCache.get(INDEX_SHARD_ID);
+        searcher1.destroy();
+
+        // The cache still holds a reference so the searcher is shared with the next search.
+        assertThat(countDocs(searcher1)).isEqualTo(1);
+        final IndexShardSearcher searcher2 = indexShardSearcherCache.get(INDEX_SHARD_ID);
+        assertThat(searcher2).isSameAs(searcher1);
+        searcher2.destroy();
+
+        cacheManager.evictAll();
+        assertThatThrownBy(() -> countDocs(searcher1)).isInstanceOf(AlreadyClosedException.class);
+    }
+
+    @Test
+    void testNoRefreshWithinMinInterval() throws IOException {
+        indexShardSearcherCache.get(INDEX_SHARD_ID).destroy();
+        addDocument();
+
+        final IndexShardSearcher searcher = indexShardSearcherCache.get(INDEX_SHARD_ID);
+        assertThat(countDocs(searcher)).isEqualTo(1);
+        searcher.destroy();
+        assertThat(getDetail("refreshes")).isEqualTo(0L);
+    }
+
+    @Test
+    void testRefreshOnSearch() throws IOException {
+        config = createConfig(LONG_TIME, StroomDuration.ZERO, true);
+        indexShardSearcherCache.get(INDEX_SHARD_ID).destroy();
+        final long refreshes = getDetail("refreshes");
+        addDocument();
+
+        final IndexShardSearcher searcher = indexShardSearcherCache.get(INDEX_SHARD_ID);
+        assertThat(countDocs(searcher)).isEqualTo(2);
+        searcher.destroy();
+        assertThat(getDetail("refreshes")).isEqualTo(refreshes + 1);
+        assertThat(getDetail("blockingRefreshes")).isEqualTo(0L);
+    }
+
+    @Test
+    void testNoRefreshOnSearchWhenDisabled() throws IOException {
+        config = createConfig(LONG_TIME, StroomDuration.ZERO, false);
+        indexShardSearcherCache.get(INDEX_SHARD_ID).destroy();
+        addDocument();
+
+        final IndexShardSearcher searcher = indexShardSearcherCache.get(INDEX_SHARD_ID);
+        assertThat(countDocs(searcher)).isEqualTo(1);
+        searcher.destroy();
+        assertThat(getDetail("refreshes")).isEqualTo(0L);
+
+        // Refreshing the cache still brings the searcher up to date.
+        indexShardSearcherCache.refresh();
+        final IndexShardSearcher refreshed = indexShardSearcherCache.get(INDEX_SHARD_ID);
+        assertThat(countDocs(refreshed)).isEqualTo(2);
+        refreshed.destroy();
+    }
+
+    @Test
+    void testBlockingRefreshWhenStale() throws IOException {
+        config = createConfig(StroomDuration.ZERO, LONG_TIME, false);
+        indexShardSearcherCache.get(INDEX_SHARD_ID).destroy();
+        final long blockingRefreshes = getDetail("blockingRefreshes");
+        addDocument();
+
+        final IndexShardSearcher searcher = indexShardSearcherCache.get(INDEX_SHARD_ID);
+        assertThat(countDocs(searcher)).isEqualTo(2);
+        searcher.destroy();
+        assertThat(getDetail("blockingRefreshes")).isEqualTo(blockingRefreshes + 1);
+    }
+
+    private void addDocument() throws IOException {
+        final Document document = new Document();
+        document.add(new StringField("Type", "test", Store.NO));
+        indexWriter.addDocument(document);
+    }
+
+    private int countDocs(final IndexShardSearcher indexShardSearcher) throws IOException {
+        final SearcherManager searcherManager = indexShardSearcher.getSearcherManager();
+        final IndexSearcher indexSearcher = searcherManager.acquire();
+        try {
+            return indexSearcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
+
+    private long getDetail(final String name) {
+        return ((Number) indexShardSearcherCache.getSystemInfo().getDetails().get(name)).longValue();
+    }
+
+    private IndexShardSearchConfig createConfig(final StroomDuration maxStaleness,
+                                                final StroomDuration minRefreshInterval,
+                                                final boolean refreshOnSearch) {
+        final IndexShardSearchConfig defaultConfig = new IndexShardSearchConfig();
+        return new IndexShardSearchConfig(
+                defaultConfig.getMaxDocIdQueueSize(),
+                defaultConfig.getMaxThreadsPerTask(),
+                defaultConfig.getMaxSegmentThreadsPerShard(),
+                maxStaleness,
+                minRefreshInterval,
+                refreshOnSearch,
+                defaultConfig.getRemoteSearchResultCache(),
+                defaultConfig.getIndexShardSearcherCache());
+    }
+
+    /**
+     * Holds cache entries in a map and notifies removals on the calling thread so tests can control
+     * exactly when searchers are evicted.
+     */
+    private static class TestCacheManager implements CacheManager {
+
+        private final Map<Object, Object> map = new HashMap<>();
+        private BiConsumer<Object, Object> removalNotificationConsumer;
+
+        @Override
+        public <K, V> ICache<K, V> create(final String name, final Supplier<CacheConfig> cacheConfigSupplier) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <K, V> ICache<K, V> create(final String name,
+                                          final Supplier<CacheConfig> cacheConfigSupplier,
+                                          final Function<K, V> loadFunction) {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public synchronized <K, V> ICache<K, V> create(final String name,
+                                                       final Supplier<CacheConfig> cacheConfigSupplier,
+                                                       final Function<K, V> loadFunction,
+                                                       final BiConsumer<K, V> removalNotificationConsumer) {
+            this.removalNotificationConsumer = (BiConsumer<Object, Object>) removalNotificationConsumer;
+            final Map<K, V> typedMap = (Map<K, V>) map;
+            return new ICache<>() {
+                @Override
+                public V get(final K key) {
+                    synchronized (TestCacheManager.this) {
+                        return typedMap.computeIfAbsent(key, loadFunction);
+                    }
+                }
+
+                @Override
+                public void put(final K key, final V value) {
+                    synchronized (TestCacheManager.this) {
+                        typedMap.put(key, value);
+                    }
+                }
+
+                @Override
+                public Optional<V> getOptional(final K key) {
+                    synchronized (TestCacheManager.this) {
+                        return Optional.ofNullable(typedMap.get(key));
+                    }
+                }
+
+                @Override
+                public Map<K, V> asMap() {
+                    synchronized (TestCacheManager.this) {
+                        return new HashMap<>(typedMap);
+                    }
+                }
+
+                @Override
+                public Collection<V> values() {
+                    synchronized (TestCacheManager.this) {
+                        return new ArrayList<>(typedMap.values());
+                    }
+                }
+
+                @Override
+                public void invalidate(final K key) {
+                    remove(key);
+                }
+
+                @Override
+                public void remove(final K key) {
+                    final V value;
+                    synchronized (TestCacheManager.this) {
+                        value = typedMap.remove(key);
+                    }
+                    if (value != null) {
+                        removalNotificationConsumer.accept(key, value);
+                    }
+                }
+
+                @Override
+                public void evictExpiredElements() {
+                }
+
+                @Override
+                public long size() {
+                    synchronized (TestCacheManager.this) {
+                        return typedMap.size();
+                    }
+                }
+
+                @Override
+                public void clear() {
+                    evictAll();
+                }
+            };
+        }
+
+        synchronized void evictAll() {
+            new HashMap<>(map).forEach((key, value) -> {
+                map.remove(key);
+                removalNotificationConsumer.accept(key, value);
+            });
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package stroom.search.impl.shard;
+
+import stroom.query.common.v2.ErrorConsumerImpl;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.SimpleTaskContext;
+import stroom.task.api.SimpleTaskContextFactory;
+import stroom.task.api.TaskContext;
+import stroom.task.api.TaskTerminatedException;
+import stroom.task.api.TerminateHandlerFactory;
+import stroom.task.shared.ThreadPool;
+import stroom.util.time.StroomDuration;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestIndexShardSegmentSearch {
+
+    private static final int SEGMENTS = 6;
+    private static final int DOCS_PER_SEGMENT = 2_000;
+    private static final Query QUERY = new TermQuery(new Term("Type", "match"));
+
+    private RAMDirectory directory;
+    private DirectoryReader reader;
+    private ExecutorService segmentExecutor;
+    private ExecutorService consumerExecutor;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        directory = new RAMDirectory();
+        final IndexWriterConfig indexWriterConfig = new IndexWriterConfig(new KeywordAnalyzer())
+                .setMergePolicy(NoMergePolicy.INSTANCE);
+        try (final IndexWriter indexWriter = new IndexWriter(directory, indexWriterConfig)) {
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                for (int i = 0; i < DOCS_PER_SEGMENT; i++) {
+                    final Document document = new Document();
+                    document.add(new StringField("Type",
+                            i % 3 == 0
+                                    ? "match"
+                                    : "other",
+                            Store.NO));
+                    indexWriter.addDocument(document);
+                }
+                // Commit each batch to get a new segment.
+                indexWriter.commit();
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        assertThat(reader.leaves()).hasSize(SEGMENTS);
+
+        segmentExecutor = Executors.newCachedThreadPool();
+        consumerExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        segmentExecutor.shutdownNow();
+        consumerExecutor.shutdownNow();
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    void testParallelMatchesSerial() throws Exception {
+        final IndexSearcher searcher = new IndexSearcher(reader);
+
+        final SearchResult serial = search(new SimpleTaskContext(), 1_000_000, Integer.MAX_VALUE,
+                (taskContext, docIdQueue, hitCount) -> {
+                    final IndexShardHitCollector collector = new IndexShardHitCollector(
+                            taskContext, null, null, QUERY, docIdQueue, hitCount);
+                    try {
+                        searcher.search(QUERY, collector);
+                    } catch (final IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    collector.flush();
+                });
+        final SearchResult parallel = search(new SimpleTaskContext(), 1_000_000, Integer.MAX_VALUE,
+                (taskContext, docIdQueue, hitCount) -> searchSegments(taskContext, searcher, docIdQueue, hitCount));
+
+        final int expectedHits = SEGMENTS * ((DOCS_PER_SEGMENT + 2) / 3);
+        assertThat(serial.docIds).hasSize(expectedHits);
+        assertThat(serial.hitCount).isEqualTo(expectedHits);
+        assertThat(parallel.docIds).containsExactlyElementsOf(serial.docIds);
+        assertThat(parallel.hitCount).isEqualTo(serial.hitCount);
+    }
+
+    @Test
+    void testEarlyTermination() throws Exception {
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        final int takeBeforeTerminate = 500;
+
+        final SearchResult serial = search(new SimpleTaskContext(), 100, takeBeforeTerminate,
+                (taskContext, docIdQueue, hitCount) -> {
+                    final IndexShardHitCollector collector = new IndexShardHitCollector(
+                            taskContext, null, null, QUERY, docIdQueue, hitCount);
+                    try {
+                        searcher.search(QUERY, collector);
+                        collector.flush();
+                    } catch (final TaskTerminatedException e) {
+                        // Expected.
+                    } catch (final IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+        final SearchResult parallel = search(new SimpleTaskContext(), 100, takeBeforeTerminate,
+                (taskContext, docIdQueue, hitCount) -> searchSegments(taskContext, searcher, docIdQueue, hitCount));
+
+        // Both stop well short of all the hits and neither reports an error.
+        final int allHits = SEGMENTS * ((DOCS_PER_SEGMENT + 2) / 3);
+        assertThat(serial.docIds.size()).isBetween(takeBeforeTerminate, allHits - 1);
+        assertThat(parallel.docIds.size()).isBetween(takeBeforeTerminate, allHits - 1);
+        assertThat(serial.errors).isEmpty();
+        assertThat(parallel.errors).isEmpty();
+    }
+
+    private void searchSegments(final TaskContext taskContext,
+                                final IndexSearcher searcher,
+                                final DocIdQueue docIdQueue,
+                                final LongAdder hitCount) {
+        final IndexShardSearchConfig config = new IndexShardSearchConfig(
+                1_000_000,
+                5,
+                4,
+                StroomDuration.ofSeconds(10),
+                StroomDuration.ofSeconds(1),
+                true,
+                null,
+                null);
+        // Children share the parent's context so they see it terminate as they would in stroom.
+        final SimpleTaskContextFactory taskContextFactory = new SimpleTaskContextFactory() {
+            @Override
+            public Runnable childContext(final TaskContext parentContext,
+                                         final String taskName,
+                                         final TerminateHandlerFactory terminateHandlerFactory,
+                                         final Consumer<TaskContext> consumer) {
+                return () -> consumer.accept(parentContext);
+            }
+        };
+        final IndexShardSearchTaskHandler handler = new IndexShardSearchTaskHandler(
+                null,
+                null,
+                null,
+                config,
+                new ExecutorProvider() {
+                    @Override
+                    public Executor get(final ThreadPool threadPool) {
+                        return Runnable::run;
+                    }
+
+                    @Override
+                    public Executor get() {
+                        return Runnable::run;
+                    }
+                },
+                // Fewer segment threads than workers so some workers have to run on the calling thread.
+                new IndexSegmentSearchExecutor(segmentExecutor, 2),
+                taskContextFactory);
+        final ErrorConsumerImpl errorConsumer = new ErrorConsumerImpl();
+        try {
+            handler.searchSegments(taskContext, null, QUERY, searcher, docIdQueue, hitCount, errorConsumer);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        errorConsumer.getErrors().forEach(error -> {
+            throw new RuntimeException(error);
+        });
+    }
+
+    /**
+     * Run the searcher on this thread while another thread consumes the doc ids, terminating the task
+     * once it has taken takeBeforeTerminate of them.
+     */
+    private SearchResult search(final SimpleTaskContext taskContext,
+                                final int queueSize,
+                                final int takeBeforeTerminate,
+                                final Searcher searcher) throws Exception {
+        final DocIdQueue docIdQueue = new DocIdQueue(queueSize);
+        final LongAdder hitCount = new LongAdder();
+        final CompletableFuture<List<Integer>> consumer = CompletableFuture.supplyAsync(() -> {
+            final List<Integer> docIds = new ArrayList<>();
+            final int[] batch = new int[100];
+            int count;
+            while ((count = docIdQueue.take(batch)) >= 0) {
+                for (int i = 0; i < count; i++) {
+                    docIds.add(batch[i]);
+                }
+                if (docIds.size() >= takeBeforeTerminate) {
+                    taskContext.terminate();
+                }
+            }
+            return docIds;
+        }, consumerExecutor);
+
+        final List<String> errors = new ArrayList<>();
+        try {
+            searcher.search(taskContext, docIdQueue, hitCount);
+        } catch (final RuntimeException e) {
+            errors.add(e.getMessage());
+        } finally {
+            docIdQueue.complete();
+        }
+
+        final List<Integer> docIds = consumer.get(30, TimeUnit.SECONDS);
+        Collections.sort(docIds);
+        return new SearchResult(docIds, hitCount.sum(), errors);
+    }
+
+    private interface Searcher {
+
+        void search(TaskContext taskContext, DocIdQueue docIdQueue, LongAdder hitCount);
+    }
+
+    private record SearchResult(List<Integer> docIds, long hitCount, List<String> errors) {
+
+    }
+}
@@ -0,0 +1,169 @@
+package stroom.search.impl.shard;
+
+import stroom.index.impl.FieldFactory;
+import stroom.index.impl.IndexShardSummary;
+import stroom.index.impl.IndexStructure;
+import stroom.index.shared.AnalyzerType;
+import stroom.index.shared.IndexDoc;
+import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFieldsMap;
+import stroom.query.api.v2.DateTimeSettings;
+import stroom.query.api.v2.ExpressionOperator;
+import stroom.query.api.v2.ExpressionOperator.Op;
+import stroom.query.api.v2.ExpressionTerm.Condition;
+import stroom.util.date.DateUtil;
+
+import org.apache.lucene.document.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestIndexShardSummaryFilter {
+
+    private static final IndexField EVENT_TIME = IndexField.createDateField("EventTime");
+    private static final IndexField USER_ID = IndexField.createField("UserId", AnalyzerType.KEYWORD);
+    private static final IndexField TEXT = IndexField.createField("Text");
+    private static final List<IndexField> FIELDS = List.of(EVENT_TIME, USER_ID, TEXT);
+
+    @Test
+    void testSummaryFromFile(@TempDir final Path tempDir) throws IOException {
+        final IndexShardSummary summary = createSummary();
+        summary.write(tempDir);
+        final IndexShardSummary read = IndexShardSummary.read(tempDir).orElseThrow();
+
+        assertThat(read.isComplete()).isTrue();
+        assertThat(read.getDocCount()).isEqualTo(10);
+        test(read);
+    }
+
+    @Test
+    void testStaleSummary(@TempDir final Path tempDir) throws IOException {
+        final IndexShardSummary summary = createSummary();
+        summary.write(tempDir);
+        final IndexShardSummary read = IndexShardSummary.read(tempDir).orElseThrow();
+
+        // A summary that is behind the shard, e.g. the shard was committed but we stopped before the summary
+        // was written, must not be used to skip the shard.
+        assertThat(read.forDocCount(10).isComplete()).isTrue();
+        assertThat(read.forDocCount(11).isComplete()).isFalse();
+        assertThat(createFilter(ExpressionOperator.builder()
+                .addTerm("UserId", Condition.EQUALS, "missing")
+                .build()).mightMatch(read.forDocCount(11))).isTrue();
+
+        // Docs that fail to be added to the shard don't count.
+        summary.removeFailedAdd();
+        assertThat(summary.forDocCount(9).isComplete()).isTrue();
+    }
+
+    @Test
+    void testLiveSummary() {
+        test(createSummary());
+    }
+
+    @Test
+    void testMergedSummary() {
+        final IndexShardSummary merged = IndexShardSummary.merge(List.of(createSummary(), createSummary()));
+
+        assertThat(merged.isComplete()).isTrue();
+        assertThat(merged.getDocCount()).isEqualTo(20);
+        assertThat(merged.forDocCount(20).isComplete()).isTrue();
+        test(merged);
+        assertThat(IndexShardSummary.merge(List.of(createSummary(), IndexShardSummary.incomplete())).isComplete())
+                .isFalse();
+    }
+
+    @Test
+    void testIncompleteSummary() {
+        final IndexShardSummaryFilter filter = createFilter(ExpressionOperator.builder()
+                .addTerm("UserId", Condition.EQUALS, "missing")
+                .build());
+        assertThat(filter.mightMatch(IndexShardSummary.incomplete())).isTrue();
+    }
+
+    private void test(final IndexShardSummary summary) {
+        // Time ranges.
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("EventTime", Condition.BETWEEN, "2010-01-01T00:00:00.000Z,2010-01-02T00:00:00.000Z")
+                .build())).isTrue();
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("EventTime", Condition.BETWEEN, "2011-01-01T00:00:00.000Z,2011-01-02T00:00:00.000Z")
+                .build())).isFalse();
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("EventTime", Condition.GREATER_THAN, "2010-01-01T09:00:00.000Z")
+                .build())).isTrue();
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("EventTime", Condition.GREATER_THAN, "2010-01-01T11:00:00.000Z")
+                .build())).isFalse();
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("EventTime", Condition.LESS_THAN, "2010-01-01T00:00:00.000Z")
+                .build())).isFalse();
+
+        // Keyword terms.
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("UserId", Condition.EQUALS, "user5")
+                .build())).isTrue();
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("UserId", Condition.EQUALS, "USER5")
+                .build())).isTrue();
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("UserId", Condition.EQUALS, "unknown")
+                .build())).isFalse();
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("UserId", Condition.EQUALS, "unknown*")
+                .build())).isTrue();
+
+        // Terms the summary can't answer.
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("Text", Condition.EQUALS, "unknown")
+                .build())).isTrue();
+
+        // Operators.
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .addTerm("UserId", Condition.EQUALS, "user5")
+                .addTerm("UserId", Condition.EQUALS, "unknown")
+                .build())).isFalse();
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .op(Op.OR)
+                .addTerm("UserId", Condition.EQUALS, "user5")
+                .addTerm("UserId", Condition.EQUALS, "unknown")
+                .build())).isTrue();
+        assertThat(mightMatch(summary, ExpressionOperator.builder()
+                .op(Op.NOT)
+                .addTerm("UserId", Condition.EQUALS, "unknown")
+                .build())).isTrue();
+    }
+
+    private IndexShardSummary createSummary() {
+        final IndexDoc indexDoc = new IndexDoc();
+        indexDoc.setFields(FIELDS);
+        final IndexStructure indexStructure = new IndexStructure(indexDoc, FIELDS, new IndexFieldsMap(FIELDS));
+        final IndexShardSummary summary = IndexShardSummary.create(indexStructure, 1000);
+
+        final long startTime = DateUtil.parseNormalDateTimeString("2010-01-01T00:00:00.000Z");
+        for (int i = 0; i < 10; i++) {
+            final Document document = new Document();
+            document.add(FieldFactory.create(EVENT_TIME, startTime + (i * 3_600_000L)));
+            document.add(FieldFactory.create(USER_ID, "user" + i));
+            document.add(FieldFactory.create(TEXT, "text" + i));
+            summary.add(document);
+        }
+        return summary;
+    }
+
+    private boolean mightMatch(final IndexShardSummary summary, final ExpressionOperator expression) {
+        return createFilter(expression).mightMatch(summary);
+    }
+
+    private IndexShardSummaryFilter createFilter(final ExpressionOperator expression) {
+        return new IndexShardSummaryFilter(
+                expression,
+                new IndexFieldsMap(FIELDS),
+                DateTimeSettings.builder().build(),
+                System.currentTimeMillis());
+    }
+}
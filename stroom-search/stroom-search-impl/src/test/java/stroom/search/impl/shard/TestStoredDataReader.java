@@ -0,0 +1,168 @@
+package stroom.search.impl.shard;
+
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValString;
+import stroom.index.impl.FieldFactory;
+import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFieldType;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestStoredDataReader {
+
+    private static final IndexField STORED = IndexField.builder()
+            .fieldName("Stored")
+            .stored(true)
+            .build();
+    private static final IndexField DOC_VALUES = IndexField.builder()
+            .fieldName("DocValues")
+            .stored(false)
+            .docValues(true)
+            .build();
+    private static final IndexField NUMERIC_DOC_VALUES = IndexField.builder()
+            .fieldType(IndexFieldType.LONG_FIELD)
+            .fieldName("Numeric")
+            .stored(true)
+            .docValues(true)
+            .build();
+
+    @Test
+    void testMixedFields() throws IOException {
+        try (final RAMDirectory directory = new RAMDirectory()) {
+            try (final IndexWriter indexWriter = new IndexWriter(directory,
+                    new IndexWriterConfig(new KeywordAnalyzer()))) {
+                for (int i = 0; i < 10; i++) {
+                    final Document document = new Document();
+                    document.add(FieldFactory.create(STORED, "stored" + i));
+                    document.add(FieldFactory.create(NUMERIC_DOC_VALUES, (long) i));
+                    document.add(FieldFactory.createDocValues(NUMERIC_DOC_VALUES, String.valueOf(i)));
+                    // Leave one document without a doc value.
+                    if (i != 5) {
+                        document.add(FieldFactory.createDocValues(DOC_VALUES, "docValue" + i));
+                    }
+                    indexWriter.addDocument(document);
+                }
+            }
+
+            try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+                final IndexSearcher searcher = new IndexSearcher(reader);
+                final StoredDataReader storedDataReader = new StoredDataReader(reader,
+                        new String[]{"Stored", null, "DocValues", "Numeric", "Missing"},
+                        Set.of("Stored", "Numeric"));
+
+                for (int i = 0; i < 10; i++) {
+                    final Val[] values = storedDataReader.read(searcher, i);
+                    assertThat(values[0]).isEqualTo(ValString.create("stored" + i));
+                    assertThat(values[1]).isNull();
+                    if (i == 5) {
+                        assertThat(values[2]).isNull();
+                    } else {
+                        assertThat(values[2]).isEqualTo(ValString.create("docValue" + i));
+                    }
+                    assertThat(values[3]).isEqualTo(ValString.create(String.valueOf(i)));
+                    assertThat(values[4]).isNull();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testMixedSegments() throws IOException {
+        try (final RAMDirectory directory = new RAMDirectory()) {
+            try (final IndexWriter indexWriter = new IndexWriter(directory,
+                    new IndexWriterConfig(new KeywordAnalyzer()))) {
+                // Documents written before the field had doc values only have the stored value.
+                for (int i = 0; i < 5; i++) {
+                    final Document document = new Document();
+                    document.add(FieldFactory.create(NUMERIC_DOC_VALUES, (long) i));
+                    indexWriter.addDocument(document);
+                }
+                indexWriter.commit();
+
+                for (int i = 5; i < 10; i++) {
+                    final Document document = new Document();
+                    document.add(FieldFactory.create(NUMERIC_DOC_VALUES, (long) i));
+                    document.add(FieldFactory.createDocValues(NUMERIC_DOC_VALUES, String.valueOf(i)));
+                    indexWriter.addDocument(document);
+                }
+            }
+
+            try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertThat(reader.leaves()).hasSizeGreaterThan(1);
+                final IndexSearcher searcher = new IndexSearcher(reader);
+                final StoredDataReader storedDataReader = new StoredDataReader(reader,
+                        new String[]{"Numeric"},
+                        Set.of("Numeric"));
+
+                for (int i = 0; i < 10; i++) {
+                    final Val[] values = storedDataReader.read(searcher, i);
+                    assertThat(values[0]).isEqualTo(ValString.create(String.valueOf(i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSparseDocValuesOnlyFieldDoesNotReadStoredFields() throws IOException {
+        try (final RAMDirectory directory = new RAMDirectory()) {
+            try (final IndexWriter indexWriter = new IndexWriter(directory,
+                    new IndexWriterConfig(new KeywordAnalyzer()))) {
+                for (int i = 0; i < 10; i++) {
+                    final Document document = new Document();
+                    document.add(FieldFactory.create(STORED, "stored" + i));
+                    // Only some documents have a value for the doc values only field.
+                    if (i % 2 == 0) {
+                        document.add(FieldFactory.createDocValues(DOC_VALUES, "docValue" + i));
+                    }
+                    indexWriter.addDocument(document);
+                }
+            }
+
+            try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+                final CountingIndexSearcher searcher = new CountingIndexSearcher(reader);
+                final StoredDataReader storedDataReader = new StoredDataReader(reader,
+                        new String[]{"DocValues"},
+                        Set.of());
+
+                for (int i = 0; i < 10; i++) {
+                    final Val[] values = storedDataReader.read(searcher, i);
+                    if (i % 2 == 0) {
+                        assertThat(values[0]).isEqualTo(ValString.create("docValue" + i));
+                    } else {
+                        assertThat(values[0]).isNull();
+                    }
+                }
+                assertThat(searcher.docReads.get()).isZero();
+            }
+        }
+    }
+
+    private static class CountingIndexSearcher extends IndexSearcher {
+
+        private final AtomicInteger docReads = new AtomicInteger();
+
+        CountingIndexSearcher(final IndexReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public Document doc(final int docID, final Set<String> fieldsToLoad) throws IOException {
+            docReads.incrementAndGet();
+            return super.doc(docID, fieldsToLoad);
+        }
+    }
+}
@@ -37,6 +37,10 @@ public class OkHttpClientConfig {
     private final Boolean followSslRedirects;
     @JsonProperty
     private final Boolean retryOnConnectionFailure;
+    @JsonProperty
+    private final StroomDuration responseCacheTtl;
+    @JsonProperty
+    private final Integer maxConcurrentRequests;
 
     @JsonCreator
     public OkHttpClientConfig(@JsonProperty("httpProtocols") final List<String> httpProtocols,
@@ -47,7 +51,9 @@ public class OkHttpClientConfig {
                               @JsonProperty("writeTimeout") final StroomDuration writeTimeout,
                               @JsonProperty("followRedirects") final Boolean followRedirects,
                               @JsonProperty("followSslRedirects") final Boolean followSslRedirects,
-                              @JsonProperty("retryOnConnectionFailure") final Boolean retryOnConnectionFailure) {
+                              @JsonProperty("retryOnConnectionFailure") final Boolean retryOnConnectionFailure,
+                              @JsonProperty("responseCacheTtl") final StroomDuration responseCacheTtl,
+                              @JsonProperty("maxConcurrentRequests") final Integer maxConcurrentRequests) {
         this.httpProtocols = httpProtocols;
         this.sslConfig = sslConfig;
         this.callTimeout = callTimeout;
@@ -57,6 +63,8 @@ public class OkHttpClientConfig {
         this.followRedirects = followRedirects;
         this.followSslRedirects = followSslRedirects;
         this.retryOnConnectionFailure = retryOnConnectionFailure;
+        this.responseCacheTtl = responseCacheTtl;
+        this.maxConcurrentRequests = maxConcurrentRequests;
     }
 
     @JsonPropertyDescription("SSL configuration for the http client.")
@@ -128,6 +136,24 @@ public class OkHttpClientConfig {
         return retryOnConnectionFailure;
     }
 
+    @JsonPropertyDescription("How long to cache the responses to calls made with this client for. Identical calls, " +
+            "i.e. with the same URL, headers, media type and data, made within this time will be given the cached " +
+            "response rather than making another request, and identical calls made while a request is in flight " +
+            "will wait for it and share its response. Only set this if the service being called returns the same " +
+            "response for the same request. Server errors are never cached. " +
+            "If not set, responses are not cached.")
+    public StroomDuration getResponseCacheTtl() {
+        return responseCacheTtl;
+    }
+
+    @JsonPropertyDescription("The maximum number of requests made with this client that can be waiting for a " +
+            "response at once, across all pipelines on this node. Requests beyond this are queued until an " +
+            "earlier one has had its response. Use this to stop busy pipelines overloading the service being " +
+            "called. If not set, each request is made on the calling thread and the number at once is unlimited.")
+    public Integer getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
     @Override
     public String toString() {
         return "OkHttpClientConfig{" +
@@ -140,6 +166,8 @@ public class OkHttpClientConfig {
                 ", followRedirects=" + followRedirects +
                 ", followSslRedirects=" + followSslRedirects +
                 ", retryOnConnectionFailure=" + retryOnConnectionFailure +
+                ", responseCacheTtl=" + responseCacheTtl +
+                ", maxConcurrentRequests=" + maxConcurrentRequests +
                 '}';
     }
 }
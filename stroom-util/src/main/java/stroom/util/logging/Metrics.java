@@ -52,6 +52,10 @@ public class Metrics {
         Metrics.enabled = enabled;
     }
 
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
     private static class Metric {
 
         private final String name;